@@ -0,0 +1,88 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import implementations.BSTree;
+import utilities.Iterator;
+
+/**
+ * {@link BSTree} insert, search and traversal costs for different key orders.
+ * Sorted keys degenerate the tree into a list, which is the case the
+ * balanced and frozen structures are meant to avoid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BSTreeBenchmark {
+
+    @Param({ "random", "sorted", "zipf" })
+    public String keys;
+
+    @Param({ "1000", "10000" })
+    public int size;
+
+    private Integer[] insertOrder;
+    private Integer[] probes;
+    private BSTree<Integer> tree;
+
+    @Setup
+    public void setUp() {
+        insertOrder = Corpus.keys(keys, size, size, 42);
+        probes = Corpus.keys(keys.equals("zipf") ? "zipf" : "random", size, 1024, 7);
+        tree = build();
+    }
+
+    private BSTree<Integer> build() {
+        BSTree<Integer> t = new BSTree<>();
+        for (Integer k : insertOrder)
+            t.add(k);
+        return t;
+    }
+
+    @Benchmark
+    public BSTree<Integer> add() {
+        return build();
+    }
+
+    @Benchmark
+    public void search(Blackhole bh) {
+        for (Integer k : probes)
+            bh.consume(tree.search(k));
+    }
+
+    @Benchmark
+    public void inorder(Blackhole bh) {
+        drain(tree.inorderIterator(), bh);
+    }
+
+    @Benchmark
+    public void preorder(Blackhole bh) {
+        drain(tree.preorderIterator(), bh);
+    }
+
+    @Benchmark
+    public void postorder(Blackhole bh) {
+        drain(tree.postorderIterator(), bh);
+    }
+
+    private static void drain(Iterator<Integer> it, Blackhole bh) {
+        while (it.hasNext())
+            bh.consume(it.next());
+    }
+}
@@ -0,0 +1,140 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test data shared by the benchmarks: integer key sequences in several
+ * distributions and word tokens taken from the {@code res} text files.
+ */
+final class Corpus {
+
+    /** Input files the application ships with */
+    static final String[] FILES = { "test1.txt", "test2.txt", "test3.txt" };
+
+    private Corpus() {
+    }
+
+    /** @return the folder holding the sample text files */
+    static File resDir() {
+        return new File(System.getProperty("wordtracker.res", "../res"));
+    }
+
+    /**
+     * Produces {@code count} keys drawn from {@code 0..distinct-1}.
+     *
+     * @param distribution {@code random} (a shuffled permutation),
+     *                     {@code sorted} (ascending) or {@code zipf}
+     *                     (skewed draws with exponent 1, hot keys scattered)
+     * @param distinct     number of distinct keys
+     * @param count        number of keys to produce
+     * @param seed         random seed
+     * @return the keys
+     */
+    static Integer[] keys(String distribution, int distinct, int count, long seed) {
+        Random random = new Random(seed);
+        Integer[] out = new Integer[count];
+        switch (distribution) {
+            case "sorted":
+                for (int i = 0; i < count; i++)
+                    out[i] = i % distinct;
+                return out;
+            case "random":
+                List<Integer> perm = permutation(distinct, random);
+                for (int i = 0; i < count; i++)
+                    out[i] = perm.get(i % distinct);
+                return out;
+            case "zipf":
+                List<Integer> ranked = permutation(distinct, random);
+                double[] cdf = new double[distinct];
+                double sum = 0;
+                for (int k = 0; k < distinct; k++)
+                    cdf[k] = sum += 1.0 / (k + 1);
+                for (int i = 0; i < count; i++) {
+                    int k = Arrays.binarySearch(cdf, random.nextDouble() * sum);
+                    out[i] = ranked.get(k < 0 ? -(k + 1) : k);
+                }
+                return out;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+    }
+
+    private static List<Integer> permutation(int n, Random random) {
+        List<Integer> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            list.add(i);
+        Collections.shuffle(list, random);
+        return list;
+    }
+
+    /**
+     * Reads the sample files and returns every token in file order, cleaned
+     * the same way {@code WordTracker.constructsFromFile} cleans them.
+     *
+     * @return the tokens
+     */
+    static List<String> tokens() {
+        List<String> tokens = new ArrayList<>();
+        for (String name : FILES) {
+            try (BufferedReader br = new BufferedReader(new FileReader(new File(resDir(), name)))) {
+                String line;
+                while ((line = br.readLine()) != null) {
+                    for (String raw : line.trim().split(" ")) {
+                        String w = raw.replaceAll("[\\p{Punct}]", "").trim();
+                        if (!w.isEmpty())
+                            tokens.add(w);
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Writes the sample files, concatenated and repeated {@code scale} times,
+     * into one file in the given directory.
+     *
+     * @param dir   target directory
+     * @param scale number of copies
+     * @return the written file
+     */
+    static File scaledCopy(File dir, int scale) {
+        File out = new File(dir, "corpus-x" + scale + ".txt");
+        try (PrintWriter pw = new PrintWriter(new FileWriter(out))) {
+            for (int i = 0; i < scale; i++) {
+                for (String name : FILES) {
+                    try (BufferedReader br = new BufferedReader(new FileReader(new File(resDir(), name)))) {
+                        String line;
+                        while ((line = br.readLine()) != null)
+                            pw.println(line);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out;
+    }
+
+    /** Deletes a directory tree, ignoring failures. */
+    static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null)
+            for (File child : children)
+                delete(child);
+        file.delete();
+    }
+}
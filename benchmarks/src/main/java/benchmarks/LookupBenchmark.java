@@ -0,0 +1,85 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import appDomain.Word;
+import implementations.BPlusTree;
+import implementations.BSTree;
+import implementations.EytzingerTree;
+import implementations.RadixTrie;
+import implementations.SplayTree;
+import utilities.BSTreeADT;
+
+/**
+ * Looks up every token of the sample corpus, in text order, against each
+ * index structure holding the corpus vocabulary. Real text is Zipfian, so
+ * this mirrors the ingest lookup pattern, and it is the access pattern the
+ * splay tree adapts to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LookupBenchmark {
+
+    @Param({ "bst", "splay", "bplus", "trie", "eytzinger" })
+    public String index;
+
+    private Word[] probes;
+    private BSTreeADT<Word> tree;
+    private EytzingerTree<Word> frozen;
+
+    @Setup
+    public void setUp() {
+        List<String> tokens = Corpus.tokens();
+        probes = new Word[tokens.size()];
+        for (int i = 0; i < probes.length; i++)
+            probes[i] = new Word(tokens.get(i));
+
+        switch (index) {
+            case "bplus":
+                tree = new BPlusTree<>();
+                break;
+            case "trie":
+                tree = new RadixTrie<>(Word.KEY);
+                break;
+            case "splay":
+                tree = new SplayTree<>();
+                break;
+            default:
+                tree = new BSTree<>();
+                break;
+        }
+        for (Word w : probes)
+            tree.add(w);
+        if (index.equals("eytzinger"))
+            frozen = new EytzingerTree<>(tree);
+    }
+
+    @Benchmark
+    public void search(Blackhole bh) {
+        if (frozen != null) {
+            for (Word w : probes)
+                bh.consume(frozen.search(w));
+        } else {
+            for (Word w : probes)
+                bh.consume(tree.search(w));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import appDomain.WordTracker;
+
+/**
+ * {@link WordTracker#lookup(String)} on query mixes where most words were
+ * never indexed, with the vocabulary filter off ({@code rate} 1) and at two
+ * false-positive rates. Misses are corpus tokens with a suffix, so they
+ * share prefixes with real words and descend as deep as hits do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NegativeLookupBenchmark {
+
+    /** Number of lookups per invocation */
+    private static final int QUERIES = 10_000;
+
+    @Param({ "1", "0.01", "0.001" })
+    public double rate;
+
+    @Param({ "0.5", "0.9", "0.99" })
+    public double missRatio;
+
+    private WordTracker tracker;
+    private String[] queries;
+
+    @Setup
+    public void setUp() {
+        tracker = new WordTracker();
+        tracker.setFalsePositiveRate(rate);
+        for (String f : Corpus.FILES)
+            tracker.constructsFromFile(new File(Corpus.resDir(), f).getPath());
+
+        List<String> tokens = Corpus.tokens();
+        Random random = new Random(42);
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String token = tokens.get(random.nextInt(tokens.size()));
+            queries[i] = random.nextDouble() < missRatio ? token + "qz" + i : token;
+        }
+        // build the filter outside the measurement
+        tracker.lookup(queries[0]);
+    }
+
+    @Benchmark
+    public void lookup(Blackhole bh) {
+        for (String q : queries)
+            bh.consume(tracker.lookup(q));
+    }
+}
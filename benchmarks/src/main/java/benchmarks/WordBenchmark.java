@@ -0,0 +1,59 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import appDomain.Word;
+import utilities.TextNormalizer;
+
+/**
+ * Cost of {@link Word#compareTo(Word)} on neighbouring corpus tokens, which
+ * is the comparison every tree descent performs, and of
+ * {@link TextNormalizer#fold(String)}, which computes the key it compares.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordBenchmark {
+
+    private Word[] words;
+    private String[] tokens;
+
+    @Setup
+    public void setUp() {
+        List<String> corpus = Corpus.tokens();
+        words = new Word[Math.min(corpus.size(), 4096)];
+        tokens = new String[words.length];
+        for (int i = 0; i < words.length; i++) {
+            tokens[i] = corpus.get(i);
+            words[i] = new Word(tokens[i]);
+        }
+    }
+
+    @Benchmark
+    public void compareTo(Blackhole bh) {
+        for (int i = 1; i < words.length; i++)
+            bh.consume(words[i - 1].compareTo(words[i]));
+    }
+
+    @Benchmark
+    public void fold(Blackhole bh) {
+        for (String t : tokens)
+            bh.consume(TextNormalizer.fold(t));
+    }
+}
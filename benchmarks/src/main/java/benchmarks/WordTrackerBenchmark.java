@@ -0,0 +1,104 @@
+package benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import appDomain.WordTracker;
+
+/**
+ * End-to-end WordTracker phases on the sample corpus repeated {@code scale}
+ * times: ingest, report generation in each mode, and repository save/load.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WordTrackerBenchmark {
+
+    /** A scaled copy of the corpus and a tracker that has already indexed it. */
+    @State(Scope.Benchmark)
+    public static class Indexed {
+        @Param({ "1", "10" })
+        public int scale;
+
+        File dir;
+        File input;
+        WordTracker tracker;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("wordtracker-bench").toFile();
+            input = Corpus.scaledCopy(dir, scale);
+            tracker = new WordTracker();
+            tracker.setRepositoryFile(new File(dir, "repository.ser").getPath());
+            tracker.constructsFromFile(input.getPath());
+            tracker.saveTree();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Corpus.delete(dir);
+        }
+    }
+
+    /** Report mode for {@link #generateReport}. */
+    @State(Scope.Benchmark)
+    public static class Report {
+        @Param({ "pf", "pl", "po" })
+        public String mode;
+
+        final PrintStream sink = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    @Benchmark
+    public WordTracker constructsFromFile(Indexed state) {
+        WordTracker tracker = new WordTracker();
+        tracker.constructsFromFile(state.input.getPath());
+        return tracker;
+    }
+
+    @Benchmark
+    public void generateReport(Indexed state, Report report) {
+        state.tracker.generateReport(report.mode, report.sink);
+    }
+
+    @Benchmark
+    public void saveTree(Indexed state) {
+        state.tracker.saveTree();
+    }
+
+    @Benchmark
+    public WordTracker loadTree(Indexed state) {
+        WordTracker tracker = new WordTracker();
+        tracker.setRepositoryFile(state.tracker.getRepositoryFile());
+        tracker.loadTree();
+        return tracker;
+    }
+}
@@ -0,0 +1,23 @@
+/**
+ * JMH benchmarks for the tree implementations and the WordTracker pipeline.
+ *
+ * <p>Contents:
+ * <ul>
+ *   <li>{@link benchmarks.BSTreeBenchmark} – {@code BSTree} insert, search and
+ *       the three traversals on random, sorted and Zipfian integer keys.</li>
+ *   <li>{@link benchmarks.LookupBenchmark} – word lookups in text order against
+ *       each index structure, including the splay tree and the frozen
+ *       Eytzinger layout.</li>
+ *   <li>{@link benchmarks.NegativeLookupBenchmark} – {@code WordTracker.lookup}
+ *       on miss-heavy query mixes, with and without the vocabulary filter.</li>
+ *   <li>{@link benchmarks.WordBenchmark} – {@code Word.compareTo} on real words.</li>
+ *   <li>{@link benchmarks.WordTrackerBenchmark} – ingest, report generation in
+ *       all three modes, and repository save/load on scaled copies of
+ *       {@code res/test*.txt}.</li>
+ * </ul>
+ *
+ * <p>Run {@code java -jar target/benchmarks.jar -rf json -rff result.json}
+ * from the {@code benchmarks} directory. Corpus files are read from
+ * {@code ../res}; set {@code -Dwordtracker.res=<dir>} to use another folder.
+ */
+package benchmarks;
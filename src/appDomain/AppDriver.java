@@ -1,8 +1,25 @@
 package appDomain;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import implementations.BPlusTree;
+import implementations.BSTree;
+import implementations.RadixTrie;
+import implementations.SplayTree;
+import utilities.Analyzer;
+import utilities.BSTreeADT;
+import utilities.BloomFilter;
+import utilities.MemoryStats;
+import utilities.Metrics;
+import utilities.PostingArena;
+import utilities.StopWords;
 
 /**
  * Application entry point for the WordTracker program.
@@ -10,18 +27,69 @@ import java.io.PrintStream;
  * <p>
  * Expected usage:
  * <pre>
- * java -jar WordTracker.jar &lt;input.txt&gt; -pf|-pl|-po [-f &lt;output.txt&gt;]
+ * java -jar WordTracker.jar &lt;input.txt&gt; -pf|-pl|-po|-pj|-pc|-pb [-f &lt;output.txt&gt;] [-index &lt;kind&gt;]
  * </pre>
  * where:
  * <ul>
  *   <li>{@code -pf} prints words with filenames only</li>
  *   <li>{@code -pl} prints words with filenames and line numbers</li>
  *   <li>{@code -po} prints words with filenames, line numbers and frequency</li>
+ *   <li>{@code -pj}, {@code -pc} and {@code -pb} write the same postings as JSON Lines,
+ *       CSV or the compact binary format of {@link ReportFormats}</li>
  *   <li>{@code -f &lt;output.txt&gt;} optionally redirects the report to the given file</li>
+ *   <li>{@code -q word1,word2} prints only the postings of the listed words instead of
+ *       the full report; without an input file the repository is only read, not saved</li>
+ *   <li>{@code -external &lt;segment&gt; [-budget &lt;MiB&gt;]} indexes every input file
+ *       given into a sorted segment file using a bounded amount of memory, and
+ *       streams the report from it; {@code repository.ser} is not used</li>
+ *   <li>{@code -lsm &lt;dir&gt;} indexes the input files into a {@link SegmentedRepository}
+ *       in the given directory, and prints the report merged from it</li>
+ *   <li>{@code -external} and {@code -lsm} apply {@code -stop} and {@code -stem}, which
+ *       they do not save, and cannot be combined with {@code -index}, {@code -offheap}
+ *       or {@code -positions}</li>
+ *   <li>{@code -shards &lt;dir&gt; [-shardcount N] [-processes]} indexes the input files into a
+ *       {@link ShardedRepository} of N key-range shards (default 4) in the given directory and
+ *       prints the report or {@code -q} lookups gathered from them; {@code -processes} runs
+ *       each shard in its own server process</li>
+ *   <li>{@code -repo &lt;file&gt;} uses the given repository file instead of {@code repository.ser}</li>
+ *   <li>{@code -top N} or {@code -top N:&lt;file&gt;} prints the N most frequent words,
+ *       overall or in one file, instead of the full report</li>
+ *   <li>{@code -min N} and {@code -max N} keep words whose frequency is in range,
+ *       {@code -in &lt;file&gt;} keeps one file's postings, {@code -range &lt;from&gt;:&lt;to&gt;}
+ *       and {@code -prefix &lt;p&gt;} keep a span of words, and {@code -offset N} and
+ *       {@code -limit N} page through what is left; see {@link ReportOptions}</li>
+ *   <li>{@code -query "&lt;expression&gt;"} prints the files and lines matching a
+ *       {@link QueryEngine} expression such as {@code "x AND (y OR z) NOT w"} or
+ *       {@code "[x y]"}; saving works as for {@code -q}</li>
+ *   <li>{@code -index bst[:factor]|splay|bplus[:order]|trie} selects the index structure used when a new
+ *       repository is created (an existing repository keeps its own structure);
+ *       {@code bst:2} rebuilds subtrees that grow taller than 2 log2(size)</li>
+ *   <li>{@code -offheap} keeps line-number postings in direct memory instead of the heap</li>
+ *   <li>{@code -cache} keeps the rendered report next to the repository
+ *       ({@code repository.ser.po.cache} for {@code -po}) and later re-renders only
+ *       the words whose postings changed</li>
+ *   <li>{@code -positions} also records each word's position in its line, enabling
+ *       phrase ({@code "x y"}) and proximity ({@code x NEAR/k y}) queries</li>
+ *   <li>{@code -bloom &lt;rate&gt;} sets the false-positive rate of the vocabulary filter
+ *       used to reject unknown words (default 0.01; 1 turns it off)</li>
+ *   <li>input files may be gzip-compressed or zip/tar archives, whose member files
+ *       are indexed as {@code archive!/member}; {@code -} reads standard input</li>
+ *   <li>{@code -stop} drops common English stop words at ingest, {@code -stoplist &lt;file&gt;}
+ *       drops the words listed in the file instead, and {@code -stem} indexes Porter
+ *       stems; the choice is saved with the repository and reused by later runs</li>
+ *   <li>{@code -mem} prints heap, GC and off-heap usage when the run finishes</li>
+ *   <li>{@code -stats} prints phase timings and ingest counters when the run finishes</li>
+ *   <li>{@code -stats-json &lt;file&gt;} writes the same metrics to a JSON file</li>
  * </ul>
  * </p>
  *
  * <p>
+ * Alternatively, {@code java -jar WordTracker.jar -server [port] [-checkpoint &lt;seconds&gt;]}
+ * keeps the repository in memory and serves {@link IndexServer} commands on
+ * standard input, or on the given loopback port.
+ * </p>
+ *
+ * <p>
  * The main method parses command-line arguments, loads the persistent tree
  * (if present), updates it from the provided input file, saves the tree back
  * to disk, and prints the requested report either to standard output or to a
@@ -36,9 +104,29 @@ public class AppDriver {
      * <p>
      * This method parses the command line for:
      * <ul>
-     *   <li>input filename (first token that does not start with "-")</li>
-     *   <li>report flag: {@code -pf}, {@code -pl} or {@code -po}</li>
+     *   <li>input filename (first token that does not start with "-", or "-" for
+     *       standard input); gzip, zip and tar inputs are unpacked while reading</li>
+     *   <li>report flag: {@code -pf}, {@code -pl}, {@code -po}, {@code -pj}, {@code -pc} or {@code -pb}</li>
      *   <li>optional output directive: {@code -foutput.txt} or {@code -f output.txt}</li>
+     *   <li>optional query: {@code -q word} or {@code -q word1,word2}</li>
+     *   <li>optional boolean query: {@code -query "<expression>"}</li>
+     *   <li>optional frequency ranking: {@code -top N} or {@code -top N:<file>}</li>
+     *   <li>optional report filters: {@code -min N}, {@code -max N}, {@code -in <file>},
+     *       {@code -range <from>:<to>}, {@code -prefix <p>}, {@code -offset N} and {@code -limit N}</li>
+     *   <li>optional external ingest: {@code -external <segment>} and {@code -budget <MiB>}</li>
+     *   <li>optional segmented repository: {@code -lsm <dir>}</li>
+     *   <li>optional sharded repository: {@code -shards <dir>}, {@code -shardcount N}
+     *       and {@code -processes}</li>
+     *   <li>optional repository file: {@code -repo <file>}</li>
+     *   <li>optional index structure: {@code -index bst}, {@code -index bplus},
+     *       {@code -index bplus:<order>}, {@code -index bst:<factor>},
+     *       {@code -index splay} or {@code -index trie}</li>
+     *   <li>optional {@code -offheap}, {@code -positions}, {@code -mem} and {@code -cache} switches</li>
+     *   <li>optional vocabulary filter rate: {@code -bloom <rate>}</li>
+     *   <li>optional analysis: {@code -stop}, {@code -stoplist <file>} and {@code -stem}</li>
+     *   <li>optional {@code -stats} switch and {@code -stats-json <file>} export</li>
+     *   <li>{@code -server [port]} and {@code -checkpoint <seconds>}, which start
+     *       an {@link IndexServer} instead of a single run</li>
      * </ul>
      * It then runs the WordTracker load/construct/save cycle and prints the requested
      * report to either {@code System.out} or the user-specified file.
@@ -48,13 +136,42 @@ public class AppDriver {
      */
 	public static void main(String[] args) {
 		if (args == null || args.length == 0) {
-            System.out.println("Usage: java -jar WordTracker.jar <input.txt> -pf|-pl|-po [-f <output.txt>]");
+            System.out.println("Usage: java -jar WordTracker.jar <input.txt> -pf|-pl|-po|-pj|-pc|-pb [-f <output.txt>] [-index <kind>]");
+            System.out.println("       java -jar WordTracker.jar -server [port] [-checkpoint <seconds>]");
             return;
         }
 
 		String inputFile = null;
 		String modeFlag = null;
+		String[] queryWords = null;
+		String queryExpression = null;
+		int topCount = 0;
+		ReportOptions reportOptions = new ReportOptions();
+		String topFile = null;
 		String outputFile = null;
+		String indexKind = "bst";
+		boolean indexChosen = false;
+		boolean offHeap = false;
+		boolean positional = false;
+		boolean memStats = false;
+		boolean cacheReport = false;
+		double falsePositiveRate = BloomFilter.DEFAULT_FALSE_POSITIVE_RATE;
+		StopWords stopWords = null;
+		boolean stemming = false;
+		boolean printStats = false;
+		String statsJsonFile = null;
+		List<String> extraInputs = new ArrayList<>();
+		String segmentFile = null;
+		long budgetBytes = ExternalIndexer.DEFAULT_BUDGET;
+		String lsmDir = null;
+		String shardDir = null;
+		int shardCount = ShardedRepository.DEFAULT_SHARDS;
+		boolean shardProcesses = false;
+		List<String> serverArgs = new ArrayList<>();
+		String repositoryFile = null;
+		boolean server = false;
+		int serverPort = -1;
+		long checkpointSeconds = 30;
 
 		for (int i = 0; i < args.length; i++) {
             if (args[i] == null) continue;
@@ -77,11 +194,232 @@ public class AppDriver {
             }
             
             // report flags
-            if (lower.equals("-pf") || lower.equals("-pl") || lower.equals("-po")) {
+            if (lower.startsWith("-p") && ReportFormatter.isMode(lower.substring(1))) {
             	modeFlag = lower;
                 continue;
             }
             
+            // point lookups instead of a full report
+            if (lower.equals("-q")) {
+                if (i + 1 < args.length) {
+                    queryWords = parseWords(args[++i]);
+                }
+                continue;
+            }
+            if (lower.equals("-top")) {
+                if (i + 1 < args.length) {
+                    String spec = args[++i].trim();
+                    int colon = spec.indexOf(':');
+                    try {
+                        topCount = Integer.parseInt(colon < 0 ? spec : spec.substring(0, colon));
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid -top count: " + spec);
+                        return;
+                    }
+                    topFile = colon < 0 ? null : spec.substring(colon + 1);
+                }
+                continue;
+            }
+            
+            // report filters, checked before any word is formatted
+            if (lower.equals("-min") || lower.equals("-max") || lower.equals("-offset") || lower.equals("-limit")
+                    || lower.equals("-in") || lower.equals("-range") || lower.equals("-prefix")) {
+                if (i + 1 < args.length) {
+                    String value = args[++i].trim();
+                    try {
+                        reportOptions.set(lower, lower.equals("-in") ? value.replace("\\", "/") : value);
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid " + lower + " value: " + value);
+                        return;
+                    }
+                }
+                continue;
+            }
+            if (lower.equals("-query")) {
+                if (i + 1 < args.length) {
+                    queryExpression = args[++i];
+                }
+                continue;
+            }
+            
+            // off-heap postings and memory statistics
+            if (lower.equals("-offheap")) {
+                offHeap = true;
+                continue;
+            }
+            if (lower.equals("-positions")) {
+                positional = true;
+                serverArgs.add(lower);
+                continue;
+            }
+            if (lower.equals("-cache")) {
+                cacheReport = true;
+                continue;
+            }
+            if (lower.equals("-mem")) {
+                memStats = true;
+                continue;
+            }
+            
+            // vocabulary filter false-positive rate
+            if (lower.equals("-bloom")) {
+                if (i + 1 < args.length) {
+                    try {
+                        falsePositiveRate = Double.parseDouble(args[++i].trim());
+                    } catch (NumberFormatException e) {
+                        falsePositiveRate = Double.NaN;
+                    }
+                    if (!(falsePositiveRate > 0 && falsePositiveRate <= 1)) {
+                        System.out.println("Invalid false-positive rate: " + args[i] + " (expected a value in (0, 1])");
+                        return;
+                    }
+                    serverArgs.add(lower);
+                    serverArgs.add(args[i].trim());
+                }
+                continue;
+            }
+            
+            // stop words and stemming
+            if (lower.equals("-stop")) {
+                stopWords = StopWords.english();
+                serverArgs.add(lower);
+                continue;
+            }
+            if (lower.equals("-stoplist")) {
+                if (i + 1 < args.length) {
+                    try {
+                        File list = new File(args[++i].trim());
+                        stopWords = StopWords.load(list);
+                        serverArgs.add(lower);
+                        serverArgs.add(list.getAbsolutePath());
+                    } catch (IOException e) {
+                        System.out.println("Unable to read stop words: " + e.getMessage());
+                        return;
+                    }
+                }
+                continue;
+            }
+            if (lower.equals("-stem")) {
+                stemming = true;
+                serverArgs.add(lower);
+                continue;
+            }
+            
+            // pipeline metrics
+            if (lower.equals("-stats")) {
+                printStats = true;
+                continue;
+            }
+            if (lower.equals("-stats-json")) {
+                if (i + 1 < args.length) {
+                    statsJsonFile = args[++i].trim();
+                }
+                continue;
+            }
+            
+            // long-running server
+            if (lower.equals("-server")) {
+                server = true;
+                if (i + 1 < args.length && args[i + 1].trim().matches("\\d+")) {
+                    serverPort = Integer.parseInt(args[++i].trim());
+                }
+                continue;
+            }
+            if (lower.equals("-checkpoint")) {
+                if (i + 1 < args.length) {
+                    try {
+                        checkpointSeconds = Long.parseLong(args[++i].trim());
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid checkpoint interval: " + args[i]);
+                        return;
+                    }
+                }
+                continue;
+            }
+            
+            // bounded-memory ingest into a sorted segment file
+            if (lower.equals("-external")) {
+                if (i + 1 < args.length) {
+                    segmentFile = args[++i].trim();
+                }
+                continue;
+            }
+            if (lower.equals("-budget")) {
+                if (i + 1 < args.length) {
+                    try {
+                        budgetBytes = Long.parseLong(args[++i].trim()) << 20;
+                    } catch (NumberFormatException e) {
+                        System.out.println("Invalid memory budget: " + args[i]);
+                        return;
+                    }
+                }
+                continue;
+            }
+            
+            // log-structured repository directory
+            if (lower.equals("-lsm")) {
+                if (i + 1 < args.length) {
+                    lsmDir = args[++i].trim();
+                }
+                continue;
+            }
+            
+            // key-range shards, in this process or in server processes
+            if (lower.equals("-shards")) {
+                if (i + 1 < args.length) {
+                    shardDir = args[++i].trim();
+                }
+                continue;
+            }
+            if (lower.equals("-shardcount")) {
+                if (i + 1 < args.length) {
+                    try {
+                        shardCount = Integer.parseInt(args[++i].trim());
+                    } catch (NumberFormatException e) {
+                        shardCount = 0;
+                    }
+                    if (shardCount < 1 || shardCount > ShardedRepository.MAX_SHARDS) {
+                        System.out.println("Invalid shard count: " + args[i] + " (expected 1 to "
+                                + ShardedRepository.MAX_SHARDS + ")");
+                        return;
+                    }
+                }
+                continue;
+            }
+            if (lower.equals("-processes")) {
+                shardProcesses = true;
+                continue;
+            }
+            
+            // repository file, e.g. of one shard
+            if (lower.equals("-repo")) {
+                if (i + 1 < args.length) {
+                    repositoryFile = args[++i].trim();
+                }
+                continue;
+            }
+            
+            // index structure for a new repository
+            if (lower.equals("-index")) {
+                if (i + 1 < args.length) {
+                    indexKind = args[++i].trim().toLowerCase();
+                    indexChosen = true;
+                    serverArgs.add(lower);
+                    serverArgs.add(indexKind);
+                }
+                continue;
+            }
+            
+            // "-" reads the input from standard input
+            if (lower.equals("-")) {
+                if (inputFile == null) {
+                    inputFile = token;
+                } else {
+                    extraInputs.add(token);
+                }
+                continue;
+            }
+            
          // -foutput.txt or -f output.txt
             if (lower.startsWith("-f")) {
                 if (lower.length() > 2) {
@@ -100,19 +438,96 @@ public class AppDriver {
                 inputFile = token;
                 continue;
             }
+            // further inputs are only used by -external, -lsm and -shards
+            if (!lower.startsWith("-")) {
+                extraInputs.add(token);
+                continue;
+            }
         }
             
-            if (inputFile == null || modeFlag == null) {
+            Analyzer analyzer = stopWords != null || stemming ? new Analyzer(stopWords, stemming) : null;
+            
+            if (server) {
+                runServer(indexKind, offHeap, positional, falsePositiveRate, analyzer, repositoryFile, serverPort,
+                		checkpointSeconds);
+                return;
+            }
+            
+            if (shardDir != null) {
+                List<String> inputs = new ArrayList<>();
+                if (inputFile != null) {
+                    inputs.add(inputFile);
+                }
+                inputs.addAll(extraInputs);
+                runSharded(shardDir, shardCount, shardProcesses ? serverArgs : null, indexKind, positional,
+                		falsePositiveRate, analyzer, inputs, modeFlag, queryWords, reportOptions, outputFile);
+                return;
+            }
+            
+            if ((segmentFile != null || lsmDir != null) && (indexChosen || offHeap || positional)) {
+                System.out.println("-index, -offheap and -positions cannot be used with -external or -lsm.");
+                return;
+            }
+            
+            if (segmentFile != null) {
+                List<String> inputs = new ArrayList<>();
+                if (inputFile != null) {
+                    inputs.add(inputFile);
+                }
+                inputs.addAll(extraInputs);
+                runExternal(segmentFile, inputs, budgetBytes, analyzer, modeFlag, reportOptions, outputFile);
+                return;
+            }
+            
+            if (lsmDir != null) {
+                List<String> inputs = new ArrayList<>();
+                if (inputFile != null) {
+                    inputs.add(inputFile);
+                }
+                inputs.addAll(extraInputs);
+                runSegmented(lsmDir, inputs, analyzer, modeFlag, reportOptions, outputFile);
+                return;
+            }
+            
+            boolean queryOnly = queryWords != null || queryExpression != null || topCount > 0;
+            if (!queryOnly && (inputFile == null || modeFlag == null)) {
                 System.out.println("Missing required arguments.");
-                System.out.println("Usage: java -jar WordTracker.jar <input.txt> -pf|-pl|-po [-f<output.txt>]");
+                System.out.println("Usage: java -jar WordTracker.jar <input.txt> -pf|-pl|-po|-pj|-pc|-pb [-f<output.txt>] [-index <kind>]");
+                System.out.println("       java -jar WordTracker.jar [<input.txt>] -q word1,word2 [-pf|-pl|-po|-pj|-pc|-pb]");
+                System.out.println("       java -jar WordTracker.jar [<input.txt>] -query \"<expression>\"");
+                System.out.println("       java -jar WordTracker.jar [<input.txt>] -top N[:<file>]");
+                return;
+            }
+            
+            BSTreeADT<Word> index = createIndex(indexKind);
+            if (index == null) {
+                System.out.println("Unknown index kind: " + indexKind + " (expected bst[:factor], splay, bplus[:order] or trie)");
                 return;
             }
             
-            WordTracker tracker = new WordTracker();
+            if (offHeap) {
+                Word.usePostingArena(new PostingArena());
+            }
+            
+            WordTracker tracker = new WordTracker(index);
+            Metrics metrics = (printStats || statsJsonFile != null) ? new Metrics() : null;
+            tracker.setMetrics(metrics);
+            tracker.setPositional(positional);
+            tracker.setFalsePositiveRate(falsePositiveRate);
+            tracker.setReportCache(cacheReport);
+            if (analyzer != null) {
+                tracker.setAnalyzer(analyzer);
+            }
+            if (repositoryFile != null) {
+                tracker.setRepositoryFile(repositoryFile);
+            }
             	
         	tracker.loadTree();
         	
-        	tracker.constructsFromFile(inputFile);
+        	if (inputFile != null) {
+        		tracker.constructsFromFile(inputFile);
+        		tracker.printAnalysisStats(System.out);
+        	}
         	
         	
         	// Prepare output stream: either System.out or a file
@@ -123,21 +538,27 @@ public class AppDriver {
                     out = new PrintStream(new FileOutputStream(outputFile, false), true);
                     toFile = true;
                 }
+                if (metrics != null) {
+                    OutputStream counted = metrics.countBytes("report.bytes", out);
+                    out = new PrintStream(counted, true);
+                }
                 
-             // generate the chosen report
-                switch (modeFlag) {
-                    case "-pf":
-                        tracker.generateReport("pf", out);
-                        break;
-                    case "-pl":
-                        tracker.generateReport("pl", out);
-                        break;
-                    case "-po":
-                        tracker.generateReport("po", out);
-                        break;
-                    default:
-                        System.out.println("Unknown report flag.");
-                        break;
+                if (topCount > 0) {
+                    tracker.printTop(topCount, topFile, out);
+                } else if (queryExpression != null) {
+                    try {
+                        int matches = new QueryEngine(tracker).print(queryExpression, out);
+                        System.out.println(matches + " file(s) matched.");
+                    } catch (IllegalArgumentException e) {
+                        System.out.println("Invalid query: " + e.getMessage());
+                    }
+                } else if (queryWords != null) {
+                    // print only the requested words, in the chosen format
+                    String mode = modeFlag == null ? "po" : modeFlag.substring(1);
+                    tracker.printQuery(mode, queryWords, out);
+                } else {
+                 // generate the chosen report
+                    tracker.generateReport(modeFlag.substring(1), out, reportOptions);
                 }
             } catch (FileNotFoundException e) {
                 System.out.println("Unable to open output file: " + e.getMessage());
@@ -146,8 +567,286 @@ public class AppDriver {
                 if (toFile && out != null) {
                 	out.close();
                 	System.out.println("Exported to "+ outputFile);                	
+                } else if (out != null) {
+                	out.flush();
+                }
+                // a query-only run leaves the repository unchanged
+                if (inputFile != null) {
+                	tracker.saveTree();
+                }
+            }
+            
+            if (memStats) {
+                System.out.println(MemoryStats.capture(Word.postingArena()));
+            }
+            
+            if (printStats) {
+                metrics.print(System.out);
+            }
+            if (statsJsonFile != null) {
+                try (PrintStream json = new PrintStream(new FileOutputStream(statsJsonFile, false))) {
+                    metrics.writeJson(json);
+                    System.out.println("Metrics written to " + statsJsonFile);
+                } catch (FileNotFoundException e) {
+                    System.out.println("Unable to open metrics file: " + e.getMessage());
                 }
-                tracker.saveTree();
             }
 	}
+	
+	/**
+     * Splits a {@code -q} argument on commas and whitespace.
+     *
+     * @param list the argument, e.g. {@code "alpha,beta"}
+     * @return the non-empty words
+     */
+	static String[] parseWords(String list) {
+		List<String> words = new ArrayList<>();
+		for (String w : list.split("[,\\s]+")) {
+			if (!w.isEmpty()) {
+				words.add(w);
+			}
+		}
+		return words.toArray(new String[0]);
+	}
+	
+	/**
+     * Indexes the inputs into a segment file with bounded memory, then streams
+     * the requested report from the segment.
+     *
+     * @param segmentFile path of the segment to create or extend
+     * @param inputs      input text files, possibly none
+     * @param budgetBytes memory budget for buffered occurrences
+     * @param analyzer    analysis chain for the inputs, or null to index every word as written
+     * @param modeFlag    a report flag such as {@code -po}, or null for no report
+     * @param options     report filters
+     * @param outputFile  report file, or null for standard output
+     */
+	static void runExternal(String segmentFile, List<String> inputs, long budgetBytes, Analyzer analyzer,
+			String modeFlag, ReportOptions options, String outputFile) {
+		File segment = new File(segmentFile);
+		try {
+			if (!inputs.isEmpty()) {
+				ExternalIndexer indexer = new ExternalIndexer(segment, budgetBytes);
+				indexer.setAnalyzer(analyzer);
+				for (String input : inputs) {
+					if (!indexer.addFile(input)) {
+						System.out.println("Skipped " + input);
+					}
+				}
+				indexer.finish();
+				System.out.println("Segment written to " + segmentFile + " (" + indexer.runCount() + " runs merged)");
+			}
+			if (modeFlag == null) {
+				return;
+			}
+			if (!segment.exists()) {
+				System.out.println("Segment not found: " + segmentFile);
+				return;
+			}
+			if (outputFile != null && !outputFile.trim().isEmpty()) {
+				try (PrintStream out = new PrintStream(new FileOutputStream(outputFile, false))) {
+					WordSegment.report(segment, modeFlag.substring(1), out, options);
+				}
+				System.out.println("Exported to " + outputFile);
+			} else {
+				WordSegment.report(segment, modeFlag.substring(1), System.out, options);
+			}
+		} catch (IOException e) {
+			System.out.println("External indexing failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+     * Indexes the inputs into a segmented repository, then prints the
+     * requested report merged across its segments and memtable.
+     *
+     * @param dir        repository directory, created if missing
+     * @param inputs     input text files, possibly none
+     * @param analyzer   analysis chain for the inputs, or null to index every word as written
+     * @param modeFlag   a report flag such as {@code -po}, or null for no report
+     * @param options    report filters
+     * @param outputFile report file, or null for standard output
+     */
+	static void runSegmented(String dir, List<String> inputs, Analyzer analyzer, String modeFlag,
+			ReportOptions options, String outputFile) {
+		try (SegmentedRepository repository = new SegmentedRepository(new File(dir))) {
+			repository.setAnalyzer(analyzer);
+			for (String input : inputs) {
+				if (!repository.index(input)) {
+					System.out.println("Skipped " + input);
+				}
+			}
+			if (modeFlag == null) {
+				return;
+			}
+			if (outputFile != null && !outputFile.trim().isEmpty()) {
+				try (PrintStream out = new PrintStream(new FileOutputStream(outputFile, false))) {
+					repository.report(modeFlag.substring(1), out, options);
+				}
+				System.out.println("Exported to " + outputFile);
+			} else {
+				repository.report(modeFlag.substring(1), System.out, options);
+			}
+		} catch (IOException e) {
+			System.out.println("Segmented repository failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+     * Indexes files into a {@link ShardedRepository} and prints a report or
+     * lookups gathered from its shards.
+     *
+     * @param dir               the repository directory
+     * @param shards            number of shards if the directory is new
+     * @param serverArgs        arguments for one server process per shard, or null
+     *                          to keep the shards in this process
+     * @param indexKind         index structure of each in-process shard
+     * @param positional        whether in-process shards record token positions
+     * @param falsePositiveRate false-positive rate of each in-process vocabulary filter
+     * @param analyzer          analysis chain input is tokenized with for every shard, or null to use
+     *                          the saved one of in-process shards
+     * @param inputs            files to index, possibly empty
+     * @param modeFlag          report flag such as {@code -po}, or null for no report
+     * @param queryWords        words to look up instead of a report, or null
+     * @param options           report filters
+     * @param outputFile        report file, or null for standard output
+     */
+	static void runSharded(String dir, int shards, List<String> serverArgs, String indexKind, boolean positional,
+			double falsePositiveRate, Analyzer analyzer, List<String> inputs, String modeFlag,
+			String[] queryWords, ReportOptions options, String outputFile) {
+		if (serverArgs == null && createIndex(indexKind) == null) {
+			System.out.println("Unknown index kind: " + indexKind + " (expected bst[:factor], splay, bplus[:order] or trie)");
+			return;
+		}
+		File directory = new File(dir);
+		try (ShardedRepository repository = serverArgs != null
+				? ShardedRepository.launch(directory, shards, serverArgs, analyzer)
+				: ShardedRepository.open(directory, shards, () -> createIndex(indexKind), tracker -> {
+					tracker.setPositional(positional);
+					tracker.setFalsePositiveRate(falsePositiveRate);
+					if (analyzer != null) {
+						tracker.setAnalyzer(analyzer);
+					}
+				})) {
+			for (String input : inputs) {
+				if (!repository.index(input)) {
+					System.out.println("Skipped " + input);
+				}
+			}
+			if (queryWords == null && modeFlag == null) {
+				return;
+			}
+			PrintStream out = System.out;
+			if (outputFile != null && !outputFile.trim().isEmpty()) {
+				out = new PrintStream(new FileOutputStream(outputFile, false));
+			}
+			try {
+				if (queryWords != null) {
+					repository.query(queryWords, out);
+				} else {
+					repository.report(modeFlag.substring(1), out, options);
+				}
+			} finally {
+				if (out != System.out) {
+					out.close();
+					System.out.println("Exported to " + outputFile);
+				} else {
+					out.flush();
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Sharded repository failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+     * Loads the repository and serves it until shutdown.
+     *
+     * @param indexKind         index structure for a new repository
+     * @param offHeap           whether to keep postings off heap
+     * @param positional        whether to record token positions
+     * @param falsePositiveRate false-positive rate of the vocabulary filter
+     * @param analyzer          analysis chain for new files, or null to use the saved one
+     * @param repositoryFile    repository file, or null for the default
+     * @param port              loopback port, or -1 to serve standard input
+     * @param checkpointSeconds seconds between checkpoints, 0 to disable
+     */
+	static void runServer(String indexKind, boolean offHeap, boolean positional, double falsePositiveRate,
+			Analyzer analyzer, String repositoryFile, int port, long checkpointSeconds) {
+		BSTreeADT<Word> index = createIndex(indexKind);
+		if (index == null) {
+			System.out.println("Unknown index kind: " + indexKind + " (expected bst[:factor], splay, bplus[:order] or trie)");
+			return;
+		}
+		if (offHeap) {
+			Word.usePostingArena(new PostingArena());
+		}
+		
+		WordTracker tracker = new WordTracker(index);
+		tracker.setPositional(positional);
+		tracker.setFalsePositiveRate(falsePositiveRate);
+		if (analyzer != null) {
+			tracker.setAnalyzer(analyzer);
+		}
+		if (repositoryFile != null) {
+			tracker.setRepositoryFile(repositoryFile);
+		}
+		IndexServer server = new IndexServer(tracker, checkpointSeconds);
+		if (port < 0) {
+			PrintStream protocol = System.out;
+			System.setOut(System.err); // keep load messages off the protocol stream
+			tracker.loadTree();
+			System.setOut(protocol);
+			server.serveStdin();
+			return;
+		}
+		tracker.loadTree();
+		try {
+			server.serveSocket(port);
+		} catch (IOException e) {
+			System.out.println("Unable to listen on port " + port + ": " + e.getMessage());
+			server.shutdown();
+		}
+	}
+	
+	/**
+     * Creates an empty index structure for the given kind.
+     *
+     * @param kind {@code bst}, {@code bst:<factor>}, {@code splay}, {@code bplus},
+     *             {@code bplus:<order>} or {@code trie}
+     * @return the new tree, or null if the kind, factor or order is not recognised
+     */
+	static BSTreeADT<Word> createIndex(String kind) {
+		if (kind.equals("bst")) {
+			return new BSTree<>();
+		}
+		if (kind.equals("splay")) {
+			return new SplayTree<>();
+		}
+		if (kind.equals("bplus")) {
+			return new BPlusTree<>();
+		}
+		if (kind.equals("trie")) {
+			return new RadixTrie<>(Word.KEY);
+		}
+		if (kind.startsWith("bst:")) {
+			try {
+				BSTree<Word> tree = new BSTree<>();
+				tree.setRebuildFactor(Double.parseDouble(kind.substring(4)));
+				return tree;
+			} catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+				return null;
+			}
+		}
+		if (kind.startsWith("bplus:")) {
+			try {
+				return new BPlusTree<>(Integer.parseInt(kind.substring(6)));
+			} catch (IllegalArgumentException e) {
+				System.out.println(e.getMessage());
+				return null;
+			}
+		}
+		return null;
+	}
 }
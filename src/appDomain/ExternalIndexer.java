@@ -0,0 +1,525 @@
+package appDomain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import utilities.Analyzer;
+import utilities.InputArchive;
+import utilities.TextNormalizer;
+import utilities.Utils;
+
+/**
+ * Builds a {@link WordSegment} from input files without holding the index in
+ * memory, for corpora whose {@link WordTracker} tree would not fit in the heap.
+ *
+ * <p>Each token becomes a (word, file, line, sequence) tuple in a buffer.
+ * When the buffer's estimated size reaches the memory budget it is sorted by
+ * word and written to a temporary run file. {@link #finish()} then merges the
+ * runs — together with the existing segment, if there is one — with a k-way
+ * heap merge, grouping each word's tuples into one segment record. Memory
+ * use is bounded by the budget during ingest and by the largest single
+ * word's postings during the merge.</p>
+ *
+ * <p>Words are tokenized, analyzed and ordered exactly as in
+ * {@link WordTracker}, and tuples of one word are merged in sequence order,
+ * so each word keeps its first spelling and its files stay in
+ * first-occurrence order. The segment does not record the analysis chain:
+ * a segment is only extended consistently with the chain it was built with. Re-indexing a
+ * file that is already in the segment replaces its postings; words left with
+ * no postings are dropped.</p>
+ */
+public class ExternalIndexer {
+
+    /** Default memory budget for buffered tuples: 64 MiB */
+    public static final long DEFAULT_BUDGET = 64L << 20;
+
+    /** Most runs merged at once; more runs are merged in several passes */
+    private static final int MAX_FAN_IN = 64;
+
+    /** Estimated heap bytes per buffered tuple, excluding its strings */
+    private static final int TUPLE_BYTES = 56;
+
+    private static final Comparator<Tuple> BY_KEY = Comparator.comparing((Tuple t) -> t.key);
+
+    /** Marks spellings dropped as stop words */
+    private static final Term STOPPED = new Term("", "");
+
+    private final File segment;
+    private final long budget;
+
+    /** File table: the existing segment's files, then new ones */
+    private final List<String> files = new ArrayList<>();
+    private final Map<String, Integer> fileIds = new HashMap<>();
+
+    /** Number of files that came from the existing segment */
+    private final int segmentFileCount;
+
+    /** Existing files being re-indexed, whose old postings are dropped */
+    private final Set<Integer> replaced = new HashSet<>();
+    private final Set<Integer> added = new HashSet<>();
+
+    private final List<File> runs = new ArrayList<>();
+    private Tuple[] buffer = new Tuple[1024];
+    private int buffered;
+    private long bufferedBytes;
+
+    /** Word and key each spelling is indexed under, shared by the tuples of the current buffer */
+    private final Map<String, Term> terms = new HashMap<>();
+
+    private Analyzer analyzer;
+
+    private long seq;
+    private boolean finished;
+
+    /**
+     * @param segment     the segment to create or extend
+     * @param budgetBytes memory budget for buffered tuples
+     * @throws IOException if an existing segment cannot be read
+     * @throws IllegalArgumentException if the budget is not positive
+     */
+    public ExternalIndexer(File segment, long budgetBytes) throws IOException {
+        if (budgetBytes <= 0)
+            throw new IllegalArgumentException("Memory budget must be positive.");
+        this.segment = segment;
+        this.budget = budgetBytes;
+        if (segment.exists()) {
+            try (WordSegment.Reader r = new WordSegment.Reader(segment)) {
+                for (String f : r.files())
+                    fileId(f);
+            }
+        }
+        segmentFileCount = files.size();
+    }
+
+    /**
+     * Sets the analysis chain for files added from now on.
+     *
+     * @param analyzer the chain, or null to index every word as written
+     */
+    public void setAnalyzer(Analyzer analyzer) {
+        this.analyzer = analyzer;
+    }
+
+    // ------------------------------------------------------------
+    // INGEST
+    // ------------------------------------------------------------
+
+    /**
+     * Tokenizes a file into the buffer, spilling sorted runs as the budget
+     * fills. Each member of a zip or tar archive is added as its own file;
+     * {@code "-"} reads standard input.
+     *
+     * @param fileName path to the input text file, gzip file or archive
+     * @return false if the file could not be found or everything in it was
+     *         already added
+     * @throws IOException if reading the file or writing a run fails
+     * @throws IllegalStateException if {@link #finish()} has been called
+     */
+    public boolean addFile(String fileName) throws IOException {
+        if (finished)
+            throw new IllegalStateException("Indexer is finished.");
+        boolean stdin = InputArchive.STDIN.equals(fileName);
+        File file = stdin ? null : Utils.check(fileName);
+        if (!stdin && file == null)
+            return false;
+
+        boolean any = false;
+        try (InputArchive in = stdin ? InputArchive.stdin() : InputArchive.open(file, fileName)) {
+            String entry;
+            while ((entry = in.nextEntry()) != null) {
+                int id = fileId(entry);
+                if (!added.add(id))
+                    continue;
+                if (id < segmentFileCount)
+                    replaced.add(id);
+                any = true;
+                addEntry(id, new BufferedReader(new InputStreamReader(in.stream())));
+            }
+        }
+        return any;
+    }
+
+    private void addEntry(int id, BufferedReader br) throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            for (String rawToken : line.split(" ")) {
+                String w = WordTracker.cleanToken(rawToken);
+                if (w.isEmpty()) continue;
+                add(w, id, lineNumber);
+            }
+        }
+    }
+
+    private int fileId(String name) {
+        Integer id = fileIds.get(name);
+        if (id == null) {
+            id = files.size();
+            files.add(name);
+            fileIds.put(name, id);
+        }
+        return id;
+    }
+
+    private void add(String token, int file, int line) throws IOException {
+        Term term = terms.get(token);
+        if (term == null) {
+            term = analyze(token);
+            terms.put(token, term);
+            bufferedBytes += 4L * (token.length() + term.key.length()) + 160;
+        }
+        if (term == STOPPED)
+            return;
+        if (buffered == buffer.length)
+            buffer = Arrays.copyOf(buffer, buffered * 2);
+        buffer[buffered++] = new Tuple(term.key, term.word, file, line, seq++);
+        bufferedBytes += TUPLE_BYTES;
+        if (bufferedBytes >= budget)
+            spill();
+    }
+
+    /** @return the word and key a token is indexed under, or {@link #STOPPED} */
+    private Term analyze(String token) {
+        String key = TextNormalizer.fold(token);
+        if (analyzer == null)
+            return new Term(token, key);
+        String analyzed = analyzer.analyze(key);
+        if (analyzed == null)
+            return STOPPED;
+        // a stem is indexed as itself, not as one of its surface forms
+        return analyzed != key ? new Term(analyzed, analyzed) : new Term(token, key);
+    }
+
+    /** Sorts the buffer by word (stable, so sequence order holds within a word) and writes it as a run. */
+    private void spill() throws IOException {
+        if (buffered == 0)
+            return;
+        Arrays.sort(buffer, 0, buffered, BY_KEY);
+        File run = new File(segment.getPath() + ".run" + runs.size());
+        try (RunWriter w = new RunWriter(run)) {
+            for (int i = 0; i < buffered; i++)
+                w.write(buffer[i]);
+        }
+        runs.add(run);
+        Arrays.fill(buffer, 0, buffered, null);
+        buffered = 0;
+        bufferedBytes = 0;
+        terms.clear();
+    }
+
+    /** @return the number of runs spilled so far */
+    public int runCount() {
+        return runs.size();
+    }
+
+    // ------------------------------------------------------------
+    // MERGE
+    // ------------------------------------------------------------
+
+    /**
+     * Spills the remaining buffer, merges every run with the existing segment
+     * and replaces the segment with the result. Run files are deleted.
+     *
+     * @throws IOException if merging or writing fails
+     */
+    public void finish() throws IOException {
+        if (finished)
+            return;
+        finished = true;
+        spill();
+        List<File> pending = new ArrayList<>(runs);
+        try {
+            // keep the final merge within the fan-in limit
+            int pass = 0;
+            while (pending.size() + 1 > MAX_FAN_IN) {
+                List<File> batch = new ArrayList<>(pending.subList(0, MAX_FAN_IN));
+                pending.subList(0, MAX_FAN_IN).clear();
+                File merged = new File(segment.getPath() + ".pass" + pass++);
+                mergeRuns(batch, merged);
+                pending.add(merged);
+            }
+            File tmp = new File(segment.getPath() + ".tmp");
+            mergeSegment(pending, tmp);
+            try {
+                Files.move(tmp.toPath(), segment.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), segment.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            for (File f : pending)
+                f.delete();
+            for (File f : runs)
+                f.delete();
+        }
+    }
+
+    /** Merges runs into one larger run. */
+    private void mergeRuns(List<File> inputs, File output) throws IOException {
+        PriorityQueue<Source> heap = open(inputs, false);
+        try (RunWriter w = new RunWriter(output)) {
+            while (!heap.isEmpty()) {
+                Source s = heap.poll();
+                w.write(s.current);
+                if (s.advance())
+                    heap.add(s);
+                else
+                    s.close();
+            }
+        } finally {
+            for (Source s : heap)
+                s.close();
+        }
+        for (File f : inputs)
+            f.delete();
+    }
+
+    /** Merges runs and the existing segment into a new segment, one record per word. */
+    private void mergeSegment(List<File> inputs, File output) throws IOException {
+        PriorityQueue<Source> heap = open(inputs, segment.exists());
+        int[] slotOf = new int[files.size()];
+        Arrays.fill(slotOf, -1);
+        int[] ids = new int[4];
+        int[] counts = new int[4];
+        int[][] lines = new int[4][];
+        int fileCount = 0;
+        String groupKey = null;
+        String groupWord = null;
+
+        try (WordSegment.Writer w = new WordSegment.Writer(output, files)) {
+            while (!heap.isEmpty()) {
+                Source s = heap.poll();
+                Tuple t = s.current;
+                if (groupKey != null && !groupKey.equals(t.key)) {
+                    w.write(groupWord, fileCount, ids, lines, counts);
+                    for (int i = 0; i < fileCount; i++)
+                        slotOf[ids[i]] = -1;
+                    fileCount = 0;
+                    groupKey = null;
+                }
+                if (groupKey == null) {
+                    groupKey = t.key;
+                    groupWord = t.word; // lowest sequence number: the first spelling seen
+                }
+
+                int slot = slotOf[t.file];
+                if (slot < 0) {
+                    if (fileCount == ids.length) {
+                        ids = Arrays.copyOf(ids, fileCount * 2);
+                        counts = Arrays.copyOf(counts, fileCount * 2);
+                        lines = Arrays.copyOf(lines, fileCount * 2);
+                    }
+                    slot = fileCount++;
+                    slotOf[t.file] = slot;
+                    ids[slot] = t.file;
+                    counts[slot] = 0;
+                    if (lines[slot] == null)
+                        lines[slot] = new int[8];
+                }
+                if (counts[slot] == lines[slot].length)
+                    lines[slot] = Arrays.copyOf(lines[slot], counts[slot] * 2);
+                lines[slot][counts[slot]++] = t.line;
+
+                if (s.advance())
+                    heap.add(s);
+                else
+                    s.close();
+            }
+            if (groupKey != null)
+                w.write(groupWord, fileCount, ids, lines, counts);
+        } finally {
+            for (Source s : heap)
+                s.close();
+        }
+    }
+
+    private PriorityQueue<Source> open(List<File> inputs, boolean withSegment) throws IOException {
+        PriorityQueue<Source> heap = new PriorityQueue<>(Math.max(1, inputs.size() + 1),
+                (a, b) -> {
+                    int c = a.current.key.compareTo(b.current.key);
+                    return c != 0 ? c : Long.compare(a.current.seq, b.current.seq);
+                });
+        try {
+            if (withSegment) {
+                Source s = new SegmentSource(segment, replaced);
+                if (s.advance())
+                    heap.add(s);
+                else
+                    s.close();
+            }
+            for (File f : inputs) {
+                Source s = new RunSource(f);
+                if (s.advance())
+                    heap.add(s);
+                else
+                    s.close();
+            }
+        } catch (IOException e) {
+            for (Source s : heap)
+                s.close();
+            throw e;
+        }
+        return heap;
+    }
+
+    // ------------------------------------------------------------
+    // TUPLES AND RUNS
+    // ------------------------------------------------------------
+
+    /** One occurrence. The key is the folded word, which orders words like Word.compareTo. */
+    private static final class Term {
+        final String word;
+        final String key;
+
+        Term(String word, String key) {
+            this.word = word;
+            this.key = key;
+        }
+    }
+
+    private static final class Tuple {
+        final String key;
+        final String word;
+        final int file;
+        final int line;
+        final long seq;
+
+        Tuple(String key, String word, int file, int line, long seq) {
+            this.key = key;
+            this.word = word;
+            this.file = file;
+            this.line = line;
+            this.seq = seq;
+        }
+    }
+
+    /** Writes tuples to a run file. */
+    private static final class RunWriter implements Closeable {
+        private final DataOutputStream out;
+
+        RunWriter(File file) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        }
+
+        void write(Tuple t) throws IOException {
+            out.writeBoolean(true);
+            WordSegment.writeString(out, t.word);
+            WordSegment.writeVarInt(out, t.file);
+            WordSegment.writeVarInt(out, t.line);
+            out.writeLong(t.seq);
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.writeBoolean(false);
+            out.close();
+        }
+    }
+
+    /** A sorted stream of tuples for the merge heap. */
+    private abstract static class Source implements Closeable {
+        Tuple current;
+
+        /** @return false when the source is exhausted */
+        abstract boolean advance() throws IOException;
+    }
+
+    private static final class RunSource extends Source {
+        private final DataInputStream in;
+        private String lastWord;
+        private String lastKey;
+
+        RunSource(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (!in.readBoolean())
+                return false;
+            String word = WordSegment.readString(in);
+            if (!word.equals(lastWord)) {
+                lastWord = word;
+                lastKey = TextNormalizer.fold(word);
+            }
+            int file = WordSegment.readVarInt(in);
+            int line = WordSegment.readVarInt(in);
+            current = new Tuple(lastKey, lastWord, file, line, in.readLong());
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Replays the existing segment as tuples, skipping files being re-indexed.
+     * Its sequence numbers are below every new tuple's, so old postings and
+     * spellings come first.
+     */
+    private static final class SegmentSource extends Source {
+        private final WordSegment.Reader reader;
+        private final Set<Integer> skip;
+        private String key;
+        private int file = -1;
+        private int line;
+        private long seq = Long.MIN_VALUE;
+
+        SegmentSource(File segment, Set<Integer> skip) throws IOException {
+            this.reader = new WordSegment.Reader(segment);
+            this.skip = skip;
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            while (true) {
+                if (file >= 0 && file < reader.fileCount()) {
+                    if (line < reader.lineCount(file) && !skip.contains(reader.fileId(file))) {
+                        current = new Tuple(key, reader.word(), reader.fileId(file),
+                                reader.line(file, line++), seq++);
+                        return true;
+                    }
+                    file++;
+                    line = 0;
+                    continue;
+                }
+                if (!reader.next())
+                    return false;
+                key = TextNormalizer.fold(reader.word());
+                file = 0;
+                line = 0;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package appDomain;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.ToIntFunction;
+
+import utilities.BSTreeADT;
+
+/**
+ * Words of a repository ranked by how often they occur, overall or in one
+ * file.
+ *
+ * <p>A request for the top k words walks the tree once and keeps the best k
+ * seen so far in a bounded min-heap, so it costs O(V log k) rather than a
+ * full sort of the vocabulary. The result is kept, overall and per file, and
+ * later requests for at most as many words are a copy of its first entries;
+ * a request for more words walks the tree again. The index describes the
+ * tree as it was when the ranking was built, so {@link WordTracker} discards
+ * it whenever the repository changes.</p>
+ *
+ * <p>Ties are broken alphabetically, in the same order as the reports.</p>
+ */
+class FrequencyIndex {
+
+    private final BSTreeADT<Word> tree;
+
+    /** The best words overall, most frequent first; null until requested */
+    private Ranking ranked;
+
+    /** The best words of each requested file, most frequent in that file first */
+    private final Map<String, Ranking> rankedByFile = new HashMap<>();
+
+    /**
+     * @param tree the words to rank
+     */
+    FrequencyIndex(BSTreeADT<Word> tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * @param k number of words wanted
+     * @return up to k words, most frequent first
+     */
+    List<Word> top(int k) {
+        if (k <= 0)
+            return Collections.emptyList();
+        if (ranked == null || !ranked.covers(k))
+            ranked = rank(null, Word::getTotalCount, k);
+        return ranked.first(k);
+    }
+
+    /**
+     * @param file a filename
+     * @param k    number of words wanted
+     * @return up to k words occurring in the file, most frequent there first
+     */
+    List<Word> top(String file, int k) {
+        if (k <= 0)
+            return Collections.emptyList();
+        Ranking words = rankedByFile.get(file);
+        if (words == null || !words.covers(k)) {
+            words = rank(file, w -> w.getCount(file), k);
+            rankedByFile.put(file, words);
+        }
+        return words.first(k);
+    }
+
+    /**
+     * Selects the k best words of the tree, optionally only those in one file.
+     *
+     * @param file  the file, or null for all words
+     * @param count the count words are ranked by
+     * @param k     number of words wanted, at least 1
+     */
+    private Ranking rank(String file, ToIntFunction<Word> count, int k) {
+        // better first: higher count, then earlier in the reports' order
+        Comparator<Word> ranking = Comparator.comparingInt(count).reversed().thenComparing(Comparator.naturalOrder());
+        PriorityQueue<Word> best = new PriorityQueue<>(Math.min(k, Math.max(1, tree.size())), ranking.reversed());
+        tree.forEachInOrder(w -> {
+            if (file != null && w.getCount(file) == 0)
+                return;
+            if (best.size() < k) {
+                best.add(w);
+            } else if (ranking.compare(w, best.peek()) < 0) {
+                best.poll();
+                best.add(w);
+            }
+        });
+        Word[] out = new Word[best.size()];
+        for (int i = out.length - 1; i >= 0; i--)
+            out[i] = best.poll();
+        return new Ranking(out, out.length < k);
+    }
+
+    /** The best words found by one walk. */
+    private static final class Ranking {
+        private final Word[] words;
+
+        /** True if the walk found fewer words than were asked for, so these are all of them */
+        private final boolean complete;
+
+        Ranking(Word[] words, boolean complete) {
+            this.words = words;
+            this.complete = complete;
+        }
+
+        boolean covers(int k) {
+            return complete || k <= words.length;
+        }
+
+        List<Word> first(int k) {
+            return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(words, Math.min(k, words.length))));
+        }
+    }
+}
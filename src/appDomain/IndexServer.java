@@ -0,0 +1,480 @@
+package appDomain;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import utilities.Utils;
+
+/**
+ * Keeps a {@link WordTracker} repository in memory and serves commands
+ * against it, so that indexing a file costs a scan of that file instead of a
+ * full load and save of {@code repository.ser}.
+ *
+ * <p>The protocol is line based. Each request is one line; each response is
+ * zero or more data lines followed by a status line starting with
+ * {@code OK} or {@code ERR}:
+ * <ul>
+ *   <li>{@code INDEX <file>} – scans the file into the repository</li>
+ *   <li>{@code POSTINGS <file> <n>} – replaces the file's postings with the
+ *       n lines that follow, each {@code <line> <position> <word>}, the word
+ *       already cleaned and analyzed; file and words are URL-encoded. This
+ *       is how a {@link ShardedRepository} sends a shard its tokens.</li>
+ *   <li>{@code QUERY <word> [<word> ...]} – prints one {@code po}-style line per
+ *       word that has been indexed</li>
+ *   <li>{@code SEARCH <expression>} – prints the files and lines matching a
+ *       {@link QueryEngine} expression</li>
+ *   <li>{@code TOP <k> [<file>]} – prints the k most frequent words</li>
+ *   <li>{@code REPORT pf|pl|po} – prints the full report</li>
+ *   <li>{@code SCAN [<option> <value> ...]} – prints the words selected by
+ *       {@link ReportOptions} flags such as {@code -prefix th -limit 20}, in
+ *       the binary report format, base64-encoded on lines starting with
+ *       {@code .}; values are URL-encoded</li>
+ *   <li>{@code SAVE} – writes the repository now</li>
+ *   <li>{@code QUIT} – ends this session</li>
+ *   <li>{@code SHUTDOWN} – saves and stops the server</li>
+ * </ul>
+ * Commands are case-insensitive.</p>
+ *
+ * <p>The repository is checkpointed on a fixed schedule when it has changed
+ * since the last save, and once more on shutdown. Queries and reports share a
+ * read lock; indexing and saving take the write lock, because saving
+ * temporarily rebuilds off-heap postings inside each Word.</p>
+ */
+public class IndexServer {
+
+    private final WordTracker tracker;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService checkpointer;
+    private final ExecutorService sessions = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "index-session");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean dirty;
+    private volatile boolean running = true;
+    private volatile ServerSocket serverSocket;
+
+    /**
+     * Creates a server around a tracker whose repository has already been
+     * loaded.
+     *
+     * @param tracker           the tracker to serve
+     * @param checkpointSeconds seconds between checkpoints, or 0 to save only
+     *                          on request and shutdown
+     * @throws NullPointerException if tracker is null
+     */
+    public IndexServer(WordTracker tracker, long checkpointSeconds) {
+        if (tracker == null)
+            throw new NullPointerException("Tracker cannot be null.");
+        this.tracker = tracker;
+        if (checkpointSeconds > 0) {
+            checkpointer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "index-checkpoint");
+                t.setDaemon(true);
+                return t;
+            });
+            checkpointer.scheduleWithFixedDelay(this::checkpoint,
+                    checkpointSeconds, checkpointSeconds, TimeUnit.SECONDS);
+        } else {
+            checkpointer = null;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // SERVING
+    // ------------------------------------------------------------
+
+    /**
+     * Serves a single session on standard input and output until end of
+     * input, {@code QUIT} or {@code SHUTDOWN}, then shuts down. Messages the
+     * tracker prints itself are moved to standard error so that standard
+     * output carries only protocol responses.
+     */
+    public void serveStdin() {
+        PrintStream protocol = System.out;
+        System.setOut(System.err);
+        try {
+            session(System.in, protocol);
+        } finally {
+            shutdown();
+            System.setOut(protocol);
+        }
+    }
+
+    /**
+     * Listens on the loopback interface and serves each connection on its own
+     * thread until a client sends {@code SHUTDOWN}.
+     *
+     * @param port TCP port, or 0 to pick a free one
+     * @throws IOException if the port cannot be bound
+     */
+    public void serveSocket(int port) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        System.out.println("Listening on " + serverSocket.getLocalSocketAddress());
+        try {
+            while (running) {
+                final Socket client;
+                try {
+                    client = serverSocket.accept();
+                } catch (SocketException e) {
+                    break; // closed by shutdown()
+                }
+                sessions.execute(() -> {
+                    try (Socket s = client) {
+                        session(s.getInputStream(), new PrintStream(s.getOutputStream(), true));
+                    } catch (IOException e) {
+                        System.err.println("Session error: " + e.getMessage());
+                    }
+                });
+            }
+        } finally {
+            shutdown();
+        }
+    }
+
+    /**
+     * @return the port the server is listening on, or -1 if not listening
+     */
+    public int getPort() {
+        ServerSocket s = serverSocket;
+        return s == null ? -1 : s.getLocalPort();
+    }
+
+    /**
+     * Stops accepting connections, cancels the checkpoint schedule and saves
+     * the repository if it has changed. Safe to call more than once.
+     */
+    public void shutdown() {
+        running = false;
+        ServerSocket s = serverSocket;
+        if (s != null) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+        if (checkpointer != null)
+            checkpointer.shutdownNow();
+        sessions.shutdown();
+        checkpoint();
+    }
+
+    private void session(InputStream in, PrintStream out) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
+            String line;
+            while (running && (line = br.readLine()) != null) {
+                if (!handle(line.trim(), br, out))
+                    break;
+            }
+        } catch (IOException e) {
+            System.err.println("Session error: " + e.getMessage());
+        }
+    }
+
+    // ------------------------------------------------------------
+    // COMMANDS
+    // ------------------------------------------------------------
+
+    /**
+     * Executes one request line and writes its response.
+     *
+     * @param line the request
+     * @param in   the rest of the session, for requests that carry data lines
+     * @param out  where to write the response
+     * @return false if the session should end
+     * @throws IOException if the session cannot be read
+     */
+    boolean handle(String line, BufferedReader in, PrintStream out) throws IOException {
+        if (line.isEmpty())
+            return true;
+        String[] parts = line.split("\\s+", 2);
+        String command = parts[0].toUpperCase();
+        String arg = parts.length > 1 ? parts[1].trim() : "";
+
+        switch (command) {
+            case "INDEX":
+                index(arg, out);
+                return true;
+            case "POSTINGS":
+                postings(arg, in, out);
+                return true;
+            case "QUERY":
+                query(arg, out);
+                return true;
+            case "SEARCH":
+                search(arg, out);
+                return true;
+            case "TOP":
+                top(arg, out);
+                return true;
+            case "REPORT":
+                report(arg, out);
+                return true;
+            case "SCAN":
+                scan(arg, out);
+                return true;
+            case "SAVE":
+                if (save())
+                    out.println("OK saved to " + tracker.getRepositoryFile());
+                else
+                    out.println("ERR cannot save to " + tracker.getRepositoryFile());
+                return true;
+            case "QUIT":
+                out.println("OK bye");
+                return false;
+            case "SHUTDOWN":
+                out.println("OK shutting down");
+                shutdown();
+                return false;
+            default:
+                out.println("ERR unknown command: " + parts[0]);
+                return true;
+        }
+    }
+
+    private void index(String fileName, PrintStream out) {
+        if (fileName.isEmpty()) {
+            out.println("ERR usage: INDEX <file>");
+            return;
+        }
+        if (Utils.check(fileName) == null) {
+            out.println("ERR file not found: " + fileName);
+            return;
+        }
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            tracker.constructsFromFile(fileName);
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        out.println("OK indexed " + fileName + " in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms");
+    }
+
+    private void postings(String arg, BufferedReader in, PrintStream out) throws IOException {
+        String[] parts = arg.split("\\s+");
+        int count;
+        try {
+            count = parts.length == 2 ? Integer.parseInt(parts[1]) : -1;
+        } catch (NumberFormatException e) {
+            count = -1;
+        }
+        if (count < 0) {
+            out.println("ERR usage: POSTINGS <file> <n>");
+            return;
+        }
+        ShardedRepository.Postings postings;
+        String fileName;
+        try {
+            // the lines are read in full first, so the session stays in step
+            postings = ShardedRepository.Postings.read(in, count);
+            fileName = URLDecoder.decode(parts[0], "UTF-8");
+        } catch (IllegalArgumentException e) {
+            out.println("ERR " + e.getMessage());
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            tracker.addPostings(fileName, postings);
+            dirty = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        out.println("OK indexed " + count + " postings for " + fileName);
+    }
+
+    private void query(String words, PrintStream out) {
+        if (words.isEmpty()) {
+            out.println("ERR usage: QUERY <word> [<word> ...]");
+            return;
+        }
+        int found = 0;
+        lock.readLock().lock();
+        try {
+            for (String w : words.split("\\s+")) {
+                Word word = tracker.lookup(w);
+                if (word != null) {
+                    out.println(word.toPrintFilesLinesFrequency());
+                    found++;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.println("OK " + found + " found");
+    }
+
+    private void search(String expression, PrintStream out) {
+        int matches;
+        lock.readLock().lock();
+        try {
+            matches = new QueryEngine(tracker).print(expression, out);
+        } catch (IllegalArgumentException e) {
+            out.println("ERR " + e.getMessage());
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.println("OK " + matches + " files");
+    }
+
+    private void top(String arg, PrintStream out) {
+        String[] parts = arg.split("\\s+", 2);
+        int k;
+        try {
+            k = Integer.parseInt(parts[0]);
+        } catch (NumberFormatException e) {
+            out.println("ERR usage: TOP <k> [<file>]");
+            return;
+        }
+        // building the ranking caches it in the tracker, so take the write lock
+        lock.writeLock().lock();
+        try {
+            tracker.printTop(k, parts.length > 1 ? parts[1] : null, out);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        out.println("OK");
+    }
+
+    private void report(String mode, PrintStream out) {
+        mode = mode.toLowerCase();
+        if (!mode.equals("pf") && !mode.equals("pl") && !mode.equals("po")) {
+            out.println("ERR usage: REPORT pf|pl|po");
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            tracker.generateReport(mode, out);
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.println("OK");
+    }
+
+    private void scan(String arg, PrintStream out) {
+        ReportOptions options = new ReportOptions();
+        String[] args = arg.isEmpty() ? new String[0] : arg.split("\\s+");
+        try {
+            if (args.length % 2 != 0)
+                throw new IllegalArgumentException("missing value for " + args[args.length - 1]);
+            for (int i = 0; i < args.length; i += 2) {
+                if (!options.set(args[i].toLowerCase(), URLDecoder.decode(args[i + 1], "UTF-8")))
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        } catch (IllegalArgumentException | UnsupportedEncodingException e) {
+            out.println("ERR " + e.getMessage());
+            return;
+        }
+        FramedOutput framed = new FramedOutput(out);
+        lock.readLock().lock();
+        try {
+            tracker.generateReport(ReportFormatter.forMode("pb", framed), options);
+            framed.flush();
+        } catch (IOException | IllegalStateException e) {
+            out.println("ERR " + e.getMessage());
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        out.println("OK");
+    }
+
+    /**
+     * Writes the repository. Changes stay marked unsaved if the write fails,
+     * so the next checkpoint or shutdown tries again.
+     *
+     * @return true if the repository was written
+     */
+    private boolean save() {
+        lock.writeLock().lock();
+        try {
+            if (!tracker.saveTree())
+                return false;
+            dirty = false;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Saves the repository if it has changed since the last save. The check
+     * is made under the write lock, so a caller that finds nothing to save
+     * has waited for any save in progress; the last thread out of
+     * {@link #shutdown()} never leaves a half-written repository behind.
+     */
+    void checkpoint() {
+        lock.writeLock().lock();
+        try {
+            if (dirty)
+                save();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Carries binary data over the line protocol: each chunk becomes one
+     * line holding {@code .} and the chunk in base64, which can never be
+     * mistaken for a status line.
+     */
+    private static final class FramedOutput extends OutputStream {
+        private final PrintStream out;
+        private final byte[] chunk = new byte[3072];
+        private int length;
+
+        FramedOutput(PrintStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) {
+            if (length == chunk.length)
+                flush();
+            chunk[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            while (len > 0) {
+                if (length == chunk.length)
+                    flush();
+                int n = Math.min(len, chunk.length - length);
+                System.arraycopy(b, off, chunk, length, n);
+                length += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (length == 0)
+                return;
+            out.println("." + Base64.getEncoder().encodeToString(Arrays.copyOf(chunk, length)));
+            length = 0;
+        }
+    }
+}
@@ -0,0 +1,585 @@
+package appDomain;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Evaluates boolean and co-occurrence queries against a {@link WordTracker}.
+ *
+ * <p>Syntax, from loosest to tightest binding:
+ * <pre>
+ *   expr    := and ( OR and )*
+ *   and     := unary ( [AND] unary )*     adjacent terms are ANDed
+ *   unary   := NOT unary | primary
+ *   primary := word | word NEAR/k word | "word word ..." | ( expr ) | [ word word ... ]
+ * </pre>
+ * {@code AND}, {@code OR} and {@code NOT} are keywords only in upper case,
+ * so the words "and", "or" and "not" can still be searched for. Words match
+ * ignoring case.</p>
+ *
+ * <p>A query selects files. {@code x AND y} matches files containing both
+ * words, {@code x OR y} files containing either, and {@code x NOT y} files
+ * containing x but not y. {@code [x y]} matches the lines on which every
+ * listed word occurs. Each matching file is reported with the lines that
+ * made it match: the union of its terms' lines for AND and OR, and the
+ * shared lines for a bracket group.</p>
+ *
+ * <p>{@code "x y z"} matches the words as consecutive tokens on one line and
+ * {@code x NEAR/k y} matches lines where the two words are at most k tokens
+ * apart. Both read the token positions recorded in positional mode (see
+ * {@link WordTracker#setPositional(boolean)}), so they only see files that
+ * were indexed with positions.</p>
+ *
+ * <p>Postings are turned into sorted, duplicate-free line arrays once per
+ * term. Unions are linear merges; intersections walk the shorter list and
+ * gallop through the longer one, so a rare word intersected with a common
+ * one costs O(m log(n/m)) rather than O(m + n). Negations are applied as
+ * set differences inside an AND chain and only fall back to complementing
+ * against every indexed file when a query is purely negative.</p>
+ */
+public class QueryEngine {
+
+    private static final int[] NO_LINES = new int[0];
+
+    private final WordTracker tracker;
+
+    /** Tokens of the query being evaluated */
+    private List<String> tokens;
+    private int pos;
+
+    /** Every indexed file, computed only if a query needs a complement */
+    private Set<String> universe;
+
+    /**
+     * @param tracker the tracker whose repository is queried
+     * @throws NullPointerException if tracker is null
+     */
+    public QueryEngine(WordTracker tracker) {
+        if (tracker == null)
+            throw new NullPointerException("Tracker cannot be null.");
+        this.tracker = tracker;
+    }
+
+    // ------------------------------------------------------------
+    // PUBLIC API
+    // ------------------------------------------------------------
+
+    /**
+     * Evaluates a query.
+     *
+     * @param expression the query text
+     * @return matching files, in name order, mapped to their matching lines in
+     *         ascending order (empty for files matched only through NOT)
+     * @throws IllegalArgumentException if the query is malformed
+     */
+    public Map<String, int[]> evaluate(String expression) {
+        tokens = tokenize(expression);
+        pos = 0;
+        universe = null;
+        if (tokens.isEmpty())
+            throw new IllegalArgumentException("Empty query.");
+        Map<String, int[]> result = materialize(parseOr());
+        if (pos < tokens.size())
+            throw new IllegalArgumentException("Unexpected '" + tokens.get(pos) + "' in query.");
+        return result;
+    }
+
+    /**
+     * Evaluates a query and prints one line per matching file:
+     * {@code file -> [lines]}.
+     *
+     * @param expression the query text
+     * @param out        where to print the result
+     * @return the number of matching files
+     * @throws IllegalArgumentException if the query is malformed
+     */
+    public int print(String expression, PrintStream out) {
+        Map<String, int[]> result = evaluate(expression);
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, int[]> e : result.entrySet()) {
+            sb.setLength(0);
+            sb.append(e.getKey());
+            int[] lines = e.getValue();
+            if (lines.length > 0) {
+                sb.append(" -> [");
+                for (int i = 0; i < lines.length; i++) {
+                    if (i > 0)
+                        sb.append(", ");
+                    sb.append(lines[i]);
+                }
+                sb.append(']');
+            }
+            out.println(sb);
+        }
+        return result.size();
+    }
+
+    // ------------------------------------------------------------
+    // PARSING AND EVALUATION
+    // ------------------------------------------------------------
+
+    /** A partial result that may still be negated. */
+    private static final class Operand {
+        final Map<String, int[]> files;
+        final boolean negated;
+
+        Operand(Map<String, int[]> files, boolean negated) {
+            this.files = files;
+            this.negated = negated;
+        }
+    }
+
+    private Operand parseOr() {
+        Operand left = parseAnd();
+        while (accept("OR")) {
+            Operand right = parseAnd();
+            left = new Operand(union(materialize(left), materialize(right)), false);
+        }
+        return left;
+    }
+
+    private Operand parseAnd() {
+        List<Operand> operands = new ArrayList<>();
+        operands.add(parseUnary());
+        while (pos < tokens.size()) {
+            String t = tokens.get(pos);
+            if (t.equals("OR") || t.equals(")"))
+                break;
+            accept("AND");
+            operands.add(parseUnary());
+        }
+        if (operands.size() == 1)
+            return operands.get(0);
+
+        Map<String, int[]> positive = null;
+        Map<String, int[]> negative = new TreeMap<>();
+        for (Operand o : operands) {
+            if (o.negated)
+                negative = union(negative, o.files);
+            else
+                positive = positive == null ? o.files : intersectFiles(positive, o.files);
+        }
+        if (positive == null)
+            return new Operand(negative, true); // NOT a NOT b == NOT (a OR b)
+        return new Operand(difference(positive, negative), false);
+    }
+
+    private Operand parseUnary() {
+        if (accept("NOT")) {
+            Operand inner = parseUnary();
+            return inner.negated ? new Operand(inner.files, false) : new Operand(inner.files, true);
+        }
+        return parsePrimary();
+    }
+
+    private Operand parsePrimary() {
+        if (pos >= tokens.size())
+            throw new IllegalArgumentException("Query ends unexpectedly.");
+        String t = tokens.get(pos++);
+        switch (t) {
+            case "(": {
+                Operand inner = parseOr();
+                expect(")");
+                return inner;
+            }
+            case "[": {
+                Map<String, int[]> lines = null;
+                while (!accept("]")) {
+                    if (pos >= tokens.size())
+                        throw new IllegalArgumentException("Missing ']' in query.");
+                    String w = tokens.get(pos++);
+                    if (isOperator(w) || w.startsWith("\""))
+                        throw new IllegalArgumentException("Only words are allowed inside [ ].");
+                    Map<String, int[]> term = postings(w);
+                    lines = lines == null ? term : intersectLines(lines, term);
+                }
+                if (lines == null)
+                    throw new IllegalArgumentException("Empty [ ] in query.");
+                return new Operand(lines, false);
+            }
+            case ")":
+            case "]":
+            case "AND":
+            case "OR":
+                throw new IllegalArgumentException("Unexpected '" + t + "' in query.");
+            default:
+                if (t.startsWith("NEAR/"))
+                    throw new IllegalArgumentException("Unexpected '" + t + "' in query.");
+                if (t.startsWith("\""))
+                    return new Operand(phrase(t.substring(1, t.length() - 1).trim().split("\\s+")), false);
+                if (pos < tokens.size() && tokens.get(pos).startsWith("NEAR/")) {
+                    int distance = parseDistance(tokens.get(pos++));
+                    if (pos >= tokens.size() || isOperator(tokens.get(pos)) || tokens.get(pos).startsWith("\""))
+                        throw new IllegalArgumentException("NEAR needs a word on each side.");
+                    return new Operand(near(t, tokens.get(pos++), distance), false);
+                }
+                return new Operand(postings(t), false);
+        }
+    }
+
+    private static int parseDistance(String near) {
+        try {
+            int k = Integer.parseInt(near.substring(5));
+            if (k >= 0)
+                return k;
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid distance in '" + near + "'.");
+    }
+
+    private boolean accept(String token) {
+        if (pos < tokens.size() && tokens.get(pos).equals(token)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token))
+            throw new IllegalArgumentException("Missing '" + token + "' in query.");
+    }
+
+    private static boolean isOperator(String t) {
+        return t.equals("AND") || t.equals("OR") || t.equals("NOT") || t.startsWith("NEAR/")
+            || t.equals("(") || t.equals(")") || t.equals("[") || t.equals("]");
+    }
+
+    /**
+     * Splits on whitespace and treats brackets and parentheses as tokens. A
+     * quoted phrase becomes one token that keeps its quotes.
+     */
+    static List<String> tokenize(String expression) {
+        List<String> out = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (c == '"') {
+                int end = expression.indexOf('"', i + 1);
+                if (end < 0)
+                    throw new IllegalArgumentException("Missing closing quote in query.");
+                if (word.length() > 0) {
+                    out.add(word.toString());
+                    word.setLength(0);
+                }
+                if (expression.substring(i + 1, end).trim().isEmpty())
+                    throw new IllegalArgumentException("Empty phrase in query.");
+                out.add(expression.substring(i, end + 1));
+                i = end;
+            } else if (Character.isWhitespace(c) || c == '(' || c == ')' || c == '[' || c == ']') {
+                if (word.length() > 0) {
+                    out.add(word.toString());
+                    word.setLength(0);
+                }
+                if (!Character.isWhitespace(c))
+                    out.add(String.valueOf(c));
+            } else {
+                word.append(c);
+            }
+        }
+        if (word.length() > 0)
+            out.add(word.toString());
+        return out;
+    }
+
+    /** Resolves a negated operand against every indexed file. */
+    private Map<String, int[]> materialize(Operand o) {
+        if (!o.negated)
+            return o.files;
+        if (universe == null)
+            universe = tracker.files();
+        Map<String, int[]> out = new TreeMap<>();
+        for (String f : universe) {
+            if (!o.files.containsKey(f))
+                out.put(f, NO_LINES);
+        }
+        return out;
+    }
+
+    /** @return the word's files mapped to its sorted, distinct lines */
+    private Map<String, int[]> postings(String w) {
+        Map<String, int[]> out = new TreeMap<>();
+        Word word = tracker.lookup(w);
+        if (word == null)
+            return out;
+        for (String file : word.getFiles()) {
+            int[] lines = new int[word.getCount(file)];
+            int[] n = { 0 };
+            word.forEachLine(file, line -> lines[n[0]++] = line);
+            out.put(file, sortedDistinct(lines));
+        }
+        return out;
+    }
+
+    /** @return files mapped to the lines where the words occur consecutively */
+    private Map<String, int[]> phrase(String[] words) {
+        Map<String, int[]> out = new TreeMap<>();
+        Word[] found = new Word[words.length];
+        for (int i = 0; i < words.length; i++) {
+            found[i] = tracker.lookup(words[i]);
+            if (found[i] == null)
+                return out;
+        }
+        for (String file : found[0].getFiles()) {
+            long[] starts = found[0].getPositions(file);
+            for (int i = 1; starts != null && starts.length > 0 && i < found.length; i++) {
+                long[] next = found[i].getPositions(file);
+                starts = next == null ? null : intersect(starts, shift(next, i));
+            }
+            if (starts != null && starts.length > 0)
+                out.put(file, lines(starts));
+        }
+        return out;
+    }
+
+    /** @return files mapped to the lines where x and y are at most k tokens apart */
+    private Map<String, int[]> near(String x, String y, int k) {
+        Map<String, int[]> out = new TreeMap<>();
+        Word wx = tracker.lookup(x);
+        Word wy = tracker.lookup(y);
+        if (wx == null || wy == null)
+            return out;
+        for (String file : wx.getFiles()) {
+            long[] px = wx.getPositions(file);
+            long[] py = wy.getPositions(file);
+            if (px == null || py == null)
+                continue;
+            int[] hits = new int[px.length];
+            int n = 0;
+            int from = 0;
+            for (long p : px) {
+                long line = p >>> 32;
+                int col = (int) p;
+                long hi = (line << 32) | ((long) col + k);
+                from = gallop(py, from, (line << 32) | Math.max(0, col - k));
+                for (int j = from; j < py.length && py[j] <= hi; j++) {
+                    if (py[j] != p) { // a word is not near its own occurrence
+                        if (n == 0 || hits[n - 1] != (int) line)
+                            hits[n++] = (int) line;
+                        break;
+                    }
+                }
+            }
+            if (n > 0)
+                out.put(file, Arrays.copyOf(hits, n));
+        }
+        return out;
+    }
+
+    /** Moves positions {@code k} columns left, dropping those that would go negative. */
+    private static long[] shift(long[] positions, int k) {
+        long[] out = new long[positions.length];
+        int n = 0;
+        for (long p : positions) {
+            if ((int) p >= k)
+                out[n++] = p - k;
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /** @return the distinct line numbers of ascending packed positions */
+    private static int[] lines(long[] positions) {
+        int[] out = new int[positions.length];
+        int n = 0;
+        for (long p : positions) {
+            int line = (int) (p >>> 32);
+            if (n == 0 || out[n - 1] != line)
+                out[n++] = line;
+        }
+        return Arrays.copyOf(out, n);
+    }
+
+    // ------------------------------------------------------------
+    // POSTING MERGES
+    // ------------------------------------------------------------
+
+    private static Map<String, int[]> union(Map<String, int[]> a, Map<String, int[]> b) {
+        Map<String, int[]> out = new TreeMap<>(a);
+        for (Map.Entry<String, int[]> e : b.entrySet())
+            out.merge(e.getKey(), e.getValue(), QueryEngine::union);
+        return out;
+    }
+
+    /** Files in both; lines from either. */
+    private static Map<String, int[]> intersectFiles(Map<String, int[]> a, Map<String, int[]> b) {
+        Map<String, int[]> out = new TreeMap<>();
+        for (Map.Entry<String, int[]> e : a.entrySet()) {
+            int[] other = b.get(e.getKey());
+            if (other != null)
+                out.put(e.getKey(), union(e.getValue(), other));
+        }
+        return out;
+    }
+
+    /** Files in both; only lines in both. */
+    private static Map<String, int[]> intersectLines(Map<String, int[]> a, Map<String, int[]> b) {
+        Map<String, int[]> out = new TreeMap<>();
+        for (Map.Entry<String, int[]> e : a.entrySet()) {
+            int[] other = b.get(e.getKey());
+            if (other != null) {
+                int[] lines = intersect(e.getValue(), other);
+                if (lines.length > 0)
+                    out.put(e.getKey(), lines);
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, int[]> difference(Map<String, int[]> a, Map<String, int[]> b) {
+        Map<String, int[]> out = new TreeMap<>(a);
+        out.keySet().removeAll(b.keySet());
+        return out;
+    }
+
+    /**
+     * Sorts the array in place if needed and drops repeated values.
+     *
+     * @param lines line numbers in insertion order
+     * @return ascending, duplicate-free line numbers
+     */
+    static int[] sortedDistinct(int[] lines) {
+        for (int i = 1; i < lines.length; i++) {
+            if (lines[i] < lines[i - 1]) {
+                Arrays.sort(lines);
+                break;
+            }
+        }
+        int n = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (n == 0 || lines[i] != lines[n - 1])
+                lines[n++] = lines[i];
+        }
+        return n == lines.length ? lines : Arrays.copyOf(lines, n);
+    }
+
+    /**
+     * Merges two ascending, duplicate-free arrays.
+     *
+     * @return the ascending union without duplicates
+     */
+    static int[] union(int[] a, int[] b) {
+        int[] out = new int[a.length + b.length];
+        int i = 0, j = 0, n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j])
+                out[n++] = a[i++];
+            else if (a[i] > b[j])
+                out[n++] = b[j++];
+            else {
+                out[n++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length)
+            out[n++] = a[i++];
+        while (j < b.length)
+            out[n++] = b[j++];
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Intersects two ascending, duplicate-free arrays by walking the shorter
+     * one and galloping through the longer one.
+     *
+     * @return the ascending intersection
+     */
+    static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] t = a;
+            a = b;
+            b = t;
+        }
+        int[] out = new int[a.length];
+        int n = 0;
+        int from = 0;
+        for (int i = 0; i < a.length && from < b.length; i++) {
+            from = gallop(b, from, a[i]);
+            if (from < b.length && b[from] == a[i])
+                out[n++] = a[i];
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /**
+     * Finds the first index at or after {@code from} whose value is not less
+     * than {@code key}, probing 1, 2, 4, ... ahead and then binary searching
+     * the last step.
+     *
+     * @return the index, or {@code a.length} if every remaining value is smaller
+     */
+    static int gallop(int[] a, int from, int key) {
+        if (from >= a.length || a[from] >= key)
+            return from;
+        int lo = from;
+        int step = 1;
+        int hi = from + 1;
+        while (hi < a.length && a[hi] < key) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        if (hi > a.length)
+            hi = a.length;
+        // a[lo] < key, and a[hi] >= key or hi == a.length
+        while (lo + 1 < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key)
+                lo = mid;
+            else
+                hi = mid;
+        }
+        return hi;
+    }
+
+    /**
+     * {@link #intersect(int[], int[])} for packed positions.
+     *
+     * @return the ascending intersection
+     */
+    static long[] intersect(long[] a, long[] b) {
+        if (a.length > b.length) {
+            long[] t = a;
+            a = b;
+            b = t;
+        }
+        long[] out = new long[a.length];
+        int n = 0;
+        int from = 0;
+        for (int i = 0; i < a.length && from < b.length; i++) {
+            from = gallop(b, from, a[i]);
+            if (from < b.length && b[from] == a[i])
+                out[n++] = a[i];
+        }
+        return n == out.length ? out : Arrays.copyOf(out, n);
+    }
+
+    /** {@link #gallop(int[], int, int)} for packed positions. */
+    static int gallop(long[] a, int from, long key) {
+        if (from >= a.length || a[from] >= key)
+            return from;
+        int lo = from;
+        int step = 1;
+        int hi = from + 1;
+        while (hi < a.length && a[hi] < key) {
+            lo = hi;
+            step <<= 1;
+            hi = from + step;
+        }
+        if (hi > a.length)
+            hi = a.length;
+        while (lo + 1 < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (a[mid] < key)
+                lo = mid;
+            else
+                hi = mid;
+        }
+        return hi;
+    }
+}
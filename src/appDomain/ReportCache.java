@@ -0,0 +1,321 @@
+package appDomain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+/**
+ * Keeps the rendered report line of every word in a file next to the
+ * repository, so a report can be regenerated by re-rendering only the words
+ * whose postings changed and copying the cached bytes for the rest.
+ *
+ * <p>Every change to a {@link Word}'s postings gives it a new modification
+ * stamp, which is saved with the repository. Each cache entry records the
+ * stamp of the word it was rendered from, and is reused only while the word
+ * still has that stamp. Rendering never changes a word, so the caches of
+ * different modes do not invalidate one another. Stamps start from the
+ * clock, so a cache never matches words from an unrelated repository.</p>
+ *
+ * <p>Layout: a magic number and version, the report mode, then one entry
+ * per word in {@link Word#compareTo} order, each
+ * preceded by a {@code true} marker, and a final {@code false}. An entry
+ * holds the word's key, its stamp, and the rendered bytes. Because entries
+ * and the tree share one order, regeneration is a single merge of the two,
+ * writing the new cache as it goes.</p>
+ *
+ * <p>Only modes whose formatter writes each word independently are cached:
+ * the text modes, JSON Lines and CSV. Not thread-safe.</p>
+ */
+final class ReportCache {
+
+    private static final int MAGIC = 0x57524343; // "WRCC"
+    private static final int VERSION = 2;
+
+    private final File file;
+    private final String mode;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param file the cache file, created by the first regeneration
+     * @param mode a mode accepted by {@link #isCacheable(String)}
+     */
+    ReportCache(File file, String mode) {
+        this.file = file;
+        this.mode = mode;
+    }
+
+    /**
+     * @param mode a report mode
+     * @return true if reports in this mode can be cached
+     */
+    static boolean isCacheable(String mode) {
+        return ReportFormatter.isMode(mode) && !mode.equals("pb");
+    }
+
+    /**
+     * @param repositoryFile the repository's path
+     * @param mode           the report mode
+     * @return the cache file for the mode, e.g. {@code repository.ser.po.cache}
+     */
+    static File fileFor(String repositoryFile, String mode) {
+        return new File(repositoryFile + "." + mode + ".cache");
+    }
+
+    /** @return words copied from the cache by the last regeneration */
+    long hits() {
+        return hits;
+    }
+
+    /** @return words rendered by the last regeneration */
+    long misses() {
+        return misses;
+    }
+
+    /**
+     * Writes the report of every word in the tree and replaces the cache
+     * file with one matching it. A missing, unreadable or foreign cache file
+     * only means every word is rendered.
+     *
+     * @param tree the words
+     * @param out  where the report is written; flushed, not closed
+     * @throws IOException if the report or the new cache cannot be written
+     */
+    void write(BSTreeADT<Word> tree, OutputStream out) throws IOException {
+        hits = 0;
+        misses = 0;
+        Renderer renderer = new Renderer(mode);
+        out.write(renderer.header());
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Reader old = Reader.open(file, mode);
+             DataOutputStream cache = new DataOutputStream(
+                     new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16))) {
+            cache.writeInt(MAGIC);
+            cache.writeInt(VERSION);
+            cache.writeUTF(mode);
+            if (old == null && renderer.isText() && tree.size() >= WordTracker.PARALLEL_THRESHOLD)
+                renderAll(tree, renderer, out, cache);
+            else
+                merge(tree, old, renderer, out, cache);
+            cache.writeBoolean(false);
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        }
+        out.flush();
+
+        try {
+            Files.move(tmp.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Walks the tree and the old cache together. */
+    private void merge(BSTreeADT<Word> tree, Reader old, Renderer renderer, OutputStream out,
+            DataOutputStream cache) throws IOException {
+        Iterator<Word> it = tree.inorderIterator();
+        while (it.hasNext()) {
+            Word w = it.next();
+            String key = w.getKey();
+            long version = w.getVersion();
+            if (old != null && old.find(key, version)) {
+                out.write(old.data, 0, old.length);
+                writeEntry(cache, key, version, old.data, old.length);
+                hits++;
+                continue;
+            }
+            byte[] bytes = renderer.render(w);
+            out.write(bytes);
+            writeEntry(cache, key, version, bytes, bytes.length);
+            misses++;
+        }
+    }
+
+    /**
+     * Without a cache every word is rendered, so text lines are formatted on
+     * several threads and written in order, as in an uncached report.
+     */
+    private void renderAll(BSTreeADT<Word> tree, Renderer renderer, OutputStream out,
+            DataOutputStream cache) throws IOException {
+        try {
+            tree.parallelStream()
+                .map(w -> new Object[] { w, renderer.render(w) })
+                .forEachOrdered(r -> {
+                    Word w = (Word) r[0];
+                    byte[] bytes = (byte[]) r[1];
+                    try {
+                        out.write(bytes);
+                        writeEntry(cache, w.getKey(), w.getVersion(), bytes, bytes.length);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        misses = tree.size();
+    }
+
+    private static void writeEntry(DataOutputStream cache, String key, long version, byte[] data, int length)
+            throws IOException {
+        cache.writeBoolean(true);
+        cache.writeUTF(key);
+        cache.writeLong(version);
+        WordSegment.writeVarInt(cache, length);
+        cache.write(data, 0, length);
+    }
+
+    // ------------------------------------------------------------
+    // RENDERER
+    // ------------------------------------------------------------
+
+    /** Renders one word at a time into the bytes its formatter would write. */
+    private static final class Renderer {
+        private final String mode;
+        private final boolean text;
+        private final ByteArrayOutputStream scratch = new ByteArrayOutputStream(256);
+        private final ReportFormatter formatter;
+
+        Renderer(String mode) {
+            this.mode = mode;
+            this.text = WordTracker.isReportMode(mode);
+            this.formatter = text ? null : ReportFormatter.forMode(mode, scratch);
+        }
+
+        boolean isText() {
+            return text;
+        }
+
+        /** @return what the formatter writes before the first word */
+        byte[] header() throws IOException {
+            if (text)
+                return new byte[0];
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ReportFormatter f = ReportFormatter.forMode(mode, bytes);
+            f.begin();
+            f.end();
+            return bytes.toByteArray();
+        }
+
+        /**
+         * Text lines are encoded like {@code PrintStream.println} does, in the
+         * default charset. Only text rendering may run on several threads.
+         */
+        byte[] render(Word w) {
+            if (text)
+                return (WordTracker.formatWord(w, mode) + System.lineSeparator()).getBytes();
+            scratch.reset();
+            try {
+                formatter.write(w);
+                formatter.end();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return scratch.toByteArray();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // READER
+    // ------------------------------------------------------------
+
+    /**
+     * Reads the old cache front to back. A read error is not fatal: the
+     * reader stops matching and the remaining words are rendered.
+     */
+    private static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private boolean more;
+        private String key;
+        private long version;
+        private byte[] data = new byte[256];
+        private int length;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        /** @return a reader positioned before the first entry, or null if there is no usable cache */
+        static Reader open(File file, String mode) {
+            if (!file.isFile())
+                return null;
+            DataInputStream in = null;
+            try {
+                in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+                if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(mode)) {
+                    in.close();
+                    return null;
+                }
+                Reader reader = new Reader(in);
+                reader.advance();
+                return reader;
+            } catch (IOException e) {
+                try {
+                    if (in != null)
+                        in.close();
+                } catch (IOException ignored) {
+                    // already unusable
+                }
+                return null;
+            }
+        }
+
+        /** Reads the next entry's data into {@link #data}. */
+        private void advance() throws IOException {
+            more = in.readBoolean();
+            if (!more)
+                return;
+            key = in.readUTF();
+            version = in.readLong();
+            length = WordSegment.readVarInt(in);
+            if (length > data.length)
+                data = new byte[Math.max(length, data.length * 2)];
+            in.readFully(data, 0, length);
+        }
+
+        /**
+         * Skips entries before the key and checks the one at it.
+         *
+         * @return true if {@link #data} holds the key's rendering at this stamp
+         */
+        boolean find(String wanted, long wantedVersion) {
+            try {
+                while (more && key.compareTo(wanted) < 0)
+                    advance();
+                if (!more || !key.equals(wanted))
+                    return false;
+                boolean match = wantedVersion != 0 && version == wantedVersion;
+                if (match)
+                    return true;
+                advance();
+                return false;
+            } catch (IOException e) {
+                more = false;
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
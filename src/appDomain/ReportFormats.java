@@ -0,0 +1,542 @@
+package appDomain;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The built-in {@link ReportFormatter} implementations.
+ *
+ * <p>The machine-readable formats encode straight into a reusable byte
+ * buffer: word and file names are written as UTF-8 char by char, numbers
+ * digit by digit, and line numbers are read with
+ * {@link Word#forEachLine(String, java.util.function.IntConsumer)}. No
+ * String or boxed Integer is built per word, and the buffer is handed to the
+ * stream in 64 KiB writes.</p>
+ *
+ * <ul>
+ *   <li>JSON Lines: {@code {"word":"hello","count":3,"files":[{"file":"a.txt","count":2,"lines":[3,8]},...]}}
+ *       per line.</li>
+ *   <li>CSV: a {@code word,file,count,lines} header, then one row per word
+ *       and file with the lines separated by spaces. Fields are quoted as in
+ *       RFC 4180; rows end with {@code \n}.</li>
+ *   <li>Binary: the magic {@code "WRPT"} and a version as big-endian ints,
+ *       then tagged records. A file record (tag 1) defines the next file ID,
+ *       just before the first word that uses it. A word record (tag 2) holds
+ *       the word, the number of files and, per file, its ID, the number of
+ *       occurrences and the line numbers as zig-zag varint deltas, like
+ *       {@link WordSegment}. Tag 0 ends the report. Strings are a varint
+ *       byte length and UTF-8.</li>
+ * </ul>
+ */
+public final class ReportFormats {
+
+    static final int BINARY_MAGIC = 0x57525054; // "WRPT"
+    static final int BINARY_VERSION = 1;
+
+    private static final int TAG_END = 0;
+    private static final int TAG_FILE = 1;
+    private static final int TAG_WORD = 2;
+
+    private ReportFormats() {
+    }
+
+    // ------------------------------------------------------------
+    // TEXT
+    // ------------------------------------------------------------
+
+    /** The pf, pl and po reports, one println per word. */
+    static final class Text implements ReportFormatter {
+        private final String mode;
+        private final PrintStream out;
+
+        Text(String mode, OutputStream out) {
+            this.mode = mode;
+            this.out = out instanceof PrintStream ? (PrintStream) out : new PrintStream(out);
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(Word w) {
+            out.println(WordTracker.formatWord(w, mode));
+        }
+
+        @Override
+        public void end() {
+            out.flush();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // BUFFERED BASE
+    // ------------------------------------------------------------
+
+    /**
+     * Encodes into a byte buffer that is written out once it passes 64 KiB
+     * at the end of a word. One word's output is always kept whole, so the
+     * encoding methods never throw and can be called from line callbacks.
+     */
+    abstract static class Buffered implements ReportFormatter {
+        private static final int FLUSH_AT = 1 << 16;
+
+        private final OutputStream out;
+        private byte[] buf = new byte[FLUSH_AT + 1024];
+        private int pos;
+
+        Buffered(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void end() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        /** Called after each word: writes the buffer out if it is full enough. */
+        final void endRecord() throws IOException {
+            if (pos >= FLUSH_AT)
+                drain();
+        }
+
+        private void drain() throws IOException {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+
+        private void ensure(int n) {
+            if (pos + n > buf.length)
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + n));
+        }
+
+        final void writeByte(int b) {
+            ensure(1);
+            buf[pos++] = (byte) b;
+        }
+
+        /** Writes a constant made of ASCII characters. */
+        final void writeAscii(String s) {
+            ensure(s.length());
+            for (int i = 0; i < s.length(); i++)
+                buf[pos++] = (byte) s.charAt(i);
+        }
+
+        final void writeInt(int v) {
+            ensure(11);
+            if (v < 0) {
+                buf[pos++] = '-';
+                if (v == Integer.MIN_VALUE) {
+                    writeAscii("2147483648");
+                    return;
+                }
+                v = -v;
+            }
+            int digits = 1;
+            for (int p = 10; digits < 10 && v >= p; p *= 10)
+                digits++;
+            for (int i = pos + digits - 1; i >= pos; i--) {
+                buf[i] = (byte) ('0' + v % 10);
+                v /= 10;
+            }
+            pos += digits;
+        }
+
+        final void writeVarInt(int v) {
+            ensure(5);
+            while ((v & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            buf[pos++] = (byte) v;
+        }
+
+        /** Appends one char, or a surrogate pair at s[i], as UTF-8. @return chars consumed */
+        final int writeUtf8Char(String s, int i) {
+            char c = s.charAt(i);
+            ensure(4);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | c >> 6);
+                buf[pos++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                    && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(i + 1));
+                buf[pos++] = (byte) (0xF0 | cp >> 18);
+                buf[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                buf[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                buf[pos++] = (byte) (0x80 | cp & 0x3F);
+                return 2;
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xE0 | c >> 12);
+                buf[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buf[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+            return 1;
+        }
+
+        final void writeUtf8(String s) {
+            for (int i = 0; i < s.length(); )
+                i += writeUtf8Char(s, i);
+        }
+
+        /** Writes a varint byte length and the UTF-8 bytes, encoding in place. */
+        final void writeLengthPrefixed(String s) {
+            int bytes = 0;
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < 0x80)
+                    bytes++;
+                else if (c < 0x800)
+                    bytes += 2;
+                else if (Character.isHighSurrogate(c) && i + 1 < s.length()
+                        && Character.isLowSurrogate(s.charAt(i + 1))) {
+                    bytes += 4;
+                    i++;
+                } else if (Character.isSurrogate(c))
+                    bytes++;
+                else
+                    bytes += 3;
+            }
+            writeVarInt(bytes);
+            writeUtf8(s);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // JSON LINES
+    // ------------------------------------------------------------
+
+    /** One JSON object per word and line. */
+    static final class JsonLines extends Buffered {
+        private boolean firstLine;
+
+        JsonLines(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(Word w) throws IOException {
+            writeAscii("{\"word\":");
+            writeString(w.getWord());
+            writeAscii(",\"count\":");
+            writeInt(w.getTotalCount());
+            writeAscii(",\"files\":[");
+            boolean firstFile = true;
+            for (String file : w.getFiles()) {
+                if (!firstFile)
+                    writeByte(',');
+                firstFile = false;
+                writeAscii("{\"file\":");
+                writeString(file);
+                writeAscii(",\"count\":");
+                writeInt(w.getCount(file));
+                writeAscii(",\"lines\":[");
+                firstLine = true;
+                w.forEachLine(file, this::writeLine);
+                writeAscii("]}");
+            }
+            writeAscii("]}\n");
+            endRecord();
+        }
+
+        private void writeLine(int line) {
+            if (!firstLine)
+                writeByte(',');
+            firstLine = false;
+            writeInt(line);
+        }
+
+        private void writeString(String s) {
+            writeByte('"');
+            for (int i = 0; i < s.length(); ) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    writeByte('\\');
+                    writeByte(c);
+                } else if (c < 0x20) {
+                    writeAscii("\\u00");
+                    writeByte(HEX[c >> 4]);
+                    writeByte(HEX[c & 0xF]);
+                } else {
+                    i += writeUtf8Char(s, i);
+                    continue;
+                }
+                i++;
+            }
+            writeByte('"');
+        }
+
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+    }
+
+    // ------------------------------------------------------------
+    // CSV
+    // ------------------------------------------------------------
+
+    /** One row per word and file, after a header row. */
+    static final class Csv extends Buffered {
+        private boolean firstLine;
+
+        Csv(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void begin() {
+            writeAscii("word,file,count,lines\n");
+        }
+
+        @Override
+        public void write(Word w) throws IOException {
+            for (String file : w.getFiles()) {
+                writeField(w.getWord());
+                writeByte(',');
+                writeField(file);
+                writeByte(',');
+                writeInt(w.getCount(file));
+                writeByte(',');
+                firstLine = true;
+                w.forEachLine(file, this::writeLine);
+                writeByte('\n');
+            }
+            endRecord();
+        }
+
+        private void writeLine(int line) {
+            if (!firstLine)
+                writeByte(' ');
+            firstLine = false;
+            writeInt(line);
+        }
+
+        private void writeField(String s) {
+            boolean quote = false;
+            for (int i = 0; i < s.length() && !quote; i++) {
+                char c = s.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writeUtf8(s);
+                return;
+            }
+            writeByte('"');
+            for (int i = 0; i < s.length(); ) {
+                if (s.charAt(i) == '"')
+                    writeByte('"');
+                i += writeUtf8Char(s, i);
+            }
+            writeByte('"');
+        }
+    }
+
+    // ------------------------------------------------------------
+    // BINARY
+    // ------------------------------------------------------------
+
+    /** Tagged binary records with an inline file table. */
+    static final class Binary extends Buffered {
+        private final Map<String, Integer> fileIds = new HashMap<>();
+        private int prevLine;
+
+        Binary(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void begin() {
+            writeByte(BINARY_MAGIC >>> 24);
+            writeByte(BINARY_MAGIC >>> 16);
+            writeByte(BINARY_MAGIC >>> 8);
+            writeByte(BINARY_MAGIC);
+            writeByte(0);
+            writeByte(0);
+            writeByte(0);
+            writeByte(BINARY_VERSION);
+        }
+
+        @Override
+        public void write(Word w) throws IOException {
+            for (String file : w.getFiles()) {
+                if (!fileIds.containsKey(file)) {
+                    fileIds.put(file, fileIds.size());
+                    writeByte(TAG_FILE);
+                    writeLengthPrefixed(file);
+                }
+            }
+            writeByte(TAG_WORD);
+            writeLengthPrefixed(w.getWord());
+            writeVarInt(w.getFiles().size());
+            for (String file : w.getFiles()) {
+                writeVarInt(fileIds.get(file));
+                writeVarInt(w.getCount(file));
+                prevLine = 0;
+                w.forEachLine(file, this::writeLine);
+            }
+            endRecord();
+        }
+
+        private void writeLine(int line) {
+            int delta = line - prevLine;
+            writeVarInt((delta << 1) ^ (delta >> 31));
+            prevLine = line;
+        }
+
+        @Override
+        public void end() throws IOException {
+            writeByte(TAG_END);
+            super.end();
+        }
+    }
+
+    /**
+     * Reads a binary report one word at a time. After {@link #next()}
+     * returns true, the accessors describe the current word.
+     */
+    public static final class BinaryReader implements Closeable {
+        private final DataInputStream in;
+        private final List<String> files = new ArrayList<>();
+        private byte[] bytes = new byte[64];
+
+        private String word;
+        private int fileCount;
+        private int[] fileIds = new int[4];
+        private int[] lineCounts = new int[4];
+        private int[][] lines = new int[4][];
+
+        /**
+         * Opens a report and checks its header.
+         *
+         * @param in the report bytes
+         * @throws IOException if the stream is not a binary report
+         */
+        public BinaryReader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in, 1 << 16));
+            if (this.in.readInt() != BINARY_MAGIC || this.in.readInt() != BINARY_VERSION)
+                throw new IOException("Not a binary report.");
+        }
+
+        /**
+         * Advances to the next word.
+         *
+         * @return false at the end of the report
+         * @throws IOException if the report is truncated or malformed
+         */
+        public boolean next() throws IOException {
+            while (true) {
+                int tag = in.read();
+                if (tag < 0)
+                    throw new EOFException("Report ended without an end record.");
+                if (tag == TAG_END)
+                    return false;
+                if (tag == TAG_FILE) {
+                    files.add(readString());
+                    continue;
+                }
+                if (tag != TAG_WORD)
+                    throw new IOException("Unknown record tag " + tag);
+                word = readString();
+                fileCount = WordSegment.readVarInt(in);
+                if (fileCount > fileIds.length) {
+                    fileIds = Arrays.copyOf(fileIds, fileCount);
+                    lineCounts = Arrays.copyOf(lineCounts, fileCount);
+                    lines = Arrays.copyOf(lines, fileCount);
+                }
+                for (int i = 0; i < fileCount; i++) {
+                    fileIds[i] = WordSegment.readVarInt(in);
+                    int n = WordSegment.readVarInt(in);
+                    lineCounts[i] = n;
+                    if (lines[i] == null || lines[i].length < n)
+                        lines[i] = new int[Math.max(n, 4)];
+                    int prev = 0;
+                    for (int j = 0; j < n; j++) {
+                        int z = WordSegment.readVarInt(in);
+                        prev += (z >>> 1) ^ -(z & 1);
+                        lines[i][j] = prev;
+                    }
+                }
+                return true;
+            }
+        }
+
+        private String readString() throws IOException {
+            int n = WordSegment.readVarInt(in);
+            if (n > bytes.length)
+                bytes = new byte[Math.max(n, bytes.length * 2)];
+            in.readFully(bytes, 0, n);
+            return new String(bytes, 0, n, StandardCharsets.UTF_8);
+        }
+
+        /** @return the current word */
+        public String word() {
+            return word;
+        }
+
+        /** @return the number of files the current word occurs in */
+        public int fileCount() {
+            return fileCount;
+        }
+
+        /**
+         * @param i index among the current word's files
+         * @return the file's name
+         */
+        public String file(int i) {
+            return files.get(fileIds[i]);
+        }
+
+        /**
+         * @param i index among the current word's files
+         * @return the number of occurrences in the file
+         */
+        public int lineCount(int i) {
+            return lineCounts[i];
+        }
+
+        /**
+         * @param i index among the current word's files
+         * @param j index among the file's occurrences
+         * @return the line number
+         */
+        public int line(int i, int j) {
+            return lines[i][j];
+        }
+
+        /** @return the current word as a Word, files added in stored order */
+        public Word toWord() {
+            Map<String, ArrayList<Integer>> occurrences = new HashMap<>();
+            for (int i = 0; i < fileCount; i++) {
+                ArrayList<Integer> list = new ArrayList<>(lineCounts[i]);
+                for (int j = 0; j < lineCounts[i]; j++)
+                    list.add(lines[i][j]);
+                occurrences.put(file(i), list);
+            }
+            return Word.of(word, occurrences);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
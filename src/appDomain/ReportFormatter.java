@@ -0,0 +1,91 @@
+package appDomain;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a report one {@link Word} at a time, in the order the words are
+ * given. {@link WordTracker#generateReport(ReportFormatter)},
+ * {@link SegmentedRepository} and {@link WordSegment} drive a formatter the
+ * same way: {@link #begin()}, then {@link #write(Word)} per word, then
+ * {@link #end()}, so a new output format only needs a new implementation.
+ *
+ * <p>Built-in modes, created with {@link #forMode(String, OutputStream)}:</p>
+ * <ul>
+ *   <li>{@code pf}, {@code pl}, {@code po} — the human-readable reports</li>
+ *   <li>{@code pj} — JSON Lines, one object per word</li>
+ *   <li>{@code pc} — CSV, one row per word and file</li>
+ *   <li>{@code pb} — the compact binary format read by
+ *       {@link ReportFormats.BinaryReader}</li>
+ * </ul>
+ */
+public interface ReportFormatter {
+
+    /**
+     * Writes anything that comes before the first word, such as a header.
+     *
+     * @throws IOException if writing fails
+     */
+    void begin() throws IOException;
+
+    /**
+     * Writes one word with its postings.
+     *
+     * @param w the word
+     * @throws IOException if writing fails
+     */
+    void write(Word w) throws IOException;
+
+    /**
+     * Writes anything that comes after the last word and flushes, without
+     * closing the stream.
+     *
+     * @throws IOException if writing fails
+     */
+    void end() throws IOException;
+
+    /**
+     * @param mode a report mode such as {@code "po"} or {@code "pj"}
+     * @return true if {@link #forMode(String, OutputStream)} accepts it
+     */
+    static boolean isMode(String mode) {
+        switch (mode) {
+            case "pf":
+            case "pl":
+            case "po":
+            case "pj":
+            case "pc":
+            case "pb":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Creates the formatter for a report mode.
+     *
+     * @param mode one of {@code pf}, {@code pl}, {@code po}, {@code pj},
+     *             {@code pc} or {@code pb}
+     * @param out  the stream to write to; it is flushed by {@link #end()} but
+     *             never closed
+     * @return the formatter
+     * @throws IllegalArgumentException if the mode is unknown
+     */
+    static ReportFormatter forMode(String mode, OutputStream out) {
+        switch (mode) {
+            case "pf":
+            case "pl":
+            case "po":
+                return new ReportFormats.Text(mode, out);
+            case "pj":
+                return new ReportFormats.JsonLines(out);
+            case "pc":
+                return new ReportFormats.Csv(out);
+            case "pb":
+                return new ReportFormats.Binary(out);
+            default:
+                throw new IllegalArgumentException("Unknown report mode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,350 @@
+package appDomain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import utilities.BSTreeADT;
+import utilities.TextNormalizer;
+
+/**
+ * Restricts a report to some of the words: by frequency, by file, by key
+ * range or prefix, and by offset and limit. The filters are checked before a
+ * word is formatted, and the range and prefix bound the tree walk itself, so
+ * a narrow report costs about as much as the words it prints rather than
+ * the whole vocabulary.
+ *
+ * <p>Words are compared by their folded keys, like the tree orders them.
+ * With a file filter only that file's postings are printed, and the
+ * frequency bounds apply to the count in that file. The offset and limit
+ * count words that pass every other filter.</p>
+ *
+ * <p>Setters return this object, so options can be chained:
+ * {@code new ReportOptions().minFrequency(5).prefix("th").limit(20)}.</p>
+ */
+public final class ReportOptions {
+
+    private int minFrequency;
+    private int maxFrequency = Integer.MAX_VALUE;
+    private String file;
+    private String from;
+    private String to;
+    private String prefix;
+    private int offset;
+    private int limit = -1;
+
+    /** Creates options that keep every word. */
+    public ReportOptions() {
+    }
+
+    /**
+     * @param n smallest frequency to report
+     * @return this
+     * @throws IllegalArgumentException if n is negative
+     */
+    public ReportOptions minFrequency(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Minimum frequency cannot be negative: " + n);
+        minFrequency = n;
+        return this;
+    }
+
+    /**
+     * @param n largest frequency to report
+     * @return this
+     * @throws IllegalArgumentException if n is negative
+     */
+    public ReportOptions maxFrequency(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Maximum frequency cannot be negative: " + n);
+        maxFrequency = n;
+        return this;
+    }
+
+    /**
+     * @param file only report words in this file, as it was indexed; null for all files
+     * @return this
+     */
+    public ReportOptions file(String file) {
+        this.file = file;
+        return this;
+    }
+
+    /**
+     * @param from smallest word to report, inclusive, or null for no bound
+     * @param to   largest word to report, inclusive, or null for no bound
+     * @return this
+     */
+    public ReportOptions range(String from, String to) {
+        this.from = from == null ? null : TextNormalizer.fold(from);
+        this.to = to == null ? null : TextNormalizer.fold(to);
+        return this;
+    }
+
+    /**
+     * @param prefix only report words starting with this, or null for all words
+     * @return this
+     */
+    public ReportOptions prefix(String prefix) {
+        this.prefix = prefix == null || prefix.isEmpty() ? null : TextNormalizer.fold(prefix);
+        return this;
+    }
+
+    /**
+     * @param n number of matching words to skip
+     * @return this
+     * @throws IllegalArgumentException if n is negative
+     */
+    public ReportOptions offset(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("Offset cannot be negative: " + n);
+        offset = n;
+        return this;
+    }
+
+    /**
+     * @param n largest number of words to report, or -1 for no limit
+     * @return this
+     * @throws IllegalArgumentException if n is below -1
+     */
+    public ReportOptions limit(int n) {
+        if (n < -1)
+            throw new IllegalArgumentException("Invalid limit: " + n);
+        limit = n;
+        return this;
+    }
+
+    /**
+     * Applies one command-line style option, as accepted by {@link AppDriver}
+     * and the {@code SCAN} command of {@link IndexServer}: {@code -min N},
+     * {@code -max N}, {@code -in <file>}, {@code -range <from>:<to>} (either
+     * side may be empty), {@code -prefix <p>}, {@code -offset N} or
+     * {@code -limit N}.
+     *
+     * @param flag  the option, in lower case
+     * @param value its argument
+     * @return false if the flag is not a report option
+     * @throws IllegalArgumentException if the value is invalid
+     */
+    boolean set(String flag, String value) {
+        switch (flag) {
+            case "-min":
+                minFrequency(Integer.parseInt(value.trim()));
+                return true;
+            case "-max":
+                maxFrequency(Integer.parseInt(value.trim()));
+                return true;
+            case "-offset":
+                offset(Integer.parseInt(value.trim()));
+                return true;
+            case "-limit":
+                limit(Integer.parseInt(value.trim()));
+                return true;
+            case "-in":
+                file(value);
+                return true;
+            case "-prefix":
+                prefix(value.trim());
+                return true;
+            case "-range":
+                int colon = value.indexOf(':');
+                if (colon < 0)
+                    throw new IllegalArgumentException("Expected <from>:<to>: " + value);
+                String from = value.substring(0, colon).trim();
+                String to = value.substring(colon + 1).trim();
+                range(from.isEmpty() ? null : from, to.isEmpty() ? null : to);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * @return flag and value pairs that {@link #set(String, String)} turns
+     *         back into these options
+     */
+    List<String> toArgs() {
+        List<String> args = new ArrayList<>();
+        if (minFrequency != 0) {
+            args.add("-min");
+            args.add(Integer.toString(minFrequency));
+        }
+        if (maxFrequency != Integer.MAX_VALUE) {
+            args.add("-max");
+            args.add(Integer.toString(maxFrequency));
+        }
+        if (file != null) {
+            args.add("-in");
+            args.add(file);
+        }
+        if (from != null || to != null) {
+            args.add("-range");
+            args.add((from == null ? "" : from) + ":" + (to == null ? "" : to));
+        }
+        if (prefix != null) {
+            args.add("-prefix");
+            args.add(prefix);
+        }
+        if (offset != 0) {
+            args.add("-offset");
+            args.add(Integer.toString(offset));
+        }
+        if (limit >= 0) {
+            args.add("-limit");
+            args.add(Integer.toString(limit));
+        }
+        return args;
+    }
+
+    /**
+     * @return the number of matching words a report needs before the offset
+     *         and limit are covered, or -1 if it has no limit
+     */
+    int wanted() {
+        return limit < 0 ? -1 : (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The options to push down to one shard of a {@link ShardedRepository}:
+     * the same filters, no offset, and the number of matching words still
+     * wanted as the limit; the offset and limit are applied again as the
+     * shards' words are gathered.
+     *
+     * @param remaining the matching words still wanted, or -1 for all
+     * @return a new ReportOptions
+     */
+    ReportOptions forShard(int remaining) {
+        ReportOptions shard = new ReportOptions();
+        shard.minFrequency = minFrequency;
+        shard.maxFrequency = maxFrequency;
+        shard.file = file;
+        shard.from = from;
+        shard.to = to;
+        shard.prefix = prefix;
+        shard.limit = remaining;
+        return shard;
+    }
+
+    /** @return true if these options keep every word unchanged */
+    boolean isUnfiltered() {
+        return minFrequency == 0 && maxFrequency == Integer.MAX_VALUE && file == null
+                && from == null && to == null && prefix == null && offset == 0 && limit < 0;
+    }
+
+    // ------------------------------------------------------------
+    // BOUNDS
+    // ------------------------------------------------------------
+
+    /** @return the smallest key a reported word can have, or null */
+    String lowKey() {
+        if (prefix == null)
+            return from;
+        return from == null || prefix.compareTo(from) > 0 ? prefix : from;
+    }
+
+    /** @return the largest key a reported word can have, or null */
+    String highKey() {
+        String end = prefix == null ? null : prefixEnd(prefix);
+        if (end == null)
+            return to;
+        return to == null || end.compareTo(to) < 0 ? end : to;
+    }
+
+    /**
+     * The smallest string above every string starting with the prefix; it is
+     * used as an inclusive bound and rejected by the prefix check.
+     *
+     * @return the bound, or null if there is none
+     */
+    static String prefixEnd(String prefix) {
+        int i = prefix.length() - 1;
+        while (i >= 0 && prefix.charAt(i) == Character.MAX_VALUE)
+            i--;
+        if (i < 0)
+            return null;
+        return prefix.substring(0, i) + (char) (prefix.charAt(i) + 1);
+    }
+
+    /** @return a word to compare tree elements with, or null for no bound */
+    private static Word probe(String key) {
+        return key == null ? null : new Word(key, key);
+    }
+
+    // ------------------------------------------------------------
+    // SELECTION
+    // ------------------------------------------------------------
+
+    /**
+     * Writes the selected words of a tree, walking only the part between
+     * the bounds and stopping once the limit is reached.
+     *
+     * @param tree      the words, in order
+     * @param formatter where the words are written; not begun or ended here
+     * @throws IOException if the formatter fails
+     */
+    void write(BSTreeADT<Word> tree, ReportFormatter formatter) throws IOException {
+        Selection selection = select(formatter);
+        try {
+            tree.forEachInRange(probe(lowKey()), probe(highKey()), w -> {
+                try {
+                    return selection.offer(w);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * @param formatter where selected words are written
+     * @return a selection to offer words to in key order
+     */
+    Selection select(ReportFormatter formatter) {
+        return new Selection(formatter);
+    }
+
+    /** Applies the options to words offered in key order. */
+    final class Selection {
+        private final ReportFormatter formatter;
+        private final String low = lowKey();
+        private final String high = highKey();
+        private int skipped;
+        private int written;
+
+        private Selection(ReportFormatter formatter) {
+            this.formatter = formatter;
+        }
+
+        /**
+         * Writes the word if it is selected.
+         *
+         * @param w the next word in key order
+         * @return false once no later word can be selected
+         * @throws IOException if the formatter fails
+         */
+        boolean offer(Word w) throws IOException {
+            if (limit >= 0 && written >= limit)
+                return false;
+            String key = w.getKey();
+            if (high != null && key.compareTo(high) > 0)
+                return false;
+            if (low != null && key.compareTo(low) < 0)
+                return true;
+            if (prefix != null && !key.startsWith(prefix))
+                return true;
+            int count = file == null ? w.getTotalCount() : w.getCount(file);
+            if (count < minFrequency || count > maxFrequency || (file != null && count == 0))
+                return true;
+            if (skipped < offset) {
+                skipped++;
+                return true;
+            }
+            formatter.write(file == null ? w : w.onlyIn(file));
+            written++;
+            return limit < 0 || written < limit;
+        }
+    }
+}
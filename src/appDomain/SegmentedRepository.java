@@ -0,0 +1,798 @@
+package appDomain;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import utilities.Analyzer;
+import utilities.InputArchive;
+import utilities.Iterator;
+import utilities.TextNormalizer;
+import utilities.Utils;
+
+/**
+ * A repository organised as a log-structured merge tree: new postings go to
+ * an in-memory {@link WordTracker} (the memtable), full memtables are written
+ * out as immutable {@link WordSegment} files, and segments are merged in the
+ * background. Indexing a file never rewrites the existing repository, so its
+ * cost stays flat as the repository grows.
+ *
+ * <p>Every memtable and segment has a sequence number. The manifest records,
+ * for each indexed file, the sequence number of the memtable or segment
+ * holding its current postings; postings of that file anywhere else are
+ * stale and ignored. Re-indexing a file therefore needs no tombstones: it
+ * only moves the file's entry to the current memtable.</p>
+ *
+ * <p>Directory layout: {@code MANIFEST} (a small text file, replaced by
+ * rename) and one {@code seg-<n>.dat} per segment. Segment files the
+ * manifest does not list are deleted on opening. A full memtable is swapped
+ * for an empty one and queued for a background thread, which writes queued
+ * memtables in order; compaction runs on the same thread once there are more than the configured number of
+ * segments, and merges them all into one. The memtable is not logged, so
+ * postings indexed since the last flush are lost if the process dies without
+ * {@link #close()}.</p>
+ *
+ * <p>Reads merge every segment, the memtables waiting to be written and the active
+ * memtable word by word in {@link Word#compareTo} order. A word takes the
+ * spelling from the oldest source that has it, and words whose postings are
+ * all stale are left out.</p>
+ *
+ * <p>The analysis chain set with {@link #setAnalyzer(Analyzer)} is not
+ * recorded in the directory, so it has to be set the same way every time
+ * the repository is opened.</p>
+ */
+public class SegmentedRepository implements Closeable {
+
+    /** Default input bytes indexed into a memtable before it is flushed: 16 MiB */
+    public static final long DEFAULT_MEMTABLE_BYTES = 16L << 20;
+
+    /** Default number of segments tolerated before compaction */
+    public static final int DEFAULT_MAX_SEGMENTS = 4;
+
+    private static final String MANIFEST = "MANIFEST";
+
+    private final File dir;
+    private final long memtableBytes;
+    private final int maxSegments;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ExecutorService background = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "segment-writer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** Segment sequence numbers, oldest first */
+    private final List<Integer> segments = new ArrayList<>();
+
+    /** File → sequence number of the memtable or segment with its postings */
+    private final Map<String, Integer> generation = new HashMap<>();
+
+    /** Like {@link #generation}, but only pointing at segments on disk */
+    private final Map<String, Integer> persisted = new HashMap<>();
+
+    private int nextSeq;
+
+    private Analyzer analyzer;
+
+    private WordTracker memtable;
+    private int memtableSeq;
+    private long memtableFill;
+
+    /** Full memtables waiting to be written, oldest first, keyed by sequence number */
+    private final LinkedHashMap<Integer, WordTracker> immutable = new LinkedHashMap<>();
+
+    /** Most recently submitted background flush */
+    private Future<?> lastFlush;
+    private boolean closed;
+
+    /**
+     * Opens or creates a repository with the default memtable size and
+     * segment limit.
+     *
+     * @param dir the repository directory, created if missing
+     * @throws IOException if the manifest cannot be read
+     */
+    public SegmentedRepository(File dir) throws IOException {
+        this(dir, DEFAULT_MEMTABLE_BYTES, DEFAULT_MAX_SEGMENTS);
+    }
+
+    /**
+     * Opens or creates a repository.
+     *
+     * @param dir           the repository directory, created if missing
+     * @param memtableBytes input bytes indexed before the memtable is flushed
+     * @param maxSegments   number of segments tolerated before compaction
+     * @throws IOException if the directory or manifest cannot be read
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public SegmentedRepository(File dir, long memtableBytes, int maxSegments) throws IOException {
+        if (memtableBytes <= 0 || maxSegments <= 0)
+            throw new IllegalArgumentException("Memtable size and segment limit must be positive.");
+        this.dir = dir;
+        this.memtableBytes = memtableBytes;
+        this.maxSegments = maxSegments;
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create repository directory " + dir);
+        readManifest();
+        deleteOrphans();
+        generation.putAll(persisted);
+        memtable = newMemtable();
+        memtableSeq = nextSeq++;
+    }
+
+    /**
+     * Sets the analysis chain for files indexed and words looked up from now
+     * on.
+     *
+     * @param analyzer the chain, or null to index every word as written
+     */
+    public void setAnalyzer(Analyzer analyzer) {
+        lock.writeLock().lock();
+        try {
+            this.analyzer = analyzer;
+            memtable.setAnalyzer(analyzer);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private WordTracker newMemtable() {
+        WordTracker table = new WordTracker();
+        table.setAnalyzer(analyzer);
+        return table;
+    }
+
+    // ------------------------------------------------------------
+    // WRITES
+    // ------------------------------------------------------------
+
+    /**
+     * Indexes a file into the memtable, replacing any postings it had, and
+     * starts a background flush if the memtable is full. Archive members
+     * are indexed as separate files.
+     *
+     * @param fileName path to the input text file, gzip file or archive, or {@code "-"}
+     * @return false if the file could not be found
+     * @throws IOException if a previous background flush failed
+     */
+    public boolean index(String fileName) throws IOException {
+        boolean stdin = InputArchive.STDIN.equals(fileName);
+        File file = stdin ? null : Utils.check(fileName);
+        if (!stdin && file == null)
+            return false;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            // an archive contributes one generation entry per member file
+            for (String name : memtable.constructsFromFile(fileName))
+                generation.put(name, memtableSeq);
+            // standard input has no size up front and never fills the memtable by itself
+            memtableFill += stdin ? 0 : file.length();
+            if (memtableFill >= memtableBytes)
+                rotate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return true;
+    }
+
+    /**
+     * Writes the memtable to a segment now and waits until it is on disk.
+     *
+     * @throws IOException if writing fails
+     */
+    public void flush() throws IOException {
+        Future<?> pending;
+        lock.writeLock().lock();
+        try {
+            ensureOpen();
+            if (!memtable.tree.isEmpty())
+                rotate();
+            pending = lastFlush;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        // waited for outside the lock: the background thread needs it to publish
+        await(pending);
+    }
+
+    /**
+     * Swaps in an empty memtable and queues the full one for the background
+     * thread, which writes queued memtables one at a time in order. Called
+     * with the write lock held.
+     */
+    private void rotate() throws IOException {
+        checkBackground();
+        final WordTracker full = memtable;
+        final int seq = memtableSeq;
+        immutable.put(seq, full);
+        memtable = newMemtable();
+        memtableSeq = nextSeq++;
+        memtableFill = 0;
+        lastFlush = background.submit(() -> {
+            writeMemtable(full, seq);
+            compactIfNeeded();
+            return null;
+        });
+    }
+
+    /** Reports a failed background flush to the writer. */
+    private void checkBackground() throws IOException {
+        if (lastFlush != null && lastFlush.isDone())
+            await(lastFlush);
+    }
+
+    private static void await(Future<?> f) throws IOException {
+        if (f == null)
+            return;
+        try {
+            f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Background flush failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    /** Writes a retired memtable as segment {@code seq} and publishes it. */
+    private void writeMemtable(WordTracker table, int seq) throws IOException {
+        Set<String> files = new HashSet<>();
+        Iterator<Word> it = table.tree.inorderIterator();
+        while (it.hasNext())
+            files.addAll(it.next().getFiles());
+
+        File tmp = segmentFile(seq, true);
+        try (SegmentOutput out = new SegmentOutput(tmp, new ArrayList<>(files))) {
+            it = table.tree.inorderIterator();
+            while (it.hasNext())
+                out.write(it.next());
+        }
+        move(tmp, segmentFile(seq, false));
+
+        lock.writeLock().lock();
+        try {
+            segments.add(seq);
+            for (Map.Entry<String, Integer> e : generation.entrySet()) {
+                if (e.getValue() == seq)
+                    persisted.put(e.getKey(), seq);
+            }
+            writeManifest();
+            immutable.remove(seq);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // COMPACTION
+    // ------------------------------------------------------------
+
+    /**
+     * Merges every segment into one when there are more than the limit.
+     * Runs on the background thread, so segments cannot be added meanwhile;
+     * the memtable can still be written to.
+     */
+    private void compactIfNeeded() throws IOException {
+        List<Integer> victims;
+        Map<String, Integer> gens;
+        int seq;
+        lock.readLock().lock();
+        try {
+            if (segments.size() <= maxSegments)
+                return;
+            victims = new ArrayList<>(segments);
+            gens = new HashMap<>(generation);
+        } finally {
+            lock.readLock().unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            seq = nextSeq++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // keep only files whose current postings are in the merged segments
+        Set<Integer> merged = new HashSet<>(victims);
+        List<String> liveFiles = new ArrayList<>();
+        for (Map.Entry<String, Integer> e : gens.entrySet()) {
+            if (merged.contains(e.getValue()))
+                liveFiles.add(e.getKey());
+        }
+
+        File tmp = segmentFile(seq, true);
+        try (SegmentOutput out = new SegmentOutput(tmp, liveFiles);
+             Merge merge = new Merge(sources(victims, Collections.emptyMap(), null, 0), gens)) {
+            Word w;
+            while ((w = merge.next()) != null)
+                out.write(w);
+        }
+        move(tmp, segmentFile(seq, false));
+
+        lock.writeLock().lock();
+        try {
+            segments.removeAll(victims);
+            segments.add(0, seq);
+            for (Map.Entry<String, Integer> e : generation.entrySet()) {
+                if (merged.contains(e.getValue()))
+                    e.setValue(seq);
+            }
+            for (Map.Entry<String, Integer> e : persisted.entrySet()) {
+                if (merged.contains(e.getValue()))
+                    e.setValue(seq);
+            }
+            writeManifest();
+            // no reader holds these open: reads run under the read lock
+            for (int v : victims)
+                segmentFile(v, false).delete();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // READS
+    // ------------------------------------------------------------
+
+    /**
+     * Finds a word across the memtables and segments. Segments are read
+     * sequentially up to the word's position.
+     *
+     * @param word the word to look up
+     * @return the merged Word, or null if no current postings mention it
+     * @throws IOException if a segment cannot be read
+     */
+    public Word lookup(String word) throws IOException {
+        String key = TextNormalizer.fold(word);
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            if (analyzer != null) {
+                key = analyzer.analyze(key);
+                if (key == null)
+                    return null;
+            }
+            try (Merge merge = openMerge()) {
+                Word w;
+                while ((w = merge.next()) != null) {
+                    int c = w.getKey().compareTo(key);
+                    if (c == 0)
+                        return w;
+                    if (c > 0)
+                        return null;
+                }
+                return null;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Prints a report merged across the memtables and segments.
+     *
+     * @param mode a report mode accepted by {@link ReportFormatter#isMode(String)}
+     * @param out  the PrintStream to write the report to
+     * @throws IOException if a segment cannot be read
+     */
+    public void report(String mode, PrintStream out) throws IOException {
+        report(mode, out, null);
+    }
+
+    /**
+     * Prints the words selected by the options, merged across the memtables
+     * and segments. The merge stops at the end of the options' key range.
+     *
+     * @param mode    a report mode accepted by {@link ReportFormatter#isMode(String)}
+     * @param out     the PrintStream to write the report to
+     * @param options filters, range and limit, or null for every word
+     * @throws IOException if a segment cannot be read
+     */
+    public void report(String mode, PrintStream out, ReportOptions options) throws IOException {
+        if (!ReportFormatter.isMode(mode)) {
+            out.println("Unknown report mode: " + mode);
+            return;
+        }
+        ReportFormatter formatter = ReportFormatter.forMode(mode, out);
+        ReportOptions.Selection selection = options == null ? null : options.select(formatter);
+        lock.readLock().lock();
+        try {
+            ensureOpen();
+            try (Merge merge = openMerge()) {
+                formatter.begin();
+                Word w;
+                while ((w = merge.next()) != null) {
+                    if (selection == null)
+                        formatter.write(w);
+                    else if (!selection.offer(w))
+                        break;
+                }
+                formatter.end();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return the number of segment files */
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Opens a merge over everything. Called with a lock held. */
+    private Merge openMerge() throws IOException {
+        return new Merge(sources(segments, immutable, memtable, memtableSeq), generation);
+    }
+
+    private List<Source> sources(List<Integer> segs, Map<Integer, WordTracker> queued,
+                                 WordTracker active, int activeSeq) throws IOException {
+        List<Source> out = new ArrayList<>();
+        try {
+            for (int seq : segs)
+                out.add(new SegmentSource(segmentFile(seq, false), seq, out.size()));
+            for (Map.Entry<Integer, WordTracker> e : queued.entrySet())
+                out.add(new TreeSource(e.getValue(), e.getKey(), out.size()));
+            if (active != null)
+                out.add(new TreeSource(active, activeSeq, out.size()));
+        } catch (IOException e) {
+            for (Source s : out)
+                s.close();
+            throw e;
+        }
+        return out;
+    }
+
+    // ------------------------------------------------------------
+    // LIFECYCLE
+    // ------------------------------------------------------------
+
+    /**
+     * Flushes the memtable, waits for background work to finish and writes
+     * the manifest.
+     *
+     * @throws IOException if flushing fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        try {
+            flush();
+            background.submit(() -> {
+                compactIfNeeded();
+                return null;
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IOException("Compaction failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            closed = true;
+            background.shutdown();
+            try {
+                background.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Repository is closed.");
+    }
+
+    // ------------------------------------------------------------
+    // MANIFEST
+    // ------------------------------------------------------------
+
+    private File segmentFile(int seq, boolean temporary) {
+        return new File(dir, "seg-" + seq + (temporary ? ".tmp" : ".dat"));
+    }
+
+    private void readManifest() throws IOException {
+        File manifest = new File(dir, MANIFEST);
+        if (!manifest.exists())
+            return;
+        try (BufferedReader br = new BufferedReader(new FileReader(manifest))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                String[] parts = line.split(" ", 3);
+                switch (parts[0]) {
+                    case "next":
+                        nextSeq = Integer.parseInt(parts[1]);
+                        break;
+                    case "segment":
+                        segments.add(Integer.parseInt(parts[1]));
+                        break;
+                    case "file":
+                        persisted.put(parts[2], Integer.parseInt(parts[1]));
+                        break;
+                    default:
+                        throw new IOException("Unrecognised manifest line: " + line);
+                }
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt manifest in " + dir, e);
+        }
+    }
+
+    /**
+     * Deletes segment files the manifest does not list: temporary files, and
+     * segments left by a flush or compaction that died before publishing
+     * them or before deleting the segments it replaced. A later segment could
+     * otherwise be written over one of them, or a stale one read back.
+     */
+    private void deleteOrphans() {
+        File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        Set<String> listed = new HashSet<>();
+        for (int seq : segments)
+            listed.add(segmentFile(seq, false).getName());
+        for (File f : files) {
+            String name = f.getName();
+            boolean orphan = name.equals(MANIFEST + ".tmp")
+                    || name.startsWith("seg-") && (name.endsWith(".tmp") || name.endsWith(".dat") && !listed.contains(name));
+            if (orphan && !f.delete())
+                System.err.println("Cannot delete orphaned segment file " + f);
+        }
+    }
+
+    /** Writes and renames the manifest. Called with the write lock held. */
+    private void writeManifest() throws IOException {
+        File tmp = new File(dir, MANIFEST + ".tmp");
+        try (PrintWriter pw = new PrintWriter(tmp, "UTF-8")) {
+            pw.println("next " + nextSeq);
+            for (int seq : segments)
+                pw.println("segment " + seq);
+            for (Map.Entry<String, Integer> e : persisted.entrySet())
+                pw.println("file " + e.getValue() + " " + e.getKey());
+        }
+        move(tmp, new File(dir, MANIFEST));
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // MERGING
+    // ------------------------------------------------------------
+
+    /** Writes Words to a segment, mapping filenames to the segment's file table. */
+    private static final class SegmentOutput implements Closeable {
+        private final WordSegment.Writer writer;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private int[] fileIds = new int[4];
+        private int[][] lines = new int[4][];
+        private int[] counts = new int[4];
+
+        SegmentOutput(File file, List<String> files) throws IOException {
+            writer = new WordSegment.Writer(file, files);
+            for (int i = 0; i < files.size(); i++)
+                ids.put(files.get(i), i);
+        }
+
+        void write(Word w) throws IOException {
+            int n = 0;
+            for (String file : w.getFiles()) {
+                Integer id = ids.get(file);
+                if (id == null)
+                    continue;
+                if (n == fileIds.length) {
+                    fileIds = Arrays.copyOf(fileIds, n * 2);
+                    lines = Arrays.copyOf(lines, n * 2);
+                    counts = Arrays.copyOf(counts, n * 2);
+                }
+                int count = w.getCount(file);
+                if (lines[n] == null || lines[n].length < count)
+                    lines[n] = new int[Math.max(count, 8)];
+                final int[] row = lines[n];
+                final int[] at = { 0 };
+                w.forEachLine(file, line -> row[at[0]++] = line);
+                fileIds[n] = id;
+                counts[n] = count;
+                n++;
+            }
+            if (n > 0)
+                writer.write(w.getWord(), n, fileIds, lines, counts);
+        }
+
+        @Override
+        public void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /** One sorted input of the merge: a segment or a memtable. */
+    private abstract static class Source implements Closeable {
+        final int seq;
+        final int order;
+        String key;
+
+        Source(int seq, int order) {
+            this.seq = seq;
+            this.order = order;
+        }
+
+        /** @return false when the source is exhausted */
+        abstract boolean advance() throws IOException;
+
+        /** @return the current word's spelling */
+        abstract String word();
+
+        /** Adds the current word's postings for files whose current generation is this source. */
+        abstract void addLive(Word target, Map<String, Integer> generation);
+    }
+
+    private static final class SegmentSource extends Source {
+        private final WordSegment.Reader reader;
+        private final List<String> files;
+
+        SegmentSource(File file, int seq, int order) throws IOException {
+            super(seq, order);
+            reader = new WordSegment.Reader(file);
+            files = reader.files();
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            if (!reader.next())
+                return false;
+            key = TextNormalizer.fold(reader.word());
+            return true;
+        }
+
+        @Override
+        String word() {
+            return reader.word();
+        }
+
+        @Override
+        void addLive(Word target, Map<String, Integer> generation) {
+            for (int i = 0; i < reader.fileCount(); i++) {
+                String file = files.get(reader.fileId(i));
+                Integer gen = generation.get(file);
+                if (gen == null || gen != seq)
+                    continue;
+                for (int j = 0; j < reader.lineCount(i); j++)
+                    target.addOccurrences(file, reader.line(i, j));
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+
+    private static final class TreeSource extends Source {
+        private final Iterator<Word> it;
+        private Word current;
+
+        TreeSource(WordTracker table, int seq, int order) {
+            super(seq, order);
+            it = table.tree.inorderIterator();
+        }
+
+        @Override
+        boolean advance() {
+            if (!it.hasNext())
+                return false;
+            current = it.next();
+            key = current.getKey();
+            return true;
+        }
+
+        @Override
+        String word() {
+            return current.getWord();
+        }
+
+        @Override
+        void addLive(Word target, Map<String, Integer> generation) {
+            for (String file : current.getFiles()) {
+                Integer gen = generation.get(file);
+                if (gen == null || gen != seq)
+                    continue;
+                current.forEachLine(file, line -> target.addOccurrences(file, line));
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /** Merges sources word by word, oldest source first within a word. */
+    private static final class Merge implements Closeable {
+        private final PriorityQueue<Source> heap = new PriorityQueue<>((a, b) -> {
+            int c = a.key.compareTo(b.key);
+            return c != 0 ? c : Integer.compare(a.order, b.order);
+        });
+        private final List<Source> all;
+        private final Map<String, Integer> generation;
+
+        Merge(List<Source> sources, Map<String, Integer> generation) throws IOException {
+            this.all = sources;
+            this.generation = generation;
+            for (Source s : sources) {
+                if (s.advance())
+                    heap.add(s);
+            }
+        }
+
+        /** @return the next word with current postings, or null at the end */
+        Word next() throws IOException {
+            while (!heap.isEmpty()) {
+                Source first = heap.poll();
+                String key = first.key;
+                Word merged = new Word(first.word());
+                first.addLive(merged, generation);
+                if (first.advance())
+                    heap.add(first);
+                while (!heap.isEmpty() && heap.peek().key.equals(key)) {
+                    Source s = heap.poll();
+                    s.addLive(merged, generation);
+                    if (s.advance())
+                        heap.add(s);
+                }
+                if (!merged.getFiles().isEmpty())
+                    return merged;
+            }
+            return null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (Source s : all)
+                s.close();
+        }
+    }
+
+    /** @return filenames with current postings, mapped to their generation; for diagnostics */
+    Map<String, Integer> generations() {
+        lock.readLock().lock();
+        try {
+            return new LinkedHashMap<>(generation);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
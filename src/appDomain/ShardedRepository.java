@@ -0,0 +1,925 @@
+package appDomain;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import implementations.BSTree;
+import utilities.Analyzer;
+import utilities.BSTreeADT;
+import utilities.InputArchive;
+import utilities.TextNormalizer;
+import utilities.Utils;
+
+/**
+ * A repository partitioned into key-range shards, each with its own
+ * {@link WordTracker}, tree and repository file. Shard {@code i} holds the
+ * words whose keys lie between split key {@code i - 1} (inclusive) and split
+ * key {@code i} (exclusive), so the shards taken in order hold the whole
+ * vocabulary in {@link Word#compareTo} order.
+ *
+ * <p>Input is read once, here: each file is tokenized, folded and analyzed
+ * as {@link WordTracker} would, and every shard is sent one batch holding
+ * only its own tokens with their line numbers and positions (see
+ * {@link Postings}), so a shard's postings are exactly what a single
+ * repository would hold for its keys. A lookup goes to the one shard whose
+ * range holds the word's key, found by a binary search of the split keys. A
+ * report walks the shards in key order, skipping those outside the options'
+ * key range, and streams each shard's selected words straight into one
+ * formatter, stopping once the offset and limit are covered.</p>
+ *
+ * <p>Shards are either trackers in this process ({@link #open}) or
+ * {@link IndexServer} processes on the loopback interface ({@link #launch}),
+ * which stand in for separate nodes. The two kinds answer the same calls and
+ * produce the same reports.</p>
+ *
+ * <p>Directory layout: {@code shards.txt}, the split keys one per line, and
+ * one {@code shard-<i>.ser} per shard. The split keys are chosen when the
+ * directory is created, from the approximate frequency of English words by
+ * their first two letters, and an existing directory keeps its own.</p>
+ */
+public class ShardedRepository implements Closeable {
+
+    /** Default number of shards for a new directory */
+    public static final int DEFAULT_SHARDS = 4;
+
+    /** Largest number of shards a directory can have */
+    public static final int MAX_SHARDS = 64;
+
+    private static final String LAYOUT = "shards.txt";
+
+    /** Approximate share, in percent, of English words starting with a..z */
+    private static final double[] INITIALS = {
+        11.7, 4.4, 5.2, 3.2, 2.8, 4.0, 1.6, 4.2, 7.3, 0.51, 0.86, 2.4, 3.8,
+        2.3, 7.6, 4.3, 0.22, 2.8, 6.7, 16.0, 1.2, 0.82, 5.5, 0.045, 0.76, 0.045
+    };
+
+    /** Approximate share, in percent, of each letter a..z in English text */
+    private static final double[] LETTERS = {
+        8.2, 1.5, 2.8, 4.3, 12.7, 2.2, 2.0, 6.1, 7.0, 0.15, 0.77, 4.0, 2.4,
+        6.7, 7.5, 1.9, 0.095, 6.0, 6.3, 9.1, 2.8, 0.98, 2.4, 0.15, 2.0, 0.074
+    };
+
+    private final List<String> splits;
+    private final List<Shard> shards;
+    private final Analyzer analyzer;
+    private final ExecutorService workers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "shard-worker");
+        t.setDaemon(true);
+        return t;
+    });
+    private boolean closed;
+
+    private ShardedRepository(List<String> splits, List<Shard> shards, Analyzer analyzer) {
+        this.splits = splits;
+        this.shards = shards;
+        this.analyzer = analyzer;
+    }
+
+    /**
+     * Opens or creates a repository of in-process shards on binary search
+     * trees.
+     *
+     * @param dir    the repository directory, created if missing
+     * @param shards number of shards if the directory is new
+     * @return the repository
+     * @throws IOException if the directory or layout cannot be read
+     */
+    public static ShardedRepository open(File dir, int shards) throws IOException {
+        return open(dir, shards, BSTree::new, null);
+    }
+
+    /**
+     * Opens or creates a repository of in-process shards.
+     *
+     * @param dir    the repository directory, created if missing
+     * @param shards number of shards if the directory is new
+     * @param trees  creates the tree of each shard
+     * @param setup  configures each shard's tracker before its repository is
+     *               loaded, or null; input is analyzed with the first
+     *               shard's analysis chain once it is loaded
+     * @return the repository
+     * @throws IOException if the directory or layout cannot be read
+     * @throws IllegalArgumentException if shards is not between 1 and {@link #MAX_SHARDS}
+     */
+    public static ShardedRepository open(File dir, int shards, Supplier<BSTreeADT<Word>> trees,
+            Consumer<WordTracker> setup) throws IOException {
+        List<String> splits = layout(dir, shards);
+        List<Shard> list = new ArrayList<>();
+        Analyzer analyzer = null;
+        for (int i = 0; i <= splits.size(); i++) {
+            WordTracker tracker = new WordTracker(trees.get());
+            tracker.setRepositoryFile(shardFile(dir, i).getPath());
+            if (setup != null)
+                setup.accept(tracker);
+            tracker.loadTree();
+            if (i == 0)
+                analyzer = tracker.getAnalyzer();
+            list.add(new LocalShard(tracker));
+        }
+        return new ShardedRepository(splits, list, analyzer);
+    }
+
+    /**
+     * Opens or creates a repository whose shards are {@link IndexServer}
+     * processes started here, one per shard, each running
+     * {@code AppDriver -server 0} on its own repository file with this JVM's
+     * class path. Closing the repository shuts them down.
+     *
+     * @param dir        the repository directory, created if missing
+     * @param shards     number of shards if the directory is new
+     * @param serverArgs further {@link AppDriver} arguments for every server,
+     *                   such as {@code -stem} or {@code -index bplus}
+     * @param analyzer   the analysis chain input is tokenized with here,
+     *                   matching the one serverArgs give the servers, or null
+     * @return the repository
+     * @throws IOException if a server cannot be started or reached
+     * @throws IllegalArgumentException if shards is not between 1 and {@link #MAX_SHARDS}
+     */
+    public static ShardedRepository launch(File dir, int shards, List<String> serverArgs, Analyzer analyzer)
+            throws IOException {
+        List<String> splits = layout(dir, shards);
+        List<Shard> list = new ArrayList<>();
+        try {
+            for (int i = 0; i <= splits.size(); i++)
+                list.add(RemoteShard.start(shardFile(dir, i), serverArgs));
+        } catch (IOException e) {
+            for (Shard s : list) {
+                try {
+                    s.close();
+                } catch (IOException ignored) {
+                    // already failing
+                }
+            }
+            throw e;
+        }
+        return new ShardedRepository(splits, list, analyzer);
+    }
+
+    // ------------------------------------------------------------
+    // LAYOUT
+    // ------------------------------------------------------------
+
+    /**
+     * Reads the split keys of a directory, writing them first if the
+     * directory is new.
+     *
+     * @return the split keys, one fewer than the shards
+     */
+    static List<String> layout(File dir, int shards) throws IOException {
+        if (shards < 1 || shards > MAX_SHARDS)
+            throw new IllegalArgumentException("Shard count must be between 1 and " + MAX_SHARDS + ": " + shards);
+        if (!dir.isDirectory() && !dir.mkdirs())
+            throw new IOException("Cannot create repository directory " + dir);
+        File file = new File(dir, LAYOUT);
+        List<String> splits = new ArrayList<>();
+        if (file.isFile()) {
+            try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.trim().isEmpty())
+                        splits.add(line.trim());
+                }
+            }
+            for (int i = 1; i < splits.size(); i++) {
+                if (splits.get(i - 1).compareTo(splits.get(i)) >= 0)
+                    throw new IOException("Split keys out of order in " + file);
+            }
+            return splits;
+        }
+        splits = splitPoints(shards);
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (String s : splits)
+                out.println(s);
+        }
+        return splits;
+    }
+
+    /**
+     * Chooses split keys that give each shard about the same share of
+     * English words, weighing each two-letter prefix by the frequency of its
+     * first letter as an initial and of its second letter in text. Keys
+     * before {@code "a"} fall in the first shard and keys after {@code "z"}
+     * in the last.
+     *
+     * @param shards the number of shards, at least 1
+     * @return shards - 1 increasing two-letter keys
+     */
+    static List<String> splitPoints(int shards) {
+        double letters = 0;
+        for (double f : LETTERS)
+            letters += f;
+        double initials = 0;
+        for (double f : INITIALS)
+            initials += f;
+
+        List<String> splits = new ArrayList<>();
+        int buckets = 26 * 26;
+        int previous = 0;
+        double cumulative = 0;
+        int next = 1;
+        for (int b = 0; b < buckets && next < shards; b++) {
+            // the bucket b holds the prefix (a + b / 26, a + b % 26); a split
+            // at b puts it in the later shard
+            int remaining = shards - next;
+            boolean crossed = cumulative >= (double) next / shards;
+            if (b > previous && (crossed || buckets - b <= remaining)) {
+                splits.add("" + (char) ('a' + b / 26) + (char) ('a' + b % 26));
+                previous = b;
+                next++;
+            }
+            cumulative += INITIALS[b / 26] / initials * LETTERS[b % 26] / letters;
+        }
+        return splits;
+    }
+
+    private static File shardFile(File dir, int i) {
+        return new File(dir, "shard-" + i + ".ser");
+    }
+
+    /** @return the index of the shard whose range holds the key */
+    private int shardOf(String key) {
+        int i = Collections.binarySearch(splits, key);
+        return i >= 0 ? i + 1 : -i - 1;
+    }
+
+    /** @return the number of shards */
+    public int shardCount() {
+        return shards.size();
+    }
+
+    // ------------------------------------------------------------
+    // OPERATIONS
+    // ------------------------------------------------------------
+
+    /**
+     * Indexes a file, replacing any postings it had. The file is read and
+     * tokenized once; each shard is then sent its own tokens in parallel,
+     * and an empty batch still clears the file's old postings there.
+     *
+     * @param fileName path to the input text file, gzip file or archive, or
+     *                 {@code "-"} for standard input
+     * @return false if the file could not be found
+     * @throws IOException if the file cannot be read or a shard fails
+     */
+    public boolean index(String fileName) throws IOException {
+        boolean stdin = InputArchive.STDIN.equals(fileName);
+        File file = stdin ? null : Utils.check(fileName);
+        if (!stdin && file == null)
+            return false;
+        try (InputArchive in = stdin ? InputArchive.stdin() : InputArchive.open(file, fileName)) {
+            String entry;
+            while ((entry = in.nextEntry()) != null) {
+                String name = entry;
+                Postings[] batches = route(in.stream());
+                scatter(allShards(), (s, i) -> {
+                    s.add(name, batches[i]);
+                    return null;
+                });
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Tokenizes one entry exactly as {@link WordTracker} does and splits the
+     * tokens by the shard that holds their key. Line numbers and positions
+     * count every token, wherever it goes.
+     *
+     * @param in the entry's bytes, in the platform charset
+     * @return one batch per shard, in shard order
+     */
+    private Postings[] route(InputStream in) throws IOException {
+        Postings[] batches = new Postings[shards.size()];
+        for (int i = 0; i < batches.length; i++)
+            batches[i] = new Postings();
+        BufferedReader br = new BufferedReader(new InputStreamReader(in));
+        int lineNumber = 0;
+        String line;
+        while ((line = br.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty())
+                continue;
+            int position = 0;
+            for (String rawToken : line.split(" ")) {
+                String w = WordTracker.cleanToken(rawToken);
+                if (w.isEmpty())
+                    continue;
+                int at = position++;
+                String key = TextNormalizer.fold(w);
+                if (analyzer != null) {
+                    String analyzed = analyzer.analyze(key);
+                    if (analyzed == null)
+                        continue;
+                    if (analyzed != key) {
+                        w = analyzed;
+                        key = analyzed;
+                    }
+                }
+                batches[shardOf(key)].add(w, lineNumber, at);
+            }
+        }
+        return batches;
+    }
+
+    /**
+     * Prints the {@code po} line of each word, or {@code <word>: not found}.
+     * Each word is asked only of the shard whose range holds its key; the
+     * shards involved are asked in parallel.
+     *
+     * @param words the words to look up
+     * @param out   where the lines are printed
+     * @throws IOException if a shard fails
+     */
+    public void query(String[] words, PrintStream out) throws IOException {
+        // the indexes of the words each shard is asked for
+        Map<Integer, List<Integer>> asked = new TreeMap<>();
+        for (int i = 0; i < words.length; i++) {
+            String key = TextNormalizer.fold(words[i]);
+            if (analyzer != null)
+                key = analyzer.analyze(key);
+            if (key != null)
+                asked.computeIfAbsent(shardOf(key), s -> new ArrayList<>()).add(i);
+        }
+        String[] lines = new String[words.length];
+        scatter(new ArrayList<>(asked.keySet()), (s, i) -> {
+            List<Integer> mine = asked.get(i);
+            String[] subset = new String[mine.size()];
+            for (int j = 0; j < subset.length; j++)
+                subset[j] = words[mine.get(j)];
+            String[] answers = s.query(subset);
+            for (int j = 0; j < subset.length; j++)
+                lines[mine.get(j)] = answers[j];
+            return null;
+        });
+        for (int i = 0; i < words.length; i++)
+            out.println(lines[i] != null ? lines[i] : words[i] + ": not found");
+    }
+
+    /**
+     * Prints a report of every word, gathered from the shards in key order.
+     *
+     * @param mode a report mode accepted by {@link ReportFormatter#isMode(String)}
+     * @param out  the PrintStream to write the report to
+     * @throws IOException if a shard fails
+     */
+    public void report(String mode, PrintStream out) throws IOException {
+        report(mode, out, null);
+    }
+
+    /**
+     * Prints the words selected by the options. The shards whose range meets
+     * the options' key range are walked one after another in key order; each
+     * applies the filters itself and streams its words straight into the
+     * formatter, which applies the offset and limit. No later shard is asked
+     * once the offset and limit are covered.
+     *
+     * @param mode    a report mode accepted by {@link ReportFormatter#isMode(String)}
+     * @param out     the PrintStream to write the report to
+     * @param options filters, range and limit, or null for every word
+     * @throws IOException if a shard fails
+     */
+    public void report(String mode, PrintStream out, ReportOptions options) throws IOException {
+        if (!ReportFormatter.isMode(mode)) {
+            out.println("Unknown report mode: " + mode);
+            return;
+        }
+        if (closed)
+            throw new IOException("Repository is closed.");
+        ReportOptions all = options == null ? new ReportOptions() : options;
+        int wanted = all.wanted();
+        String low = all.lowKey();
+        String high = all.highKey();
+        int first = low == null ? 0 : shardOf(low);
+        int last = high == null ? shards.size() - 1 : shardOf(high);
+
+        ReportFormatter formatter = ReportFormatter.forMode(mode, out);
+        Forward forward = new Forward(all.select(formatter));
+        formatter.begin();
+        for (int i = first; i <= last; i++) {
+            int remaining = wanted < 0 ? -1 : wanted - forward.matched;
+            if (remaining == 0 || forward.done)
+                break;
+            shards.get(i).scan(all.forShard(remaining), forward);
+        }
+        formatter.end();
+    }
+
+    /**
+     * Saves every shard's repository file.
+     *
+     * @throws IOException if a shard fails
+     */
+    public void save() throws IOException {
+        scatter(allShards(), (s, i) -> {
+            s.save();
+            return null;
+        });
+    }
+
+    /**
+     * Closes every shard, saving the ones that changed; launched servers are
+     * shut down.
+     *
+     * @throws IOException if a shard fails to save or close
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        IOException failure = null;
+        for (Shard s : shards) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                if (failure == null)
+                    failure = e;
+            }
+        }
+        workers.shutdown();
+        if (failure != null)
+            throw failure;
+    }
+
+    /** One call made on a shard, given with its index. */
+    private interface ShardCall<T> {
+        T call(Shard shard, int index) throws IOException;
+    }
+
+    /** @return the index of every shard */
+    private List<Integer> allShards() {
+        List<Integer> all = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++)
+            all.add(i);
+        return all;
+    }
+
+    /**
+     * Makes the call on the given shards in parallel and waits for all of
+     * them.
+     *
+     * @param targets the indexes of the shards to call
+     * @return the results, in the order of targets
+     * @throws IOException the first shard's failure
+     */
+    private <T> List<T> scatter(List<Integer> targets, ShardCall<T> call) throws IOException {
+        if (closed)
+            throw new IOException("Repository is closed.");
+        List<Future<T>> futures = new ArrayList<>(targets.size());
+        for (int i : targets) {
+            Shard s = shards.get(i);
+            futures.add(workers.submit(() -> call.call(s, i)));
+        }
+        List<T> results = new ArrayList<>(targets.size());
+        IOException failure = null;
+        for (Future<T> f : futures) {
+            try {
+                results.add(f.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for a shard.", e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException) cause;
+                if (failure == null)
+                    failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        }
+        if (failure != null)
+            throw failure;
+        return results;
+    }
+
+    /**
+     * Passes the words streamed by the shards of a report on to its
+     * selection, counting the ones the shards matched. A shard's
+     * {@link Shard#scan} writes to it but never begins or ends it.
+     */
+    private static final class Forward implements ReportFormatter {
+        private final ReportOptions.Selection selection;
+        private int matched;
+        private boolean done;
+
+        Forward(ReportOptions.Selection selection) {
+            this.selection = selection;
+        }
+
+        @Override
+        public void begin() {
+        }
+
+        @Override
+        public void write(Word w) throws IOException {
+            matched++;
+            if (!done && !selection.offer(w))
+                done = true;
+        }
+
+        @Override
+        public void end() {
+        }
+    }
+
+    // ------------------------------------------------------------
+    // POSTINGS
+    // ------------------------------------------------------------
+
+    /**
+     * One file's tokens for one shard, in input order: each token's word,
+     * already cleaned and analyzed, with its line number and its position
+     * among the line's tokens. Indexed with
+     * {@link WordTracker#addPostings}, or sent to a server as the lines of a
+     * {@code POSTINGS} request.
+     */
+    static final class Postings {
+        private String[] words = new String[16];
+        private int[] lines = new int[16];
+        private int[] positions = new int[16];
+        private int size;
+
+        /** Appends a token. */
+        void add(String word, int line, int position) {
+            if (size == words.length) {
+                words = Arrays.copyOf(words, size * 2);
+                lines = Arrays.copyOf(lines, size * 2);
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            words[size] = word;
+            lines[size] = line;
+            positions[size] = position;
+            size++;
+        }
+
+        /** @return the number of tokens */
+        int size() {
+            return size;
+        }
+
+        String word(int i) {
+            return words[i];
+        }
+
+        int line(int i) {
+            return lines[i];
+        }
+
+        int position(int i) {
+            return positions[i];
+        }
+
+        /** Writes one protocol line per token: {@code <line> <position> <word>}, the word URL-encoded. */
+        void write(PrintStream out) throws UnsupportedEncodingException {
+            for (int i = 0; i < size; i++)
+                out.println(lines[i] + " " + positions[i] + " " + URLEncoder.encode(words[i], "UTF-8"));
+        }
+
+        /**
+         * Reads lines written by {@link #write}. All n lines are read before
+         * any is checked, so a malformed batch leaves the stream in step.
+         *
+         * @param in where the lines are read from
+         * @param n  the number of lines
+         * @return the tokens
+         * @throws IOException if the stream ends early
+         * @throws IllegalArgumentException if a line is malformed
+         */
+        static Postings read(BufferedReader in, int n) throws IOException {
+            String[] rows = new String[n];
+            for (int i = 0; i < n; i++) {
+                rows[i] = in.readLine();
+                if (rows[i] == null)
+                    throw new IOException("Postings ended after " + i + " of " + n + " lines.");
+            }
+            Postings postings = new Postings();
+            for (String row : rows) {
+                String[] fields = row.trim().split(" ");
+                try {
+                    if (fields.length != 3)
+                        throw new NumberFormatException();
+                    postings.add(URLDecoder.decode(fields[2], "UTF-8"), Integer.parseInt(fields[0]),
+                            Integer.parseInt(fields[1]));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("malformed posting: " + row);
+                }
+            }
+            return postings;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // SHARDS
+    // ------------------------------------------------------------
+
+    /** One key range of the repository. Calls may come from any thread. */
+    interface Shard extends Closeable {
+
+        /** Replaces the file's postings in this shard with the given tokens. */
+        void add(String fileName, Postings postings) throws IOException;
+
+        /** @return each word's {@code po} line, or null where this shard does not have it */
+        String[] query(String[] words) throws IOException;
+
+        /** Writes the words selected by the options to the sink, in key order, one at a time. */
+        void scan(ReportOptions options, ReportFormatter sink) throws IOException;
+
+        /** Saves the shard's repository file. */
+        void save() throws IOException;
+    }
+
+    /** A shard held in this process. */
+    private static final class LocalShard implements Shard {
+        private final WordTracker tracker;
+        private boolean dirty;
+
+        LocalShard(WordTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        @Override
+        public synchronized void add(String fileName, Postings postings) {
+            tracker.addPostings(fileName, postings);
+            dirty = true;
+        }
+
+        @Override
+        public synchronized String[] query(String[] words) {
+            String[] lines = new String[words.length];
+            for (int i = 0; i < words.length; i++) {
+                Word w = tracker.lookup(words[i]);
+                lines[i] = w == null ? null : w.toPrintFilesLinesFrequency();
+            }
+            return lines;
+        }
+
+        @Override
+        public synchronized void scan(ReportOptions options, ReportFormatter sink) throws IOException {
+            tracker.generateReport(sink, options);
+        }
+
+        /** Saves the shard; it stays marked changed if the write fails. */
+        @Override
+        public synchronized void save() throws IOException {
+            if (!tracker.saveTree())
+                throw new IOException("Cannot save shard to " + tracker.getRepositoryFile());
+            dirty = false;
+        }
+
+        /** Saves the shard if it has changed since it was opened or saved. */
+        @Override
+        public synchronized void close() throws IOException {
+            if (dirty)
+                save();
+        }
+    }
+
+    /**
+     * A shard served by an {@link IndexServer} process, spoken to over its
+     * line protocol. Tokens are sent with the {@code POSTINGS} command. Report
+     * scans use the {@code SCAN} command, whose binary report arrives
+     * base64-encoded on lines starting with {@code .} and is decoded as it
+     * arrives.
+     */
+    private static final class RemoteShard implements Shard {
+        private final Process process;
+        private final Socket socket;
+        private final BufferedReader in;
+        private final PrintStream out;
+
+        private RemoteShard(Process process, Socket socket) throws IOException {
+            this.process = process;
+            this.socket = socket;
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            this.out = new PrintStream(socket.getOutputStream(), false);
+        }
+
+        /**
+         * Starts a server for one shard and connects to it once it is
+         * listening.
+         */
+        static RemoteShard start(File repository, List<String> serverArgs) throws IOException {
+            List<String> command = new ArrayList<>();
+            command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+            command.add("-cp");
+            command.add(classPath());
+            command.add(AppDriver.class.getName());
+            command.add("-server");
+            command.add("0");
+            command.add("-checkpoint");
+            command.add("0");
+            command.add("-repo");
+            command.add(repository.getAbsolutePath());
+            command.addAll(serverArgs);
+            ProcessBuilder builder = new ProcessBuilder(command);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            Process process = builder.start();
+
+            BufferedReader stdout = new BufferedReader(new InputStreamReader(process.getInputStream()));
+            int port = -1;
+            String line;
+            while ((line = stdout.readLine()) != null) {
+                if (line.startsWith("Listening on ")) {
+                    port = Integer.parseInt(line.substring(line.lastIndexOf(':') + 1).trim());
+                    break;
+                }
+            }
+            if (port < 0) {
+                process.destroy();
+                throw new IOException("Shard server for " + repository + " did not start.");
+            }
+            // keep the server's later messages from filling the pipe
+            Thread drain = new Thread(() -> {
+                try {
+                    while (stdout.readLine() != null) {
+                        // discard
+                    }
+                } catch (IOException e) {
+                    // process ended
+                }
+            }, "shard-output");
+            drain.setDaemon(true);
+            drain.start();
+
+            try {
+                return new RemoteShard(process, new Socket(InetAddress.getLoopbackAddress(), port));
+            } catch (IOException e) {
+                process.destroy();
+                throw e;
+            }
+        }
+
+        /** @return this JVM's class path with absolute entries, for a child process */
+        private static String classPath() {
+            StringBuilder sb = new StringBuilder();
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                if (entry.isEmpty())
+                    continue;
+                if (sb.length() > 0)
+                    sb.append(File.pathSeparator);
+                sb.append(new File(entry).getAbsolutePath());
+            }
+            return sb.toString();
+        }
+
+        /** Reads the rest of a response. @return the status line, which starts with OK */
+        private String status(List<String> data) throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("OK") || line.startsWith("OK "))
+                    return line;
+                if (line.startsWith("ERR "))
+                    throw new IOException("Shard server: " + line.substring(4));
+                if (data != null)
+                    data.add(line);
+            }
+            throw new IOException("Shard server closed the connection.");
+        }
+
+        @Override
+        public synchronized void add(String fileName, Postings postings) throws IOException {
+            out.println("POSTINGS " + URLEncoder.encode(fileName, "UTF-8") + " " + postings.size());
+            postings.write(out);
+            out.flush();
+            status(null);
+        }
+
+        @Override
+        public synchronized String[] query(String[] words) throws IOException {
+            // one word per request, so each answer can be matched to its word
+            for (String w : words)
+                out.println("QUERY " + w);
+            out.flush();
+            String[] lines = new String[words.length];
+            List<String> data = new ArrayList<>(1);
+            for (int i = 0; i < words.length; i++) {
+                data.clear();
+                status(data);
+                lines[i] = data.isEmpty() ? null : data.get(0);
+            }
+            return lines;
+        }
+
+        @Override
+        public synchronized void scan(ReportOptions options, ReportFormatter sink) throws IOException {
+            StringBuilder request = new StringBuilder("SCAN");
+            for (String arg : options.toArgs())
+                request.append(' ').append(URLEncoder.encode(arg, "UTF-8"));
+            out.println(request);
+            out.flush();
+            // closing the reader reads on to the status line
+            try (ReportFormats.BinaryReader reader = new ReportFormats.BinaryReader(new ScanInput())) {
+                while (reader.next())
+                    sink.write(reader.toWord());
+            }
+        }
+
+        /**
+         * The binary report of a {@code SCAN} response, decoded one line at a
+         * time. It ends at the status line; closing it skips to that line.
+         */
+        private final class ScanInput extends InputStream {
+            private byte[] chunk = new byte[0];
+            private int next;
+            private boolean ended;
+
+            /** @return false once the status line has been read */
+            private boolean fill() throws IOException {
+                while (!ended && next == chunk.length) {
+                    String line = in.readLine();
+                    if (line == null)
+                        throw new IOException("Shard server closed the connection.");
+                    if (line.startsWith(".")) {
+                        chunk = Base64.getDecoder().decode(line.substring(1));
+                        next = 0;
+                    } else if (line.equals("OK") || line.startsWith("OK ")) {
+                        ended = true;
+                    } else if (line.startsWith("ERR ")) {
+                        ended = true;
+                        throw new IOException("Shard server: " + line.substring(4));
+                    } else {
+                        throw new IOException("Unexpected scan line: " + line);
+                    }
+                }
+                return !ended || next < chunk.length;
+            }
+
+            @Override
+            public int read() throws IOException {
+                return fill() ? chunk[next++] & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (len == 0)
+                    return 0;
+                if (!fill())
+                    return -1;
+                int n = Math.min(len, chunk.length - next);
+                System.arraycopy(chunk, next, b, off, n);
+                next += n;
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                while (!ended) {
+                    next = chunk.length;
+                    fill();
+                }
+            }
+        }
+
+        @Override
+        public synchronized void save() throws IOException {
+            out.println("SAVE");
+            out.flush();
+            status(null);
+        }
+
+        /** Shuts the server down, which saves its repository, and waits for it to exit. */
+        @Override
+        public synchronized void close() throws IOException {
+            try {
+                out.println("SHUTDOWN");
+                out.flush();
+                status(null);
+            } finally {
+                socket.close();
+                try {
+                    if (!process.waitFor(30, TimeUnit.SECONDS))
+                        process.destroy();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    process.destroy();
+                }
+            }
+        }
+    }
+}
@@ -1,9 +1,22 @@
 package appDomain;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+import utilities.KeyExtractor;
+import utilities.PositionList;
+import utilities.PostingArena;
+import utilities.StringDictionary;
+import utilities.TextNormalizer;
 
 /**
  * Represents a word stored in the BST and tracks all occurrences of that word
@@ -20,14 +33,43 @@ import java.util.Map;
  *     <li>{@code Comparable<Word>} so it can be ordered alphabetically in the BST</li>
  *     <li>{@code Serializable} so it can be saved to / loaded from repository.ser</li>
  * </ul>
+ *
+ * <p>When a {@link PostingArena} has been installed with
+ * {@link #usePostingArena(PostingArena)}, new and deserialized words keep
+ * their line numbers off heap and hold only one {@code long} handle per
+ * file. The serialized form is the same in both modes.</p>
+ *
+ * <p>Words are ordered by a case-folded key computed once by
+ * {@link TextNormalizer#fold(String)} and cached. For a word that is already
+ * lower-case ASCII the key is the word itself, so most words pay nothing
+ * extra for it.</p>
  */
 public class Word implements Comparable<Word>, Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Key extractor for key-based indexes such as {@code RadixTrie}. It returns
+     * the folded key, which orders words exactly like {@link #compareTo(Word)}.
+     */
+    public static final KeyExtractor<Word> KEY = new FoldedKey();
+
+    /** Arena for off-heap postings, or null to keep postings on the heap */
+    private static volatile PostingArena arena;
+
     /** The actual word text (e.g., "hello"). */
     private String word;
 
+    /** Case-folded {@link #word}; recomputed after deserialization */
+    private transient String key;
+
+    /**
+     * Counts the {@link #compareTo(Word)} calls this word takes part in while
+     * a tracker searches for it or inserts it, or null. Only set on a word
+     * that no other thread can see yet, and cleared once it is in the tree.
+     */
+    private transient LongAdder comparisons;
+
     /**
      * A map storing all occurrences of this word.
      * The key = filename, the value = list of line numbers where the word appears.
@@ -38,15 +80,112 @@ public class Word implements Comparable<Word>, Serializable {
      */
     private Map<String, ArrayList<Integer>> occurrences;
 
+    /**
+     * Off-heap replacement for {@link #occurrences}: filename → arena handle of
+     * the line-number list. Exactly one of the two maps is non-null.
+     */
+    private transient Map<String, Long> postings;
+
+    /** Arena that owns the handles in {@link #postings} */
+    private transient PostingArena postingArena;
+
+    /**
+     * Filename → (line, column) of every occurrence, for files indexed in
+     * positional mode; null until the first positional occurrence. Absent in
+     * repositories written before positions existed, which read back as null.
+     */
+    private Map<String, PositionList> positions;
+
+    /**
+     * Occurrences across all files. Kept in step by addOccurrences and
+     * removeOccurrences and recomputed after deserialization, so ranking by
+     * frequency needs no pass over the postings.
+     */
+    private transient int totalCount;
+
+    /**
+     * Source of modification stamps, shared by every repository in this
+     * JVM. It starts from the clock and is raised past every stamp read
+     * back from a repository, so a change never gets a stamp its word has
+     * had before.
+     */
+    private static final AtomicLong modifications = new AtomicLong(System.currentTimeMillis() << 16);
+
+    /**
+     * Stamp of the last change to this word's postings, or 0 if it has
+     * none. A {@link ReportCache} entry records the stamp it was rendered
+     * from and is reused while the stamps match. Saved with the word;
+     * absent in older repositories, which read back as 0.
+     */
+    private long version;
+
     /**
      * Constructs a Word instance with the given word text.
-     * Initializes the occurrences map.
+     * Initializes the occurrences map, off heap if an arena is installed.
      *
      * @param word the word string (must not be null)
      */
     public Word(String word) {
+        this(word, TextNormalizer.fold(word));
+    }
+
+    /**
+     * Constructs a Word whose folded key the caller has already computed.
+     *
+     * @param word the word string (must not be null)
+     * @param key  {@code TextNormalizer.fold(word)}
+     */
+    Word(String word, String key) {
         this.word = word;
-        this.occurrences = new HashMap<>();
+        this.key = key;
+        PostingArena a = arena;
+        if (a != null) {
+            this.postingArena = a;
+            this.postings = new HashMap<>();
+        } else {
+            this.occurrences = new HashMap<>();
+        }
+    }
+
+    /** Constructs an on-heap Word around the given postings. */
+    private Word(String word, String key, Map<String, ArrayList<Integer>> occurrences) {
+        this.word = word;
+        this.key = key;
+        this.occurrences = occurrences;
+    }
+
+    /**
+     * Constructs an on-heap Word around postings read back from a report.
+     * The caller fills the map with {@code put} in the order the files were
+     * written, so they iterate in the same order as in the Word that was
+     * written; adding them one occurrence at a time would reverse files that
+     * share a hash bucket.
+     *
+     * @param word        the word string (must not be null)
+     * @param occurrences the file names and line numbers
+     * @return the Word
+     */
+    static Word of(String word, Map<String, ArrayList<Integer>> occurrences) {
+        Word w = new Word(word, TextNormalizer.fold(word), occurrences);
+        for (ArrayList<Integer> lines : occurrences.values())
+            w.totalCount += lines.size();
+        return w;
+    }
+
+    /**
+     * Installs the arena used for the postings of words created or
+     * deserialized from now on. Pass null to go back to on-heap lists.
+     * Words that already exist keep their current storage.
+     *
+     * @param postingArena the arena, or null
+     */
+    public static void usePostingArena(PostingArena postingArena) {
+        arena = postingArena;
+    }
+
+    /** @return the installed posting arena, or null if postings stay on the heap */
+    public static PostingArena postingArena() {
+        return arena;
     }
 
     /**
@@ -56,6 +195,13 @@ public class Word implements Comparable<Word>, Serializable {
         return word;
     }
 
+    /**
+     * @return the case-folded key that orders this word
+     */
+    public String getKey() {
+        return key;
+    }
+
     /**
      * Adds an occurrence of the word at a given filename and line number.
      *
@@ -65,8 +211,46 @@ public class Word implements Comparable<Word>, Serializable {
      * @param lineNumber the line number in the file
      */
     public void addOccurrences(String filename, int lineNumber) {
-        occurrences.putIfAbsent(filename, new ArrayList<>());
-        occurrences.get(filename).add(lineNumber);
+        totalCount++;
+        version = modifications.incrementAndGet();
+        if (postings != null) {
+            Long handle = postings.get(filename);
+            long h = handle != null ? handle : postingArena.allocate();
+            long moved = postingArena.append(h, lineNumber);
+            if (handle == null || moved != h)
+                postings.put(filename, moved);
+            return;
+        }
+        occurrences.computeIfAbsent(filename, f -> new ArrayList<>()).add(lineNumber);
+    }
+
+    /**
+     * Adds an occurrence together with its position in the line, which makes
+     * the file available to phrase and proximity queries.
+     *
+     * @param filename   the file where the word was found
+     * @param lineNumber the line number in the file
+     * @param position   index of the token within the line, starting at 0
+     */
+    public void addOccurrences(String filename, int lineNumber, int position) {
+        addOccurrences(filename, lineNumber);
+        if (positions == null)
+            positions = new HashMap<>();
+        positions.computeIfAbsent(filename, f -> new PositionList()).add(lineNumber, position);
+    }
+
+    /**
+     * Returns the positions of this word in a file indexed in positional mode.
+     *
+     * @param file the filename
+     * @return {@code (line << 32) | position} for each occurrence in ascending
+     *         order, or null if the file has no positions for this word
+     */
+    public long[] getPositions(String file) {
+        if (positions == null)
+            return null;
+        PositionList list = positions.get(file);
+        return list == null ? null : list.toArray();
     }
 
     /**
@@ -75,18 +259,183 @@ public class Word implements Comparable<Word>, Serializable {
      * @param fileName the file to remove from the occurrences map
      */
     public void removeOccurrences(String fileName) {
+        if (positions != null && positions.remove(fileName) != null && positions.isEmpty())
+            positions = null;
+        int removed = getCount(fileName);
+        if (removed == 0 && !getFiles().contains(fileName))
+            return;
+        totalCount -= removed;
+        version = modifications.incrementAndGet();
+        if (postings != null) {
+            Long handle = postings.remove(fileName);
+            if (handle != null)
+                postingArena.free(handle);
+            return;
+        }
         occurrences.remove(fileName);
     }
 
+    /** @return the stamp of the last change to the postings, or 0 if there is none */
+    long getVersion() {
+        return version;
+    }
+
+    /**
+     * Adds every occurrence of another word to this one, with positions for
+     * files the other word has them for. Used to merge spellings that fold
+     * to the same key.
+     *
+     * @param other the word whose occurrences are copied
+     */
+    void addAll(Word other) {
+        for (String file : other.getFiles()) {
+            long[] pos = other.getPositions(file);
+            if (pos != null) {
+                for (long p : pos)
+                    addOccurrences(file, (int) (p >>> 32), (int) p);
+            } else {
+                other.forEachLine(file, line -> addOccurrences(file, line));
+            }
+        }
+    }
+
+    /**
+     * Returns this word with only the occurrences in one file, for reports
+     * filtered by file. The copy is on the heap and shares nothing with
+     * this word; positions are not copied.
+     *
+     * @param file a filename
+     * @return this word if the file is its only one, otherwise a copy
+     */
+    Word onlyIn(String file) {
+        Set<String> files = getFiles();
+        if (files.size() == 1 && files.contains(file))
+            return this;
+        ArrayList<Integer> lines = new ArrayList<>(getCount(file));
+        forEachLine(file, lines::add);
+        Map<String, ArrayList<Integer>> occ = new HashMap<>(2);
+        if (!lines.isEmpty())
+            occ.put(file, lines);
+        Word copy = new Word(word, key, occ);
+        copy.totalCount = lines.size();
+        return copy;
+    }
+
+    /**
+     * Replaces the word text and filename keys with the dictionary's shared
+     * instances, adding any that are missing.
+     *
+     * @param dictionary the repository-wide string dictionary
+     */
+    void internStrings(StringDictionary dictionary) {
+        boolean same = key == word;
+        word = dictionary.canonical(word);
+        if (same)
+            key = word;
+        if (positions != null) {
+            Map<String, PositionList> interned = new HashMap<>();
+            for (Map.Entry<String, PositionList> e : positions.entrySet()) {
+                interned.put(dictionary.canonical(e.getKey()), e.getValue());
+            }
+            positions = interned;
+        }
+        if (postings != null) {
+            Map<String, Long> interned = new HashMap<>();
+            for (Map.Entry<String, Long> e : postings.entrySet()) {
+                interned.put(dictionary.canonical(e.getKey()), e.getValue());
+            }
+            postings = interned;
+            return;
+        }
+        Map<String, ArrayList<Integer>> interned = new HashMap<>();
+        for (Map.Entry<String, ArrayList<Integer>> e : occurrences.entrySet()) {
+            interned.put(dictionary.canonical(e.getKey()), e.getValue());
+        }
+        occurrences = interned;
+    }
+
     /**
+     * Returns the map of file names to lists of line numbers. For a word whose
+     * postings are off heap this is a fresh on-heap copy; use
+     * {@link #forEachLine(String, IntConsumer)} to read without copying.
+     *
      * @return the map of file names to lists of line numbers
      */
     public Map<String, ArrayList<Integer>> getOccurrences() {
-        return occurrences;
+        if (postings == null)
+            return occurrences;
+        Map<String, ArrayList<Integer>> copy = new HashMap<>();
+        for (Map.Entry<String, Long> e : postings.entrySet()) {
+            long handle = e.getValue();
+            ArrayList<Integer> lines = new ArrayList<>(postingArena.size(handle));
+            postingArena.forEach(handle, lines::add);
+            copy.put(e.getKey(), lines);
+        }
+        return copy;
     }
 
     /**
-     * Compares two Word objects alphabetically, ignoring case.
+     * @return the names of the files this word occurs in
+     */
+    public Set<String> getFiles() {
+        return postings != null ? postings.keySet() : occurrences.keySet();
+    }
+
+    /**
+     * @param file a filename
+     * @return the number of occurrences recorded for the file, 0 if none
+     */
+    public int getCount(String file) {
+        if (postings != null) {
+            Long handle = postings.get(file);
+            return handle == null ? 0 : postingArena.size(handle);
+        }
+        ArrayList<Integer> lines = occurrences.get(file);
+        return lines == null ? 0 : lines.size();
+    }
+
+    /**
+     * @return the number of occurrences recorded across all files
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Passes each recorded line number for the file, in insertion order, to the
+     * action, reading off-heap postings in place.
+     *
+     * @param file   a filename
+     * @param action receives each line number
+     */
+    public void forEachLine(String file, IntConsumer action) {
+        if (postings != null) {
+            Long handle = postings.get(file);
+            if (handle != null)
+                postingArena.forEach(handle, action);
+            return;
+        }
+        ArrayList<Integer> lines = occurrences.get(file);
+        if (lines != null) {
+            for (int i = 0; i < lines.size(); i++)
+                action.accept(lines.get(i));
+        }
+    }
+
+    /** Appends the file's line numbers in {@code [a, b, c]} form. */
+    private void appendLines(StringBuilder sb, String file) {
+        sb.append('[');
+        int start = sb.length();
+        forEachLine(file, line -> {
+            if (sb.length() > start)
+                sb.append(", ");
+            sb.append(line);
+        });
+        sb.append(']');
+    }
+
+    /**
+     * Compares two Word objects by their case-folded keys.
      *
      * <p>This allows the BST to maintain correct sorted ordering.</p>
      *
@@ -95,8 +444,20 @@ public class Word implements Comparable<Word>, Serializable {
      */
     @Override
     public int compareTo(Word other) {
-        return this.word.toLowerCase()
-                        .compareTo(other.word.toLowerCase());
+        LongAdder counter = comparisons != null ? comparisons : other.comparisons;
+        if (counter != null)
+            counter.increment();
+        return key.compareTo(other.key);
+    }
+
+    /**
+     * Starts or stops counting this word's comparisons; see
+     * {@link #compareTo(Word)}.
+     *
+     * @param counter where comparisons are counted, or null to stop
+     */
+    void countComparisons(LongAdder counter) {
+        comparisons = counter;
     }
 
     // -------------------------------------------------------
@@ -112,7 +473,7 @@ public class Word implements Comparable<Word>, Serializable {
      * @return formatted string
      */
     public String toPrintFilesOnly() {
-        return word + " : " + occurrences.keySet();
+        return word + " : " + getFiles();
     }
 
     /**
@@ -125,11 +486,11 @@ public class Word implements Comparable<Word>, Serializable {
      */
     public String toPrintFilesAndLines() {
         StringBuilder sb = new StringBuilder(word + " : ");
-        for (String file : occurrences.keySet()) {
+        for (String file : getFiles()) {
             sb.append("   ")
               .append(file)
-              .append(" -> ")
-              .append(occurrences.get(file));
+              .append(" -> ");
+            appendLines(sb, file);
         }
         return sb.toString();
     }
@@ -144,15 +505,67 @@ public class Word implements Comparable<Word>, Serializable {
      */
     public String toPrintFilesLinesFrequency() {
         StringBuilder sb = new StringBuilder(word + ": ");
-        for (String file : occurrences.keySet()) {
-            ArrayList<Integer> lines = occurrences.get(file);
+        for (String file : getFiles()) {
             sb.append("   ").append(file)
               .append(" -> ")
               .append(" (")
-              .append(lines.size())
-              .append(" times) ")
-              .append(lines);
+              .append(getCount(file))
+              .append(" times) ");
+            appendLines(sb, file);
         }
         return sb.toString();
     }
+
+    // -------------------------------------------------------
+    // Serialization – off-heap postings are written as lists
+    // -------------------------------------------------------
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        if (postings == null) {
+            out.defaultWriteObject();
+            return;
+        }
+        occurrences = getOccurrences();
+        try {
+            out.defaultWriteObject();
+        } finally {
+            occurrences = null;
+        }
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        key = TextNormalizer.fold(word);
+        if (modifications.get() < version)
+            modifications.accumulateAndGet(version, Math::max);
+        for (ArrayList<Integer> lines : occurrences.values())
+            totalCount += lines.size();
+        PostingArena a = arena;
+        if (a == null)
+            return;
+        postingArena = a;
+        postings = new HashMap<>();
+        for (Map.Entry<String, ArrayList<Integer>> e : occurrences.entrySet()) {
+            long handle = a.allocate();
+            for (Integer line : e.getValue())
+                handle = a.append(handle, line);
+            postings.put(e.getKey(), handle);
+        }
+        occurrences = null;
+    }
+
+    /** Serializable extractor behind {@link #KEY}. */
+    private static final class FoldedKey implements KeyExtractor<Word> {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String keyOf(Word w) {
+            return w.key;
+        }
+
+        /** Keeps a single shared instance after deserialization. */
+        private Object readResolve() {
+            return KEY;
+        }
+    }
 }
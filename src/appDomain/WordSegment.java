@@ -0,0 +1,282 @@
+package appDomain;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An on-disk, sorted sequence of words with their postings, written once and
+ * read front to back.
+ *
+ * <p>Layout: a magic number and version, the file table (every filename,
+ * indexed by position), then one record per word in {@link Word#compareTo}
+ * order, each preceded by a {@code true} marker, and a final {@code false}.
+ * A record holds the word, the number of files it occurs in and, per file in
+ * first-occurrence order, the file's index, the number of occurrences and
+ * the line numbers as zig-zag varint deltas. Words and filenames are stored
+ * as an int byte count followed by their UTF-8 bytes.</p>
+ *
+ * <p>Because records are sorted and self-contained, a report can be streamed
+ * from a segment holding one word in memory at a time.</p>
+ */
+public final class WordSegment {
+
+    private static final int MAGIC = 0x57534547; // "WSEG"
+    private static final int VERSION = 2;
+
+    private WordSegment() {
+    }
+
+    /**
+     * Prints a report from a segment without loading it into a tree.
+     *
+     * @param segment the segment file
+     * @param mode    a report mode accepted by {@link ReportFormatter#isMode(String)}
+     * @param out     the PrintStream to write the report to
+     * @throws IOException if the segment cannot be read
+     */
+    public static void report(File segment, String mode, PrintStream out) throws IOException {
+        report(segment, mode, out, null);
+    }
+
+    /**
+     * Prints the words of a segment selected by the options. Records are
+     * only decoded into words up to the end of the options' key range.
+     *
+     * @param segment the segment file
+     * @param mode    a report mode accepted by {@link ReportFormatter#isMode(String)}
+     * @param out     the PrintStream to write the report to
+     * @param options filters, range and limit, or null for every word
+     * @throws IOException if the segment cannot be read
+     */
+    public static void report(File segment, String mode, PrintStream out, ReportOptions options) throws IOException {
+        if (!ReportFormatter.isMode(mode)) {
+            out.println("Unknown report mode: " + mode);
+            return;
+        }
+        ReportFormatter formatter = ReportFormatter.forMode(mode, out);
+        ReportOptions.Selection selection = options == null ? null : options.select(formatter);
+        try (Reader reader = new Reader(segment)) {
+            formatter.begin();
+            while (reader.next()) {
+                if (selection == null)
+                    formatter.write(reader.toWord());
+                else if (!selection.offer(reader.toWord()))
+                    break;
+            }
+            formatter.end();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // WRITER
+    // ------------------------------------------------------------
+
+    /** Writes a segment; records must be added in word order. */
+    static final class Writer implements Closeable {
+        private final DataOutputStream out;
+        private boolean finished;
+
+        Writer(File file, List<String> files) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeVarInt(out, files.size());
+            for (String f : files)
+                writeString(out, f);
+        }
+
+        /**
+         * Writes one word.
+         *
+         * @param word       the word as first spelled
+         * @param fileCount  number of files the word occurs in
+         * @param fileIds    file indexes in first-occurrence order
+         * @param lines      line numbers per file, parallel to fileIds
+         * @param lineCounts number of lines used in each row of lines
+         */
+        void write(String word, int fileCount, int[] fileIds, int[][] lines, int[] lineCounts)
+                throws IOException {
+            out.writeBoolean(true);
+            writeString(out, word);
+            writeVarInt(out, fileCount);
+            for (int i = 0; i < fileCount; i++) {
+                writeVarInt(out, fileIds[i]);
+                writeVarInt(out, lineCounts[i]);
+                int prev = 0;
+                for (int j = 0; j < lineCounts[i]; j++) {
+                    int delta = lines[i][j] - prev;
+                    writeVarInt(out, (delta << 1) ^ (delta >> 31));
+                    prev = lines[i][j];
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!finished) {
+                finished = true;
+                out.writeBoolean(false);
+            }
+            out.close();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // READER
+    // ------------------------------------------------------------
+
+    /**
+     * Reads a segment one record at a time. After {@link #next()} returns
+     * true, the accessors describe the current record.
+     */
+    static final class Reader implements Closeable {
+        private final DataInputStream in;
+        private final String[] files;
+
+        private String word;
+        private int fileCount;
+        private int[] fileIds = new int[4];
+        private int[] lineCounts = new int[4];
+        private int[][] lines = new int[4][];
+
+        Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != VERSION)
+                    throw new IOException("Not a word segment: " + file);
+                files = new String[readVarInt(in)];
+                for (int i = 0; i < files.length; i++)
+                    files[i] = readString(in);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /** @return the file table, indexed by file ID */
+        List<String> files() {
+            return Arrays.asList(files);
+        }
+
+        /**
+         * Advances to the next record.
+         *
+         * @return false at the end of the segment
+         */
+        boolean next() throws IOException {
+            if (!in.readBoolean())
+                return false;
+            word = readString(in);
+            fileCount = readVarInt(in);
+            if (fileCount > fileIds.length) {
+                fileIds = Arrays.copyOf(fileIds, fileCount);
+                lineCounts = Arrays.copyOf(lineCounts, fileCount);
+                lines = Arrays.copyOf(lines, fileCount);
+            }
+            for (int i = 0; i < fileCount; i++) {
+                fileIds[i] = readVarInt(in);
+                int n = readVarInt(in);
+                lineCounts[i] = n;
+                if (lines[i] == null || lines[i].length < n)
+                    lines[i] = new int[Math.max(n, 4)];
+                int prev = 0;
+                for (int j = 0; j < n; j++) {
+                    int z = readVarInt(in);
+                    prev += (z >>> 1) ^ -(z & 1);
+                    lines[i][j] = prev;
+                }
+            }
+            return true;
+        }
+
+        String word() {
+            return word;
+        }
+
+        int fileCount() {
+            return fileCount;
+        }
+
+        int fileId(int i) {
+            return fileIds[i];
+        }
+
+        int lineCount(int i) {
+            return lineCounts[i];
+        }
+
+        int line(int i, int j) {
+            return lines[i][j];
+        }
+
+        /** @return the current record as a Word, files added in stored order */
+        Word toWord() {
+            Word w = new Word(word);
+            for (int i = 0; i < fileCount; i++) {
+                String file = files[fileIds[i]];
+                for (int j = 0; j < lineCounts[i]; j++)
+                    w.addOccurrences(file, lines[i][j]);
+            }
+            return w;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    // ------------------------------------------------------------
+    // VARINTS AND STRINGS
+    // ------------------------------------------------------------
+
+    static void writeVarInt(DataOutputStream out, int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+    static int readVarInt(DataInputStream in) throws IOException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readByte();
+            v |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return v;
+        }
+        throw new IOException("Malformed varint.");
+    }
+
+    /**
+     * Writes a string as its UTF-8 length and bytes. Unlike
+     * {@link DataOutputStream#writeUTF(String)} this has no 64 KiB limit, so
+     * a long unbroken token or filename cannot fail a write.
+     */
+    static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            throw new IOException("Malformed string length: " + length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,24 +1,41 @@
 package appDomain;
 
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OptionalDataException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAdder;
 
 import implementations.BSTree;
 import implementations.BSTreeNode;
+import utilities.Analyzer;
+import utilities.BSTreeADT;
+import utilities.BloomFilter;
+import utilities.InputArchive;
 import utilities.Iterator;
+import utilities.Metrics;
+import utilities.StringDictionary;
+import utilities.TextNormalizer;
 import utilities.Utils;
 
 /**
- * Manages a repository of {@link Word} objects stored inside a {@link BSTree}.
+ * Manages a repository of {@link Word} objects stored inside a {@link BSTree}
+ * (or any other {@link BSTreeADT} implementation supplied by the caller).
  *
  * <p>
  * Responsibilities:
@@ -26,6 +43,16 @@ import utilities.Utils;
  *   <li>Load a previously serialized BST repository from {@code repository.ser}.</li>
  *   <li>Read an input text file and add/update Word entries with occurrences (filename -> list of line numbers).</li>
  *   <li>Persist the BST back to {@code repository.ser}.</li>
+ *   <li>Keep a {@link StringDictionary} of every word and filename so each
+ *       string is held once and has a stable integer ID.</li>
+ *   <li>Normalize tokens with {@link TextNormalizer} and order words by their
+ *       case-folded keys.</li>
+ *   <li>Optionally drop stop words and stem the rest with an {@link Analyzer},
+ *       which is saved with the repository.</li>
+ *   <li>Keep a {@link BloomFilter} over the folded vocabulary, so that
+ *       looking up a word that was never indexed usually skips the tree.</li>
+ *   <li>Optionally record phase timings, word counts, tree shape and bytes
+ *       written into a {@link Metrics} registry.</li>
  *   <li>Generate reports in three modes:
  *       <ul>
  *         <li>{@code pf} — prints words and filenames only</li>
@@ -43,11 +70,194 @@ import utilities.Utils;
 public class WordTracker {
 	private static final String REPO_FILE = "repository.ser";
 	
-	BSTree<Word> tree = new BSTree<>();
+	/**
+	 * Version of the key folding a saved tree is ordered by, written after
+	 * the analysis chain. Repositories without it were ordered by
+	 * {@code toLowerCase()}.
+	 */
+	private static final int KEY_FORMAT = 1;
+	
+	/** Trees at least this large are cleared and formatted on several threads */
+	static final int PARALLEL_THRESHOLD = 1 << 13;
+	
+	BSTreeADT<Word> tree;
+	StringDictionary dictionary = new StringDictionary();
+	String repositoryFile = REPO_FILE;
+	Metrics metrics = null;
+	boolean positional = false;
+	FrequencyIndex frequencies = null;
+	double falsePositiveRate = BloomFilter.DEFAULT_FALSE_POSITIVE_RATE;
+	/** Read without a lock by concurrent lookups; replaced only in {@link #vocabulary()} and by writers */
+	volatile BloomFilter vocabulary = null;
+	Analyzer analyzer = null;
+	boolean analyzerSet = false;
+	long analyzedTokens = 0;
+	long stoppedTokens = 0;
+	long stemmedTokens = 0;
+	boolean reportCache = false;
 	int counter = 0;
 	String fileName = null;
 	File file = null;
 	
+	/**
+	 * Creates a tracker backed by an empty {@link BSTree}.
+	 */
+	public WordTracker() {
+		this(new BSTree<>());
+	}
+	
+	/**
+	 * Creates a tracker backed by the given, normally empty, tree. The tree is
+	 * only used until {@link #loadTree()} replaces it with a saved repository.
+	 *
+	 * @param tree the index structure to store words in
+	 * @throws NullPointerException if tree is null
+	 */
+	public WordTracker(BSTreeADT<Word> tree) {
+		if (tree == null)
+			throw new NullPointerException("Tree cannot be null.");
+		this.tree = tree;
+	}
+	
+	/**
+	 * Turns on the report cache: full reports keep each word's rendered line
+	 * in a {@link ReportCache} file next to the repository, and later reports
+	 * re-render only the words whose postings changed since, as told by the
+	 * modification stamps saved with each word.
+	 *
+	 * @param enabled true to read and write the cache for full reports
+	 */
+	public void setReportCache(boolean enabled) {
+		this.reportCache = enabled;
+	}
+	
+	/**
+	 * Changes where {@link #loadTree()} and {@link #saveTree()} keep the
+	 * repository. Defaults to {@code repository.ser} in the working directory.
+	 *
+	 * @param repositoryFile path of the repository file
+	 * @throws NullPointerException if repositoryFile is null
+	 */
+	public void setRepositoryFile(String repositoryFile) {
+		if (repositoryFile == null)
+			throw new NullPointerException("Repository file cannot be null.");
+		this.repositoryFile = repositoryFile;
+	}
+	
+	/**
+	 * @return the path of the repository file
+	 */
+	public String getRepositoryFile() {
+		return repositoryFile;
+	}
+	
+	/**
+	 * Turns positional indexing on or off for files scanned from now on. In
+	 * positional mode each occurrence also records the token's index within
+	 * its line, which {@link QueryEngine} needs for phrase and proximity
+	 * queries. Files scanned without it keep line numbers only.
+	 *
+	 * @param positional true to record token positions
+	 */
+	public void setPositional(boolean positional) {
+		this.positional = positional;
+	}
+	
+	/**
+	 * @return true if token positions are being recorded
+	 */
+	public boolean isPositional() {
+		return positional;
+	}
+	
+	/**
+	 * Sets the false-positive rate of the vocabulary filter that lets
+	 * {@link #lookup(String)} and ingest skip the tree for unseen words. A
+	 * lower rate costs more memory (about 10 bits per word at 1%, 14 at
+	 * 0.1%). A rate of 1 turns the filter off. The filter is rebuilt from the
+	 * tree the next time it is needed.
+	 *
+	 * @param rate the target false-positive rate, greater than 0 and at most 1
+	 * @throws IllegalArgumentException if rate is outside (0, 1]
+	 */
+	public void setFalsePositiveRate(double rate) {
+		if (!(rate > 0 && rate <= 1))
+			throw new IllegalArgumentException("False-positive rate must be in (0, 1].");
+		this.falsePositiveRate = rate;
+	}
+	
+	/**
+	 * @return the configured false-positive rate of the vocabulary filter
+	 */
+	public double getFalsePositiveRate() {
+		return falsePositiveRate;
+	}
+	
+	/**
+	 * Sets the analysis chain for files scanned and words looked up from now
+	 * on, overriding the one saved with the repository. Without a call,
+	 * {@link #loadTree()} adopts the saved chain, so a repository built with
+	 * stemming keeps being stemmed.
+	 *
+	 * @param analyzer the chain, or null to index every word as written
+	 */
+	public void setAnalyzer(Analyzer analyzer) {
+		this.analyzer = analyzer;
+		this.analyzerSet = true;
+	}
+	
+	/**
+	 * @return the analysis chain in use, or null if words are not analyzed
+	 */
+	public Analyzer getAnalyzer() {
+		return analyzer;
+	}
+	
+	/**
+	 * Prints how many tokens the analysis chain dropped and stemmed since the
+	 * tracker was created. Prints nothing when no chain is in use.
+	 *
+	 * @param out the stream to print to
+	 */
+	public void printAnalysisStats(PrintStream out) {
+		if (analyzer == null)
+			return;
+		double percent = analyzedTokens == 0 ? 0 : 100.0 * stoppedTokens / analyzedTokens;
+		out.println(String.format("Analysis (%s): %d of %d tokens dropped as stop words (%.1f%%), %d stemmed",
+				analyzer, stoppedTokens, analyzedTokens, percent, stemmedTokens));
+	}
+	
+	/**
+	 * Turns instrumentation on or off. While a registry is set, every phase
+	 * records into it:
+	 * <ul>
+	 *   <li>{@code phase.load}, {@code phase.ingest}, {@code phase.save} and
+	 *       {@code phase.report} — nanoseconds per call</li>
+	 *   <li>{@code tokenize}, {@code lookup} and {@code insert} — nanoseconds
+	 *       per token to clean it, update an existing word, or add a new one</li>
+	 *   <li>{@code insert.comparisons} — {@code compareTo} calls per new word</li>
+	 *   <li>{@code lines}, {@code tokens}, {@code words.new},
+	 *       {@code words.existing}, {@code save.bytes} — counters</li>
+	 *   <li>{@code analysis.stopped} and {@code analysis.stemmed} — tokens
+	 *       dropped and stemmed by the analysis chain</li>
+	 *   <li>{@code ingest.tokensPerSec} and {@code ingest.newWordRatio} — gauges</li>
+	 *   <li>{@code tree.height} — height sampled each time the number of new
+	 *       words reaches a power of two, and after each file</li>
+	 * </ul>
+	 *
+	 * @param metrics the registry to record into, or null to stop recording
+	 */
+	public void setMetrics(Metrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	/**
+	 * @return the registry being recorded into, or null
+	 */
+	public Metrics getMetrics() {
+		return metrics;
+	}
+	
 	/**
      * Reads {@code fileName}, tokenizes lines into words (stripping punctuation),
      * and updates the BST with occurrences (per-filename line numbers).
@@ -56,22 +266,64 @@ public class WordTracker {
      * that filename are cleared first (so repeated runs update the repository,
      * rather than duplicating entries).</p>
      *
-     * @param fileName path to the input text file to scan
+     * <p>The file may be gzip-compressed, or a zip or tar archive whose entries
+     * are indexed one by one under names like {@code logs.zip!/a.txt}; see
+     * {@link InputArchive}. {@code "-"} reads standard input.</p>
+     *
+     * @param fileName path to the input text file to scan, or {@code "-"}
+     * @return the names the occurrences were recorded under, in input order
      */
-	public void constructsFromFile(String fileName) {
-		this.fileName = fileName;
-		file = Utils.check(fileName);
+	public List<String> constructsFromFile(String fileName) {
+		List<String> indexed = new ArrayList<>();
+		boolean stdin = InputArchive.STDIN.equals(fileName);
+		file = stdin ? null : Utils.check(fileName);
 		
-		if (file == null) {
+		if (!stdin && file == null) {
             System.out.println("Could not locate file: " + fileName);
-            return;
+            return indexed;
         }
 		
+		try (InputArchive in = stdin ? InputArchive.stdin() : InputArchive.open(file, fileName)) {
+			String entry;
+			while ((entry = in.nextEntry()) != null) {
+				entry = dictionary.canonical(entry);
+				indexed.add(entry);
+				constructsFromStream(entry, in.stream());
+			}
+		} catch (IOException e) {
+        	System.err.println("Error while reading file " + fileName + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+		return indexed;
+	}
+	
+	/**
+	 * Indexes one text entry under the given name, clearing the name's
+	 * previous occurrences first.
+	 *
+	 * @param fileName the canonical name to record occurrences under
+	 * @param in       the entry's bytes, in the platform charset
+	 * @throws IOException if reading fails; occurrences read so far are kept
+	 */
+	private void constructsFromStream(String fileName, InputStream in) throws IOException {
+		this.fileName = fileName;
 		counter = 0;
+		frequencies = null;
+		
+		Metrics m = metrics;
+		long start = m == null ? 0 : System.nanoTime();
+		long tokenCount = 0;
+		long newWords = 0;
+		long stopped = 0;
+		long stemmed = 0;
+		Analyzer a = analyzer;
+		// counted per call, so trackers ingesting on other threads keep their own counts
+		LongAdder comparisons = m == null ? null : new LongAdder();
 		
 		clearOccurrencesForFile(fileName);
 		
-		try (BufferedReader br = new BufferedReader(new FileReader(file))) {
+		try {
+			BufferedReader br = new BufferedReader(new InputStreamReader(in));
 
             String line;
 
@@ -83,48 +335,182 @@ public class WordTracker {
                 //read each word in the line
              // split on whitespace, not just single space (handles tabs/multiple spaces)
                 String[] tokens = line.split(" ");
+                int position = 0;
                 for (String rawToken : tokens) {
                     if (rawToken == null) continue;
-                    // Remove punctuation at ends and in the middle (keeps letters/digits)
-                    String w = rawToken.replaceAll("[\\p{Punct}]", "").trim();
+                    long t = m == null ? 0 : System.nanoTime();
+                    String w = cleanToken(rawToken);
+                    if (m != null) t = m.histogram("tokenize").recordSince(t);
                     if (w.isEmpty()) continue;
+                    tokenCount++;
+                    int at = position++;
                 	
-                	Word word = new Word(w);
-                	word.addOccurrences(fileName, counter);
-                	
-                	//if the tree already contains the same word, skip
-                	BSTreeNode<Word> existingNode = tree.search(word);
-                	
-                	if (existingNode != null) {
-                		existingNode.getElement().addOccurrences(fileName, counter);
+                	String key = TextNormalizer.fold(w);
+                	if (a != null) {
+                		String analyzed = a.analyze(key);
+                		if (analyzed == null) {
+                			stopped++;
+                			continue;
+                		}
+                		if (analyzed != key) {
+                			// index the stem itself, not one of its surface forms
+                			stemmed++;
+                			w = analyzed;
+                			key = analyzed;
+                		}
+                	}
+                	long compared = comparisons == null ? 0 : comparisons.sum();
+                	boolean added = addToken(w, key, fileName, at, comparisons);
+                	if (!added) {
+                		if (m != null) m.histogram("lookup").recordSince(t);
                 		continue;
                 	}
                 	
-                	tree.add(word);
+                	if (m != null) {
+                		m.histogram("insert").recordSince(t);
+                		m.histogram("insert.comparisons").record(comparisons.sum() - compared);
+                		if ((++newWords & (newWords - 1)) == 0)
+                			m.sample("tree.height", tree.size(), tree.getHeight());
+                	}
                 }
             }
-        } catch (IOException e) {
-        	System.err.println("Error while reading file " + fileName + ": " + e.getMessage());
-            e.printStackTrace();
+        } finally {
+        	if (a != null) {
+        		analyzedTokens += tokenCount;
+        		stoppedTokens += stopped;
+        		stemmedTokens += stemmed;
+        	}
+        	if (m != null) {
+        		recordIngest(m, start, tokenCount, newWords, stopped, stemmed);
+        	}
         }
 	}
 	
+	/**
+	 * Indexes tokens that were read, cleaned and analyzed elsewhere, as
+	 * {@link ShardedRepository} does once for all of its shards. The file's
+	 * previous occurrences are cleared first, so an empty batch removes the
+	 * file. Keys are folded from the words as given and not analyzed again.
+	 *
+	 * @param fileName the name to record occurrences under
+	 * @param postings the file's tokens for this tracker, in input order
+	 */
+	void addPostings(String fileName, ShardedRepository.Postings postings) {
+		fileName = dictionary.canonical(fileName);
+		this.fileName = fileName;
+		frequencies = null;
+		clearOccurrencesForFile(fileName);
+		for (int i = 0; i < postings.size(); i++) {
+			counter = postings.line(i);
+			String w = postings.word(i);
+			addToken(w, TextNormalizer.fold(w), fileName, postings.position(i), null);
+		}
+	}
+	
+	/**
+	 * Records one occurrence of a cleaned word on the current line, adding
+	 * the word to the tree if it is new. The vocabulary filter lets most new
+	 * words skip the search.
+	 *
+	 * @param comparisons counts the tree's comparisons, or null
+	 * @return true if the word was new
+	 */
+	private boolean addToken(String w, String key, String fileName, int position, LongAdder comparisons) {
+		Word probe = new Word(w, key);
+		probe.countComparisons(comparisons);
+		BloomFilter filter = vocabulary();
+		BSTreeNode<Word> existingNode =
+				filter == null || filter.mightContain(key) ? tree.search(probe) : null;
+		if (existingNode != null) {
+			addOccurrence(existingNode.getElement(), fileName, position);
+			return false;
+		}
+		
+		Word word = new Word(dictionary.canonical(w), key);
+		addOccurrence(word, fileName, position);
+		word.countComparisons(comparisons);
+		tree.add(word);
+		word.countComparisons(null);
+		if (filter != null)
+			filter.add(key);
+		return true;
+	}
+	
+	/**
+	 * Normalizes a token to NFKC and removes punctuation at the ends and in
+	 * the middle (keeps letters and digits). Shared with {@link ExternalIndexer}
+	 * so both ingest paths produce the same words.
+	 *
+	 * @param rawToken a space-separated piece of a line
+	 * @return the cleaned word, possibly empty
+	 * @see TextNormalizer#clean(String)
+	 */
+	static String cleanToken(String rawToken) {
+		return TextNormalizer.clean(rawToken);
+	}
+	
+	/** Records an occurrence on the current line, with its position in positional mode. */
+	private void addOccurrence(Word word, String fileName, int position) {
+		if (positional)
+			word.addOccurrences(fileName, counter, position);
+		else
+			word.addOccurrences(fileName, counter);
+	}
+	
+	/** Adds one file's ingest totals and derived rates to the registry. */
+	private void recordIngest(Metrics m, long start, long tokens, long newWords, long stopped, long stemmed) {
+		long elapsed = m.histogram("phase.ingest").recordSince(start) - start;
+		m.counter("lines").add(counter);
+		m.counter("tokens").add(tokens);
+		m.counter("words.new").add(newWords);
+		m.counter("words.existing").add(tokens - stopped - newWords);
+		if (analyzer != null) {
+			m.counter("analysis.stopped").add(stopped);
+			m.counter("analysis.stemmed").add(stemmed);
+		}
+		m.sample("tree.height", tree.size(), tree.getHeight());
+		if (tree instanceof BSTree<?>) {
+			BSTree<?> bst = (BSTree<?>) tree;
+			m.gauge("tree.averageDepth", bst.getAverageDepth());
+			m.gauge("tree.imbalance", bst.getImbalance());
+		}
+		
+		long allTokens = m.counter("tokens").get();
+		long allNanos = m.histogram("phase.ingest").sum();
+		m.gauge("ingest.tokensPerSec", allNanos == 0 ? 0 : allTokens * 1e9 / allNanos);
+		m.gauge("ingest.newWordRatio", allTokens == 0 ? 0 : (double) m.counter("words.new").get() / allTokens);
+	}
+	
 	/**
      * Loads the repository tree from {@code repository.ser} if it exists.
      *
      * <p>The method performs a couple of safety checks:
      * <ul>
-     *   <li>Verifies the deserialized object is a {@code BSTree}.</li>
+     *   <li>Verifies the deserialized object is a {@code BSTreeADT} implementation.</li>
      *   <li>If the tree has elements, verifies the element type is {@code Word}.</li>
      * </ul>
      * If the file is missing, corrupted, or types don't match, the method returns {@code null}
      * and the tracker continues with an empty tree.
      * </p>
      *
-     * @return the loaded {@link BSTree} or null if not loaded
+     * <p>The {@link StringDictionary} saved after the tree is loaded with it. Repositories
+     * written before the dictionary existed are upgraded by interning every word and
+     * filename found in the tree.</p>
+     *
+     * @return the loaded tree or null if not loaded
      */
-	public BSTree<Word> loadTree() {
-		File repo = new File(REPO_FILE);
+	public BSTreeADT<Word> loadTree() {
+		long start = System.nanoTime();
+		try {
+			return readRepository();
+		} finally {
+			if (metrics != null) metrics.histogram("phase.load").recordSince(start);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	private BSTreeADT<Word> readRepository() {
+		File repo = new File(repositoryFile);
         if (!repo.exists()) {
             System.out.println("Repository file not found; starting with an empty tree.");
             return null;
@@ -134,12 +520,12 @@ public class WordTracker {
 
 	        Object obj = ois.readObject();
 
-	        if (!(obj instanceof BSTree<?>)) {
+	        if (!(obj instanceof BSTreeADT<?>)) {
 	            System.out.println("Error: File does not contain a BSTree object.");
 	            return null;
 	        }
 
-	        BSTree<?> rawTree = (BSTree<?>) obj;
+	        BSTreeADT<?> rawTree = (BSTreeADT<?>) obj;
 
 	        Iterator<?> it = rawTree.inorderIterator();
 	        if (it.hasNext()) {
@@ -150,8 +536,13 @@ public class WordTracker {
 	            }
 	        }
 
-	        this.tree = (BSTree<Word>) rawTree;
-	        System.out.println("Tree loaded from repository.ser\n");
+	        this.tree = (BSTreeADT<Word>) rawTree;
+	        this.frequencies = null;
+	        this.dictionary = readDictionary(ois);
+	        this.vocabulary = readVocabulary(ois);
+	        adoptAnalyzer(readAnalyzer(ois));
+	        checkKeys(readKeyFormat(ois));
+	        System.out.println("Tree loaded from " + repositoryFile + "\n");
 	        return this.tree;
 
 	    } catch (IOException e) {
@@ -164,66 +555,509 @@ public class WordTracker {
 	}
 	
 	/**
-     * Serializes the current BST to {@code repository.ser}.
+     * Reads the dictionary stored after the tree, or rebuilds one from the tree
+     * when the repository predates it.
+     */
+	private StringDictionary readDictionary(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		try {
+			Object obj = ois.readObject();
+			if (obj instanceof StringDictionary) {
+				return (StringDictionary) obj;
+			}
+		} catch (EOFException | OptionalDataException e) {
+			// older repository: only the tree was written
+		}
+		StringDictionary rebuilt = new StringDictionary();
+		Iterator<Word> it = tree.inorderIterator();
+		while (it.hasNext()) {
+			it.next().internStrings(rebuilt);
+		}
+		return rebuilt;
+	}
+	
+	/**
+     * Reads the key format stored after the analysis chain, or 0 when the
+     * repository predates it.
+     */
+	private int readKeyFormat(ObjectInputStream ois) throws IOException {
+		try {
+			return ois.readInt();
+		} catch (EOFException | OptionalDataException e) {
+			// older repository: ordered by toLowerCase()
+			return 0;
+		}
+	}
+	
+	/**
+     * Checks a loaded tree against the current key folding. Repositories
+     * saved before {@link #KEY_FORMAT} was written compared words with
+     * {@code toLowerCase()}, so they can order some non-ASCII words
+     * differently, or hold two spellings that now fold to one key. Such a
+     * tree, or any tree found out of order, is rebuilt from its words in the
+     * current order with such spellings merged, and the vocabulary filter is
+     * dropped.
      *
-     * <p>Any IOException will be printed to standard error.</p>
+     * @param keyFormat the key format the repository was saved with
+     */
+	private void checkKeys(int keyFormat) {
+		boolean ordered = keyFormat >= KEY_FORMAT;
+		String previous = null;
+		Iterator<Word> it = tree.inorderIterator();
+		while (ordered && it.hasNext()) {
+			String key = it.next().getKey();
+			if (previous != null && key.compareTo(previous) <= 0)
+				ordered = false;
+			previous = key;
+		}
+		if (ordered)
+			return;
+		List<Word> words = new ArrayList<>(tree.size());
+		it = tree.inorderIterator();
+		while (it.hasNext()) {
+			words.add(it.next());
+		}
+		Collections.sort(words);
+		List<Word> merged = new ArrayList<>(words.size());
+		for (Word w : words) {
+			Word last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+			if (last != null && last.compareTo(w) == 0)
+				last.addAll(w);
+			else
+				merged.add(w);
+		}
+		tree.clear();
+		addBalanced(merged, 0, merged.size() - 1);
+		vocabulary = null;
+	}
+	
+	/** Adds sorted words middle first, so a plain BST comes out balanced. */
+	private void addBalanced(List<Word> words, int lo, int hi) {
+		if (lo > hi)
+			return;
+		int mid = (lo + hi) >>> 1;
+		tree.add(words.get(mid));
+		addBalanced(words, lo, mid - 1);
+		addBalanced(words, mid + 1, hi);
+	}
+	
+	/**
+     * Reads the analysis chain stored after the vocabulary filter, or null
+     * when the repository predates it or was built without one.
      */
-	public void saveTree() {
-	    try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream("repository.ser"))) {
+	private Analyzer readAnalyzer(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		try {
+			Object obj = ois.readObject();
+			if (obj instanceof Analyzer) {
+				return (Analyzer) obj;
+			}
+		} catch (EOFException | OptionalDataException e) {
+			// older repository: no analysis chain was written
+		}
+		return null;
+	}
+	
+	/** Uses the saved chain unless one was set, and warns when they differ. */
+	private void adoptAnalyzer(Analyzer saved) {
+		if (!analyzerSet) {
+			analyzer = saved;
+			return;
+		}
+		boolean same = saved == null ? analyzer == null : saved.equals(analyzer);
+		if (!same) {
+			System.out.println("Note: repository was built with " + (saved == null ? "no analysis" : saved)
+					+ "; files indexed now use " + (analyzer == null ? "no analysis" : analyzer) + ".");
+		}
+	}
+	
+	/**
+     * Reads the vocabulary filter stored after the dictionary. Returns null,
+     * so the filter is rebuilt on first use, when the repository predates it
+     * or the filter does not cover exactly the words in the tree.
+     */
+	private BloomFilter readVocabulary(ObjectInputStream ois) throws IOException, ClassNotFoundException {
+		try {
+			Object obj = ois.readObject();
+			if (obj instanceof BloomFilter && ((BloomFilter) obj).size() == tree.size()) {
+				return (BloomFilter) obj;
+			}
+		} catch (EOFException | OptionalDataException e) {
+			// older repository: no filter was written
+		}
+		return null;
+	}
+	
+	/**
+	 * Returns the vocabulary filter, first building it from the tree if there
+	 * is none yet, it was sized for a different rate, or it holds more words
+	 * than it was sized for. A new filter is sized for twice the current
+	 * vocabulary, so rebuilds during ingest cost O(1) amortized per word.
+	 *
+	 * <p>Lookups sharing a read lock (see {@link IndexServer}) can all find
+	 * the filter missing at once, so the rebuild is synchronized and the
+	 * filter is only published, through the volatile field, once it is
+	 * complete.</p>
+	 *
+	 * @return the filter, or null if it is turned off
+	 */
+	private BloomFilter vocabulary() {
+		if (falsePositiveRate >= 1)
+			return null;
+		BloomFilter f = vocabulary;
+		if (usable(f))
+			return f;
+		synchronized (this) {
+			f = vocabulary;
+			if (usable(f))
+				return f;
+			f = new BloomFilter(Math.max(2 * tree.size(), 1024), falsePositiveRate);
+			Iterator<Word> it = tree.inorderIterator();
+			while (it.hasNext()) {
+				f.add(it.next().getKey());
+			}
+			vocabulary = f;
+		}
+		if (metrics != null) metrics.counter("bloom.rebuilds").increment();
+		return f;
+	}
+	
+	private boolean usable(BloomFilter f) {
+		return f != null && !f.isFull() && f.falsePositiveRate() == falsePositiveRate;
+	}
+	
+	/**
+     * Serializes the current BST to {@code repository.ser}, followed by the
+     * string dictionary, the vocabulary filter, the analysis chain and the
+     * key format. Words and the dictionary
+     * share string instances, so each string is written once.
+     *
+     * <p>Any IOException will be printed to standard error and reported
+     * through the return value, so callers can keep their changes marked
+     * unsaved and try again.</p>
+     *
+     * @return true if the repository was written
+     */
+	public boolean saveTree() {
+		long start = System.nanoTime();
+		OutputStream file;
+		try {
+			file = new FileOutputStream(repositoryFile);
+		} catch (IOException e) {
+			System.err.println("Error saving repository: " + e.getMessage());
+			e.printStackTrace();
+			return false;
+		}
+		if (metrics != null) file = metrics.countBytes("save.bytes", file);
+		
+	    try (ObjectOutputStream oos = new ObjectOutputStream(file)) {
 	        oos.writeObject(tree);
-	        System.out.println("\nTree saved to " + REPO_FILE);
+	        oos.writeObject(dictionary);
+	        oos.writeObject(vocabulary());
+	        oos.writeObject(analyzer);
+	        oos.writeInt(KEY_FORMAT);
+	        System.out.println("\nTree saved to " + repositoryFile);
+	        return true;
 	    } catch (IOException e) {
 	    	System.err.println("Error saving repository: " + e.getMessage());
 	        e.printStackTrace();
+	        return false;
+	    } finally {
+	    	if (metrics != null) metrics.histogram("phase.save").recordSince(start);
 	    }
 	}
 	
+	/**
+	 * Finds the stored entry for a word, ignoring case. Words the vocabulary
+	 * filter has never seen are rejected without searching the tree. With an
+	 * analysis chain, stop words are never found and other words are found
+	 * by their stem.
+	 *
+	 * @param word the word to look up
+	 * @return the stored Word, or null if it has not been indexed
+	 * @throws NullPointerException if word is null
+	 */
+	public Word lookup(String word) {
+		if (word == null)
+			throw new NullPointerException("Cannot search for null.");
+		if (tree == null || tree.isEmpty())
+			return null;
+		BloomFilter filter = vocabulary();
+		String key = TextNormalizer.fold(word);
+		if (analyzer != null) {
+			key = analyzer.analyze(key);
+			if (key == null)
+				return null;
+		}
+		if (filter != null && !filter.mightContain(key)) {
+			if (metrics != null) metrics.counter("lookup.filtered").increment();
+			return null;
+		}
+		BSTreeNode<Word> node = tree.search(new Word(word, key));
+		return node == null ? null : node.getElement();
+	}
+	
+	/**
+	 * Collects the name of every file that has at least one indexed word.
+	 * Walks the whole tree.
+	 *
+	 * @return the filenames, in name order
+	 */
+	public Set<String> files() {
+		Set<String> files = new TreeSet<>();
+		if (tree == null) return files;
+		Iterator<Word> it = tree.inorderIterator();
+		while (it.hasNext()) {
+			files.addAll(it.next().getFiles());
+		}
+		return files;
+	}
+	
+	/**
+	 * Looks up each word and returns the stored entries, in argument order.
+	 * Words that have not been indexed are skipped.
+	 *
+	 * @param words the words to look up
+	 * @return the stored Words that were found
+	 */
+	public List<Word> query(String... words) {
+		List<Word> found = new ArrayList<>(words.length);
+		for (String w : words) {
+			Word word = lookup(w);
+			if (word != null)
+				found.add(word);
+		}
+		return found;
+	}
+	
+	/**
+	 * Prints the postings of the given words only, in the same format as the
+	 * matching report mode, without walking the rest of the tree. In the text
+	 * modes, words that have not been indexed are listed as not found; the
+	 * machine-readable modes leave them out.
+	 *
+	 * @param mode  a report mode accepted by {@link ReportFormatter#isMode(String)}
+	 * @param words the words to look up
+	 * @param out   the PrintStream to write to
+	 */
+	public void printQuery(String mode, String[] words, PrintStream out) {
+		if (!ReportFormatter.isMode(mode)) {
+			out.println("Unknown report mode: " + mode);
+			return;
+		}
+		boolean text = isReportMode(mode);
+		ReportFormatter formatter = ReportFormatter.forMode(mode, out);
+		try {
+			formatter.begin();
+			for (String w : words) {
+				Word word = lookup(w);
+				if (word != null)
+					formatter.write(word);
+				else if (text)
+					out.println(w + ": not found");
+			}
+			formatter.end();
+		} catch (IOException e) {
+			System.err.println("Report failed: " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Returns the most frequent words across all files. The best k are kept
+	 * until the repository changes, so later calls for at most k words only
+	 * copy them.
+	 *
+	 * @param k number of words wanted
+	 * @return up to k words, most frequent first, ties in alphabetical order
+	 */
+	public List<Word> topWords(int k) {
+		if (frequencies == null)
+			frequencies = new FrequencyIndex(tree);
+		return frequencies.top(k);
+	}
+	
+	/**
+	 * Returns the most frequent words in one file.
+	 *
+	 * @param file the filename, as it was indexed
+	 * @param k    number of words wanted
+	 * @return up to k words in the file, most frequent there first
+	 */
+	public List<Word> topWords(String file, int k) {
+		if (frequencies == null)
+			frequencies = new FrequencyIndex(tree);
+		return frequencies.top(file, k);
+	}
+	
+	/**
+	 * Prints a numbered top-k list, e.g. {@code 1. the (1234 times)}.
+	 *
+	 * @param k    number of words wanted
+	 * @param file a filename to rank within, or null for all files
+	 * @param out  the PrintStream to write to
+	 */
+	public void printTop(int k, String file, PrintStream out) {
+		List<Word> top = file == null ? topWords(k) : topWords(file, k);
+		int rank = 1;
+		for (Word w : top) {
+			int count = file == null ? w.getTotalCount() : w.getCount(file);
+			out.println(rank++ + ". " + w.getWord() + " (" + count + " times)");
+		}
+	}
+	
 	/**
      * Remove any recorded occurrences for the supplied filename across all Words
      * in the current tree. This is used so that rescanning a file will not cause
      * duplicated line records.
      *
+     * <p>Each Word is only touched by one thread, so large trees are cleared
+     * with a parallel stream.</p>
+     *
      * @param fileName filename whose occurrences should be cleared
      */
 	private void clearOccurrencesForFile(String fileName) {
 		if (tree == null) return;
-	    Iterator<Word> it = tree.inorderIterator();
-	    while (it.hasNext()) {
-	        Word w = it.next();
-	        w.removeOccurrences(fileName); 
-	    }
+		if (tree.size() >= PARALLEL_THRESHOLD) {
+			tree.parallelStream().forEach(w -> w.removeOccurrences(fileName));
+			return;
+		}
+		tree.forEachInOrder(w -> w.removeOccurrences(fileName));
 	}
 	
 	/**
      * Generate a report of the repository using the given output stream.
      *
-     * @param mode either "pf", "pl", or "po" (files only / files+lines / files+lines+frequency)
+     * @param mode "pf", "pl" or "po" (files only / files+lines / files+lines+frequency),
+     *             or "pj", "pc" or "pb" for JSON Lines, CSV or binary
      * @param out  the PrintStream to write the report to (e.g. {@code System.out} or a file stream)
      */
     public void generateReport(String mode, PrintStream out) {
+    	generateReport(mode, out, null);
+    }
+    
+    /**
+     * Generate a report of the words selected by the options.
+     *
+     * @param mode    a report mode accepted by {@link ReportFormatter#isMode(String)}
+     * @param out     the PrintStream to write the report to
+     * @param options filters, range and limit, or null for every word
+     */
+    public void generateReport(String mode, PrintStream out, ReportOptions options) {
     	if (tree == null) {
             out.println("No repository loaded.");
             return;
         }
     	
-        Iterator<Word> it = tree.inorderIterator();
-
-        while (it.hasNext()) {
-            Word w = it.next();
-            switch (mode) {
-                case "pf":
-                    out.println(w.toPrintFilesOnly());
-                    break;
-                case "pl":
-                    out.println(w.toPrintFilesAndLines());
-                    break;
-                case "po":
-                    out.println(w.toPrintFilesLinesFrequency());
-                    break;
-                default:
-                    out.println("Unknown report mode: " + mode);
-                    return;
-            }
+    	long start = System.nanoTime();
+    	try {
+    		writeReport(mode, out, options);
+    	} finally {
+    		if (metrics != null) metrics.histogram("phase.report").recordSince(start);
+    	}
+    }
+    
+    /**
+     * Writes every word, in order, through the given formatter. The tree is
+     * walked in place, without copying its words first.
+     *
+     * @param formatter the report format and destination
+     * @throws IOException if the formatter fails to write
+     * @throws IllegalStateException if no repository is loaded
+     */
+    public void generateReport(ReportFormatter formatter) throws IOException {
+    	generateReport(formatter, null);
+    }
+    
+    /**
+     * Writes the words selected by the options, in order, through the given
+     * formatter. Only the part of the tree inside the options' key range is
+     * walked.
+     *
+     * @param formatter the report format and destination
+     * @param options   filters, range and limit, or null for every word
+     * @throws IOException if the formatter fails to write
+     * @throws IllegalStateException if no repository is loaded
+     */
+    public void generateReport(ReportFormatter formatter, ReportOptions options) throws IOException {
+    	if (tree == null)
+    		throw new IllegalStateException("No repository loaded.");
+    	formatter.begin();
+    	if (options == null || options.isUnfiltered()) {
+    		try {
+    			tree.forEachInOrder(w -> {
+    				try {
+    					formatter.write(w);
+    				} catch (IOException e) {
+    					throw new UncheckedIOException(e);
+    				}
+    			});
+    		} catch (UncheckedIOException e) {
+    			throw e.getCause();
+    		}
+    	} else {
+    		options.write(tree, formatter);
+    	}
+    	formatter.end();
+    }
+    
+    /**
+     * Large unfiltered trees are formatted on several threads in the text
+     * modes; lines are still written in order, by the calling thread. With
+     * the report cache on, full reports go through {@link ReportCache}.
+     */
+    private void writeReport(String mode, PrintStream out, ReportOptions options) {
+        if (!ReportFormatter.isMode(mode)) {
+            out.println("Unknown report mode: " + mode);
+            return;
+        }
+        boolean full = options == null || options.isUnfiltered();
+        if (full && reportCache && ReportCache.isCacheable(mode)) {
+        	ReportCache cache = new ReportCache(ReportCache.fileFor(repositoryFile, mode), mode);
+        	try {
+        		cache.write(tree, out);
+        	} catch (IOException e) {
+        		System.err.println("Report failed: " + e.getMessage());
+        	}
+        	if (metrics != null) {
+        		metrics.counter("report.cache.hits").add(cache.hits());
+        		metrics.counter("report.cache.misses").add(cache.misses());
+        	}
+        	return;
+        }
+        if (isReportMode(mode) && full && tree.size() >= PARALLEL_THRESHOLD) {
+            tree.parallelStream()
+                .map(w -> formatWord(w, mode))
+                .forEachOrdered(out::println);
+            return;
+        }
+        try {
+        	generateReport(ReportFormatter.forMode(mode, out), options);
+        } catch (IOException e) {
+        	System.err.println("Report failed: " + e.getMessage());
         }
 	}
+    
+    /** @return true for the text modes "pf", "pl" and "po" */
+    static boolean isReportMode(String mode) {
+        return mode.equals("pf") || mode.equals("pl") || mode.equals("po");
+    }
+    
+    /**
+     * Formats one report line for a word.
+     *
+     * @param w    the word
+     * @param mode either "pf", "pl", or "po"
+     * @return the line, without a line separator
+     * @throws IllegalArgumentException if the mode is unknown
+     */
+    static String formatWord(Word w, String mode) {
+        switch (mode) {
+            case "pf":
+                return w.toPrintFilesOnly();
+            case "pl":
+                return w.toPrintFilesAndLines();
+            case "po":
+                return w.toPrintFilesLinesFrequency();
+            default:
+                throw new IllegalArgumentException("Unknown report mode: " + mode);
+        }
+    }
 }
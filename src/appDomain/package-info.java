@@ -17,6 +17,16 @@
  *             - Filenames where the word appears
  *             - Line numbers within each file
  *
+ *     • {@link appDomain.ReportFormatter}
+ *         Writes a report one Word at a time. {@link appDomain.ReportFormats}
+ *         holds the text, JSON Lines, CSV and binary formats, and a
+ *         reader for the binary one.
+ *
+ *     • {@link appDomain.ShardedRepository}
+ *         Splits the repository into key-range shards, in this process
+ *         or in separate {@link appDomain.IndexServer} processes, and
+ *         gathers their reports and lookups in key order.
+ *
  * Serialization:
  *     Classes in this package implement {@link java.io.Serializable}
  *     because they are stored and retrieved from a persistent
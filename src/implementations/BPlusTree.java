@@ -0,0 +1,582 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+/**
+ * A B+-tree implementation of {@link BSTreeADT} with high fan-out nodes.
+ *
+ * <p>Each node keeps its keys in a sorted array, so one node visit replaces
+ * several binary-node pointer hops and lookups inside a node are a binary
+ * search over contiguous references. All elements live in the leaves; inner
+ * nodes only hold separator keys. Leaves are linked left to right, so the
+ * in-order iterator walks the leaf chain directly instead of copying the
+ * tree into a list.</p>
+ *
+ * <p>Because the ADT is defined in terms of {@link BSTreeNode}, methods that
+ * return a node ({@link #getRoot()}, {@link #search(Comparable)},
+ * {@link #removeMin()}, {@link #removeMax()}) return a detached node that
+ * wraps the element. {@link #getHeight()} counts node levels, not elements on
+ * a path.</p>
+ *
+ * <p>Removal only happens at the two ends of the tree, so leaves are allowed
+ * to shrink below half full and are unlinked once empty instead of being
+ * merged with a sibling.</p>
+ *
+ * @param <E> The type stored in the tree, must be Comparable
+ */
+public class BPlusTree<E extends Comparable<? super E>> implements BSTreeADT<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Smallest supported fan-out */
+    public static final int MIN_ORDER = 32;
+
+    /** Largest supported fan-out */
+    public static final int MAX_ORDER = 256;
+
+    /** Fan-out used by the default constructor */
+    public static final int DEFAULT_ORDER = 64;
+
+    /** Maximum number of children per inner node and of elements per leaf */
+    private final int order;
+
+    /** Root node, or null when the tree is empty */
+    private Node root;
+
+    /** Leftmost and rightmost leaves; rebuilt after deserialization */
+    private transient Leaf firstLeaf;
+    private transient Leaf lastLeaf;
+
+    /** Number of elements currently in the tree */
+    private int size;
+
+    /** Number of node levels; 0 when empty */
+    private int height;
+
+    /** Separator and new right sibling produced by the last split during insert */
+    private transient Object splitKey;
+    private transient Node splitNode;
+
+    // ------------------------------------------------------------
+    // NODES
+    // ------------------------------------------------------------
+
+    /** Common node state: a sorted key array and the number of keys in use. */
+    private abstract static class Node implements Serializable {
+        private static final long serialVersionUID = 1L;
+        Object[] keys;
+        int count;
+    }
+
+    /** Leaf node holding elements; neighbours are linked for in-order scans. */
+    private static final class Leaf extends Node {
+        private static final long serialVersionUID = 1L;
+        transient Leaf prev;
+        transient Leaf next;
+
+        Leaf(int order) {
+            keys = new Object[order + 1];
+        }
+    }
+
+    /** Inner node holding {@code count} separators and {@code count + 1} children. */
+    private static final class Inner extends Node {
+        private static final long serialVersionUID = 1L;
+        Node[] children;
+
+        Inner(int order) {
+            keys = new Object[order];
+            children = new Node[order + 1];
+        }
+    }
+
+    // ------------------------------------------------------------
+    // CONSTRUCTORS
+    // ------------------------------------------------------------
+
+    /**
+     * Default constructor. Creates an empty tree with {@link #DEFAULT_ORDER}.
+     */
+    public BPlusTree() {
+        this(DEFAULT_ORDER);
+    }
+
+    /**
+     * Creates an empty tree with the given fan-out.
+     *
+     * @param order maximum children per inner node and elements per leaf
+     * @throws IllegalArgumentException if order is outside
+     *         {@link #MIN_ORDER}..{@link #MAX_ORDER}
+     */
+    public BPlusTree(int order) {
+        if (order < MIN_ORDER || order > MAX_ORDER)
+            throw new IllegalArgumentException("Order must be between " + MIN_ORDER
+                    + " and " + MAX_ORDER + ": " + order);
+        this.order = order;
+    }
+
+    /** @return the fan-out this tree was created with */
+    public int getOrder() {
+        return order;
+    }
+
+    // ------------------------------------------------------------
+    // BASIC TREE METHODS
+    // ------------------------------------------------------------
+
+    /**
+     * Returns a detached node holding the first key of the root node.
+     *
+     * @return BSTreeNode wrapping the root's first key
+     * @throws NullPointerException if tree is empty
+     */
+    @Override
+    public BSTreeNode<E> getRoot() throws NullPointerException {
+        if (root == null)
+            throw new NullPointerException("Tree is empty.");
+        return new BSTreeNode<>(key(root, 0));
+    }
+
+    /**
+     * Returns the number of node levels. Height of an empty tree is 0 and a
+     * tree whose root is a leaf has height 1.
+     */
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /** @return number of elements in the tree */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** @return true if tree contains no elements */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all elements from the tree */
+    @Override
+    public void clear() {
+        root = null;
+        firstLeaf = null;
+        lastLeaf = null;
+        size = 0;
+        height = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E key(Node node, int i) {
+        return (E) node.keys[i];
+    }
+
+    /**
+     * Binary search over the used part of a node's key array.
+     *
+     * @return the index of the key, or {@code -(insertionPoint + 1)}
+     */
+    private int find(Node node, E entry) {
+        int lo = 0;
+        int hi = node.count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = entry.compareTo(key(node, mid));
+            if (cmp > 0)
+                lo = mid + 1;
+            else if (cmp < 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+        return -(lo + 1);
+    }
+
+    /** Index of the child of an inner node whose key range covers the entry. */
+    private int childIndex(Inner node, E entry) {
+        int pos = find(node, entry);
+        return pos >= 0 ? pos + 1 : -(pos + 1);
+    }
+
+    // ------------------------------------------------------------
+    // SEARCH
+    // ------------------------------------------------------------
+
+    /**
+     * Checks if a value exists in the tree.
+     *
+     * @param entry value to find
+     * @return true if found, false otherwise
+     */
+    @Override
+    public boolean contains(E entry) {
+        if (entry == null)
+            throw new NullPointerException("Cannot search for null.");
+        return search(entry) != null;
+    }
+
+    /**
+     * Searches the tree and returns a detached node wrapping the stored element.
+     *
+     * @param entry value to find
+     * @return BSTreeNode wrapping the stored element if found, otherwise null
+     */
+    @Override
+    public BSTreeNode<E> search(E entry) {
+        if (entry == null)
+            throw new NullPointerException("Cannot search for null.");
+        if (root == null)
+            return null;
+
+        Node node = root;
+        while (node instanceof Inner) {
+            Inner inner = (Inner) node;
+            node = inner.children[childIndex(inner, entry)];
+        }
+        int pos = find(node, entry);
+        return pos >= 0 ? new BSTreeNode<>(key(node, pos)) : null;
+    }
+
+    // ------------------------------------------------------------
+    // INSERTION
+    // ------------------------------------------------------------
+
+    /**
+     * Inserts a new entry into the tree.
+     *
+     * @param newEntry value to insert
+     * @return true if inserted, false if duplicate
+     */
+    @Override
+    public boolean add(E newEntry) {
+        if (newEntry == null)
+            throw new NullPointerException("Cannot insert null.");
+
+        if (root == null) {
+            Leaf leaf = new Leaf(order);
+            leaf.keys[0] = newEntry;
+            leaf.count = 1;
+            root = firstLeaf = lastLeaf = leaf;
+            size = 1;
+            height = 1;
+            return true;
+        }
+
+        int before = size;
+        splitNode = null;
+        insert(root, newEntry);
+        if (splitNode != null) {
+            Inner newRoot = new Inner(order);
+            newRoot.keys[0] = splitKey;
+            newRoot.children[0] = root;
+            newRoot.children[1] = splitNode;
+            newRoot.count = 1;
+            root = newRoot;
+            height++;
+            splitKey = null;
+            splitNode = null;
+        }
+        return size > before;
+    }
+
+    /**
+     * Recursive insert helper. When the node overflows it is split and the new
+     * right sibling and its separator are left in {@link #splitNode} and
+     * {@link #splitKey} for the caller to link in.
+     */
+    private void insert(Node node, E entry) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int pos = find(leaf, entry);
+            if (pos >= 0)
+                return; // duplicate not allowed
+            pos = -(pos + 1);
+            System.arraycopy(leaf.keys, pos, leaf.keys, pos + 1, leaf.count - pos);
+            leaf.keys[pos] = entry;
+            leaf.count++;
+            size++;
+            if (leaf.count > order)
+                splitLeaf(leaf);
+            return;
+        }
+
+        Inner inner = (Inner) node;
+        int child = childIndex(inner, entry);
+        insert(inner.children[child], entry);
+        if (splitNode == null)
+            return;
+
+        System.arraycopy(inner.keys, child, inner.keys, child + 1, inner.count - child);
+        System.arraycopy(inner.children, child + 1, inner.children, child + 2, inner.count - child);
+        inner.keys[child] = splitKey;
+        inner.children[child + 1] = splitNode;
+        inner.count++;
+        splitNode = null;
+        if (inner.count + 1 > order)
+            splitInner(inner);
+    }
+
+    /** Moves the upper half of an overfull leaf into a new right sibling. */
+    private void splitLeaf(Leaf leaf) {
+        int keep = leaf.count / 2;
+        Leaf right = new Leaf(order);
+        right.count = leaf.count - keep;
+        System.arraycopy(leaf.keys, keep, right.keys, 0, right.count);
+        Arrays.fill(leaf.keys, keep, leaf.count, null);
+        leaf.count = keep;
+
+        right.next = leaf.next;
+        right.prev = leaf;
+        if (leaf.next != null)
+            leaf.next.prev = right;
+        else
+            lastLeaf = right;
+        leaf.next = right;
+
+        splitKey = right.keys[0];
+        splitNode = right;
+    }
+
+    /** Moves the upper half of an overfull inner node into a new right sibling. */
+    private void splitInner(Inner inner) {
+        int keepChildren = (inner.count + 2) / 2;
+        Inner right = new Inner(order);
+        right.count = inner.count - keepChildren;
+        System.arraycopy(inner.keys, keepChildren, right.keys, 0, right.count);
+        System.arraycopy(inner.children, keepChildren, right.children, 0, right.count + 1);
+
+        splitKey = inner.keys[keepChildren - 1];
+        Arrays.fill(inner.keys, keepChildren - 1, inner.count, null);
+        Arrays.fill(inner.children, keepChildren, inner.count + 1, null);
+        inner.count = keepChildren - 1;
+        splitNode = right;
+    }
+
+    // ------------------------------------------------------------
+    // REMOVE MIN / MAX
+    // ------------------------------------------------------------
+
+    /**
+     * Removes and returns the smallest element.
+     *
+     * @return detached BSTreeNode wrapping the removed element, or null if tree is empty
+     */
+    @Override
+    public BSTreeNode<E> removeMin() {
+        if (root == null) return null;
+        E removed = key(firstLeaf, 0);
+        removeEdge(root, true);
+        afterRemove();
+        return new BSTreeNode<>(removed);
+    }
+
+    /**
+     * Removes and returns the largest element.
+     *
+     * @return detached BSTreeNode wrapping the removed element, or null if tree is empty
+     */
+    @Override
+    public BSTreeNode<E> removeMax() {
+        if (root == null) return null;
+        E removed = key(lastLeaf, lastLeaf.count - 1);
+        removeEdge(root, false);
+        afterRemove();
+        return new BSTreeNode<>(removed);
+    }
+
+    /**
+     * Removes the first or last element below the given node, unlinking any
+     * node that becomes empty on the way back up.
+     *
+     * @return true if the node is now empty and should be removed from its parent
+     */
+    private boolean removeEdge(Node node, boolean leftmost) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            if (leftmost)
+                System.arraycopy(leaf.keys, 1, leaf.keys, 0, leaf.count - 1);
+            leaf.keys[--leaf.count] = null;
+            size--;
+            if (leaf.count > 0)
+                return false;
+            unlink(leaf);
+            return true;
+        }
+
+        Inner inner = (Inner) node;
+        int child = leftmost ? 0 : inner.count;
+        if (!removeEdge(inner.children[child], leftmost))
+            return false;
+
+        if (inner.count == 0) {
+            inner.children[0] = null;
+            return true;
+        }
+        if (leftmost) {
+            System.arraycopy(inner.keys, 1, inner.keys, 0, inner.count - 1);
+            System.arraycopy(inner.children, 1, inner.children, 0, inner.count);
+        }
+        inner.keys[inner.count - 1] = null;
+        inner.children[inner.count] = null;
+        inner.count--;
+        return false;
+    }
+
+    /** Removes an empty leaf from the leaf chain. */
+    private void unlink(Leaf leaf) {
+        if (leaf.prev != null)
+            leaf.prev.next = leaf.next;
+        else
+            firstLeaf = leaf.next;
+        if (leaf.next != null)
+            leaf.next.prev = leaf.prev;
+        else
+            lastLeaf = leaf.prev;
+    }
+
+    /** Drops the root when the tree became empty or the root has a single child. */
+    private void afterRemove() {
+        if (size == 0) {
+            clear();
+            return;
+        }
+        while (root instanceof Inner && root.count == 0) {
+            root = ((Inner) root).children[0];
+            height--;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // ITERATORS
+    // ------------------------------------------------------------
+
+    /**
+     * @return an iterator that walks the linked leaves in natural order
+     */
+    @Override
+    public Iterator<E> inorderIterator() {
+        return new Iterator<E>() {
+            private Leaf leaf = firstLeaf;
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return leaf != null;
+            }
+
+            @Override
+            public E next() {
+                if (leaf == null)
+                    throw new NoSuchElementException("No more elements.");
+                E element = key(leaf, index++);
+                if (index >= leaf.count) {
+                    leaf = leaf.next;
+                    index = 0;
+                }
+                return element;
+            }
+        };
+    }
+
+    /**
+     * Visits the elements between the bounds in order: one descent finds the
+     * leaf holding {@code low}, then the linked leaves are scanned until an
+     * element passes {@code high}.
+     *
+     * @param low    smallest element to visit, inclusive, or null for no bound
+     * @param high   largest element to visit, inclusive, or null for no bound
+     * @param action called on each element; returns false to stop the walk
+     * @throws NullPointerException if action is null
+     */
+    @Override
+    public void forEachInRange(E low, E high, Predicate<? super E> action) {
+        if (action == null)
+            throw new NullPointerException("Action cannot be null.");
+        if (root == null)
+            return;
+        Leaf leaf = firstLeaf;
+        int index = 0;
+        if (low != null) {
+            Node node = root;
+            while (node instanceof Inner) {
+                Inner inner = (Inner) node;
+                node = inner.children[childIndex(inner, low)];
+            }
+            leaf = (Leaf) node;
+            int pos = find(leaf, low);
+            index = pos >= 0 ? pos : -(pos + 1);
+        }
+        for (; leaf != null; leaf = leaf.next, index = 0) {
+            for (; index < leaf.count; index++) {
+                E e = key(leaf, index);
+                if (high != null && e.compareTo(high) > 0)
+                    return;
+                if (!action.test(e))
+                    return;
+            }
+        }
+    }
+
+    /**
+     * Elements are stored only in the leaves, so there is no element to visit
+     * before a node's children; this returns the leaf elements in order.
+     *
+     * @return an iterator over the leaf elements
+     */
+    @Override
+    public Iterator<E> preorderIterator() {
+        return inorderIterator();
+    }
+
+    /**
+     * Elements are stored only in the leaves, so there is no element to visit
+     * after a node's children; this returns the leaf elements in order.
+     *
+     * @return an iterator over the leaf elements
+     */
+    @Override
+    public Iterator<E> postorderIterator() {
+        return inorderIterator();
+    }
+
+    // ------------------------------------------------------------
+    // SERIALIZATION
+    // ------------------------------------------------------------
+
+    /**
+     * The leaf links are transient so that serialization does not recurse
+     * along the whole leaf chain; they are relinked here from the tree shape.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        firstLeaf = null;
+        lastLeaf = null;
+        if (root != null)
+            relink(root);
+    }
+
+    private void relink(Node node) {
+        if (node instanceof Inner) {
+            Inner inner = (Inner) node;
+            for (int i = 0; i <= inner.count; i++)
+                relink(inner.children[i]);
+            return;
+        }
+        Leaf leaf = (Leaf) node;
+        leaf.prev = lastLeaf;
+        if (lastLeaf != null)
+            lastLeaf.next = leaf;
+        else
+            firstLeaf = leaf;
+        lastLeaf = leaf;
+    }
+}
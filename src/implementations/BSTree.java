@@ -1,8 +1,16 @@
 package implementations;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import utilities.BSTreeADT;
 import utilities.Iterator;
 
@@ -14,6 +22,23 @@ import utilities.Iterator;
  *
  * <p>The BST enforces the natural ordering of elements via Comparable. Duplicate
  * values are not allowed.</p>
+ *
+ * <p>The tree keeps a histogram of node depths up to date on every insertion
+ * and removal, so {@link #getHeight()}, {@link #getAverageDepth()} and
+ * {@link #getImbalance()} are O(1) instead of a walk over every node. With a
+ * rebuild factor set, an insertion that lands deeper than
+ * {@code factor * log2(size)} rebuilds the smallest enclosing subtree that
+ * is itself too tall into a perfectly balanced one, as in a scapegoat tree;
+ * degenerate inputs such as sorted words then cost O(log n) amortized per
+ * insertion instead of O(n). Rebuilding is off by default, which keeps the
+ * classic insertion-order shape.</p>
+ *
+ * <p>Besides the three list-backed iterators, {@link #forEachInOrder(Consumer)}
+ * walks the tree with a stack sized from the known height, and
+ * {@link #spliterator()} splits by subtree, so {@link #parallelStream()}
+ * hands the left and right halves of the tree to different threads. Neither
+ * detects concurrent modification: the tree must not change during a
+ * traversal.</p>
  * 
  * @param <E> The type stored in the tree, must be Comparable
  */
@@ -27,6 +52,24 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     /** Number of nodes currently in the tree */
     private int size;
 
+    /** Number of nodes at each depth, the root being at depth 0 */
+    private transient int[] depthCounts = new int[16];
+
+    /** Deepest depth holding a node, or -1 when empty */
+    private transient int maxDepth = -1;
+
+    /** Sum of all node depths */
+    private transient long sumDepth;
+
+    /** Depth of the node created by the last successful insertion */
+    private transient int lastInsertDepth;
+
+    /** Height limit as a multiple of log2(size), or 0 for no rebuilding */
+    private double rebuildFactor;
+
+    /** Number of subtree rebuilds performed */
+    private transient int rebuilds;
+
     // ------------------------------------------------------------
     // CONSTRUCTORS
     // ------------------------------------------------------------
@@ -51,6 +94,7 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
             throw new NullPointerException("Root value cannot be null.");
         root = new BSTreeNode<>(rootData);
         size = 1;
+        recordDepth(0);
     }
 
     // ------------------------------------------------------------
@@ -71,19 +115,12 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     }
 
     /**
-     * Computes the height of the BST.
+     * Returns the height of the BST from the maintained depth histogram.
      * Height of an empty tree is 0.
      */
     @Override
     public int getHeight() {
-        return root == null ? 0 : getHeightRecursive(root);
-    }
-
-    /** Recursive height helper */
-    private int getHeightRecursive(BSTreeNode<E> node) {
-        if (node == null)
-            return 0;
-        return 1 + Math.max(getHeightRecursive(node.left), getHeightRecursive(node.right));
+        return maxDepth + 1;
     }
 
     /** @return number of nodes in the tree */
@@ -103,6 +140,148 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     public void clear() {
         root = null;
         size = 0;
+        resetShape();
+    }
+
+    // ------------------------------------------------------------
+    // SHAPE STATISTICS
+    // ------------------------------------------------------------
+
+    /**
+     * @return the mean depth of a node (root = 0), or 0 for an empty tree;
+     *         an unsuccessful search costs about this many comparisons plus one
+     */
+    public double getAverageDepth() {
+        return size == 0 ? 0 : (double) sumDepth / size;
+    }
+
+    /**
+     * @return the number of nodes at each depth, index 0 being the root;
+     *         the array's length is the tree's height
+     */
+    public int[] getDepthHistogram() {
+        return Arrays.copyOf(depthCounts, maxDepth + 1);
+    }
+
+    /**
+     * Compares the height with that of a perfectly balanced tree of the same
+     * size, {@code ceil(log2(size + 1))}.
+     *
+     * @return 1.0 for a perfectly balanced tree, more for a taller one, and
+     *         0 for an empty tree
+     */
+    public double getImbalance() {
+        if (size == 0)
+            return 0;
+        int optimal = 32 - Integer.numberOfLeadingZeros(size);
+        return (double) getHeight() / optimal;
+    }
+
+    /**
+     * Turns automatic rebuilding on or off. With a factor set, any insertion
+     * deeper than {@code factor * log2(size + 1)} triggers a rebuild of the
+     * scapegoat subtree, so the height stays within that bound. Smaller
+     * factors keep the tree flatter at the cost of more frequent rebuilds.
+     *
+     * @param factor allowed height as a multiple of log2(size + 1), greater
+     *               than 1, or 0 to turn rebuilding off
+     * @throws IllegalArgumentException if factor is neither 0 nor greater than 1
+     */
+    public void setRebuildFactor(double factor) {
+        if (factor != 0 && !(factor > 1))
+            throw new IllegalArgumentException("Rebuild factor must be 0 or greater than 1.");
+        this.rebuildFactor = factor;
+    }
+
+    /** @return the rebuild factor, 0 if rebuilding is off */
+    public double getRebuildFactor() {
+        return rebuildFactor;
+    }
+
+    /** @return the number of subtree rebuilds since the tree was created or loaded */
+    public int getRebuildCount() {
+        return rebuilds;
+    }
+
+    private void recordDepth(int depth) {
+        if (depth >= depthCounts.length)
+            depthCounts = Arrays.copyOf(depthCounts, Math.max(depthCounts.length * 2, depth + 1));
+        depthCounts[depth]++;
+        sumDepth += depth;
+        if (depth > maxDepth)
+            maxDepth = depth;
+    }
+
+    private void forgetDepth(int depth) {
+        depthCounts[depth]--;
+        sumDepth -= depth;
+        while (maxDepth >= 0 && depthCounts[maxDepth] == 0)
+            maxDepth--;
+    }
+
+    private void resetShape() {
+        depthCounts = new int[16];
+        maxDepth = -1;
+        sumDepth = 0;
+    }
+
+    /**
+     * Moves every node of a subtree by {@code shift} levels in the
+     * histogram, walking it without recursion.
+     *
+     * @return the number of nodes in the subtree
+     */
+    private int shiftDepths(BSTreeNode<E> node, int depth, int shift) {
+        if (node == null)
+            return 0;
+        int count = 0;
+        ArrayDeque<BSTreeNode<E>> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        nodes.push(node);
+        depths.push(depth);
+        while (!nodes.isEmpty()) {
+            BSTreeNode<E> n = nodes.pop();
+            int d = depths.pop();
+            depthCounts[d]--;
+            sumDepth -= d;
+            recordDepth(d + shift);
+            count++;
+            if (n.left != null) {
+                nodes.push(n.left);
+                depths.push(d + 1);
+            }
+            if (n.right != null) {
+                nodes.push(n.right);
+                depths.push(d + 1);
+            }
+        }
+        while (maxDepth >= 0 && depthCounts[maxDepth] == 0)
+            maxDepth--;
+        return count;
+    }
+
+    /** Recomputes the depth histogram with one walk over the tree. */
+    private void recomputeShape() {
+        resetShape();
+        if (root == null)
+            return;
+        ArrayDeque<BSTreeNode<E>> nodes = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        nodes.push(root);
+        depths.push(0);
+        while (!nodes.isEmpty()) {
+            BSTreeNode<E> n = nodes.pop();
+            int d = depths.pop();
+            recordDepth(d);
+            if (n.left != null) {
+                nodes.push(n.left);
+                depths.push(d + 1);
+            }
+            if (n.right != null) {
+                nodes.push(n.right);
+                depths.push(d + 1);
+            }
+        }
     }
 
     // ------------------------------------------------------------
@@ -167,14 +346,19 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         if (root == null) {
             root = new BSTreeNode<>(newEntry);
             size++;
+            recordDepth(0);
             return true;
         }
 
-        return insertRecursive(root, newEntry);
+        if (!insertRecursive(root, newEntry, 0))
+            return false;
+        if (rebuildFactor > 0 && lastInsertDepth + 1 > rebuildFactor * log2(size + 1))
+            rebuildScapegoat(newEntry);
+        return true;
     }
 
     /** Recursive insert helper */
-    private boolean insertRecursive(BSTreeNode<E> node, E entry) {
+    private boolean insertRecursive(BSTreeNode<E> node, E entry, int depth) {
         int cmp = entry.compareTo(node.data);
 
         if (cmp == 0)
@@ -184,17 +368,131 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
             if (node.left == null) {
                 node.left = new BSTreeNode<>(entry);
                 size++;
+                lastInsertDepth = depth + 1;
+                recordDepth(depth + 1);
                 return true;
             }
-            return insertRecursive(node.left, entry);
+            return insertRecursive(node.left, entry, depth + 1);
         } else {
             if (node.right == null) {
                 node.right = new BSTreeNode<>(entry);
                 size++;
+                lastInsertDepth = depth + 1;
+                recordDepth(depth + 1);
                 return true;
             }
-            return insertRecursive(node.right, entry);
+            return insertRecursive(node.right, entry, depth + 1);
+        }
+    }
+
+    // ------------------------------------------------------------
+    // SCAPEGOAT REBUILD
+    // ------------------------------------------------------------
+
+    private static double log2(int n) {
+        return Math.log(n) / Math.log(2);
+    }
+
+    /**
+     * Walks up from the node just inserted to the first ancestor whose
+     * subtree is taller than {@code rebuildFactor * log2(subtree size + 1)}
+     * and rebuilds that subtree balanced. The whole tree violates the bound,
+     * so such an ancestor always exists. Costs O(size of the scapegoat's
+     * subtree), which the insertions that made it tall pay for.
+     */
+    private void rebuildScapegoat(E entry) {
+        // the path from the root to the new node, comparing as the insert did
+        BSTreeNode<E>[] path = newPath(lastInsertDepth + 1);
+        BSTreeNode<E> node = root;
+        for (int d = 0; d <= lastInsertDepth; d++) {
+            path[d] = node;
+            int cmp = entry.compareTo(node.data);
+            node = cmp < 0 ? node.left : node.right;
+        }
+
+        int subtreeSize = 1;
+        for (int d = lastInsertDepth - 1; d >= 0; d--) {
+            BSTreeNode<E> parent = path[d];
+            BSTreeNode<E> sibling = parent.left == path[d + 1] ? parent.right : parent.left;
+            subtreeSize += 1 + count(sibling);
+            int subtreeHeight = lastInsertDepth - d + 1;
+            if (subtreeHeight > rebuildFactor * log2(subtreeSize + 1)) {
+                BSTreeNode<E> rebuilt = rebuild(parent, d, subtreeSize);
+                if (d == 0)
+                    root = rebuilt;
+                else if (path[d - 1].left == parent)
+                    path[d - 1].left = rebuilt;
+                else
+                    path[d - 1].right = rebuilt;
+                rebuilds++;
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <E extends Comparable<? super E>> BSTreeNode<E>[] newPath(int length) {
+        return (BSTreeNode<E>[]) new BSTreeNode<?>[length];
+    }
+
+    /** Counts the nodes of a subtree without recursion. */
+    private int count(BSTreeNode<E> node) {
+        if (node == null)
+            return 0;
+        int count = 0;
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            BSTreeNode<E> n = stack.pop();
+            count++;
+            if (n.left != null) stack.push(n.left);
+            if (n.right != null) stack.push(n.right);
+        }
+        return count;
+    }
+
+    /**
+     * Relinks the nodes of a subtree into a perfectly balanced shape and
+     * updates the depth histogram.
+     *
+     * @param top   the subtree's root
+     * @param depth depth of top in the whole tree
+     * @param n     number of nodes in the subtree
+     * @return the new root of the subtree
+     */
+    private BSTreeNode<E> rebuild(BSTreeNode<E> top, int depth, int n) {
+        BSTreeNode<E>[] nodes = newPath(n);
+        int i = 0;
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        ArrayDeque<Integer> depths = new ArrayDeque<>();
+        BSTreeNode<E> node = top;
+        int d = depth;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                depths.push(d++);
+                node = node.left;
+            }
+            node = stack.pop();
+            d = depths.pop();
+            forgetDepth(d);
+            nodes[i++] = node;
+            node = node.right;
+            d++;
         }
+        return link(nodes, 0, n - 1, depth);
+    }
+
+    /** Links sorted nodes lo..hi into a balanced subtree rooted at the given depth. */
+    private BSTreeNode<E> link(BSTreeNode<E>[] nodes, int lo, int hi, int depth) {
+        if (lo > hi)
+            return null;
+        int mid = (lo + hi) >>> 1;
+        BSTreeNode<E> node = nodes[mid];
+        recordDepth(depth);
+        node.left = link(nodes, lo, mid - 1, depth + 1);
+        node.right = link(nodes, mid + 1, hi, depth + 1);
+        return node;
     }
 
     // ------------------------------------------------------------
@@ -214,19 +512,25 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
             BSTreeNode<E> removed = root;
             root = root.right;
             size--;
+            shiftDepths(root, 1, -1);
+            forgetDepth(0);
             return removed;
         }
 
         BSTreeNode<E> parent = root;
         BSTreeNode<E> current = root.left;
+        int depth = 1;
 
         while (current.left != null) {
             parent = current;
             current = current.left;
+            depth++;
         }
 
         parent.left = current.right;
         size--;
+        shiftDepths(current.right, depth + 1, -1);
+        forgetDepth(depth);
         return current;
     }
 
@@ -243,22 +547,38 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
             BSTreeNode<E> removed = root;
             root = root.left;
             size--;
+            shiftDepths(root, 1, -1);
+            forgetDepth(0);
             return removed;
         }
 
         BSTreeNode<E> parent = root;
         BSTreeNode<E> current = root.right;
+        int depth = 1;
 
         while (current.right != null) {
             parent = current;
             current = current.right;
+            depth++;
         }
 
         parent.right = current.left;
         size--;
+        shiftDepths(current.left, depth + 1, -1);
+        forgetDepth(depth);
         return current;
     }
 
+    // ------------------------------------------------------------
+    // SERIALIZATION
+    // ------------------------------------------------------------
+
+    /** Restores the nodes, then rebuilds the shape statistics, which are not saved. */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        recomputeShape();
+    }
+
     // ------------------------------------------------------------
     // ITERATOR IMPLEMENTATION
     // ------------------------------------------------------------
@@ -291,6 +611,82 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
     // INORDER
     // ------------------------------------------------------------
 
+    /**
+     * Performs the action on every element in order without copying them
+     * into a list first.
+     *
+     * @param action the action to perform on each element
+     * @throws NullPointerException if action is null
+     */
+    @Override
+    public void forEachInOrder(Consumer<? super E> action) {
+        if (action == null)
+            throw new NullPointerException("Action cannot be null.");
+        BSTreeNode<E>[] stack = newPath(getHeight());
+        int top = 0;
+        BSTreeNode<E> node = root;
+        while (node != null || top > 0) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.left;
+            }
+            node = stack[--top];
+            action.accept(node.data);
+            node = node.right;
+        }
+    }
+
+    /**
+     * Visits the elements between the bounds in order. Left subtrees of
+     * nodes below {@code low} are never entered, and the walk ends at the
+     * first element above {@code high}, so the cost is the height plus the
+     * number of elements visited.
+     *
+     * @param low    smallest element to visit, inclusive, or null for no bound
+     * @param high   largest element to visit, inclusive, or null for no bound
+     * @param action called on each element; returns false to stop the walk
+     * @throws NullPointerException if action is null
+     */
+    @Override
+    public void forEachInRange(E low, E high, Predicate<? super E> action) {
+        if (action == null)
+            throw new NullPointerException("Action cannot be null.");
+        BSTreeNode<E>[] stack = newPath(getHeight());
+        int top = 0;
+        BSTreeNode<E> node = root;
+        // push the path to the first element >= low
+        while (node != null) {
+            if (low != null && node.data.compareTo(low) < 0) {
+                node = node.right;
+            } else {
+                stack[top++] = node;
+                node = node.left;
+            }
+        }
+        while (top > 0) {
+            node = stack[--top];
+            if (high != null && node.data.compareTo(high) > 0)
+                return;
+            if (!action.test(node.data))
+                return;
+            for (node = node.right; node != null; node = node.left)
+                stack[top++] = node;
+        }
+    }
+
+    /**
+     * Creates a Spliterator that splits off the left subtree of the part it
+     * covers, so each split roughly halves the work of a reasonably shaped
+     * tree. It reports ORDERED, SORTED, DISTINCT and NONNULL, and SIZED
+     * until it is first split; split-off parts only estimate their size.
+     *
+     * @return a Spliterator over the elements in order
+     */
+    @Override
+    public Spliterator<E> spliterator() {
+        return new TreeSpliterator<>(null, root, size, getHeight(), true);
+    }
+
     /**
      * @return an iterator that traverses the tree inorder (L, Root, R)
      */
@@ -308,6 +704,112 @@ public class BSTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Se
         inorder(node.right, list);
     }
 
+    /**
+     * Covers one optional element followed by a whole subtree, all smaller
+     * elements belonging to the spliterators split off earlier. Splitting
+     * hands out the element and the subtree's left half and keeps the
+     * subtree's root and right half. Traversal uses a stack of at most the
+     * subtree's height.
+     */
+    private static final class TreeSpliterator<E extends Comparable<? super E>> implements Spliterator<E> {
+        private BSTreeNode<E> first;
+        private BSTreeNode<E> subtree;
+        private long estimate;
+        private final int height;
+        private boolean sized;
+
+        /** Traversal stack, null until the first element is taken */
+        private BSTreeNode<E>[] stack;
+        private int top;
+
+        TreeSpliterator(BSTreeNode<E> first, BSTreeNode<E> subtree, long estimate, int height, boolean sized) {
+            this.first = first;
+            this.subtree = subtree;
+            this.estimate = estimate;
+            this.height = height;
+            this.sized = sized;
+        }
+
+        @Override
+        public Spliterator<E> trySplit() {
+            if (stack != null || subtree == null)
+                return null;
+            if (first == null && subtree.left == null) {
+                // nothing smaller than the subtree's root: hand out just the root
+                Spliterator<E> prefix = new TreeSpliterator<>(subtree, null, 1, height, false);
+                subtree = subtree.right;
+                estimate = Math.max(estimate - 1, 0);
+                sized = false;
+                return prefix;
+            }
+            long half = estimate >>> 1;
+            Spliterator<E> prefix = new TreeSpliterator<>(first, subtree.left, half, height, false);
+            first = subtree;
+            subtree = subtree.right;
+            estimate -= half;
+            sized = false;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super E> action) {
+            if (action == null)
+                throw new NullPointerException("Action cannot be null.");
+            if (stack == null)
+                start();
+            E e;
+            if (first != null) {
+                e = first.data;
+                first = null;
+            } else if (top > 0) {
+                BSTreeNode<E> node = stack[--top];
+                pushLeft(node.right);
+                e = node.data;
+            } else {
+                return false;
+            }
+            if (estimate > 0)
+                estimate--;
+            action.accept(e);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super E> action) {
+            while (tryAdvance(action)) {
+                // each call emits one element
+            }
+        }
+
+        private void start() {
+            stack = newPath(height);
+            pushLeft(subtree);
+            subtree = null;
+        }
+
+        private void pushLeft(BSTreeNode<E> node) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.left;
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | (sized ? SIZED : 0);
+        }
+
+        @Override
+        public Comparator<? super E> getComparator() {
+            return null; // natural order
+        }
+    }
+
     // ------------------------------------------------------------
     // PREORDER
     // ------------------------------------------------------------
@@ -0,0 +1,190 @@
+package implementations;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+/**
+ * A frozen, read-only search tree stored in a single contiguous array using
+ * the Eytzinger (breadth-first) layout.
+ *
+ * <p>Slot {@code 1} holds the root and the children of slot {@code k} live in
+ * slots {@code 2k} and {@code 2k + 1}, so a search walks forward through one
+ * array instead of chasing {@link BSTreeNode} pointers. The top levels of the
+ * tree share a handful of cache lines, and each descent step only decides
+ * between two adjacent slots, which keeps the loop free of unpredictable
+ * branches and lets the hardware prefetcher run ahead.</p>
+ *
+ * <p>The tree is built once from any {@link BSTreeADT} and is always perfectly
+ * balanced. The stored elements are the same references held by the source
+ * tree, so for {@code Word} elements the posting data is shared rather than
+ * copied. Later changes to the source tree are not reflected here; build a
+ * new instance instead.</p>
+ *
+ * @param <E> The type stored in the tree, must be Comparable
+ */
+public class EytzingerTree<E extends Comparable<? super E>> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Elements in Eytzinger order; slot 0 is unused. */
+    private final Object[] keys;
+
+    /** Number of elements stored in the tree */
+    private final int size;
+
+    // ------------------------------------------------------------
+    // CONSTRUCTORS
+    // ------------------------------------------------------------
+
+    /**
+     * Builds a frozen copy of the given tree.
+     *
+     * @param source tree whose elements should be laid out
+     * @throws NullPointerException if source is null
+     */
+    public EytzingerTree(BSTreeADT<E> source) {
+        if (source == null)
+            throw new NullPointerException("Source tree cannot be null.");
+        size = source.size();
+        keys = new Object[size + 1];
+        fill(source.inorderIterator(), 1);
+    }
+
+    /** Places sorted elements into their Eytzinger slots (in-order over the implicit tree). */
+    private void fill(Iterator<E> sorted, int k) {
+        if (k > size) return;
+        fill(sorted, 2 * k);
+        keys[k] = sorted.next();
+        fill(sorted, 2 * k + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private E key(int k) {
+        return (E) keys[k];
+    }
+
+    // ------------------------------------------------------------
+    // BASIC TREE METHODS
+    // ------------------------------------------------------------
+
+    /** @return number of elements in the tree */
+    public int size() {
+        return size;
+    }
+
+    /** @return true if tree contains no elements */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the height of the implicit tree. Because the layout is always
+     * complete, this is {@code ceil(log2(size + 1))}; an empty tree has height 0.
+     *
+     * @return the height of the tree
+     */
+    public int getHeight() {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    // ------------------------------------------------------------
+    // SEARCH
+    // ------------------------------------------------------------
+
+    /**
+     * Finds the slot holding the given entry.
+     *
+     * <p>The loop descends a fixed number of levels and only computes the next
+     * slot index, so there is no early exit to mispredict. The last slot where
+     * the search went left is recovered from the trailing one bits of the
+     * final index.</p>
+     *
+     * @param entry value to find
+     * @return the slot index, or -1 if not found
+     */
+    private int indexOf(E entry) {
+        int k = 1;
+        while (k <= size) {
+            k = 2 * k + (entry.compareTo(key(k)) > 0 ? 1 : 0);
+        }
+        k >>>= Integer.numberOfTrailingZeros(~k) + 1;
+        return (k != 0 && entry.compareTo(key(k)) == 0) ? k : -1;
+    }
+
+    /**
+     * Searches the tree and returns the stored element equal to the entry.
+     *
+     * @param entry value to find
+     * @return the stored element if found, otherwise null
+     * @throws NullPointerException if entry is null
+     */
+    public E search(E entry) {
+        if (entry == null)
+            throw new NullPointerException("Cannot search for null.");
+        int k = indexOf(entry);
+        return k < 0 ? null : key(k);
+    }
+
+    /**
+     * Checks if a value exists in the tree.
+     *
+     * @param entry value to find
+     * @return true if found, false otherwise
+     * @throws NullPointerException if entry is null
+     */
+    public boolean contains(E entry) {
+        return search(entry) != null;
+    }
+
+    // ------------------------------------------------------------
+    // INORDER
+    // ------------------------------------------------------------
+
+    /** @return the slot of the smallest element, or 0 if the tree is empty */
+    private int first() {
+        if (size == 0) return 0;
+        int k = 1;
+        while (2 * k <= size) k = 2 * k;
+        return k;
+    }
+
+    /**
+     * Moves to the in-order successor of slot {@code k}: the leftmost slot of
+     * the right subtree if there is one, otherwise the first ancestor reached
+     * from a left child. Returns 0 past the last element.
+     */
+    private int successor(int k) {
+        if (2 * k + 1 <= size) {
+            k = 2 * k + 1;
+            while (2 * k <= size) k = 2 * k;
+            return k;
+        }
+        return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+    }
+
+    /**
+     * @return an iterator that walks the elements in their natural order
+     *         without copying them into a list first
+     */
+    public Iterator<E> inorderIterator() {
+        return new Iterator<E>() {
+            private int k = first();
+
+            @Override
+            public boolean hasNext() {
+                return k != 0;
+            }
+
+            @Override
+            public E next() {
+                if (k == 0)
+                    throw new NoSuchElementException("No more elements.");
+                E element = key(k);
+                k = successor(k);
+                return element;
+            }
+        };
+    }
+}
@@ -0,0 +1,619 @@
+package implementations;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+import utilities.KeyExtractor;
+
+/**
+ * An adaptive radix trie (ART) implementation of {@link BSTreeADT}.
+ *
+ * <p>Elements are indexed by the string key returned from a
+ * {@link KeyExtractor}, encoded as bytes. A lookup consumes the key one byte
+ * per level, so its cost depends on the key length rather than on the number
+ * of stored elements, and shared prefixes are never compared twice. Runs of
+ * single-child nodes are collapsed into a prefix stored on the node below
+ * them.</p>
+ *
+ * <p>Each node picks the smallest child index that fits its fan-out: up to 4
+ * or 16 children are kept in sorted byte arrays, up to 48 behind a 256-entry
+ * slot index, and beyond that in a direct 256-entry table.</p>
+ *
+ * <p>Keys are encoded one UTF-16 unit at a time (ASCII as a single byte,
+ * other units as two or three bytes in the UTF-8 style), which keeps byte
+ * order identical to {@link String#compareTo(String)}. An in-order walk
+ * therefore yields elements in their natural order, and all elements whose
+ * keys share a prefix sit in one subtrie, see {@link #prefixIterator(String)}.</p>
+ *
+ * <p>Methods that return a {@link BSTreeNode} return a detached node that
+ * wraps the element. Pre-order and post-order visit the elements in trie
+ * order, with an element before (pre) or after (post) the elements that
+ * extend its key.</p>
+ *
+ * @param <E> The type stored in the trie, must be Comparable
+ */
+public class RadixTrie<E extends Comparable<? super E>> implements BSTreeADT<E> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    /** Produces the ordering key of each element */
+    private final KeyExtractor<? super E> keys;
+
+    /** Root node, or null when the trie is empty */
+    private Node root;
+
+    /** Number of elements currently in the trie */
+    private int size;
+
+    // ------------------------------------------------------------
+    // NODES
+    // ------------------------------------------------------------
+
+    /**
+     * A trie node. {@code prefix} holds the bytes consumed between the parent's
+     * branch byte and this node; {@code value} is the element whose key ends
+     * here. The child index grows through the 4, 16, 48 and 256 layouts.
+     */
+    private static final class Node implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        byte[] prefix;
+        Object value;
+        int count;
+
+        /** Sorted branch bytes for the 4 and 16 layouts; null otherwise */
+        byte[] branch;
+
+        /** Child slot + 1 per byte value for the 48 layout; null otherwise */
+        byte[] slot;
+
+        /** Children: parallel to {@code branch}, addressed by {@code slot}, or by byte */
+        Node[] children;
+
+        Node(byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        /** Returns the child for the given branch byte, or null. */
+        Node child(int b) {
+            if (children == null)
+                return null;
+            if (branch != null) {
+                for (int i = 0; i < count; i++)
+                    if ((branch[i] & 0xFF) == b)
+                        return children[i];
+                return null;
+            }
+            if (slot != null) {
+                int s = slot[b] & 0xFF;
+                return s == 0 ? null : children[s - 1];
+            }
+            return children[b];
+        }
+
+        /** Replaces the child for an existing branch byte. */
+        void replace(int b, Node node) {
+            if (branch != null) {
+                for (int i = 0; i < count; i++)
+                    if ((branch[i] & 0xFF) == b)
+                        children[i] = node;
+            } else if (slot != null) {
+                children[(slot[b] & 0xFF) - 1] = node;
+            } else {
+                children[b] = node;
+            }
+        }
+
+        /** Adds a child for a branch byte not yet present, growing the layout if full. */
+        void add(int b, Node node) {
+            if (children == null) {
+                branch = new byte[4];
+                children = new Node[4];
+            }
+            if (branch != null && count == branch.length) {
+                if (count == 4) {
+                    branch = Arrays.copyOf(branch, 16);
+                    children = Arrays.copyOf(children, 16);
+                } else {
+                    slot = new byte[256];
+                    Node[] grown = new Node[48];
+                    for (int i = 0; i < count; i++) {
+                        slot[branch[i] & 0xFF] = (byte) (i + 1);
+                        grown[i] = children[i];
+                    }
+                    branch = null;
+                    children = grown;
+                }
+            } else if (slot != null && count == 48) {
+                Node[] grown = new Node[256];
+                for (int i = 0; i < 256; i++) {
+                    int s = slot[i] & 0xFF;
+                    if (s != 0)
+                        grown[i] = children[s - 1];
+                }
+                slot = null;
+                children = grown;
+            }
+
+            if (branch != null) {
+                int i = count;
+                while (i > 0 && (branch[i - 1] & 0xFF) > b) {
+                    branch[i] = branch[i - 1];
+                    children[i] = children[i - 1];
+                    i--;
+                }
+                branch[i] = (byte) b;
+                children[i] = node;
+            } else if (slot != null) {
+                children[count] = node;
+                slot[b] = (byte) (count + 1);
+            } else {
+                children[b] = node;
+            }
+            count++;
+        }
+
+        /** Removes the child for the given branch byte. */
+        void remove(int b) {
+            if (branch != null) {
+                int i = 0;
+                while ((branch[i] & 0xFF) != b) i++;
+                System.arraycopy(branch, i + 1, branch, i, count - i - 1);
+                System.arraycopy(children, i + 1, children, i, count - i - 1);
+                children[count - 1] = null;
+            } else if (slot != null) {
+                int s = (slot[b] & 0xFF) - 1;
+                int last = count - 1;
+                if (s != last) {
+                    children[s] = children[last];
+                    for (int i = 0; i < 256; i++)
+                        if ((slot[i] & 0xFF) == last + 1)
+                            slot[i] = (byte) (s + 1);
+                }
+                children[last] = null;
+                slot[b] = 0;
+            } else {
+                children[b] = null;
+            }
+            count--;
+        }
+
+        /** Returns the smallest (first) or largest (last) branch byte, or -1 without children. */
+        int edge(boolean first) {
+            if (count == 0)
+                return -1;
+            if (branch != null)
+                return branch[first ? 0 : count - 1] & 0xFF;
+            for (int i = 0; i < 256; i++) {
+                int b = first ? i : 255 - i;
+                if (child(b) != null)
+                    return b;
+            }
+            return -1;
+        }
+
+        /** Visits children in ascending byte order. */
+        void forEachChild(Consumer<Node> action) {
+            if (branch != null) {
+                for (int i = 0; i < count; i++)
+                    action.accept(children[i]);
+                return;
+            }
+            for (int b = 0; b < 256 && children != null; b++) {
+                Node child = child(b);
+                if (child != null)
+                    action.accept(child);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------
+    // CONSTRUCTORS
+    // ------------------------------------------------------------
+
+    /**
+     * Creates an empty trie ordered by the given key extractor.
+     *
+     * @param keys extracts the ordering key of each element
+     * @throws NullPointerException if keys is null
+     */
+    public RadixTrie(KeyExtractor<? super E> keys) {
+        if (keys == null)
+            throw new NullPointerException("Key extractor cannot be null.");
+        this.keys = keys;
+    }
+
+    // ------------------------------------------------------------
+    // KEY ENCODING
+    // ------------------------------------------------------------
+
+    /**
+     * Encodes a key so that unsigned byte order matches String order: each
+     * UTF-16 unit becomes one byte below 0x80, two bytes below 0x800, and
+     * three bytes otherwise.
+     */
+    static byte[] encode(String key) {
+        int n = key.length();
+        int len = 0;
+        for (int i = 0; i < n; i++) {
+            char c = key.charAt(i);
+            len += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        byte[] out = new byte[len];
+        if (len == n) {
+            for (int i = 0; i < n; i++)
+                out[i] = (byte) key.charAt(i);
+            return out;
+        }
+        int j = 0;
+        for (int i = 0; i < n; i++) {
+            char c = key.charAt(i);
+            if (c < 0x80) {
+                out[j++] = (byte) c;
+            } else if (c < 0x800) {
+                out[j++] = (byte) (0xC0 | (c >> 6));
+                out[j++] = (byte) (0x80 | (c & 0x3F));
+            } else {
+                out[j++] = (byte) (0xE0 | (c >> 12));
+                out[j++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[j++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return out;
+    }
+
+    private byte[] keyBytes(E element) {
+        return encode(keys.keyOf(element));
+    }
+
+    @SuppressWarnings("unchecked")
+    private E value(Node node) {
+        return (E) node.value;
+    }
+
+    // ------------------------------------------------------------
+    // BASIC TREE METHODS
+    // ------------------------------------------------------------
+
+    /**
+     * Returns a detached node holding the smallest element, which is the
+     * first element reached from the root.
+     *
+     * @return BSTreeNode wrapping the smallest element
+     * @throws NullPointerException if trie is empty
+     */
+    @Override
+    public BSTreeNode<E> getRoot() throws NullPointerException {
+        if (root == null)
+            throw new NullPointerException("Tree is empty.");
+        Node node = root;
+        while (node.value == null)
+            node = node.child(node.edge(true));
+        return new BSTreeNode<>(value(node));
+    }
+
+    /**
+     * Computes the number of node levels on the longest path. Height of an
+     * empty trie is 0.
+     */
+    @Override
+    public int getHeight() {
+        return root == null ? 0 : getHeightRecursive(root);
+    }
+
+    /** Recursive height helper */
+    private int getHeightRecursive(Node node) {
+        int[] max = { 0 };
+        node.forEachChild(child -> max[0] = Math.max(max[0], getHeightRecursive(child)));
+        return 1 + max[0];
+    }
+
+    /** @return number of elements in the trie */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** @return true if trie contains no elements */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all elements from the trie */
+    @Override
+    public void clear() {
+        root = null;
+        size = 0;
+    }
+
+    // ------------------------------------------------------------
+    // SEARCH
+    // ------------------------------------------------------------
+
+    /**
+     * Checks if an element with the same key exists in the trie.
+     *
+     * @param entry value to find
+     * @return true if found, false otherwise
+     */
+    @Override
+    public boolean contains(E entry) {
+        if (entry == null)
+            throw new NullPointerException("Cannot search for null.");
+        return searchKey(keys.keyOf(entry)) != null;
+    }
+
+    /**
+     * Searches the trie and returns a detached node wrapping the stored element.
+     *
+     * @param entry value to find
+     * @return BSTreeNode wrapping the stored element if found, otherwise null
+     */
+    @Override
+    public BSTreeNode<E> search(E entry) {
+        if (entry == null)
+            throw new NullPointerException("Cannot search for null.");
+        E found = searchKey(keys.keyOf(entry));
+        return found == null ? null : new BSTreeNode<>(found);
+    }
+
+    /**
+     * Looks up an element directly by its key, without building a probe element.
+     *
+     * @param key the key as produced by the trie's key extractor
+     * @return the stored element, or null if not found
+     */
+    public E searchKey(String key) {
+        if (key == null)
+            throw new NullPointerException("Cannot search for null.");
+        byte[] k = encode(key);
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            byte[] p = node.prefix;
+            if (k.length - depth < p.length)
+                return null;
+            for (int i = 0; i < p.length; i++)
+                if (p[i] != k[depth + i])
+                    return null;
+            depth += p.length;
+            if (depth == k.length)
+                return value(node);
+            node = node.child(k[depth++] & 0xFF);
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------
+    // INSERTION
+    // ------------------------------------------------------------
+
+    /**
+     * Inserts a new entry into the trie.
+     *
+     * @param newEntry value to insert
+     * @return true if inserted, false if an element with the same key exists
+     */
+    @Override
+    public boolean add(E newEntry) {
+        if (newEntry == null)
+            throw new NullPointerException("Cannot insert null.");
+        int before = size;
+        root = insert(root, keyBytes(newEntry), 0, newEntry);
+        return size > before;
+    }
+
+    /** Creates a node holding the rest of the key from {@code depth} and the element. */
+    private Node leaf(byte[] key, int depth, E entry) {
+        Node node = new Node(depth == key.length ? EMPTY : Arrays.copyOfRange(key, depth, key.length));
+        node.value = entry;
+        size++;
+        return node;
+    }
+
+    /**
+     * Recursive insert helper.
+     *
+     * @return the node that should take this node's place in its parent
+     */
+    private Node insert(Node node, byte[] key, int depth, E entry) {
+        if (node == null)
+            return leaf(key, depth, entry);
+
+        byte[] p = node.prefix;
+        int common = 0;
+        while (common < p.length && depth + common < key.length && p[common] == key[depth + common])
+            common++;
+
+        if (common < p.length) {
+            // split the compressed path where the new key diverges
+            Node split = new Node(Arrays.copyOf(p, common));
+            int b = p[common] & 0xFF;
+            node.prefix = Arrays.copyOfRange(p, common + 1, p.length);
+            split.add(b, node);
+            int d = depth + common;
+            if (d == key.length) {
+                split.value = entry;
+                size++;
+            } else {
+                split.add(key[d] & 0xFF, leaf(key, d + 1, entry));
+            }
+            return split;
+        }
+
+        depth += common;
+        if (depth == key.length) {
+            if (node.value == null) {
+                node.value = entry;
+                size++;
+            }
+            return node; // duplicate keys are not allowed
+        }
+
+        int b = key[depth] & 0xFF;
+        Node child = node.child(b);
+        if (child == null) {
+            node.add(b, leaf(key, depth + 1, entry));
+        } else {
+            Node replaced = insert(child, key, depth + 1, entry);
+            if (replaced != child)
+                node.replace(b, replaced);
+        }
+        return node;
+    }
+
+    // ------------------------------------------------------------
+    // REMOVE MIN / MAX
+    // ------------------------------------------------------------
+
+    /**
+     * Removes and returns the smallest element.
+     *
+     * @return detached BSTreeNode wrapping the removed element, or null if trie is empty
+     */
+    @Override
+    public BSTreeNode<E> removeMin() {
+        return removeEdge(true);
+    }
+
+    /**
+     * Removes and returns the largest element.
+     *
+     * @return detached BSTreeNode wrapping the removed element, or null if trie is empty
+     */
+    @Override
+    public BSTreeNode<E> removeMax() {
+        return removeEdge(false);
+    }
+
+    private BSTreeNode<E> removeEdge(boolean smallest) {
+        if (root == null) return null;
+        Object[] removed = new Object[1];
+        if (removeEdge(root, smallest, removed))
+            root = null;
+        size--;
+        @SuppressWarnings("unchecked")
+        E element = (E) removed[0];
+        return new BSTreeNode<>(element);
+    }
+
+    /**
+     * Removes the smallest or largest element below the node. A node's own
+     * element sorts before all of its children.
+     *
+     * @return true if the node now holds nothing and should be dropped
+     */
+    private boolean removeEdge(Node node, boolean smallest, Object[] removed) {
+        if (node.value != null && (smallest || node.count == 0)) {
+            removed[0] = node.value;
+            node.value = null;
+        } else {
+            int b = node.edge(smallest);
+            if (removeEdge(node.child(b), smallest, removed))
+                node.remove(b);
+        }
+        return node.value == null && node.count == 0;
+    }
+
+    // ------------------------------------------------------------
+    // ITERATORS
+    // ------------------------------------------------------------
+
+    /**
+     * @return an iterator that traverses the trie in natural key order
+     */
+    @Override
+    public Iterator<E> inorderIterator() {
+        ArrayList<E> list = new ArrayList<>(size);
+        if (root != null) collect(root, list, true);
+        return new ListIterator(list);
+    }
+
+    /**
+     * @return an iterator with each element before the elements extending its key
+     */
+    @Override
+    public Iterator<E> preorderIterator() {
+        return inorderIterator();
+    }
+
+    /**
+     * @return an iterator with each element after the elements extending its key
+     */
+    @Override
+    public Iterator<E> postorderIterator() {
+        ArrayList<E> list = new ArrayList<>(size);
+        if (root != null) collect(root, list, false);
+        return new ListIterator(list);
+    }
+
+    /**
+     * Returns the elements whose key starts with the given prefix, in natural
+     * order. Only the subtrie below the prefix is visited.
+     *
+     * @param prefix key prefix, in the same form as the key extractor produces
+     * @return an iterator over the matching elements
+     */
+    public Iterator<E> prefixIterator(String prefix) {
+        if (prefix == null)
+            throw new NullPointerException("Prefix cannot be null.");
+        ArrayList<E> list = new ArrayList<>();
+        byte[] k = encode(prefix);
+        Node node = root;
+        int depth = 0;
+        while (node != null) {
+            byte[] p = node.prefix;
+            int i = 0;
+            while (i < p.length && depth + i < k.length && p[i] == k[depth + i])
+                i++;
+            if (depth + i == k.length) {
+                collect(node, list, true);
+                break;
+            }
+            if (i < p.length)
+                break;
+            depth += p.length;
+            node = node.child(k[depth++] & 0xFF);
+        }
+        return new ListIterator(list);
+    }
+
+    private void collect(Node node, ArrayList<E> list, boolean valueFirst) {
+        if (valueFirst && node.value != null)
+            list.add(value(node));
+        node.forEachChild(child -> collect(child, list, valueFirst));
+        if (!valueFirst && node.value != null)
+            list.add(value(node));
+    }
+
+    /**
+     * Private iterator class that walks through an ArrayList.
+     */
+    private class ListIterator implements Iterator<E> {
+        private final ArrayList<E> list;
+        private int index = 0;
+
+        ListIterator(ArrayList<E> list) {
+            this.list = list;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < list.size();
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException("No more elements.");
+            return list.get(index++);
+        }
+    }
+}
@@ -0,0 +1,506 @@
+package implementations;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+import utilities.BSTreeADT;
+import utilities.Iterator;
+
+/**
+ * A self-adjusting binary search tree (Sleator and Tarjan's splay tree).
+ *
+ * <p>Every search, insertion and removal splays the accessed node to the
+ * root with top-down zig-zig / zig-zag rotations, so recently used elements
+ * stay near the top. Word frequencies in text are heavily skewed, and the
+ * few words making up most tokens are found in a handful of comparisons
+ * instead of a full descent. Any sequence of operations costs O(log n)
+ * amortized per operation; a single operation can still walk a long path.</p>
+ *
+ * <p>Because searches restructure the tree, the public methods are
+ * {@code synchronized}: concurrent readers that would be safe on a
+ * {@link BSTree} (for example under a shared read lock) take turns here.</p>
+ *
+ * <p>Traversals and height are computed without recursion, since a splay
+ * tree can legitimately be a single long path, e.g. after inserting in
+ * sorted order. For the same reason the tree serializes as its in-order
+ * element sequence and is rebuilt balanced when read back.</p>
+ *
+ * @param <E> The type stored in the tree, must be Comparable
+ */
+public class SplayTree<E extends Comparable<? super E>> implements BSTreeADT<E>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Root node, the most recently accessed element */
+    private transient BSTreeNode<E> root;
+
+    /** Number of nodes currently in the tree */
+    private transient int size;
+
+    /** Result of comparing the splayed entry with the new root */
+    private transient int lastCompare;
+
+    // ------------------------------------------------------------
+    // CONSTRUCTORS
+    // ------------------------------------------------------------
+
+    /**
+     * Default constructor. Creates an empty splay tree.
+     */
+    public SplayTree() {
+        root = null;
+        size = 0;
+    }
+
+    // ------------------------------------------------------------
+    // BASIC TREE METHODS
+    // ------------------------------------------------------------
+
+    /**
+     * Returns the root of the tree, the most recently accessed element.
+     *
+     * @return root BSTreeNode
+     * @throws NullPointerException if tree is empty
+     */
+    @Override
+    public synchronized BSTreeNode<E> getRoot() throws NullPointerException {
+        if (root == null)
+            throw new NullPointerException("Tree is empty.");
+        return root;
+    }
+
+    /**
+     * Computes the height of the tree level by level.
+     * Height of an empty tree is 0.
+     */
+    @Override
+    public synchronized int getHeight() {
+        if (root == null)
+            return 0;
+        ArrayDeque<BSTreeNode<E>> level = new ArrayDeque<>();
+        level.add(root);
+        int height = 0;
+        while (!level.isEmpty()) {
+            height++;
+            for (int n = level.size(); n > 0; n--) {
+                BSTreeNode<E> node = level.poll();
+                if (node.left != null) level.add(node.left);
+                if (node.right != null) level.add(node.right);
+            }
+        }
+        return height;
+    }
+
+    /** @return number of nodes in the tree */
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    /** @return true if tree contains no nodes */
+    @Override
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Removes all nodes from the tree */
+    @Override
+    public synchronized void clear() {
+        root = null;
+        size = 0;
+    }
+
+    // ------------------------------------------------------------
+    // SEARCH
+    // ------------------------------------------------------------
+
+    /**
+     * Checks if a value exists in the tree, splaying it (or the last node
+     * visited) to the root.
+     *
+     * @param entry value to find
+     * @return true if found, false otherwise
+     */
+    @Override
+    public synchronized boolean contains(E entry) {
+        if (entry == null)
+            throw new NullPointerException("Cannot search for null.");
+        return search(entry) != null;
+    }
+
+    /**
+     * Searches the tree and returns the node containing the entry. The node
+     * found, or the last node visited if there is none, becomes the root.
+     *
+     * @param entry value to find
+     * @return BSTreeNode if found, otherwise null
+     */
+    @Override
+    public synchronized BSTreeNode<E> search(E entry) {
+        if (entry == null)
+            throw new NullPointerException("Cannot search for null.");
+        if (root == null)
+            return null;
+        root = splay(root, entry);
+        return lastCompare == 0 ? root : null;
+    }
+
+    // ------------------------------------------------------------
+    // INSERTION
+    // ------------------------------------------------------------
+
+    /**
+     * Inserts a new entry, which becomes the root.
+     *
+     * @param newEntry value to insert
+     * @return true if inserted, false if duplicate
+     */
+    @Override
+    public synchronized boolean add(E newEntry) {
+        if (newEntry == null)
+            throw new NullPointerException("Cannot insert null.");
+
+        if (root == null) {
+            root = new BSTreeNode<>(newEntry);
+            size++;
+            return true;
+        }
+
+        root = splay(root, newEntry);
+        int cmp = lastCompare;
+        if (cmp == 0)
+            return false; // duplicate not allowed
+
+        // the splayed root is the new entry's neighbour: split around it
+        BSTreeNode<E> node = new BSTreeNode<>(newEntry);
+        if (cmp < 0) {
+            node.left = root.left;
+            node.right = root;
+            root.left = null;
+        } else {
+            node.right = root.right;
+            node.left = root;
+            root.right = null;
+        }
+        root = node;
+        size++;
+        return true;
+    }
+
+    // ------------------------------------------------------------
+    // REMOVE MIN / MAX
+    // ------------------------------------------------------------
+
+    /**
+     * Removes and returns the smallest node, after splaying it to the root.
+     *
+     * @return BSTreeNode removed, or null if tree is empty
+     */
+    @Override
+    public synchronized BSTreeNode<E> removeMin() {
+        if (root == null) return null;
+
+        BSTreeNode<E> min = splayEnd(root, true);
+        root = min.right;
+        min.right = null;
+        size--;
+        return min;
+    }
+
+    /**
+     * Removes and returns the largest node, after splaying it to the root.
+     *
+     * @return BSTreeNode removed, or null if tree is empty
+     */
+    @Override
+    public synchronized BSTreeNode<E> removeMax() {
+        if (root == null) return null;
+
+        BSTreeNode<E> max = splayEnd(root, false);
+        root = max.left;
+        max.left = null;
+        size--;
+        return max;
+    }
+
+    // ------------------------------------------------------------
+    // SPLAYING
+    // ------------------------------------------------------------
+
+    /**
+     * Top-down splay: walks from t towards entry, hanging the nodes passed
+     * on a left tree (smaller) and a right tree (larger), rotating whenever
+     * two steps go the same way. The last node reached becomes the root with
+     * the two side trees as its subtrees.
+     *
+     * @return the new root: entry's node if present, otherwise a neighbour of
+     *         entry; {@link #lastCompare} holds entry compared to it
+     */
+    private BSTreeNode<E> splay(BSTreeNode<E> t, E entry) {
+        BSTreeNode<E> leftRoot = null, leftMax = null;
+        BSTreeNode<E> rightRoot = null, rightMin = null;
+
+        // each node on the path is compared once: a look-ahead result is
+        // carried into the next step instead of being recomputed
+        int cmp = entry.compareTo(t.data);
+        while (cmp != 0) {
+            if (cmp < 0) {
+                if (t.left == null)
+                    break;
+                int next = entry.compareTo(t.left.data);
+                if (next < 0) {
+                    t = rotateRight(t); // zig-zig
+                    if (t.left == null) {
+                        cmp = next;
+                        break;
+                    }
+                }
+                // link t into the right tree as its new minimum
+                if (rightMin == null) rightRoot = t; else rightMin.left = t;
+                rightMin = t;
+                t = t.left;
+                cmp = next < 0 ? entry.compareTo(t.data) : next;
+            } else {
+                if (t.right == null)
+                    break;
+                int next = entry.compareTo(t.right.data);
+                if (next > 0) {
+                    t = rotateLeft(t); // zig-zig
+                    if (t.right == null) {
+                        cmp = next;
+                        break;
+                    }
+                }
+                // link t into the left tree as its new maximum
+                if (leftMax == null) leftRoot = t; else leftMax.right = t;
+                leftMax = t;
+                t = t.right;
+                cmp = next > 0 ? entry.compareTo(t.data) : next;
+            }
+        }
+        lastCompare = cmp;
+        return assemble(t, leftRoot, leftMax, rightRoot, rightMin);
+    }
+
+    /** Top-down splay of the smallest (min) or largest node, without comparisons. */
+    private BSTreeNode<E> splayEnd(BSTreeNode<E> t, boolean min) {
+        BSTreeNode<E> leftRoot = null, leftMax = null;
+        BSTreeNode<E> rightRoot = null, rightMin = null;
+
+        if (min) {
+            while (t.left != null) {
+                t = rotateRight(t);
+                if (t.left == null)
+                    break;
+                if (rightMin == null) rightRoot = t; else rightMin.left = t;
+                rightMin = t;
+                t = t.left;
+            }
+        } else {
+            while (t.right != null) {
+                t = rotateLeft(t);
+                if (t.right == null)
+                    break;
+                if (leftMax == null) leftRoot = t; else leftMax.right = t;
+                leftMax = t;
+                t = t.right;
+            }
+        }
+        return assemble(t, leftRoot, leftMax, rightRoot, rightMin);
+    }
+
+    /** Makes t the root over the left and right trees built while splaying. */
+    private static <E extends Comparable<? super E>> BSTreeNode<E> assemble(BSTreeNode<E> t,
+            BSTreeNode<E> leftRoot, BSTreeNode<E> leftMax,
+            BSTreeNode<E> rightRoot, BSTreeNode<E> rightMin) {
+        if (leftMax != null) {
+            leftMax.right = t.left;
+            t.left = leftRoot;
+        }
+        if (rightMin != null) {
+            rightMin.left = t.right;
+            t.right = rightRoot;
+        }
+        return t;
+    }
+
+    private static <E extends Comparable<? super E>> BSTreeNode<E> rotateRight(BSTreeNode<E> t) {
+        BSTreeNode<E> y = t.left;
+        t.left = y.right;
+        y.right = t;
+        return y;
+    }
+
+    private static <E extends Comparable<? super E>> BSTreeNode<E> rotateLeft(BSTreeNode<E> t) {
+        BSTreeNode<E> y = t.right;
+        t.right = y.left;
+        y.left = t;
+        return y;
+    }
+
+    // ------------------------------------------------------------
+    // ITERATOR IMPLEMENTATION
+    // ------------------------------------------------------------
+
+    /**
+     * Private iterator class that walks through an ArrayList.
+     */
+    private class ArrayListIterator implements Iterator<E> {
+        private final ArrayList<E> list;
+        private int index = 0;
+
+        public ArrayListIterator(ArrayList<E> list) {
+            this.list = list;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < list.size();
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext())
+                throw new NoSuchElementException("No more elements.");
+            return list.get(index++);
+        }
+    }
+
+    /**
+     * @return an iterator that traverses the tree inorder (L, Root, R)
+     */
+    @Override
+    public synchronized Iterator<E> inorderIterator() {
+        return new ArrayListIterator(inorder());
+    }
+
+    private ArrayList<E> inorder() {
+        ArrayList<E> list = new ArrayList<>(size);
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        BSTreeNode<E> node = root;
+        while (node != null || !stack.isEmpty()) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+            node = stack.pop();
+            list.add(node.data);
+            node = node.right;
+        }
+        return list;
+    }
+
+    /**
+     * Visits the elements between the bounds in order, skipping the subtrees
+     * outside them. Unlike a search, the walk does not splay.
+     *
+     * @param low    smallest element to visit, inclusive, or null for no bound
+     * @param high   largest element to visit, inclusive, or null for no bound
+     * @param action called on each element; returns false to stop the walk
+     * @throws NullPointerException if action is null
+     */
+    @Override
+    public synchronized void forEachInRange(E low, E high, Predicate<? super E> action) {
+        if (action == null)
+            throw new NullPointerException("Action cannot be null.");
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        BSTreeNode<E> node = root;
+        while (node != null) {
+            if (low != null && node.data.compareTo(low) < 0) {
+                node = node.right;
+            } else {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+        while (!stack.isEmpty()) {
+            node = stack.pop();
+            if (high != null && node.data.compareTo(high) > 0)
+                return;
+            if (!action.test(node.data))
+                return;
+            for (node = node.right; node != null; node = node.left)
+                stack.push(node);
+        }
+    }
+
+    /**
+     * @return a preorder iterator (Root, L, R)
+     */
+    @Override
+    public synchronized Iterator<E> preorderIterator() {
+        ArrayList<E> list = new ArrayList<>(size);
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            BSTreeNode<E> node = stack.pop();
+            list.add(node.data);
+            if (node.right != null) stack.push(node.right);
+            if (node.left != null) stack.push(node.left);
+        }
+        return new ArrayListIterator(list);
+    }
+
+    /**
+     * @return a postorder iterator (L, R, Root)
+     */
+    @Override
+    public synchronized Iterator<E> postorderIterator() {
+        // Root, R, L visited with a stack, then reversed
+        ArrayList<E> list = new ArrayList<>(size);
+        ArrayDeque<BSTreeNode<E>> stack = new ArrayDeque<>();
+        if (root != null) stack.push(root);
+        while (!stack.isEmpty()) {
+            BSTreeNode<E> node = stack.pop();
+            list.add(node.data);
+            if (node.left != null) stack.push(node.left);
+            if (node.right != null) stack.push(node.right);
+        }
+        Collections.reverse(list);
+        return new ArrayListIterator(list);
+    }
+
+    // ------------------------------------------------------------
+    // SERIALIZATION
+    // ------------------------------------------------------------
+
+    /** Writes the size, then the elements in order. */
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        ArrayList<E> elements = inorder();
+        out.writeInt(elements.size());
+        for (E e : elements)
+            out.writeObject(e);
+    }
+
+    /** Reads the elements back into a balanced tree. */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        int n = in.readInt();
+        if (n < 0)
+            throw new IOException("Negative tree size.");
+        // E erases to Comparable, so the array must be one
+        Comparable<?>[] elements = new Comparable<?>[n];
+        for (int i = 0; i < n; i++)
+            elements[i] = (Comparable<?>) in.readObject();
+        root = build((E[]) elements, 0, n - 1);
+        size = n;
+    }
+
+    private static <E extends Comparable<? super E>> BSTreeNode<E> build(E[] sorted, int lo, int hi) {
+        if (lo > hi)
+            return null;
+        int mid = (lo + hi) >>> 1;
+        BSTreeNode<E> node = new BSTreeNode<>(sorted[mid]);
+        node.left = build(sorted, lo, mid - 1);
+        node.right = build(sorted, mid + 1, hi);
+        return node;
+    }
+}
@@ -11,6 +11,22 @@
  *   <li>{@link implementations.BSTreeNode} – The internal node structure used by
  *       the BST, storing a single element and references to left and right
  *       children.</li>
+ *
+ *   <li>{@link implementations.SplayTree} – A self-adjusting binary search
+ *       tree that splays every accessed element to the root, so frequently
+ *       used words are found near the top.</li>
+ *
+ *   <li>{@link implementations.BPlusTree} – A high fan-out B+-tree implementing
+ *       the same ADT, with sorted key arrays per node and linked leaves for
+ *       in-order scans.</li>
+ *
+ *   <li>{@link implementations.RadixTrie} – An adaptive radix trie over
+ *       string keys, whose lookups cost one step per key byte and which
+ *       answers prefix queries from a single subtrie.</li>
+ *
+ *   <li>{@link implementations.EytzingerTree} – A frozen, read-only copy of a
+ *       tree laid out in one contiguous array (Eytzinger order) for
+ *       lookup-heavy use once a repository has been built.</li>
  * </ul>
  *
  * <p>The BST implementation supports in-order, pre-order, and post-order
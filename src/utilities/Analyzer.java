@@ -0,0 +1,75 @@
+package utilities;
+
+import java.io.Serializable;
+
+/**
+ * The optional analysis chain applied to folded keys at ingest and lookup:
+ * stop words are dropped, and the remaining words can be reduced to their
+ * {@link PorterStemmer} stems.
+ *
+ * <p>An analyzer is saved with the repository it was used to build, since
+ * lookups only find stemmed words when they are stemmed the same way.</p>
+ */
+public final class Analyzer implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final StopWords stopWords;
+    private final boolean stemming;
+
+    /**
+     * Creates an analysis chain.
+     *
+     * @param stopWords words to drop, or null to keep every word
+     * @param stemming  true to stem the words that are kept
+     */
+    public Analyzer(StopWords stopWords, boolean stemming) {
+        this.stopWords = stopWords;
+        this.stemming = stemming;
+    }
+
+    /**
+     * Analyzes a folded key.
+     *
+     * @param key a key from {@link TextNormalizer#fold(String)}
+     * @return null for a stop word, otherwise the stem, which is the key
+     *         itself when stemming is off or leaves it unchanged
+     * @throws NullPointerException if key is null
+     */
+    public String analyze(String key) {
+        if (stopWords != null && stopWords.contains(key))
+            return null;
+        return stemming ? PorterStemmer.stem(key) : key;
+    }
+
+    /** @return the stop words, or null if none are dropped */
+    public StopWords getStopWords() {
+        return stopWords;
+    }
+
+    /** @return true if kept words are stemmed */
+    public boolean isStemming() {
+        return stemming;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Analyzer))
+            return false;
+        Analyzer other = (Analyzer) o;
+        return stemming == other.stemming
+                && (stopWords == null ? other.stopWords == null : stopWords.equals(other.stopWords));
+    }
+
+    @Override
+    public int hashCode() {
+        return (stopWords == null ? 0 : stopWords.hashCode()) * 31 + (stemming ? 1 : 0);
+    }
+
+    /** @return e.g. {@code "127 stop words, Porter stemming"} */
+    @Override
+    public String toString() {
+        String stop = stopWords == null ? "no stop words" : stopWords.size() + " stop words";
+        return stop + (stemming ? ", Porter stemming" : ", no stemming");
+    }
+}
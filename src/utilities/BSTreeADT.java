@@ -4,6 +4,12 @@
 package utilities;
 
 import java.io.Serializable;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import implementations.BSTreeNode;
 
@@ -125,4 +131,99 @@ public interface BSTreeADT<E extends Comparable<? super E>> extends	Serializable
 	 * @return an iterator with the elements in a root element last order
 	 */
 	public Iterator<E> postorderIterator();
+
+	/**
+	 * Performs the given action on every element in their natural order. The
+	 * default walks {@link #inorderIterator()}; implementations may override
+	 * it with a traversal that does not copy the elements first.
+	 * 
+	 * @param action the action to perform on each element
+	 * @throws NullPointerException if action is null
+	 */
+	public default void forEachInOrder( Consumer<? super E> action )
+	{
+		if( action == null )
+			throw new NullPointerException( "Action cannot be null." );
+		Iterator<E> it = inorderIterator();
+		while( it.hasNext() )
+		{
+			action.accept( it.next() );
+		}
+	}
+
+	/**
+	 * Performs the given action, in natural order, on the elements between
+	 * two bounds, stopping early when the action returns false. The default
+	 * walks {@link #inorderIterator()}; implementations may override it to
+	 * skip the subtrees that lie outside the bounds.
+	 * 
+	 * @param low    smallest element to visit, inclusive, or null for no bound
+	 * @param high   largest element to visit, inclusive, or null for no bound
+	 * @param action called on each element; returns false to stop the walk
+	 * @throws NullPointerException if action is null
+	 */
+	public default void forEachInRange( E low, E high, Predicate<? super E> action )
+	{
+		if( action == null )
+			throw new NullPointerException( "Action cannot be null." );
+		Iterator<E> it = inorderIterator();
+		while( it.hasNext() )
+		{
+			E e = it.next();
+			if( low != null && e.compareTo( low ) < 0 )
+				continue;
+			if( high != null && e.compareTo( high ) > 0 )
+				return;
+			if( !action.test( e ) )
+				return;
+		}
+	}
+
+	/**
+	 * Creates a Spliterator over the elements in their natural order. The
+	 * default wraps {@link #inorderIterator()} and splits by copying batches,
+	 * so it parallelises poorly; implementations may override it with one
+	 * that splits by subtree.
+	 * 
+	 * @return a Spliterator over the elements in order
+	 */
+	public default Spliterator<E> spliterator()
+	{
+		final Iterator<E> it = inorderIterator();
+		java.util.Iterator<E> adapter = new java.util.Iterator<E>()
+		{
+			@Override
+			public boolean hasNext()
+			{
+				return it.hasNext();
+			}
+
+			@Override
+			public E next()
+			{
+				return it.next();
+			}
+		};
+		return Spliterators.spliterator( adapter, size(),
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL );
+	}
+
+	/**
+	 * @return a sequential Stream over the elements in their natural order
+	 */
+	public default Stream<E> stream()
+	{
+		return StreamSupport.stream( spliterator(), false );
+	}
+
+	/**
+	 * Returns a parallel Stream over the elements. The tree must not be
+	 * modified while the stream runs.
+	 * 
+	 * @return a possibly parallel Stream over the elements
+	 */
+	public default Stream<E> parallelStream()
+	{
+		return StreamSupport.stream( spliterator(), true );
+	}
 }
@@ -0,0 +1,132 @@
+package utilities;
+
+import java.io.Serializable;
+
+/**
+ * A Bloom filter over strings: a set that can answer "definitely absent" in
+ * constant time without looking at the strings themselves, at the cost of a
+ * bounded rate of false "maybe present" answers.
+ *
+ * <p>The filter is sized for an expected number of keys and a target
+ * false-positive rate. Each key sets {@code k} bits of a {@code long[]}
+ * bitmap, chosen by double hashing one 64-bit hash of the key's characters.
+ * Keys cannot be removed. Adding more keys than the filter was sized for
+ * still works, but the false-positive rate climbs; {@link #isFull()} tells
+ * the owner when to rebuild a larger one.</p>
+ *
+ * <p>Keys are hashed exactly as given, so callers that compare words without
+ * regard to case must fold them before adding and before asking.</p>
+ */
+public class BloomFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** False-positive rate used when none is configured: 1% */
+    public static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private static final double LN2 = Math.log(2);
+
+    private final long[] bits;
+    private final int hashes;
+    private final int capacity;
+    private final double falsePositiveRate;
+
+    /** Number of keys added */
+    private int size;
+
+    /**
+     * Creates an empty filter.
+     *
+     * @param capacity          number of keys the filter is sized for
+     * @param falsePositiveRate target false-positive rate at capacity, between 0 and 1
+     * @throws IllegalArgumentException if capacity is negative or the rate is not in (0, 1)
+     */
+    public BloomFilter(int capacity, double falsePositiveRate) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Capacity cannot be negative.");
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1))
+            throw new IllegalArgumentException("False-positive rate must be between 0 and 1.");
+        this.capacity = Math.max(capacity, 1);
+        this.falsePositiveRate = falsePositiveRate;
+        // optimal m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hashes
+        long m = (long) Math.ceil(-this.capacity * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int words = (int) Math.min((m + 63) >>> 6, Integer.MAX_VALUE - 8);
+        this.bits = new long[Math.max(words, 1)];
+        long bitCount = (long) bits.length << 6;
+        this.hashes = (int) Math.max(1, Math.min(30, Math.round((double) bitCount / this.capacity * LN2)));
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @param key the key to add
+     * @throws NullPointerException if key is null
+     */
+    public void add(String key) {
+        long h = StringHash.hash64(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        long bitCount = (long) bits.length << 6;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        size++;
+    }
+
+    /**
+     * Tests whether a key may have been added.
+     *
+     * @param key the key to test
+     * @return false if the key was definitely never added, true if it may have been
+     * @throws NullPointerException if key is null
+     */
+    public boolean mightContain(String key) {
+        long h = StringHash.hash64(key);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32) | 1;
+        long bitCount = (long) bits.length << 6;
+        for (int i = 0; i < hashes; i++) {
+            long bit = ((h1 + (long) i * h2) & Long.MAX_VALUE) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    /** @return the number of keys added, counting repeats */
+    public int size() {
+        return size;
+    }
+
+    /** @return the number of keys the filter was sized for */
+    public int capacity() {
+        return capacity;
+    }
+
+    /** @return true once more keys have been added than the filter was sized for */
+    public boolean isFull() {
+        return size > capacity;
+    }
+
+    /** @return the target false-positive rate the filter was sized with */
+    public double falsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    /** @return the false-positive rate expected for the keys added so far */
+    public double expectedFalsePositiveRate() {
+        double bitCount = (double) bits.length * 64;
+        return Math.pow(1 - Math.exp(-hashes * size / bitCount), hashes);
+    }
+
+    /** @return the number of hash functions per key */
+    public int hashCount() {
+        return hashes;
+    }
+
+    /** @return the size of the bitmap in bits */
+    public long bitSize() {
+        return (long) bits.length << 6;
+    }
+}
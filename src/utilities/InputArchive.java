@@ -0,0 +1,537 @@
+package utilities;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads an input file, or standard input, as a sequence of named text
+ * entries, whatever it is packed in:
+ * <ul>
+ *   <li>a plain file is one entry named like the file;</li>
+ *   <li>a gzip file is one entry named like the file, unless it holds a tar
+ *       archive;</li>
+ *   <li>each regular file in a zip or tar archive (plain or gzipped) is an
+ *       entry named {@code <archive>!/<path in archive>}.</li>
+ * </ul>
+ * The format is recognised from the first bytes, not the file name.
+ *
+ * <p>Compressed and archived input is decoded on a background thread,
+ * which hands 64 KiB chunks to the reader through a small bounded queue.
+ * Inflating the next chunks therefore overlaps with tokenizing the current
+ * one, and at most {@value #QUEUE_CHUNKS} chunks are buffered. Plain files
+ * are read directly.</p>
+ *
+ * <p>Typical use:</p>
+ * <pre>
+ * try (InputArchive in = InputArchive.open(file, name)) {
+ *     String entry;
+ *     while ((entry = in.nextEntry()) != null)
+ *         read(entry, in.stream());
+ * }
+ * </pre>
+ */
+public final class InputArchive implements Closeable {
+
+    /** File name that stands for standard input */
+    public static final String STDIN = "-";
+
+    /** Entry name used for standard input that is not an archive */
+    public static final String STDIN_NAME = "<stdin>";
+
+    /** Separates an archive's name from an entry's path in entry names */
+    public static final String ENTRY_SEPARATOR = "!/";
+
+    private static final int CHUNK = 1 << 16;
+    private static final int QUEUE_CHUNKS = 8;
+    private static final int SNIFF = 512;
+
+    /** Largest GNU long-name or pax extended header read into memory: 1 MiB */
+    private static final int MAX_EXTENDED_HEADER = 1 << 20;
+
+    /** Queue item ending the input */
+    private static final Object END = new Object();
+
+    /** Queue item starting an entry */
+    private static final class Start {
+        final String name;
+
+        Start(String name) {
+            this.name = name;
+        }
+    }
+
+    private enum Format { PLAIN, GZIP, ZIP, TAR }
+
+    private final InputStream source;
+    private final boolean closeSource;
+    private final String name;
+    /** Background decoder, or null for plain input read directly */
+    private final Thread decoder;
+    private final BlockingQueue<Object> queue;
+
+    /** Queue item taken while reading an entry that belongs to the next call of nextEntry */
+    private Object pending;
+    private boolean plainServed;
+    private boolean entryOpen;
+    private boolean finished;
+    private volatile boolean closed;
+    private final EntryStream stream = new EntryStream();
+
+    private InputArchive(InputStream in, boolean closeSource, String name) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, CHUNK);
+        this.closeSource = closeSource;
+        this.name = name;
+        Format format = sniff(buffered);
+        this.source = buffered;
+        if (format == Format.PLAIN) {
+            this.decoder = null;
+            this.queue = null;
+            return;
+        }
+        this.queue = new ArrayBlockingQueue<>(QUEUE_CHUNKS);
+        this.decoder = new Thread(() -> decode(format), "InputArchive-" + name);
+        this.decoder.setDaemon(true);
+        this.decoder.start();
+    }
+
+    /**
+     * Opens a file.
+     *
+     * @param file the file to read
+     * @param name the name of the file's entry, or the prefix of its archive
+     *             entries' names, normally the path the user gave
+     * @return the archive, positioned before its first entry
+     * @throws IOException if the file cannot be opened
+     */
+    public static InputArchive open(File file, String name) throws IOException {
+        InputStream in = new FileInputStream(file);
+        try {
+            return new InputArchive(in, true, name);
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens standard input, which is not closed when the archive is.
+     *
+     * @return the archive, positioned before its first entry
+     * @throws IOException if standard input cannot be read
+     */
+    public static InputArchive stdin() throws IOException {
+        return new InputArchive(System.in, false, STDIN_NAME);
+    }
+
+    /**
+     * Moves to the next entry, skipping what is left of the current one.
+     *
+     * @return the entry's name, or null when there are no more entries
+     * @throws IOException if reading or decompressing fails
+     */
+    public String nextEntry() throws IOException {
+        if (closed)
+            throw new IOException("Archive is closed.");
+        entryOpen = false;
+        if (decoder == null) {
+            if (plainServed)
+                return null;
+            plainServed = true;
+            entryOpen = true;
+            return name;
+        }
+        while (!finished) {
+            Object item = take();
+            if (item instanceof Start) {
+                stream.chunk = null;
+                entryOpen = true;
+                return ((Start) item).name;
+            }
+            if (item == END)
+                finished = true;
+            // chunks of an entry that was not read to the end are dropped
+        }
+        return null;
+    }
+
+    /**
+     * Returns the bytes of the current entry. The same stream object is
+     * reused for every entry; closing it does nothing.
+     *
+     * @return the entry's contents
+     * @throws IllegalStateException if {@link #nextEntry()} has not returned an entry
+     */
+    public InputStream stream() {
+        if (!entryOpen)
+            throw new IllegalStateException("No current entry.");
+        return stream;
+    }
+
+    /**
+     * Stops the background decoder and closes the input, except standard
+     * input.
+     *
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        if (decoder != null)
+            decoder.interrupt();
+        if (closeSource)
+            source.close();
+    }
+
+    /** Takes the next queue item, rethrowing a failure of the decoder. */
+    private Object take() throws IOException {
+        Object item = pending;
+        pending = null;
+        if (item == null) {
+            try {
+                item = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for input.");
+            }
+        }
+        if (item instanceof Throwable) {
+            // kept, so later calls fail the same way instead of waiting
+            pending = item;
+            if (item instanceof IOException)
+                throw new IOException(((IOException) item).getMessage(), (IOException) item);
+            throw new IOException("Failed to decode " + name, (Throwable) item);
+        }
+        return item;
+    }
+
+    // ------------------------------------------------------------
+    // DECODER THREAD
+    // ------------------------------------------------------------
+
+    private void decode(Format format) {
+        try {
+            switch (format) {
+                case GZIP:
+                    BufferedInputStream inflated = new BufferedInputStream(new GZIPInputStream(source, CHUNK), CHUNK);
+                    if (sniff(inflated) == Format.TAR)
+                        readTar(inflated);
+                    else
+                        copyEntry(name, inflated, Long.MAX_VALUE);
+                    break;
+                case ZIP:
+                    readZip(new ZipInputStream(source));
+                    break;
+                case TAR:
+                    readTar(source);
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected format " + format);
+            }
+            put(END);
+        } catch (InterruptedException e) {
+            // closed by the reader
+        } catch (Throwable t) {
+            if (!closed)
+                putQuietly(t);
+        }
+    }
+
+    private void readZip(ZipInputStream zip) throws IOException, InterruptedException {
+        ZipEntry e;
+        while ((e = zip.getNextEntry()) != null) {
+            if (!e.isDirectory())
+                copyEntry(entryName(e.getName()), zip, Long.MAX_VALUE);
+        }
+    }
+
+    /** Reads ustar, GNU and pax tar archives, with long names. */
+    private void readTar(InputStream in) throws IOException, InterruptedException {
+        byte[] header = new byte[512];
+        String longName = null;
+        while (readFully(in, header)) {
+            if (isZero(header))
+                return;
+            long size = tarNumber(header, 124, 12);
+            char type = (char) header[156];
+            String path = longName != null ? longName : tarPath(header);
+            longName = null;
+            if (type == 'L' || type == 'x') {
+                if (size > MAX_EXTENDED_HEADER)
+                    throw new IOException("Tar extended header of " + size + " bytes in " + name);
+                byte[] data = new byte[(int) size];
+                if (!readFully(in, data))
+                    throw new EOFException("Truncated tar header in " + name);
+                skip(in, padding(size));
+                longName = type == 'L' ? cString(data, 0, data.length) : paxPath(data);
+                continue;
+            }
+            if (type == '0' || type == '\0' || type == '7')
+                copyEntry(entryName(path), in, size);
+            else
+                skip(in, size);
+            skip(in, padding(size));
+        }
+    }
+
+    /** Queues an entry's start and up to limit bytes of it in chunks. */
+    private void copyEntry(String entry, InputStream in, long limit) throws IOException, InterruptedException {
+        put(new Start(entry));
+        long left = limit;
+        while (left > 0) {
+            byte[] chunk = new byte[CHUNK];
+            int n = 0;
+            while (n < CHUNK && left > 0) {
+                int r = in.read(chunk, n, (int) Math.min(CHUNK - n, left));
+                if (r < 0)
+                    break;
+                n += r;
+                left -= r;
+            }
+            if (n > 0)
+                put(n == CHUNK ? chunk : Arrays.copyOf(chunk, n));
+            if (n < CHUNK) {
+                if (limit != Long.MAX_VALUE && left > 0)
+                    throw new EOFException("Truncated entry " + entry);
+                return;
+            }
+        }
+    }
+
+    private void put(Object item) throws InterruptedException {
+        if (Thread.interrupted() || closed)
+            throw new InterruptedException();
+        queue.put(item);
+    }
+
+    private void putQuietly(Object item) {
+        try {
+            queue.put(item);
+        } catch (InterruptedException e) {
+            // closed by the reader
+        }
+    }
+
+    private String entryName(String path) {
+        return name + ENTRY_SEPARATOR + path;
+    }
+
+    // ------------------------------------------------------------
+    // FORMAT HELPERS
+    // ------------------------------------------------------------
+
+    /** Recognises the format from the first bytes, leaving the stream where it was. */
+    private static Format sniff(BufferedInputStream in) throws IOException {
+        byte[] head = new byte[SNIFF];
+        in.mark(SNIFF);
+        int n = 0;
+        int r;
+        while (n < SNIFF && (r = in.read(head, n, SNIFF - n)) > 0)
+            n += r;
+        in.reset();
+        if (n >= 2 && (head[0] & 0xFF) == 0x1f && (head[1] & 0xFF) == 0x8b)
+            return Format.GZIP;
+        if (n >= 4 && head[0] == 'P' && head[1] == 'K' && head[2] == 3 && head[3] == 4)
+            return Format.ZIP;
+        if (n >= 262 && head[257] == 'u' && head[258] == 's' && head[259] == 't'
+                && head[260] == 'a' && head[261] == 'r')
+            return Format.TAR;
+        return Format.PLAIN;
+    }
+
+    private static String tarPath(byte[] header) {
+        String path = cString(header, 0, 100);
+        boolean ustar = header[257] == 'u' && header[258] == 's';
+        String prefix = ustar ? cString(header, 345, 155) : "";
+        return prefix.isEmpty() ? path : prefix + "/" + path;
+    }
+
+    /** Octal, or base-256 when the high bit of the first byte is set. */
+    private static long tarNumber(byte[] b, int off, int len) throws IOException {
+        if ((b[off] & 0x80) != 0) {
+            long v = b[off] & 0x7F;
+            for (int i = 1; i < len; i++)
+                v = v << 8 | (b[off + i] & 0xFF);
+            return v;
+        }
+        long v = 0;
+        for (int i = off; i < off + len; i++) {
+            byte c = b[i];
+            if (c == 0 || c == ' ') {
+                if (v != 0)
+                    break;
+                continue;
+            }
+            if (c < '0' || c > '7')
+                throw new IOException("Bad number in tar header.");
+            v = v * 8 + (c - '0');
+        }
+        return v;
+    }
+
+    /**
+     * Finds the {@code path=} record of a pax extended header. Each record is
+     * {@code "<length> <key>=<value>\n"}, its length counting bytes, so the
+     * records are split on the raw bytes and only the value is decoded.
+     */
+    private static String paxPath(byte[] data) {
+        byte[] key = { 'p', 'a', 't', 'h', '=' };
+        int at = 0;
+        while (at < data.length) {
+            int length = 0;
+            int i = at;
+            while (i < data.length && data[i] >= '0' && data[i] <= '9' && length <= data.length)
+                length = length * 10 + (data[i++] - '0');
+            if (i == at || i >= data.length || data[i] != ' ' || length <= i - at + 1 || length > data.length - at)
+                break;
+            int start = i + 1;
+            int end = at + length - 1; // the newline
+            if (end - start >= key.length && startsWith(data, start, key))
+                return new String(data, start + key.length, end - start - key.length, StandardCharsets.UTF_8);
+            at += length;
+        }
+        return null;
+    }
+
+    private static boolean startsWith(byte[] b, int off, byte[] prefix) {
+        for (int i = 0; i < prefix.length; i++) {
+            if (b[off + i] != prefix[i])
+                return false;
+        }
+        return true;
+    }
+
+    private static String cString(byte[] b, int off, int len) {
+        int end = off;
+        while (end < off + len && b[end] != 0)
+            end++;
+        return new String(b, off, end - off, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isZero(byte[] b) {
+        for (byte x : b) {
+            if (x != 0)
+                return false;
+        }
+        return true;
+    }
+
+    private static long padding(long size) {
+        return (512 - (size & 511)) & 511;
+    }
+
+    /** @return false at a clean end of input, before any byte was read */
+    private static boolean readFully(InputStream in, byte[] b) throws IOException {
+        int n = 0;
+        while (n < b.length) {
+            int r = in.read(b, n, b.length - n);
+            if (r < 0) {
+                if (n == 0)
+                    return false;
+                throw new EOFException("Truncated tar archive.");
+            }
+            n += r;
+        }
+        return true;
+    }
+
+    private static void skip(InputStream in, long n) throws IOException {
+        while (n > 0) {
+            long s = in.skip(n);
+            if (s <= 0) {
+                if (in.read() < 0)
+                    throw new EOFException("Truncated tar archive.");
+                s = 1;
+            }
+            n -= s;
+        }
+    }
+
+    // ------------------------------------------------------------
+    // READER SIDE
+    // ------------------------------------------------------------
+
+    /** Reads the current entry from the source or from the decoder's chunks. */
+    private final class EntryStream extends InputStream {
+        byte[] chunk;
+        int pos;
+
+        /** @return false at the end of the current entry */
+        private boolean fill() throws IOException {
+            if (!entryOpen)
+                return false;
+            while (chunk == null || pos == chunk.length) {
+                Object item = take();
+                if (!(item instanceof byte[])) {
+                    pending = item;
+                    entryOpen = false;
+                    chunk = null;
+                    return false;
+                }
+                chunk = (byte[]) item;
+                pos = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (decoder == null)
+                return entryOpen ? source.read() : -1;
+            return fill() ? chunk[pos++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (decoder == null)
+                return entryOpen ? source.read(b, off, len) : -1;
+            if (len == 0)
+                return 0;
+            if (!fill())
+                return -1;
+            int n = Math.min(len, chunk.length - pos);
+            System.arraycopy(chunk, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+            while (skipped < n && read() >= 0)
+                skipped++;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            if (decoder == null)
+                return entryOpen ? source.available() : 0;
+            return chunk == null ? 0 : chunk.length - pos;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // the archive owns the input
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package utilities;
+
+import java.io.Serializable;
+
+/**
+ * Extracts the string key that orders an element inside a key-based index
+ * such as {@link implementations.RadixTrie}.
+ *
+ * <p>Implementations must agree with the element's natural ordering: for any
+ * two elements {@code a} and {@code b}, {@code a.compareTo(b)} must have the
+ * same sign as {@code keyOf(a).compareTo(keyOf(b))}. Extractors are stored
+ * with the index, so they must be serializable.</p>
+ *
+ * @param <E> The type of element keys are taken from.
+ */
+public interface KeyExtractor<E> extends Serializable
+{
+	/**
+	 * Returns the ordering key of the given element.
+	 *
+	 * @param element the element to take the key from
+	 * @return the key, never null
+	 */
+	public String keyOf( E element );
+}
@@ -0,0 +1,70 @@
+package utilities;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+
+/**
+ * Snapshot of heap, garbage collection and posting-arena figures, used to
+ * compare runs with postings on and off the heap.
+ */
+public class MemoryStats {
+
+    /** Heap bytes in use when the snapshot was taken */
+    public final long heapUsed;
+
+    /** Heap bytes committed by the JVM */
+    public final long heapCommitted;
+
+    /** Collections run by all collectors since JVM start */
+    public final long gcCount;
+
+    /** Milliseconds spent in collections since JVM start */
+    public final long gcMillis;
+
+    /** Direct bytes reserved by the posting arena, 0 without one */
+    public final long offHeapReserved;
+
+    /** Direct bytes holding live postings, 0 without an arena */
+    public final long offHeapUsed;
+
+    private MemoryStats(long heapUsed, long heapCommitted, long gcCount, long gcMillis,
+                        long offHeapReserved, long offHeapUsed) {
+        this.heapUsed = heapUsed;
+        this.heapCommitted = heapCommitted;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+        this.offHeapReserved = offHeapReserved;
+        this.offHeapUsed = offHeapUsed;
+    }
+
+    /**
+     * Takes a snapshot of the current figures.
+     *
+     * @param arena the posting arena in use, or null
+     * @return the snapshot
+     */
+    public static MemoryStats capture(PostingArena arena) {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        long count = 0;
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return new MemoryStats(heap.getUsed(), heap.getCommitted(), count, millis,
+                arena == null ? 0 : arena.reservedBytes(),
+                arena == null ? 0 : arena.usedBytes());
+    }
+
+    @Override
+    public String toString() {
+        return "Heap used: " + kib(heapUsed) + " of " + kib(heapCommitted) + " committed\n"
+             + "GC: " + gcCount + " collections, " + gcMillis + " ms total\n"
+             + "Off-heap postings: " + kib(offHeapUsed) + " used of " + kib(offHeapReserved) + " reserved";
+    }
+
+    private static String kib(long bytes) {
+        return (bytes / 1024) + " KiB";
+    }
+}
@@ -0,0 +1,327 @@
+package utilities;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A small registry of named counters, gauges, latency histograms and sampled
+ * series, used to see where a WordTracker run spends its time.
+ *
+ * <p>Instrumented code holds a nullable {@code Metrics} reference and only
+ * records when it is set, so a run without metrics pays for a null check per
+ * event and nothing else. Names are dotted paths such as {@code phase.load}
+ * or {@code words.new}; metrics are printed and exported in the order they
+ * were first used.</p>
+ *
+ * <p>Not thread-safe; callers that record from several threads must
+ * synchronize on the instance.</p>
+ */
+public class Metrics {
+
+    private final Map<String, Counter> counters = new LinkedHashMap<>();
+    private final Map<String, Double> gauges = new LinkedHashMap<>();
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Map<String, List<long[]>> series = new LinkedHashMap<>();
+
+    // ------------------------------------------------------------
+    // REGISTRY
+    // ------------------------------------------------------------
+
+    /**
+     * Returns the counter with the given name, creating it at zero.
+     *
+     * @param name counter name
+     * @return the counter
+     */
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, n -> new Counter());
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it empty.
+     *
+     * @param name histogram name
+     * @return the histogram
+     */
+    public Histogram histogram(String name) {
+        return histograms.computeIfAbsent(name, n -> new Histogram());
+    }
+
+    /**
+     * Sets a derived value such as a rate or ratio.
+     *
+     * @param name  gauge name
+     * @param value the value
+     */
+    public void gauge(String name, double value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Appends an (x, y) point to a series, e.g. tree height against size.
+     *
+     * @param name series name
+     * @param x    x value
+     * @param y    y value
+     */
+    public void sample(String name, long x, long y) {
+        series.computeIfAbsent(name, n -> new ArrayList<>()).add(new long[] { x, y });
+    }
+
+    /**
+     * Wraps a stream so that every byte written through it is added to the
+     * named counter.
+     *
+     * @param name counter name
+     * @param out  the stream to wrap
+     * @return the counting stream
+     */
+    public OutputStream countBytes(String name, OutputStream out) {
+        final Counter c = counter(name);
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                c.add(1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                c.add(len);
+            }
+        };
+    }
+
+    // ------------------------------------------------------------
+    // OUTPUT
+    // ------------------------------------------------------------
+
+    /**
+     * Prints every metric in a human-readable form. Values are printed as
+     * recorded, so timings are in nanoseconds.
+     *
+     * @param out stream to print to
+     */
+    public void print(PrintStream out) {
+        out.println("Metrics:");
+        for (Map.Entry<String, Counter> e : counters.entrySet())
+            out.println(String.format(Locale.ROOT, "  %-24s %d", e.getKey(), e.getValue().get()));
+        for (Map.Entry<String, Double> e : gauges.entrySet())
+            out.println(String.format(Locale.ROOT, "  %-24s %.3f", e.getKey(), e.getValue()));
+        for (Map.Entry<String, Histogram> e : histograms.entrySet())
+            out.println(String.format(Locale.ROOT, "  %-24s %s", e.getKey(), e.getValue()));
+        for (Map.Entry<String, List<long[]>> e : series.entrySet()) {
+            StringBuilder sb = new StringBuilder();
+            for (long[] p : e.getValue()) {
+                if (sb.length() > 0)
+                    sb.append(' ');
+                sb.append(p[0]).append(':').append(p[1]);
+            }
+            out.println(String.format(Locale.ROOT, "  %-24s %s", e.getKey(), sb));
+        }
+    }
+
+    /**
+     * Writes every metric as one JSON object with {@code counters},
+     * {@code gauges}, {@code histograms} and {@code series} members.
+     *
+     * @param out stream to write to
+     */
+    public void writeJson(PrintStream out) {
+        out.println("{");
+        out.print("  \"counters\": {");
+        String sep = "";
+        for (Map.Entry<String, Counter> e : counters.entrySet()) {
+            out.print(sep + "\n    " + quote(e.getKey()) + ": " + e.getValue().get());
+            sep = ",";
+        }
+        out.println("\n  },");
+
+        out.print("  \"gauges\": {");
+        sep = "";
+        for (Map.Entry<String, Double> e : gauges.entrySet()) {
+            double v = e.getValue();
+            out.print(sep + "\n    " + quote(e.getKey()) + ": "
+                    + (Double.isNaN(v) || Double.isInfinite(v) ? "null" : String.valueOf(v)));
+            sep = ",";
+        }
+        out.println("\n  },");
+
+        out.print("  \"histograms\": {");
+        sep = "";
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            Histogram h = e.getValue();
+            out.print(sep + "\n    " + quote(e.getKey()) + ": {\"count\": " + h.count()
+                    + ", \"min\": " + h.min() + ", \"max\": " + h.max()
+                    + ", \"sum\": " + h.sum()
+                    + ", \"p50\": " + h.percentile(50) + ", \"p90\": " + h.percentile(90)
+                    + ", \"p99\": " + h.percentile(99) + "}");
+            sep = ",";
+        }
+        out.println("\n  },");
+
+        out.print("  \"series\": {");
+        sep = "";
+        for (Map.Entry<String, List<long[]>> e : series.entrySet()) {
+            StringBuilder sb = new StringBuilder();
+            for (long[] p : e.getValue()) {
+                if (sb.length() > 0)
+                    sb.append(", ");
+                sb.append('[').append(p[0]).append(", ").append(p[1]).append(']');
+            }
+            out.print(sep + "\n    " + quote(e.getKey()) + ": [" + sb + "]");
+            sep = ",";
+        }
+        out.println("\n  }");
+        out.println("}");
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    // ------------------------------------------------------------
+    // METRIC TYPES
+    // ------------------------------------------------------------
+
+    /** A running total. */
+    public static class Counter {
+        private long value;
+
+        /** Adds one. */
+        public void increment() {
+            value++;
+        }
+
+        /** @param delta amount to add */
+        public void add(long delta) {
+            value += delta;
+        }
+
+        /** @return the current total */
+        public long get() {
+            return value;
+        }
+    }
+
+    /**
+     * A histogram of non-negative values with log-linear buckets: each power
+     * of two is split into {@value #SUB_BUCKETS} equal sub-buckets, so
+     * percentiles are accurate to within 12.5% at any magnitude while the
+     * whole histogram is a fixed {@code long[]}.
+     */
+    public static class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+        /** Enough buckets for every non-negative {@code long} */
+        private final long[] buckets = new long[(64 - SUB_BITS) * SUB_BUCKETS];
+        private long count;
+        private long sum;
+        private long min = Long.MAX_VALUE;
+        private long max;
+
+        /**
+         * Records one value; negative values are recorded as 0.
+         *
+         * @param value the value
+         */
+        public void record(long value) {
+            if (value < 0)
+                value = 0;
+            buckets[bucketOf(value)]++;
+            count++;
+            sum += value;
+            if (value < min)
+                min = value;
+            if (value > max)
+                max = value;
+        }
+
+        /**
+         * Records the time elapsed since a {@link System#nanoTime()} reading.
+         *
+         * @param startNanos the earlier reading
+         * @return the current {@code nanoTime}, for chaining timings
+         */
+        public long recordSince(long startNanos) {
+            long now = System.nanoTime();
+            record(now - startNanos);
+            return now;
+        }
+
+        /** @return the number of recorded values */
+        public long count() {
+            return count;
+        }
+
+        /** @return the sum of recorded values */
+        public long sum() {
+            return sum;
+        }
+
+        /** @return the smallest recorded value, or 0 if empty */
+        public long min() {
+            return count == 0 ? 0 : min;
+        }
+
+        /** @return the largest recorded value */
+        public long max() {
+            return max;
+        }
+
+        /** @return the mean of recorded values, or 0 if empty */
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Returns the value below which the given percentage of recorded
+         * values fall, rounded to the lower edge of its bucket.
+         *
+         * @param percent percentage between 0 and 100
+         * @return the percentile, or 0 if empty
+         */
+        public long percentile(double percent) {
+            if (count == 0)
+                return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * percent / 100.0));
+            long seen = 0;
+            for (int b = 0; b < buckets.length; b++) {
+                seen += buckets[b];
+                if (seen >= rank)
+                    return Math.min(max, Math.max(min, lowerBound(b)));
+            }
+            return max;
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS)
+                return (int) value;
+            int exp = 63 - Long.numberOfLeadingZeros(value);
+            int sub = (int) (value >>> (exp - SUB_BITS)) & (SUB_BUCKETS - 1);
+            return (exp - SUB_BITS + 1) * SUB_BUCKETS + sub;
+        }
+
+        static long lowerBound(int bucket) {
+            if (bucket < SUB_BUCKETS)
+                return bucket;
+            int exp = bucket / SUB_BUCKETS + SUB_BITS - 1;
+            return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exp - SUB_BITS);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "count=%d min=%d p50=%d p90=%d p99=%d max=%d mean=%.1f",
+                    count, min(), percentile(50), percentile(90), percentile(99), max, mean());
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package utilities;
+
+/**
+ * The Porter (1980) suffix-stripping stemmer for English. It reduces
+ * inflected and derived forms to a common stem, such as "connected",
+ * "connecting" and "connection" to "connect". Stems are not always words
+ * ("happy" becomes "happi"), but related forms share them.
+ *
+ * <p>Only folded words made of the letters a to z and longer than two
+ * characters are stemmed; anything else, including non-ASCII words, is
+ * returned unchanged. The algorithm follows Porter's reference
+ * implementation and works in place on a char array, so a call allocates
+ * only that array and, when the word changes, the result.</p>
+ */
+public final class PorterStemmer {
+
+    private char[] b;
+    /** Offset of the last char of the current word */
+    private int k;
+    /** Offset of the last char of the stem before the suffix being examined */
+    private int j;
+
+    private PorterStemmer(char[] b) {
+        this.b = b;
+        this.k = b.length - 1;
+    }
+
+    /**
+     * Stems a folded word.
+     *
+     * @param word a folded word
+     * @return the stem, the same instance if nothing was removed
+     * @throws NullPointerException if word is null
+     */
+    public static String stem(String word) {
+        int n = word.length();
+        if (n <= 2)
+            return word;
+        for (int i = 0; i < n; i++) {
+            char c = word.charAt(i);
+            if (c < 'a' || c > 'z')
+                return word;
+        }
+        PorterStemmer s = new PorterStemmer(word.toCharArray());
+        s.step1ab();
+        if (s.k > 0) {
+            s.step1c();
+            s.step2();
+            s.step3();
+            s.step4();
+            s.step5();
+        }
+        return s.k == n - 1 && s.unchanged(word) ? word : new String(s.b, 0, s.k + 1);
+    }
+
+    /** Steps 1c and 2 can change chars without shortening the word. */
+    private boolean unchanged(String word) {
+        for (int i = 0; i <= k; i++) {
+            if (b[i] != word.charAt(i))
+                return false;
+        }
+        return true;
+    }
+
+    /** @return true if b[i] is a consonant */
+    private boolean cons(int i) {
+        switch (b[i]) {
+            case 'a':
+            case 'e':
+            case 'i':
+            case 'o':
+            case 'u':
+                return false;
+            case 'y':
+                return i == 0 || !cons(i - 1);
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Measures the number of consonant sequences between 0 and j. With c a
+     * consonant sequence and v a vowel sequence, {@code [c](vc)^m[v]} gives m.
+     */
+    private int m() {
+        int n = 0;
+        int i = 0;
+        while (true) {
+            if (i > j)
+                return n;
+            if (!cons(i))
+                break;
+            i++;
+        }
+        i++;
+        while (true) {
+            while (true) {
+                if (i > j)
+                    return n;
+                if (cons(i))
+                    break;
+                i++;
+            }
+            i++;
+            n++;
+            while (true) {
+                if (i > j)
+                    return n;
+                if (!cons(i))
+                    break;
+                i++;
+            }
+            i++;
+        }
+    }
+
+    /** @return true if 0..j contains a vowel */
+    private boolean vowelInStem() {
+        for (int i = 0; i <= j; i++) {
+            if (!cons(i))
+                return true;
+        }
+        return false;
+    }
+
+    /** @return true if i-1 and i hold the same consonant */
+    private boolean doubleC(int i) {
+        return i >= 1 && b[i] == b[i - 1] && cons(i);
+    }
+
+    /**
+     * @return true if i-2, i-1, i is consonant-vowel-consonant and the last
+     *         consonant is not w, x or y, as in "hop" but not "snow"
+     */
+    private boolean cvc(int i) {
+        if (i < 2 || !cons(i) || cons(i - 1) || !cons(i - 2))
+            return false;
+        char c = b[i];
+        return c != 'w' && c != 'x' && c != 'y';
+    }
+
+    /** @return true if 0..k ends with s, setting j to just before it */
+    private boolean ends(String s) {
+        int l = s.length();
+        int o = k - l + 1;
+        if (o < 0)
+            return false;
+        for (int i = 0; i < l; i++) {
+            if (b[o + i] != s.charAt(i))
+                return false;
+        }
+        j = k - l;
+        return true;
+    }
+
+    /** Replaces j+1..k with s. */
+    private void setTo(String s) {
+        int l = s.length();
+        int o = j + 1;
+        if (o + l > b.length) {
+            char[] grown = new char[o + l];
+            System.arraycopy(b, 0, grown, 0, o);
+            b = grown;
+        }
+        for (int i = 0; i < l; i++)
+            b[o + i] = s.charAt(i);
+        k = j + l;
+    }
+
+    private void r(String s) {
+        if (m() > 0)
+            setTo(s);
+    }
+
+    /** Removes plurals and -ed or -ing. */
+    private void step1ab() {
+        if (b[k] == 's') {
+            if (ends("sses"))
+                k -= 2;
+            else if (ends("ies"))
+                setTo("i");
+            else if (b[k - 1] != 's')
+                k--;
+        }
+        if (ends("eed")) {
+            if (m() > 0)
+                k--;
+        } else if ((ends("ed") || ends("ing")) && vowelInStem()) {
+            k = j;
+            if (ends("at"))
+                setTo("ate");
+            else if (ends("bl"))
+                setTo("ble");
+            else if (ends("iz"))
+                setTo("ize");
+            else if (doubleC(k)) {
+                k--;
+                char c = b[k];
+                if (c == 'l' || c == 's' || c == 'z')
+                    k++;
+            } else if (m() == 1 && cvc(k)) {
+                setTo("e");
+            }
+        }
+    }
+
+    /** Turns a terminal y into i when there is another vowel in the stem. */
+    private void step1c() {
+        if (ends("y") && vowelInStem())
+            b[k] = 'i';
+    }
+
+    /** Maps double suffixes to single ones, e.g. -ization to -ize. */
+    private void step2() {
+        if (k == 0)
+            return;
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("ational")) { r("ate"); break; }
+                if (ends("tional")) { r("tion"); break; }
+                break;
+            case 'c':
+                if (ends("enci")) { r("ence"); break; }
+                if (ends("anci")) { r("ance"); break; }
+                break;
+            case 'e':
+                if (ends("izer")) { r("ize"); break; }
+                break;
+            case 'l':
+                if (ends("bli")) { r("ble"); break; }
+                if (ends("alli")) { r("al"); break; }
+                if (ends("entli")) { r("ent"); break; }
+                if (ends("eli")) { r("e"); break; }
+                if (ends("ousli")) { r("ous"); break; }
+                break;
+            case 'o':
+                if (ends("ization")) { r("ize"); break; }
+                if (ends("ation")) { r("ate"); break; }
+                if (ends("ator")) { r("ate"); break; }
+                break;
+            case 's':
+                if (ends("alism")) { r("al"); break; }
+                if (ends("iveness")) { r("ive"); break; }
+                if (ends("fulness")) { r("ful"); break; }
+                if (ends("ousness")) { r("ous"); break; }
+                break;
+            case 't':
+                if (ends("aliti")) { r("al"); break; }
+                if (ends("iviti")) { r("ive"); break; }
+                if (ends("biliti")) { r("ble"); break; }
+                break;
+            case 'g':
+                if (ends("logi")) { r("log"); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** Handles -ic-, -full, -ness and similar. */
+    private void step3() {
+        switch (b[k]) {
+            case 'e':
+                if (ends("icate")) { r("ic"); break; }
+                if (ends("ative")) { r(""); break; }
+                if (ends("alize")) { r("al"); break; }
+                break;
+            case 'i':
+                if (ends("iciti")) { r("ic"); break; }
+                break;
+            case 'l':
+                if (ends("ical")) { r("ic"); break; }
+                if (ends("ful")) { r(""); break; }
+                break;
+            case 's':
+                if (ends("ness")) { r(""); break; }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /** Takes off -ant, -ence and similar in context {@code <c>vcvc<v>}. */
+    private void step4() {
+        if (k == 0)
+            return;
+        switch (b[k - 1]) {
+            case 'a':
+                if (ends("al")) break;
+                return;
+            case 'c':
+                if (ends("ance")) break;
+                if (ends("ence")) break;
+                return;
+            case 'e':
+                if (ends("er")) break;
+                return;
+            case 'i':
+                if (ends("ic")) break;
+                return;
+            case 'l':
+                if (ends("able")) break;
+                if (ends("ible")) break;
+                return;
+            case 'n':
+                if (ends("ant")) break;
+                if (ends("ement")) break;
+                if (ends("ment")) break;
+                if (ends("ent")) break;
+                return;
+            case 'o':
+                if (ends("ion") && j >= 0 && (b[j] == 's' || b[j] == 't')) break;
+                if (ends("ou")) break;
+                return;
+            case 's':
+                if (ends("ism")) break;
+                return;
+            case 't':
+                if (ends("ate")) break;
+                if (ends("iti")) break;
+                return;
+            case 'u':
+                if (ends("ous")) break;
+                return;
+            case 'v':
+                if (ends("ive")) break;
+                return;
+            case 'z':
+                if (ends("ize")) break;
+                return;
+            default:
+                return;
+        }
+        if (m() > 1)
+            k = j;
+    }
+
+    /** Removes a final -e and reduces -ll to -l when m > 1. */
+    private void step5() {
+        j = k;
+        if (b[k] == 'e') {
+            int a = m();
+            if (a > 1 || a == 1 && !cvc(k - 1))
+                k--;
+        }
+        if (b[k] == 'l' && doubleC(k) && m() > 1)
+            k--;
+    }
+}
@@ -0,0 +1,109 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * An append-only list of (line, column) positions, stored as a delta-encoded
+ * varint byte stream.
+ *
+ * <p>Positions must be added in ascending order: by line, then by column
+ * within a line. Each entry is written as the line's distance from the
+ * previous entry's line followed by the column — as a distance from the
+ * previous column when the line is unchanged, or absolute on a new line.
+ * Both numbers are usually below 128, so a typical entry costs two bytes
+ * instead of the 16+ bytes of a boxed {@code Integer} in a list.</p>
+ */
+public class PositionList implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private byte[] data = new byte[8];
+    private int length;
+    private int count;
+    private int lastLine;
+    private int lastColumn;
+
+    /**
+     * Appends a position.
+     *
+     * @param line   line number, not less than the last line added
+     * @param column column (e.g. token index in the line), not less than the
+     *               last column added on the same line
+     * @throws IllegalArgumentException if the position is out of order or negative
+     */
+    public void add(int line, int column) {
+        if (line < lastLine || column < 0 || (line == lastLine && count > 0 && column < lastColumn))
+            throw new IllegalArgumentException("Position " + line + ":" + column + " is out of order.");
+        int lineDelta = line - lastLine;
+        writeVarInt(lineDelta);
+        writeVarInt(lineDelta == 0 && count > 0 ? column - lastColumn : column);
+        lastLine = line;
+        lastColumn = column;
+        count++;
+    }
+
+    /** @return the number of positions */
+    public int size() {
+        return count;
+    }
+
+    /** @return bytes used by the encoded positions */
+    public int byteSize() {
+        return length;
+    }
+
+    /**
+     * Decodes every position into {@code (line << 32) | column}, which sorts
+     * positions in the order they were added.
+     *
+     * @return the packed positions in ascending order
+     */
+    public long[] toArray() {
+        long[] out = new long[count];
+        int line = 0;
+        int column = 0;
+        int at = 0;
+        for (int i = 0; i < count; i++) {
+            int lineDelta = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[at++];
+                lineDelta |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            int colValue = 0;
+            shift = 0;
+            do {
+                b = data[at++];
+                colValue |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            line += lineDelta;
+            column = (lineDelta == 0 && i > 0) ? column + colValue : colValue;
+            out[i] = ((long) line << 32) | column;
+        }
+        return out;
+    }
+
+    private void writeVarInt(int v) {
+        if (length + 5 > data.length)
+            data = Arrays.copyOf(data, Math.max(data.length * 2, length + 5));
+        while ((v & ~0x7F) != 0) {
+            data[length++] = (byte) ((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        data[length++] = (byte) v;
+    }
+
+    /** Drops spare capacity so only the encoded bytes are written. */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        if (data.length != length)
+            data = Arrays.copyOf(data, length);
+        out.defaultWriteObject();
+    }
+}
@@ -0,0 +1,225 @@
+package utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Off-heap storage for posting lists (the line numbers of a word in a file).
+ *
+ * <p>Lists live in direct {@link ByteBuffer} chunks outside the Java heap, so
+ * tens of millions of occurrences no longer mean tens of millions of boxed
+ * {@code Integer}s for the garbage collector to trace. Callers hold a
+ * {@code long} handle per list; the handle encodes the chunk and byte offset
+ * of the list's block.</p>
+ *
+ * <p>Each list is one contiguous block: an {@code int} size-class header, an
+ * {@code int} element count and then the values. Blocks come in power-of-two
+ * size classes carved from 4 MiB chunks with a bump pointer. When a block is
+ * full, {@link #append(long, int)} moves the list into a block of the next
+ * class and returns the new handle; freed blocks go on a per-class free list
+ * and are reused before new chunk space. Lists too large for a chunk get a
+ * dedicated buffer.</p>
+ *
+ * <p>Allocation and freeing are synchronized. Reads only touch block
+ * contents, so lists that are not being appended to may be read from
+ * several threads.</p>
+ */
+public class PostingArena {
+
+    /** Bytes per shared chunk */
+    private static final int CHUNK_BYTES = 1 << 22;
+
+    /** Header bytes in front of each block: size class and element count */
+    private static final int HEADER = 8;
+
+    /** Smallest block holds 2^MIN_CLASS bytes including the header */
+    private static final int MIN_CLASS = 4;
+
+    /** Largest size class; 2^30 bytes is the most a direct buffer can hold here */
+    private static final int MAX_CLASS = 30;
+
+    private volatile ByteBuffer[] chunks = new ByteBuffer[4];
+    private int chunkCount;
+
+    /** Bump pointer into the last shared chunk */
+    private int current = -1;
+    private int offset = CHUNK_BYTES;
+
+    /** Free block addresses per size class, used as stacks */
+    private final long[][] free = new long[MAX_CLASS + 1][];
+    private final int[] freeCount = new int[MAX_CLASS + 1];
+
+    private long reservedBytes;
+    private long usedBytes;
+
+    // ------------------------------------------------------------
+    // ALLOCATION
+    // ------------------------------------------------------------
+
+    /**
+     * Allocates an empty posting list.
+     *
+     * @return the handle of the new list
+     */
+    public synchronized long allocate() {
+        return allocateBlock(MIN_CLASS, 0);
+    }
+
+    /**
+     * Appends a value to a list, moving it to a larger block when full.
+     *
+     * @param handle handle of the list
+     * @param value  value to append
+     * @return the list's handle, which differs from {@code handle} if it moved
+     */
+    public synchronized long append(long handle, int value) {
+        ByteBuffer buf = chunk(handle);
+        int at = offset(handle);
+        int sizeClass = buf.getInt(at);
+        int count = buf.getInt(at + 4);
+
+        if (HEADER + (count + 1) * 4 > (1 << sizeClass)) {
+            if (sizeClass == MAX_CLASS)
+                throw new IllegalStateException("Posting list exceeds " + count + " entries.");
+            long moved = allocateBlock(sizeClass + 1, count);
+            ByteBuffer to = chunk(moved);
+            int toAt = offset(moved);
+            for (int i = 0; i < count; i++)
+                to.putInt(toAt + HEADER + i * 4, buf.getInt(at + HEADER + i * 4));
+            release(handle, sizeClass);
+            handle = moved;
+            buf = to;
+            at = toAt;
+        }
+
+        buf.putInt(at + HEADER + count * 4, value);
+        buf.putInt(at + 4, count + 1);
+        usedBytes += 4;
+        return handle;
+    }
+
+    /**
+     * Frees a list. The handle must not be used afterwards.
+     *
+     * @param handle handle of the list
+     */
+    public synchronized void free(long handle) {
+        ByteBuffer buf = chunk(handle);
+        int at = offset(handle);
+        usedBytes -= buf.getInt(at + 4) * 4L;
+        release(handle, buf.getInt(at));
+    }
+
+    private long allocateBlock(int sizeClass, int count) {
+        long handle;
+        if (freeCount[sizeClass] > 0) {
+            handle = free[sizeClass][--freeCount[sizeClass]];
+        } else {
+            int bytes = 1 << sizeClass;
+            if (bytes > CHUNK_BYTES) {
+                handle = address(addChunk(bytes), 0);
+            } else {
+                if (offset + bytes > CHUNK_BYTES) {
+                    current = addChunk(CHUNK_BYTES);
+                    offset = 0;
+                }
+                handle = address(current, offset);
+                offset += bytes;
+            }
+        }
+        ByteBuffer buf = chunk(handle);
+        int at = offset(handle);
+        buf.putInt(at, sizeClass);
+        buf.putInt(at + 4, count);
+        usedBytes += HEADER;
+        return handle;
+    }
+
+    private void release(long handle, int sizeClass) {
+        long[] stack = free[sizeClass];
+        if (stack == null)
+            stack = free[sizeClass] = new long[16];
+        else if (freeCount[sizeClass] == stack.length)
+            stack = free[sizeClass] = Arrays.copyOf(stack, stack.length * 2);
+        stack[freeCount[sizeClass]++] = handle;
+        usedBytes -= HEADER;
+    }
+
+    private int addChunk(int bytes) {
+        ByteBuffer[] grown = chunks;
+        if (chunkCount == grown.length)
+            grown = Arrays.copyOf(grown, grown.length * 2);
+        grown[chunkCount] = ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+        chunks = grown;
+        reservedBytes += bytes;
+        return chunkCount++;
+    }
+
+    private static long address(int chunk, int offset) {
+        return ((long) chunk << 32) | offset;
+    }
+
+    private ByteBuffer chunk(long handle) {
+        return chunks[(int) (handle >>> 32)];
+    }
+
+    private static int offset(long handle) {
+        return (int) handle;
+    }
+
+    // ------------------------------------------------------------
+    // READING
+    // ------------------------------------------------------------
+
+    /**
+     * @param handle handle of the list
+     * @return the number of values in the list
+     */
+    public int size(long handle) {
+        return chunk(handle).getInt(offset(handle) + 4);
+    }
+
+    /**
+     * @param handle handle of the list
+     * @param index  position of the value
+     * @return the value at the given position
+     * @throws IndexOutOfBoundsException if index is outside the list
+     */
+    public int get(long handle, int index) {
+        ByteBuffer buf = chunk(handle);
+        int at = offset(handle);
+        if (index < 0 || index >= buf.getInt(at + 4))
+            throw new IndexOutOfBoundsException("Index: " + index);
+        return buf.getInt(at + HEADER + index * 4);
+    }
+
+    /**
+     * Passes every value of the list, in insertion order, to the action.
+     *
+     * @param handle handle of the list
+     * @param action receives each value
+     */
+    public void forEach(long handle, IntConsumer action) {
+        ByteBuffer buf = chunk(handle);
+        int at = offset(handle);
+        int end = at + HEADER + buf.getInt(at + 4) * 4;
+        for (int i = at + HEADER; i < end; i += 4)
+            action.accept(buf.getInt(i));
+    }
+
+    // ------------------------------------------------------------
+    // STATISTICS
+    // ------------------------------------------------------------
+
+    /** @return bytes of direct memory reserved by the arena */
+    public synchronized long reservedBytes() {
+        return reservedBytes;
+    }
+
+    /** @return bytes occupied by live list headers and values */
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+}
@@ -0,0 +1,230 @@
+package utilities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An immutable set of stop words behind a perfect hash: every member has its
+ * own slot, so a lookup hashes the key once, mixes in its bucket's seed to
+ * find the one slot it can be in and makes at most one string comparison.
+ * Keys longer than the longest stop word are rejected before hashing.
+ *
+ * <p>The table is built with hash-and-displace. Keys are grouped into
+ * buckets by one hash; buckets are placed largest first, each trying seeds
+ * until all of its keys land on free slots of a table at most half full.
+ * The seed found for each bucket is stored, and lookups use it to find the
+ * key's slot.</p>
+ *
+ * <p>Words are folded with {@link TextNormalizer#fold(String)} when the set
+ * is built, so {@link #contains(String)} expects folded keys.</p>
+ */
+public final class StopWords implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Common English function words, in the form {@link TextNormalizer#clean(String)}
+     * leaves them: contractions have lost their apostrophes.
+     */
+    public static final List<String> ENGLISH = Collections.unmodifiableList(Arrays.asList(
+            "a", "about", "above", "after", "again", "against", "all", "am", "an", "and",
+            "any", "are", "arent", "as", "at", "be", "because", "been", "before", "being",
+            "below", "between", "both", "but", "by", "can", "cant", "could", "couldnt", "did",
+            "didnt", "do", "does", "doesnt", "doing", "dont", "down", "during", "each", "few",
+            "for", "from", "further", "had", "hadnt", "has", "hasnt", "have", "havent", "having",
+            "he", "her", "here", "hers", "herself", "him", "himself", "his", "how", "i",
+            "if", "in", "into", "is", "isnt", "it", "its", "itself", "me", "more",
+            "most", "my", "myself", "no", "nor", "not", "of", "off", "on", "once",
+            "only", "or", "other", "ought", "our", "ours", "ourselves", "out", "over", "own",
+            "same", "she", "should", "so", "some", "such", "than", "that", "the", "their",
+            "theirs", "them", "themselves", "then", "there", "these", "they", "this", "those", "through",
+            "to", "too", "under", "until", "up", "very", "was", "wasnt", "we", "were",
+            "werent", "what", "when", "where", "which", "while", "who", "whom", "why", "will",
+            "with", "wont", "would", "wouldnt", "you", "your", "yours", "yourself", "yourselves"));
+
+    /** Seeds tried per bucket before the table is doubled */
+    private static final int MAX_SEED = 1 << 16;
+
+    private final String[] table;
+    private final int[] seeds;
+    private final int mask;
+    private final int size;
+    private final int maxLength;
+
+    /**
+     * Builds a set of the given words, folded. Empty strings and duplicates
+     * after folding are ignored.
+     *
+     * @param words the stop words
+     * @throws NullPointerException if words or any word is null
+     */
+    public StopWords(Collection<String> words) {
+        TreeSet<String> keys = new TreeSet<>();
+        for (String w : words) {
+            String key = TextNormalizer.fold(w.trim());
+            if (!key.isEmpty())
+                keys.add(key);
+        }
+        String[] k = keys.toArray(new String[0]);
+        int length = 0;
+        for (String key : k)
+            length = Math.max(length, key.length());
+        size = k.length;
+        maxLength = length;
+        seeds = new int[Math.max(1, (k.length + 3) / 4)];
+
+        int slots = Integer.highestOneBit(Math.max(2, k.length) * 2 - 1) << 1;
+        String[] placed;
+        while ((placed = place(k, slots)) == null)
+            slots <<= 1;
+        table = placed;
+        mask = slots - 1;
+    }
+
+    /** @return the built-in English list */
+    public static StopWords english() {
+        return new StopWords(ENGLISH);
+    }
+
+    /**
+     * Reads stop words from a UTF-8 text file. Words are separated by commas
+     * or whitespace; text after {@code #} on a line is a comment.
+     *
+     * @param file the word list
+     * @return the set
+     * @throws IOException if the file cannot be read
+     */
+    public static StopWords load(File file) throws IOException {
+        List<String> words = new ArrayList<>();
+        try (BufferedReader br = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                int hash = line.indexOf('#');
+                if (hash >= 0)
+                    line = line.substring(0, hash);
+                for (String w : line.split("[,\\s]+")) {
+                    if (!w.isEmpty())
+                        words.add(w);
+                }
+            }
+        }
+        return new StopWords(words);
+    }
+
+    /**
+     * @param key a folded word
+     * @return true if the key is a stop word
+     * @throws NullPointerException if key is null
+     */
+    public boolean contains(String key) {
+        if (key.length() > maxLength)
+            return false;
+        long h = StringHash.hash64(key);
+        String member = table[slot(h, seeds[bucket(h, seeds.length)], mask)];
+        return member != null && member.equals(key);
+    }
+
+    /** @return the number of stop words */
+    public int size() {
+        return size;
+    }
+
+    /** @return the stop words in ascending order */
+    public List<String> words() {
+        List<String> words = new ArrayList<>(size);
+        for (String s : table) {
+            if (s != null)
+                words.add(s);
+        }
+        Collections.sort(words);
+        return words;
+    }
+
+    /** @return the number of slots in the hash table */
+    public int tableSize() {
+        return table.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof StopWords && words().equals(((StopWords) o).words());
+    }
+
+    @Override
+    public int hashCode() {
+        return words().hashCode();
+    }
+
+    /**
+     * Places every key with a per-bucket seed, filling {@link #seeds}.
+     *
+     * @return the table, or null if some bucket found no seed
+     */
+    private String[] place(String[] keys, int slots) {
+        int buckets = seeds.length;
+        List<List<String>> byBucket = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++)
+            byBucket.add(new ArrayList<>());
+        for (String key : keys)
+            byBucket.get(bucket(StringHash.hash64(key), buckets)).add(key);
+        Integer[] order = new Integer[buckets];
+        for (int b = 0; b < buckets; b++)
+            order[b] = b;
+        Arrays.sort(order, (x, y) -> byBucket.get(y).size() - byBucket.get(x).size());
+
+        String[] placed = new String[slots];
+        int[] taken = new int[8];
+        for (int b : order) {
+            List<String> members = byBucket.get(b);
+            if (members.isEmpty())
+                break;
+            if (taken.length < members.size())
+                taken = new int[members.size()];
+            int seed = 0;
+            search:
+            for (; seed < MAX_SEED; seed++) {
+                for (int i = 0; i < members.size(); i++) {
+                    int s = slot(StringHash.hash64(members.get(i)), seed, slots - 1);
+                    if (placed[s] != null)
+                        continue search;
+                    for (int j = 0; j < i; j++) {
+                        if (taken[j] == s)
+                            continue search;
+                    }
+                    taken[i] = s;
+                }
+                break;
+            }
+            if (seed == MAX_SEED)
+                return null;
+            seeds[b] = seed;
+            for (int i = 0; i < members.size(); i++)
+                placed[taken[i]] = members.get(i);
+        }
+        return placed;
+    }
+
+    private static int bucket(long h, int buckets) {
+        return (int) ((h >>> 32) % buckets);
+    }
+
+    private static int slot(long h, int seed, int mask) {
+        long x = h + seed * 0x9e3779b97f4a7c15L;
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        return (int) x & mask;
+    }
+}
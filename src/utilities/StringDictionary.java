@@ -0,0 +1,134 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * A repository-wide dictionary that maps strings (words and filenames) to
+ * dense integer IDs and keeps exactly one {@link String} instance per value.
+ *
+ * <p>IDs are assigned in first-seen order starting at 0 and never change, so
+ * they can be stored in place of the strings themselves. Handing out the
+ * canonical instance through {@link #canonical(String)} means every
+ * {@code Word} that mentions a file shares one filename string, and equal
+ * strings compare by reference before falling back to a character scan.</p>
+ *
+ * <p>The strings are stored in ID order in a single array; the lookup table
+ * is an open-addressed {@code int[]} that is rebuilt after deserialization
+ * rather than written to disk.</p>
+ */
+public class StringDictionary implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** Strings by ID */
+    private String[] strings = new String[16];
+
+    /** Number of strings stored */
+    private int size;
+
+    /** Open-addressed table of ID + 1 (0 = empty), sized to a power of two */
+    private transient int[] table = new int[32];
+
+    /**
+     * Returns the ID of the string, adding it to the dictionary if absent.
+     *
+     * @param s the string to look up
+     * @return the string's ID
+     * @throws NullPointerException if s is null
+     */
+    public int idOf(String s) {
+        if (s == null)
+            throw new NullPointerException("Cannot intern null.");
+        int mask = table.length - 1;
+        int i = spread(s.hashCode()) & mask;
+        int slot;
+        while ((slot = table[i]) != 0) {
+            if (strings[slot - 1].equals(s))
+                return slot - 1;
+            i = (i + 1) & mask;
+        }
+
+        if (size == strings.length)
+            strings = Arrays.copyOf(strings, size * 2);
+        strings[size] = s;
+        table[i] = ++size;
+        if (size * 2 > table.length)
+            rehash(table.length * 2);
+        return size - 1;
+    }
+
+    /**
+     * Returns the ID of the string without adding it.
+     *
+     * @param s the string to look up
+     * @return the string's ID, or -1 if it is not in the dictionary
+     */
+    public int lookup(String s) {
+        if (s == null)
+            return -1;
+        int mask = table.length - 1;
+        int i = spread(s.hashCode()) & mask;
+        int slot;
+        while ((slot = table[i]) != 0) {
+            if (strings[slot - 1].equals(s))
+                return slot - 1;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the shared instance equal to the given string, adding it if absent.
+     *
+     * @param s the string to canonicalize
+     * @return the dictionary's instance of s
+     */
+    public String canonical(String s) {
+        int id = idOf(s); // may grow the array, so index it afterwards
+        return strings[id];
+    }
+
+    /**
+     * Returns the string with the given ID.
+     *
+     * @param id an ID previously returned by {@link #idOf(String)}
+     * @return the string
+     * @throws IndexOutOfBoundsException if the ID was never assigned
+     */
+    public String get(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("Unknown string id: " + id);
+        return strings[id];
+    }
+
+    /** @return the number of distinct strings in the dictionary */
+    public int size() {
+        return size;
+    }
+
+    /** Mixes the high bits of a hash code into the low bits used for indexing. */
+    private static int spread(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int i = spread(strings[id].hashCode()) & mask;
+            while (table[i] != 0)
+                i = (i + 1) & mask;
+            table[i] = id + 1;
+        }
+    }
+
+    /** Rebuilds the lookup table, which is not serialized. */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        rehash(Math.max(32, Integer.highestOneBit(Math.max(1, size)) * 4));
+    }
+}
@@ -0,0 +1,32 @@
+package utilities;
+
+/**
+ * The 64-bit string hash shared by {@link BloomFilter} and
+ * {@link StopWords}: FNV-1a over the UTF-16 chars, finished with the
+ * MurmurHash3 64-bit mixer so that every bit of the result depends on every
+ * char. BloomFilters are serialized with their bits, so changing this
+ * function invalidates saved repositories' filters.
+ */
+final class StringHash {
+
+    private StringHash() {
+    }
+
+    /**
+     * @param key the string to hash
+     * @return the 64-bit hash of its chars
+     */
+    static long hash64(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
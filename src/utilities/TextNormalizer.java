@@ -0,0 +1,149 @@
+package utilities;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Turns raw tokens into index words and index words into the keys that
+ * order them, the same way on every ingest and lookup path.
+ *
+ * <ul>
+ *   <li>{@link #clean(String)} applies NFKC, so compatibility forms such as
+ *       ligatures and full-width letters become their plain equivalents, and
+ *       removes punctuation: ASCII {@code \p{Punct}} plus every Unicode
+ *       punctuation category, which covers curly quotes, dashes and
+ *       ellipses.</li>
+ *   <li>{@link #fold(String)} case-folds a cleaned word independently of the
+ *       default locale, so a Turkish locale does not turn {@code I} into a
+ *       dotless {@code ı}, and {@code ß} and {@code SS} fold alike.</li>
+ * </ul>
+ *
+ * <p>Most tokens are pure ASCII, where NFKC changes nothing and folding is a
+ * per-character table lookup. Both methods first OR the characters together
+ * with no data-dependent branches; when the result stays below 0x80 they take
+ * the ASCII path, which returns the argument itself when nothing changes.
+ * Only the remaining tokens pay for {@link Normalizer} and full case
+ * mapping.</p>
+ */
+public final class TextNormalizer {
+
+    /** Bit {@code c} is set for each ASCII punctuation character {@code c} */
+    private static final long PUNCT_LOW;
+    private static final long PUNCT_HIGH;
+
+    static {
+        long low = 0, high = 0;
+        for (char c : "!\"#$%&'()*+,-./:;<=>?@[\\]^_`{|}~".toCharArray()) {
+            if (c < 64)
+                low |= 1L << c;
+            else
+                high |= 1L << (c - 64);
+        }
+        PUNCT_LOW = low;
+        PUNCT_HIGH = high;
+    }
+
+    private TextNormalizer() {
+    }
+
+    /**
+     * Normalizes a raw token to NFKC and removes its punctuation, then trims
+     * it. An ASCII token gives the same result as removing
+     * {@code [\p{Punct}]} and trimming.
+     *
+     * @param raw a space-separated piece of a line
+     * @return the cleaned word, possibly empty
+     * @throws NullPointerException if raw is null
+     */
+    public static String clean(String raw) {
+        if (!isAscii(raw))
+            raw = Normalizer.normalize(raw, Normalizer.Form.NFKC);
+        int n = raw.length();
+        char[] out = null;
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            char c = raw.charAt(i);
+            if (isPunctuation(c)) {
+                if (out == null) {
+                    out = new char[n];
+                    raw.getChars(0, i, out, 0);
+                    kept = i;
+                }
+                continue;
+            }
+            if (out != null)
+                out[kept++] = c;
+        }
+        String s = out == null ? raw : new String(out, 0, kept);
+        return s.trim();
+    }
+
+    /**
+     * Case-folds a word for ordering and lookup. Pure-ASCII words are
+     * lower-cased with a table; others are folded with root-locale full case
+     * mapping and normalized to NFKC again.
+     *
+     * @param word a cleaned word
+     * @return the folded key, the same instance if it is already folded ASCII
+     * @throws NullPointerException if word is null
+     */
+    public static String fold(String word) {
+        int n = word.length();
+        int bits = 0;
+        int upper = 0;
+        for (int i = 0; i < n; i++) {
+            int c = word.charAt(i);
+            bits |= c;
+            upper |= isAsciiUpper(c);
+        }
+        if (bits < 0x80) {
+            if (upper == 0)
+                return word;
+            char[] out = new char[n];
+            for (int i = 0; i < n; i++) {
+                int c = word.charAt(i);
+                out[i] = (char) (c | isAsciiUpper(c) << 5);
+            }
+            return new String(out);
+        }
+        // upper then lower maps ß to ss and final sigma to σ, as folding does
+        String folded = word.toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+        return Normalizer.normalize(folded, Normalizer.Form.NFKC);
+    }
+
+    /**
+     * @param s a string
+     * @return true if every character is below 0x80
+     */
+    public static boolean isAscii(String s) {
+        int bits = 0;
+        for (int i = 0; i < s.length(); i++)
+            bits |= s.charAt(i);
+        return bits < 0x80;
+    }
+
+    /** @return 1 if c is in 'A'..'Z', else 0, computed without branching */
+    private static int isAsciiUpper(int c) {
+        // c - 'A' is non-negative and c - 'Z' - 1 negative only inside the range
+        return ((c - 'A') ^ (c - 'Z' - 1)) >>> 31;
+    }
+
+    private static boolean isPunctuation(char c) {
+        if (c < 64)
+            return (PUNCT_LOW & 1L << c) != 0;
+        if (c < 128)
+            return (PUNCT_HIGH & 1L << (c - 64)) != 0;
+        switch (Character.getType(c)) {
+            case Character.CONNECTOR_PUNCTUATION:
+            case Character.DASH_PUNCTUATION:
+            case Character.START_PUNCTUATION:
+            case Character.END_PUNCTUATION:
+            case Character.INITIAL_QUOTE_PUNCTUATION:
+            case Character.FINAL_QUOTE_PUNCTUATION:
+            case Character.OTHER_PUNCTUATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -10,6 +10,31 @@
  *
  *   <li>{@code Iterator} – A simplified iterator interface used by the BST
  *       traversal methods.</li>
+ *
+ *   <li>{@code StringDictionary} – Maps words and filenames to dense integer
+ *       IDs and hands out one shared instance per string.</li>
+ *
+ *   <li>{@code PostingArena} – Off-heap block allocator for posting lists,
+ *       and {@code MemoryStats} for comparing heap and GC figures.</li>
+ *
+ *   <li>{@code PositionList} – Delta-encoded varint list of (line, column)
+ *       positions for phrase and proximity queries.</li>
+ *
+ *   <li>{@code KeyExtractor} – Supplies the string key that orders elements in
+ *       key-based indexes such as the radix trie.</li>
+ *
+ *   <li>{@code TextNormalizer} – NFKC normalization, punctuation removal and
+ *       locale-independent case folding of tokens, with an ASCII fast path.</li>
+ *
+ *   <li>{@code StopWords}, {@code PorterStemmer} and {@code Analyzer} – The
+ *       optional ingest chain that drops stop words, found through a perfect
+ *       hash, and reduces the remaining words to their stems.</li>
+ *
+ *   <li>{@code InputArchive} – Reads plain, gzip, zip and tar input, or standard
+ *       input, as named entries, decoding on a background thread.</li>
+ *
+ *   <li>{@code Metrics} – Counters, gauges and log-bucketed latency histograms
+ *       for timing the load, ingest, save and report phases.</li>
  * </ul>
  *
  * <p>These interfaces ensure the BST implementation follows a consistent public
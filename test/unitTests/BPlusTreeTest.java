@@ -0,0 +1,214 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import implementations.BPlusTree;
+
+/**
+ * Class Description: Tests for the high fan-out B+-tree implementation of
+ * the BSTreeADT.
+ */
+
+public class BPlusTreeTest
+{
+	// Attributes
+	private BPlusTree<Integer> tree;
+
+	/**
+	 * Initializes a new BPlusTree with the smallest supported order before
+	 * each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new BPlusTree<Integer>( BPlusTree.MIN_ORDER );
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		tree = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.BPlusTree#BPlusTree(int)} to reject
+	 * an order outside the supported range.
+	 */
+	@Test
+	public void testConstructor_InvalidOrder()
+	{
+		try
+		{
+			new BPlusTree<Integer>( 8 );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BPlusTree#add(Comparable)} to keep
+	 * a single leaf until the order is exceeded, then grow one level.
+	 */
+	@Test
+	public void testAdd_SplitsRoot()
+	{
+		for( int i = 0; i < BPlusTree.MIN_ORDER; i++ )
+		{
+			assertTrue( tree.add( i ) );
+		}
+		assertEquals( "Height of tree should be ", 1, tree.getHeight() );
+
+		tree.add( BPlusTree.MIN_ORDER );
+		assertEquals( "Height of tree should be ", 2, tree.getHeight() );
+		assertEquals( "Failed to update size correctly.", BPlusTree.MIN_ORDER + 1, tree.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BPlusTree#add(Comparable)} to reject
+	 * duplicates and null.
+	 */
+	@Test
+	public void testAdd_DuplicateAndNull()
+	{
+		assertTrue( tree.add( 5 ) );
+		assertFalse( "Duplicate should not be added.", tree.add( 5 ) );
+		assertEquals( "Failed to return correct size.", 1, tree.size() );
+		try
+		{
+			tree.add( null );
+			fail( "Add method failed to throw NullPointerException." );
+		}
+		catch( NullPointerException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BPlusTree#search(Comparable)} and
+	 * {@link implementations.BPlusTree#contains(Comparable)} over a multi-level
+	 * tree filled in shuffled order.
+	 */
+	@Test
+	public void testSearch_ManyLevels()
+	{
+		for( int i = 0; i < 5000; i++ )
+		{
+			tree.add( ( i * 7919 ) % 5000 * 2 );
+		}
+		assertEquals( "Failed to return correct size.", 5000, tree.size() );
+		assertTrue( "Tree should have grown past two levels.", tree.getHeight() >= 3 );
+
+		for( int i = 0; i < 10000; i++ )
+		{
+			boolean even = i % 2 == 0;
+			assertEquals( "Failed to search correctly.", even, tree.contains( i ) );
+			if( even )
+			{
+				assertEquals( "Failed to return the correct element.", i, (int) tree.search( i ).getElement() );
+			}
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BPlusTree#inorderIterator()} to walk
+	 * the linked leaves in sorted order.
+	 */
+	@Test
+	public void testInorderIterator()
+	{
+		for( int i = 999; i >= 0; i-- )
+		{
+			tree.add( i );
+		}
+		Iterator<Integer> it = tree.inorderIterator();
+		int expected = 0;
+		while( it.hasNext() )
+		{
+			assertEquals( "Iterator is out of order.", expected++, (int) it.next() );
+		}
+		assertEquals( "Iterator skipped elements.", 1000, expected );
+	}
+
+	/**
+	 * Test method for {@link implementations.BPlusTree#removeMin()} and
+	 * {@link implementations.BPlusTree#removeMax()} to drain the tree from both
+	 * ends.
+	 */
+	@Test
+	public void testRemoveMinMax()
+	{
+		for( int i = 0; i < 500; i++ )
+		{
+			tree.add( i );
+		}
+		for( int i = 0; i < 250; i++ )
+		{
+			assertEquals( "Failed to return minimum value.", i, (int) tree.removeMin().getElement() );
+			assertEquals( "Failed to remove the maximum value.", 499 - i, (int) tree.removeMax().getElement() );
+		}
+		assertTrue( "Tree should be empty.", tree.isEmpty() );
+		assertEquals( "Height of tree should be ", 0, tree.getHeight() );
+		assertNull( "Failed to return null.", tree.removeMin() );
+		assertNull( "Failed to return null.", tree.removeMax() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BPlusTree#getRoot()} to throw
+	 * NullPointerException when getting the root of an empty tree.
+	 */
+	@Test
+	public void testGetRoot_NullPointerException()
+	{
+		try
+		{
+			tree.getRoot();
+			fail( "Failed to throw NullPointerException." );
+		}
+		catch( NullPointerException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.BPlusTree#forEachInRange(Comparable, Comparable, java.util.function.Predicate)}
+	 * to visit only the elements between the bounds, across leaves.
+	 */
+	@Test
+	public void testForEachInRange()
+	{
+		for( int i = 0; i < 200; i += 2 )
+		{
+			tree.add( i );
+		}
+		List<Integer> visited = new ArrayList<Integer>();
+		tree.forEachInRange( 31, 41, visited::add );
+		assertEquals( "Failed to visit the range.", Arrays.asList( 32, 34, 36, 38, 40 ), visited );
+		visited.clear();
+		tree.forEachInRange( 199, null, visited::add );
+		assertTrue( "Failed to visit an empty range.", visited.isEmpty() );
+		tree.forEachInRange( null, 100, e -> visited.add( e ) && visited.size() < 2 );
+		assertEquals( "Failed to stop early.", Arrays.asList( 0, 2 ), visited );
+	}
+}
@@ -2,6 +2,16 @@ package unitTests;
 
 import static org.junit.Assert.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -607,4 +617,203 @@ public class BSTreeTest
 	{
 		assertNull( "Failed to return maximum value.", tree.removeMax() );
 	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#getHeight()} to follow
+	 * removals, including removing the root of a right-leaning tree.
+	 */
+	@Test
+	public void testGetHeight_AfterRemovals()
+	{
+		tree.add( one );
+		tree.add( two );
+		tree.add( three );
+		tree.add( four );
+		assertEquals( "Failed to return correct height.", 4, tree.getHeight() );
+		tree.removeMin();
+		assertEquals( "Failed to return correct height.", 3, tree.getHeight() );
+		tree.removeMax();
+		assertEquals( "Failed to return correct height.", 2, tree.getHeight() );
+		tree.removeMax();
+		tree.removeMax();
+		assertEquals( "Failed to return correct height.", 0, tree.getHeight() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#getDepthHistogram()},
+	 * {@link implementations.BSTree#getAverageDepth()} and
+	 * {@link implementations.BSTree#getImbalance()}.
+	 */
+	@Test
+	public void testShapeStatistics()
+	{
+		assertEquals( "Empty tree should have no depths.", 0, tree.getDepthHistogram().length );
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( three );
+		tree.add( five );
+		tree.add( seven );
+		assertArrayEquals( "Failed to count depths.", new int[] { 1, 2, 4 }, tree.getDepthHistogram() );
+		assertEquals( "Failed to average depths.", 10.0 / 7, tree.getAverageDepth(), 1e-9 );
+		assertEquals( "Perfect tree should have imbalance 1.", 1.0, tree.getImbalance(), 1e-9 );
+
+		BSTree<Integer> path = new BSTree<Integer>();
+		for( int i = 1; i <= 7; i++ )
+		{
+			path.add( i );
+		}
+		assertEquals( "Path should be 7/3 as tall as needed.", 7.0 / 3, path.getImbalance(), 1e-9 );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#setRebuildFactor(double)} to
+	 * keep sorted insertions within the height bound and all elements in order.
+	 */
+	@Test
+	public void testRebuildFactor_SortedInsertions()
+	{
+		BSTree<Integer> big = new BSTree<Integer>();
+		big.setRebuildFactor( 2.0 );
+		int n = 10000;
+		for( int i = 0; i < n; i++ )
+		{
+			big.add( i );
+			assertTrue( "Height exceeded bound.",
+					big.getHeight() <= 2.0 * Math.log( big.size() + 1 ) / Math.log( 2 ) );
+		}
+		assertTrue( "Failed to rebuild.", big.getRebuildCount() > 0 );
+		assertEquals( "Failed to keep size.", n, big.size() );
+
+		Iterator<Integer> it = big.inorderIterator();
+		for( int i = 0; i < n; i++ )
+		{
+			assertEquals( "Iterator is out of order.", i, (int) it.next() );
+			assertTrue( "Failed to find element.", big.contains( i ) );
+		}
+		assertFalse( "Iterator has extra elements.", it.hasNext() );
+
+		int[] histogram = big.getDepthHistogram();
+		int total = 0;
+		for( int count : histogram )
+		{
+			total += count;
+		}
+		assertEquals( "Histogram lost nodes.", n, total );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#setRebuildFactor(double)} to
+	 * reject factors that cannot be met.
+	 */
+	@Test
+	public void testRebuildFactor_IllegalArgumentException()
+	{
+		try
+		{
+			tree.setRebuildFactor( 0.5 );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test that the shape statistics, which are not saved, are rebuilt when
+	 * a tree is read back.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testShapeStatistics_Serialization() throws Exception
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( one );
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( tree );
+		}
+		@SuppressWarnings( "unchecked" )
+		BSTree<Integer> copy = (BSTree<Integer>) new ObjectInputStream(
+				new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+		assertEquals( "Failed to return correct height.", 3, copy.getHeight() );
+		assertArrayEquals( "Failed to count depths.", new int[] { 1, 1, 1 }, copy.getDepthHistogram() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#forEachInOrder(java.util.function.Consumer)}
+	 * to visit the elements in order.
+	 */
+	@Test
+	public void testForEachInOrder()
+	{
+		tree.add( four );
+		tree.add( two );
+		tree.add( six );
+		tree.add( one );
+		tree.add( seven );
+		List<Integer> visited = new ArrayList<Integer>();
+		tree.forEachInOrder( visited::add );
+		assertEquals( "Failed to visit in order.", Arrays.asList( one, two, four, six, seven ), visited );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#spliterator()} to split off a
+	 * prefix, and for sequential and parallel streams to keep the order.
+	 */
+	@Test
+	public void testSpliteratorAndStreams()
+	{
+		for( int i = 0; i < 1000; i++ )
+		{
+			tree.add( ( i * 7919 ) % 1000 );
+		}
+		Spliterator<Integer> rest = tree.spliterator();
+		assertTrue( "Failed to report SORTED.", rest.hasCharacteristics( Spliterator.SORTED ) );
+		assertEquals( "Failed to report exact size.", 1000, rest.getExactSizeIfKnown() );
+		Spliterator<Integer> prefix = rest.trySplit();
+		assertNotNull( "Failed to split.", prefix );
+
+		List<Integer> all = new ArrayList<Integer>();
+		prefix.forEachRemaining( all::add );
+		rest.forEachRemaining( all::add );
+		List<Integer> expected = new ArrayList<Integer>();
+		for( int i = 0; i < 1000; i++ )
+		{
+			expected.add( i );
+		}
+		assertEquals( "Split parts out of order.", expected, all );
+		assertEquals( "Stream out of order.", expected, tree.stream().collect( Collectors.toList() ) );
+		assertEquals( "Parallel stream out of order.", expected,
+				tree.parallelStream().collect( Collectors.toList() ) );
+		assertEquals( "Failed to count.", 1000, tree.parallelStream().count() );
+	}
+
+	/**
+	 * Test method for {@link implementations.BSTree#forEachInRange(Comparable, Comparable, java.util.function.Predicate)}
+	 * to visit only the elements between the bounds, in order, and to stop
+	 * when the action returns false.
+	 */
+	@Test
+	public void testForEachInRange()
+	{
+		for( int i = 0; i < 100; i++ )
+		{
+			tree.add( ( i * 37 ) % 100 );
+		}
+		List<Integer> visited = new ArrayList<Integer>();
+		tree.forEachInRange( 20, 25, visited::add );
+		assertEquals( "Failed to visit the range.", Arrays.asList( 20, 21, 22, 23, 24, 25 ), visited );
+		visited.clear();
+		tree.forEachInRange( 97, null, visited::add );
+		assertEquals( "Failed to visit an open range.", Arrays.asList( 97, 98, 99 ), visited );
+		visited.clear();
+		tree.forEachInRange( null, 50, e -> visited.add( e ) && visited.size() < 3 );
+		assertEquals( "Failed to stop early.", Arrays.asList( 0, 1, 2 ), visited );
+	}
 }
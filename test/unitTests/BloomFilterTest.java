@@ -0,0 +1,194 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.Word;
+import appDomain.WordTracker;
+import implementations.BSTree;
+import utilities.BloomFilter;
+import utilities.Metrics;
+
+/**
+ * Class Description: Tests for the Bloom filter used to reject words that
+ * were never indexed.
+ */
+
+public class BloomFilterTest
+{
+	// Attributes
+	private BloomFilter filter;
+
+	/**
+	 * Builds a filter sized for 1000 keys at 1% and adds "w0" to "w999".
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		filter = new BloomFilter( 1000, 0.01 );
+		for( int i = 0; i < 1000; i++ )
+		{
+			filter.add( "w" + i );
+		}
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		filter = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.BloomFilter#mightContain(String)} to
+	 * accept every key that was added.
+	 */
+	@Test
+	public void testMightContain_Added()
+	{
+		for( int i = 0; i < 1000; i++ )
+		{
+			assertTrue( "Rejected an added key.", filter.mightContain( "w" + i ) );
+		}
+		assertEquals( "Failed to count keys.", 1000, filter.size() );
+		assertFalse( "Filter should not be full.", filter.isFull() );
+	}
+
+	/**
+	 * Test method for {@link utilities.BloomFilter#mightContain(String)} to
+	 * reject absent keys at close to the configured rate.
+	 */
+	@Test
+	public void testMightContain_FalsePositiveRate()
+	{
+		int accepted = 0;
+		for( int i = 0; i < 100000; i++ )
+		{
+			if( filter.mightContain( "absent" + i ) )
+			{
+				accepted++;
+			}
+		}
+		assertTrue( "False-positive rate too high: " + accepted, accepted < 2000 );
+		assertTrue( "Empty filter should reject keys.", !new BloomFilter( 10, 0.01 ).mightContain( "w1" ) );
+	}
+
+	/**
+	 * Test method for {@link utilities.BloomFilter#isFull()} once more keys are
+	 * added than the filter was sized for.
+	 */
+	@Test
+	public void testIsFull()
+	{
+		filter.add( "one more" );
+		assertTrue( "Failed to report full.", filter.isFull() );
+		assertTrue( "Rejected an added key.", filter.mightContain( "one more" ) );
+	}
+
+	/**
+	 * Test method for the constructor to throw IllegalArgumentException for
+	 * rates outside (0, 1).
+	 */
+	@Test
+	public void testConstructor_IllegalArgumentException()
+	{
+		try
+		{
+			new BloomFilter( 10, 1.0 );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+		try
+		{
+			new BloomFilter( 10, 0.0 );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test that a serialized filter answers the same after reading it back.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testSerialization() throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( filter );
+		}
+		BloomFilter copy;
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			copy = (BloomFilter) in.readObject();
+		}
+		assertEquals( "Failed to keep size.", filter.size(), copy.size() );
+		for( int i = 0; i < 1000; i++ )
+		{
+			assertTrue( "Rejected an added key.", copy.mightContain( "w" + i ) );
+			assertEquals( "Answers differ.", filter.mightContain( "x" + i ), copy.mightContain( "x" + i ) );
+		}
+	}
+
+	/**
+	 * Test that the filter saved with a repository is used after loading it,
+	 * including for words whose folded key differs from their lower case.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testKeptWithRepository() throws Exception
+	{
+		File repository = File.createTempFile( "bloom", ".ser" );
+		try
+		{
+			BSTree<Word> tree = new BSTree<Word>();
+			for( String s : new String[] { "Stra\u00dfe", "Istanbul", "nach" } )
+			{
+				Word w = new Word( s );
+				w.addOccurrences( "a.txt", 1 );
+				tree.add( w );
+			}
+			WordTracker tracker = new WordTracker( tree );
+			tracker.setRepositoryFile( repository.getPath() );
+			assertTrue( tracker.saveTree() );
+
+			WordTracker loaded = new WordTracker( new BSTree<Word>() );
+			Metrics metrics = new Metrics();
+			loaded.setMetrics( metrics );
+			loaded.setRepositoryFile( repository.getPath() );
+			loaded.loadTree();
+			assertNotNull( loaded.lookup( "STRASSE" ) );
+			assertNotNull( loaded.lookup( "istanbul" ) );
+			assertNull( loaded.lookup( "missing" ) );
+			assertEquals( "Rebuilt the saved filter.", 0, metrics.counter( "bloom.rebuilds" ).get() );
+		}
+		finally
+		{
+			repository.delete();
+		}
+	}
+}
@@ -0,0 +1,161 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.ExternalIndexer;
+import appDomain.Word;
+import appDomain.WordSegment;
+import appDomain.WordTracker;
+import implementations.BSTree;
+import utilities.Analyzer;
+import utilities.StopWords;
+
+/**
+ * Class Description: Tests for bounded-memory ingest into a segment file,
+ * comparing its reports with those of an in-memory repository.
+ */
+
+public class ExternalIndexerTest
+{
+	// Attributes
+	private File segment;
+	private File first;
+	private File second;
+
+	/**
+	 * Writes two input files, one holding a token longer than 64 KiB.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		segment = File.createTempFile( "segment", ".dat" );
+		segment.delete();
+		StringBuilder text = new StringBuilder();
+		for( int i = 0; i < 400; i++ )
+		{
+			text.append( "word" ).append( i % 37 ).append( i % 5 == 0 ? " The the\n" : " and " );
+		}
+		StringBuilder longWord = new StringBuilder();
+		for( int i = 0; i < 70000; i++ )
+		{
+			longWord.append( (char) ( 'a' + i % 26 ) );
+		}
+		text.append( longWord ).append( " end\n" );
+		first = TempFiles.write( "external-a", text.toString() );
+		second = TempFiles.write( "external-b", "Zebra and THE word3\n\nlast line word36 end" );
+	}
+
+	/**
+	 * Deletes the segment and input files.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		segment.delete();
+		first.delete();
+		second.delete();
+	}
+
+	/**
+	 * Test that a segment built from several spilled runs reports the same
+	 * as the in-memory tree, in every line-based mode.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testMatchesInMemory() throws Exception
+	{
+		ExternalIndexer indexer = new ExternalIndexer( segment, 4096 );
+		assertTrue( indexer.addFile( first.getPath() ) );
+		assertTrue( indexer.addFile( second.getPath() ) );
+		indexer.finish();
+		assertTrue( "Failed to spill more than one run.", indexer.runCount() > 1 );
+
+		WordTracker tracker = new WordTracker( new BSTree<Word>() );
+		tracker.constructsFromFile( first.getPath() );
+		tracker.constructsFromFile( second.getPath() );
+		for( String mode : new String[] { "pf", "pl", "po" } )
+		{
+			assertEquals( mode, expected( tracker, mode ), actual( mode ) );
+		}
+	}
+
+	/**
+	 * Test that extending a segment and re-indexing one of its files gives
+	 * the same report as indexing everything in memory.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testExtendAndReindex() throws Exception
+	{
+		ExternalIndexer indexer = new ExternalIndexer( segment, 4096 );
+		indexer.addFile( second.getPath() );
+		indexer.finish();
+		try( PrintWriter out = new PrintWriter( second ) )
+		{
+			out.print( "replaced text only" );
+		}
+		indexer = new ExternalIndexer( segment, 4096 );
+		indexer.addFile( first.getPath() );
+		indexer.addFile( second.getPath() );
+		indexer.finish();
+
+		WordTracker tracker = new WordTracker( new BSTree<Word>() );
+		tracker.constructsFromFile( second.getPath() );
+		tracker.constructsFromFile( first.getPath() );
+		assertEquals( expected( tracker, "po" ), actual( "po" ) );
+	}
+
+	/**
+	 * Test that stop words are dropped and stems indexed as in the in-memory
+	 * tree with the same analysis chain.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAnalyzed() throws Exception
+	{
+		Analyzer analyzer = new Analyzer( StopWords.english(), true );
+		ExternalIndexer indexer = new ExternalIndexer( segment, 4096 );
+		indexer.setAnalyzer( analyzer );
+		indexer.addFile( first.getPath() );
+		indexer.addFile( second.getPath() );
+		indexer.finish();
+
+		WordTracker tracker = new WordTracker( new BSTree<Word>() );
+		tracker.setAnalyzer( analyzer );
+		tracker.constructsFromFile( first.getPath() );
+		tracker.constructsFromFile( second.getPath() );
+		String report = actual( "po" );
+		assertEquals( expected( tracker, "po" ), report );
+		assertFalse( "Kept a stop word.", report.contains( "and:" ) );
+	}
+
+	private String expected( WordTracker tracker, String mode ) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		tracker.generateReport( mode, new PrintStream( out, true, "UTF-8" ) );
+		return out.toString( "UTF-8" );
+	}
+
+	private String actual( String mode ) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		WordSegment.report( segment, mode, new PrintStream( out, true, "UTF-8" ) );
+		return out.toString( "UTF-8" );
+	}
+}
@@ -0,0 +1,131 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import implementations.BSTree;
+import implementations.EytzingerTree;
+
+/**
+ * Class Description: Tests for the frozen, array-backed EytzingerTree built
+ * from a linked BSTree.
+ */
+
+public class EytzingerTreeTest
+{
+	// Attributes
+	private BSTree<Integer> source;
+
+	/**
+	 * Builds a source tree holding the multiples of ten from 10 to 100.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		source = new BSTree<Integer>();
+		int[] values = { 50, 20, 80, 10, 30, 70, 90, 40, 60, 100 };
+		for( int v : values )
+		{
+			source.add( v );
+		}
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		source = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.EytzingerTree#size()} and
+	 * {@link implementations.EytzingerTree#getHeight()} on an empty tree.
+	 */
+	@Test
+	public void testEmpty()
+	{
+		EytzingerTree<Integer> frozen = new EytzingerTree<Integer>( new BSTree<Integer>() );
+		assertTrue( "Failed to return true.", frozen.isEmpty() );
+		assertEquals( "Height of tree should be ", 0, frozen.getHeight() );
+		assertNull( "Failed to return null.", frozen.search( 10 ) );
+		assertFalse( "Iterator should be empty.", frozen.inorderIterator().hasNext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.EytzingerTree#search(Comparable)} to
+	 * find every element of the source tree.
+	 */
+	@Test
+	public void testSearch_Found()
+	{
+		EytzingerTree<Integer> frozen = new EytzingerTree<Integer>( source );
+		assertEquals( "Failed to copy size.", 10, frozen.size() );
+		for( int v = 10; v <= 100; v += 10 )
+		{
+			assertEquals( "Failed to find element.", Integer.valueOf( v ), frozen.search( v ) );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.EytzingerTree#search(Comparable)} to
+	 * return null for values between, below and above the stored elements.
+	 */
+	@Test
+	public void testSearch_NotFound()
+	{
+		EytzingerTree<Integer> frozen = new EytzingerTree<Integer>( source );
+		assertNull( "Failed to return null.", frozen.search( 5 ) );
+		assertNull( "Failed to return null.", frozen.search( 55 ) );
+		assertNull( "Failed to return null.", frozen.search( 105 ) );
+		assertFalse( "Failed to return false.", frozen.contains( 45 ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.EytzingerTree#search(Comparable)} to
+	 * throw NullPointerException when searching for null.
+	 */
+	@Test
+	public void testSearch_NullPointerException()
+	{
+		EytzingerTree<Integer> frozen = new EytzingerTree<Integer>( source );
+		try
+		{
+			frozen.search( null );
+			fail( "Failed to throw NullPointerException." );
+		}
+		catch( NullPointerException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.EytzingerTree#inorderIterator()} to
+	 * return the elements in sorted order, and for the balanced height.
+	 */
+	@Test
+	public void testInorderIterator()
+	{
+		EytzingerTree<Integer> frozen = new EytzingerTree<Integer>( source );
+		Iterator<Integer> it = frozen.inorderIterator();
+		int expected = 10;
+		while( it.hasNext() )
+		{
+			assertEquals( "Iterator is out of order.", expected, (int) it.next() );
+			expected += 10;
+		}
+		assertEquals( "Iterator skipped elements.", 110, expected );
+		assertEquals( "Height of tree should be ", 4, frozen.getHeight() );
+	}
+}
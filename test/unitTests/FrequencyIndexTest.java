@@ -0,0 +1,136 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.Word;
+import appDomain.WordTracker;
+import implementations.BSTree;
+
+/**
+ * Class Description: Tests for the most-frequent-words ranking, overall and
+ * per file, compared with a full sort of the repository.
+ */
+
+public class FrequencyIndexTest
+{
+	// Attributes
+	private File first;
+	private File second;
+	private WordTracker tracker;
+
+	/**
+	 * Indexes two files whose words have repeated and tied counts.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		first = TempFiles.write( "ranked-a", "the cat and the dog\nthe bird and a fox\nzebra yak cat the" );
+		second = TempFiles.write( "ranked-b", "a dog a dog a bird\nfox zebra" );
+		tracker = new WordTracker( new BSTree<Word>() );
+		tracker.constructsFromFile( first.getPath() );
+		tracker.constructsFromFile( second.getPath() );
+	}
+
+	/**
+	 * Deletes the files.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		first.delete();
+		second.delete();
+	}
+
+	/**
+	 * Test that every k gives the first k words of a full ranking, with ties
+	 * in alphabetical order, whether the request grows or shrinks.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testTop() throws Exception
+	{
+		List<Word> all = sorted( null );
+		assertEquals( all, tracker.topWords( Integer.MAX_VALUE ) );
+		for( int k = 0; k <= all.size() + 1; k++ )
+		{
+			assertEquals( "k = " + k, all.subList( 0, Math.min( k, all.size() ) ), tracker.topWords( k ) );
+		}
+		for( int k = all.size() + 1; k >= 0; k-- )
+		{
+			assertEquals( "k = " + k, all.subList( 0, Math.min( k, all.size() ) ), tracker.topWords( k ) );
+		}
+		assertEquals( "a", tracker.topWords( 1 ).get( 0 ).getWord() );
+	}
+
+	/**
+	 * Test that a ranking within one file counts only that file and leaves
+	 * out words it does not contain.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testTopInFile() throws Exception
+	{
+		List<Word> inSecond = sorted( second.getPath() );
+		assertEquals( 5, inSecond.size() );
+		for( int k = 1; k <= inSecond.size() + 1; k++ )
+		{
+			assertEquals( "k = " + k, inSecond.subList( 0, Math.min( k, inSecond.size() ) ),
+					tracker.topWords( second.getPath(), k ) );
+		}
+		assertEquals( "a", tracker.topWords( second.getPath(), 1 ).get( 0 ).getWord() );
+		assertTrue( tracker.topWords( "missing.txt", 3 ).isEmpty() );
+	}
+
+	/**
+	 * Test that the ranking follows changes to the repository.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testInvalidate() throws Exception
+	{
+		assertEquals( "a", tracker.topWords( 1 ).get( 0 ).getWord() );
+		File third = TempFiles.write( "ranked-c", "dog dog dog dog dog" );
+		try
+		{
+			tracker.constructsFromFile( third.getPath() );
+			assertEquals( "dog", tracker.topWords( 1 ).get( 0 ).getWord() );
+			assertEquals( sorted( null ), tracker.topWords( Integer.MAX_VALUE ) );
+		}
+		finally
+		{
+			third.delete();
+		}
+	}
+
+	private List<Word> sorted( String file )
+	{
+		List<Word> words = new ArrayList<Word>();
+		for( Word w : tracker.topWords( Integer.MAX_VALUE ) )
+		{
+			if( file == null || w.getCount( file ) > 0 )
+			{
+				words.add( w );
+			}
+		}
+		Collections.sort( words );
+		Collections.sort( words, ( x, y ) -> file == null ? y.getTotalCount() - x.getTotalCount()
+				: y.getCount( file ) - x.getCount( file ) );
+		return words;
+	}
+}
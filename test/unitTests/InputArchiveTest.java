@@ -0,0 +1,309 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.InputArchive;
+
+/**
+ * Class Description: Tests for reading plain, gzip, zip and tar input as
+ * named entries.
+ */
+
+public class InputArchiveTest
+{
+	// Attributes
+	private File file;
+	private String big;
+
+	/**
+	 * Creates a temporary file and a text spanning several chunks.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile( "archive", ".bin" );
+		StringBuilder sb = new StringBuilder();
+		for( int i = 0; i < 40000; i++ )
+		{
+			sb.append( "line " ).append( i ).append( '\n' );
+		}
+		big = sb.toString();
+	}
+
+	/**
+	 * Deletes the temporary file.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		file.delete();
+	}
+
+	/**
+	 * Test that a plain file is one entry named like the file.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testPlain() throws Exception
+	{
+		write( big.getBytes( StandardCharsets.UTF_8 ) );
+		assertEntries( Arrays.asList( "in.txt", big ) );
+	}
+
+	/**
+	 * Test that a gzip file is one entry named like the file.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testGzip() throws Exception
+	{
+		write( gzip( big.getBytes( StandardCharsets.UTF_8 ) ) );
+		assertEntries( Arrays.asList( "in.txt", big ) );
+	}
+
+	/**
+	 * Test that zip members are entries and directories are skipped.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testZip() throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ZipOutputStream zip = new ZipOutputStream( bytes ) )
+		{
+			zip.putNextEntry( new ZipEntry( "dir/" ) );
+			zip.putNextEntry( new ZipEntry( "dir/a.txt" ) );
+			zip.write( big.getBytes( StandardCharsets.UTF_8 ) );
+			zip.putNextEntry( new ZipEntry( "b.txt" ) );
+			zip.write( "hello".getBytes( StandardCharsets.UTF_8 ) );
+		}
+		write( bytes.toByteArray() );
+		assertEntries( Arrays.asList( "in.txt!/dir/a.txt", big, "in.txt!/b.txt", "hello" ) );
+	}
+
+	/**
+	 * Test that tar members are entries, in plain and gzipped archives, and
+	 * that an entry left unread is skipped.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testTar() throws Exception
+	{
+		ByteArrayOutputStream tar = new ByteArrayOutputStream();
+		tarEntry( tar, "a.txt", '0', big.getBytes( StandardCharsets.UTF_8 ) );
+		tarEntry( tar, "sub", '5', new byte[0] );
+		tarEntry( tar, "sub/b.txt", '0', "hello".getBytes( StandardCharsets.UTF_8 ) );
+		tar.write( new byte[1024] );
+		write( tar.toByteArray() );
+		assertEntries( Arrays.asList( "in.txt!/a.txt", big, "in.txt!/sub/b.txt", "hello" ) );
+
+		write( gzip( tar.toByteArray() ) );
+		try( InputArchive in = InputArchive.open( file, "in.tgz" ) )
+		{
+			assertEquals( "in.tgz!/a.txt", in.nextEntry() );
+			assertEquals( 'l', in.stream().read() );
+			assertEquals( "Failed to skip the rest.", "in.tgz!/sub/b.txt", in.nextEntry() );
+			assertEquals( "hello", read( in.stream() ) );
+			assertNull( in.nextEntry() );
+			assertNull( in.nextEntry() );
+		}
+	}
+
+	/**
+	 * Test that a pax path is found after records with multi-byte values, and
+	 * that an oversized extended header is rejected.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testPaxHeader() throws Exception
+	{
+		ByteArrayOutputStream pax = new ByteArrayOutputStream();
+		paxRecord( pax, "comment", "caf\u00e9 \u00fcber \u65e5\u672c" );
+		paxRecord( pax, "path", "d\u00efr/\u00fcnicode.txt" );
+		paxRecord( pax, "mtime", "1" );
+		ByteArrayOutputStream tar = new ByteArrayOutputStream();
+		tarEntry( tar, "PaxHeader", 'x', pax.toByteArray() );
+		tarEntry( tar, "short.txt", '0', "hello".getBytes( StandardCharsets.UTF_8 ) );
+		tar.write( new byte[1024] );
+		write( tar.toByteArray() );
+		assertEntries( Arrays.asList( "in.txt!/d\u00efr/\u00fcnicode.txt", "hello" ) );
+
+		byte[] header = tar.toByteArray();
+		byte[] size = String.format( "%011o", 1L << 31 ).getBytes( StandardCharsets.US_ASCII );
+		System.arraycopy( size, 0, header, 124, size.length );
+		write( header );
+		try( InputArchive in = InputArchive.open( file, "in.txt" ) )
+		{
+			in.nextEntry();
+			fail( "Failed to reject an oversized header." );
+		}
+		catch( IOException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test that corrupt input fails with IOException, and keeps failing.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCorrupt() throws Exception
+	{
+		byte[] gz = gzip( big.getBytes( StandardCharsets.UTF_8 ) );
+		write( Arrays.copyOf( gz, gz.length / 2 ) );
+		try( InputArchive in = InputArchive.open( file, "in.txt" ) )
+		{
+			assertEquals( "in.txt", in.nextEntry() );
+			try
+			{
+				read( in.stream() );
+				fail( "Failed to throw IOException." );
+			}
+			catch( IOException e )
+			{
+				assertTrue( true );
+			}
+			try
+			{
+				in.nextEntry();
+				fail( "Failed to throw IOException." );
+			}
+			catch( IOException e )
+			{
+				assertTrue( true );
+			}
+		}
+	}
+
+	/**
+	 * Test that closing before the end stops the decoder without blocking.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCloseEarly() throws Exception
+	{
+		StringBuilder sb = new StringBuilder();
+		for( int i = 0; i < 20; i++ )
+		{
+			sb.append( big );
+		}
+		write( gzip( sb.toString().getBytes( StandardCharsets.UTF_8 ) ) );
+		InputArchive in = InputArchive.open( file, "in.txt" );
+		assertEquals( "in.txt", in.nextEntry() );
+		in.stream().read();
+		in.close();
+		try
+		{
+			in.nextEntry();
+			fail( "Failed to throw IOException." );
+		}
+		catch( IOException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	private void assertEntries( List<String> expected ) throws IOException
+	{
+		List<String> actual = new ArrayList<String>();
+		try( InputArchive in = InputArchive.open( file, "in.txt" ) )
+		{
+			String entry;
+			while( ( entry = in.nextEntry() ) != null )
+			{
+				actual.add( entry );
+				actual.add( read( in.stream() ) );
+			}
+		}
+		assertEquals( "Wrong entries.", expected, actual );
+	}
+
+	private void write( byte[] bytes ) throws IOException
+	{
+		try( OutputStream out = new FileOutputStream( file ) )
+		{
+			out.write( bytes );
+		}
+	}
+
+	private static String read( InputStream in ) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		int n;
+		while( ( n = in.read( buffer ) ) > 0 )
+		{
+			out.write( buffer, 0, n );
+		}
+		return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+	}
+
+	private static byte[] gzip( byte[] data ) throws IOException
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( GZIPOutputStream gz = new GZIPOutputStream( bytes ) )
+		{
+			gz.write( data );
+		}
+		return bytes.toByteArray();
+	}
+
+	/** Writes one pax record, whose length counts its own digits and bytes. */
+	private static void paxRecord( ByteArrayOutputStream pax, String key, String value )
+	{
+		int body = ( " " + key + "=" + value + "\n" ).getBytes( StandardCharsets.UTF_8 ).length;
+		int length = body + 1;
+		while( Integer.toString( length ).length() + body != length )
+		{
+			length++;
+		}
+		byte[] record = ( length + " " + key + "=" + value + "\n" ).getBytes( StandardCharsets.UTF_8 );
+		pax.write( record, 0, record.length );
+	}
+
+	/** Writes a minimal ustar header and the padded data. */
+	private static void tarEntry( ByteArrayOutputStream tar, String name, char type, byte[] data )
+	{
+		byte[] header = new byte[512];
+		byte[] n = name.getBytes( StandardCharsets.UTF_8 );
+		System.arraycopy( n, 0, header, 0, n.length );
+		byte[] size = String.format( "%011o", data.length ).getBytes( StandardCharsets.US_ASCII );
+		System.arraycopy( size, 0, header, 124, size.length );
+		header[156] = (byte) type;
+		byte[] magic = "ustar\u000000".getBytes( StandardCharsets.US_ASCII );
+		System.arraycopy( magic, 0, header, 257, magic.length );
+		tar.write( header, 0, header.length );
+		tar.write( data, 0, data.length );
+		tar.write( new byte[( 512 - data.length % 512 ) % 512], 0, ( 512 - data.length % 512 ) % 512 );
+	}
+}
@@ -0,0 +1,79 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import utilities.PorterStemmer;
+
+/**
+ * Class Description: Tests for the Porter stemmer against examples from
+ * Porter's paper and its reference vocabulary.
+ */
+
+public class PorterStemmerTest
+{
+	/**
+	 * Test method for {@link utilities.PorterStemmer#stem(String)} on plurals
+	 * and -ed and -ing forms (step 1).
+	 */
+	@Test
+	public void testStem_Step1()
+	{
+		assertStems( "caresses", "caress", "ponies", "poni", "ties", "ti", "caress", "caress",
+				"cats", "cat", "feed", "feed", "agreed", "agre", "plastered", "plaster",
+				"bled", "bled", "motoring", "motor", "sing", "sing", "conflated", "conflat",
+				"troubled", "troubl", "sized", "size", "hopping", "hop", "tanned", "tan",
+				"falling", "fall", "hissing", "hiss", "fizzed", "fizz", "failing", "fail",
+				"filing", "file", "happy", "happi", "sky", "sky" );
+	}
+
+	/**
+	 * Test method for {@link utilities.PorterStemmer#stem(String)} on derived
+	 * forms (steps 2 to 5).
+	 */
+	@Test
+	public void testStem_Steps2To5()
+	{
+		assertStems( "relational", "relat", "conditional", "condit", "rational", "ration",
+				"valenci", "valenc", "hesitanci", "hesit", "digitizer", "digit",
+				"conformabli", "conform", "radicalli", "radic", "differentli", "differ",
+				"vileli", "vile", "analogousli", "analog", "vietnamization", "vietnam",
+				"predication", "predic", "operator", "oper", "feudalism", "feudal",
+				"decisiveness", "decis", "hopefulness", "hope", "callousness", "callous",
+				"formaliti", "formal", "sensitiviti", "sensit", "sensibiliti", "sensibl",
+				"triplicate", "triplic", "formative", "form", "formalize", "formal",
+				"electriciti", "electr", "electrical", "electr", "hopeful", "hope",
+				"goodness", "good", "revival", "reviv", "allowance", "allow",
+				"inference", "infer", "airliner", "airlin", "gyroscopic", "gyroscop",
+				"adjustable", "adjust", "defensible", "defens", "irritant", "irrit",
+				"replacement", "replac", "adjustment", "adjust", "dependent", "depend",
+				"adoption", "adopt", "homologou", "homolog", "communism", "commun",
+				"activate", "activ", "angulariti", "angular", "homologous", "homolog",
+				"effective", "effect", "bowdlerize", "bowdler", "probate", "probat",
+				"rate", "rate", "cease", "ceas", "controll", "control", "roll", "roll",
+				"generalizations", "gener", "connection", "connect", "running", "run" );
+	}
+
+	/**
+	 * Test that short, non-letter and non-ASCII words are returned as they
+	 * are.
+	 */
+	@Test
+	public void testStem_Unchanged()
+	{
+		String[] words = { "", "is", "as", "abc123", "naïve", "Running", "tree" };
+		for( String w : words )
+		{
+			assertSame( "Changed " + w, w, PorterStemmer.stem( w ) );
+		}
+	}
+
+	private static void assertStems( String... pairs )
+	{
+		for( int i = 0; i < pairs.length; i += 2 )
+		{
+			assertEquals( "Wrong stem for " + pairs[i], pairs[i + 1], PorterStemmer.stem( pairs[i] ) );
+		}
+	}
+}
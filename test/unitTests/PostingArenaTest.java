@@ -0,0 +1,222 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.Word;
+import utilities.PostingArena;
+
+/**
+ * Class Description: Tests for the off-heap posting arena and for words
+ * whose postings are kept in it.
+ */
+
+public class PostingArenaTest
+{
+	// Attributes
+	private PostingArena arena;
+
+	/**
+	 * Creates an empty arena before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		arena = new PostingArena();
+	}
+
+	/**
+	 * Puts postings back on the heap for the other tests.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		Word.usePostingArena( null );
+		arena = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.PostingArena#append(long, int)} to keep
+	 * every value, in order, while two interleaved lists move through many
+	 * size classes.
+	 */
+	@Test
+	public void testGrowthAcrossClasses()
+	{
+		long first = arena.allocate();
+		long second = arena.allocate();
+		long initial = first;
+		List<Integer> firstValues = new ArrayList<Integer>();
+		List<Integer> secondValues = new ArrayList<Integer>();
+		for( int i = 0; i < 5000; i++ )
+		{
+			first = arena.append( first, i * 3 );
+			firstValues.add( i * 3 );
+			if( i % 2 == 0 )
+			{
+				second = arena.append( second, -i );
+				secondValues.add( -i );
+			}
+		}
+		assertTrue( "Failed to move a full list.", first != initial );
+		assertEquals( firstValues, values( first ) );
+		assertEquals( secondValues, values( second ) );
+		assertEquals( 5000, arena.size( first ) );
+		assertEquals( 2500, arena.size( second ) );
+		assertEquals( 4998 * 3, arena.get( first, 4998 ) );
+		try
+		{
+			arena.get( second, 2500 );
+			fail( "Read past the end of a list." );
+		}
+		catch( IndexOutOfBoundsException e )
+		{
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.PostingArena#free(long)} to hand freed
+	 * blocks, including those left behind by a move, to the next list of
+	 * their size class without reserving more memory.
+	 */
+	@Test
+	public void testFreeThenReuse()
+	{
+		long handle = arena.allocate();
+		long reserved = arena.reservedBytes();
+		arena.free( handle );
+		long reused = arena.allocate();
+		assertEquals( handle, reused );
+		assertEquals( 0, arena.size( reused ) );
+
+		// a third value moves the list out of its first block
+		long grown = reused;
+		for( int i = 0; i < 3; i++ )
+		{
+			grown = arena.append( grown, i );
+		}
+		assertTrue( grown != reused );
+		assertEquals( reused, arena.allocate() );
+
+		long large = arena.allocate();
+		for( int i = 0; i < 100; i++ )
+		{
+			large = arena.append( large, i );
+		}
+		arena.free( large );
+		long again = arena.allocate();
+		for( int i = 0; i < 100; i++ )
+		{
+			again = arena.append( again, 100 - i );
+		}
+		assertEquals( large, again );
+		assertEquals( 100, arena.get( again, 0 ) );
+		assertEquals( reserved, arena.reservedBytes() );
+	}
+
+	/**
+	 * Test method for {@link utilities.PostingArena#usedBytes()} to count a
+	 * header per live list and four bytes per value, through moves and frees.
+	 */
+	@Test
+	public void testUsedBytes()
+	{
+		assertEquals( 0, arena.usedBytes() );
+		long first = arena.allocate();
+		long second = arena.allocate();
+		assertEquals( 16, arena.usedBytes() );
+		for( int i = 0; i < 40; i++ )
+		{
+			first = arena.append( first, i );
+		}
+		second = arena.append( second, 7 );
+		assertEquals( 16 + 41 * 4, arena.usedBytes() );
+		arena.free( first );
+		assertEquals( 8 + 4, arena.usedBytes() );
+		arena.free( second );
+		assertEquals( 0, arena.usedBytes() );
+		assertTrue( arena.reservedBytes() > 0 );
+	}
+
+	/**
+	 * Test that a word with off-heap postings saves the same occurrences as
+	 * it holds, and loads them back off heap, or on the heap once the arena
+	 * is removed.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testWordSaveLoad() throws Exception
+	{
+		Word.usePostingArena( arena );
+		Word word = new Word( "Fox" );
+		for( int line = 1; line <= 20; line++ )
+		{
+			word.addOccurrences( "a.txt", line );
+			if( line % 4 == 0 )
+			{
+				word.addOccurrences( "b.txt", line );
+				word.addOccurrences( "c.txt", line * 2 );
+			}
+		}
+		word.removeOccurrences( "b.txt" );
+		assertEquals( 25, word.getTotalCount() );
+		assertEquals( 2 * 8 + 25 * 4, arena.usedBytes() );
+		List<Integer> lines = new ArrayList<Integer>();
+		word.forEachLine( "c.txt", lines::add );
+		assertEquals( word.getOccurrences().get( "c.txt" ), lines );
+
+		byte[] saved = save( word );
+		Word loaded = load( saved );
+		assertEquals( "Failed to keep the loaded word off heap.", 2 * ( 2 * 8 + 25 * 4 ), arena.usedBytes() );
+		assertEquals( word.getWord(), loaded.getWord() );
+		assertEquals( word.getOccurrences(), loaded.getOccurrences() );
+		assertEquals( 25, loaded.getTotalCount() );
+		assertEquals( 0, loaded.getCount( "b.txt" ) );
+
+		Word.usePostingArena( null );
+		Word onHeap = load( saved );
+		assertEquals( word.getOccurrences(), onHeap.getOccurrences() );
+		assertEquals( 2 * ( 2 * 8 + 25 * 4 ), arena.usedBytes() );
+	}
+
+	/** @return the values of a list, read with forEach */
+	private List<Integer> values( long handle )
+	{
+		List<Integer> values = new ArrayList<Integer>();
+		arena.forEach( handle, values::add );
+		return values;
+	}
+
+	private static byte[] save( Word word ) throws Exception
+	{
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( word );
+		}
+		return bytes.toByteArray();
+	}
+
+	private static Word load( byte[] saved ) throws Exception
+	{
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( saved ) ) )
+		{
+			return (Word) in.readObject();
+		}
+	}
+}
@@ -0,0 +1,160 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.QueryEngine;
+import appDomain.Word;
+import appDomain.WordTracker;
+import implementations.BSTree;
+
+/**
+ * Class Description: Tests for boolean, phrase, proximity and line-group
+ * queries, and for the errors reported on malformed ones.
+ */
+
+public class QueryEngineTest
+{
+	// Attributes
+	private File a;
+	private File b;
+	private File c;
+	private QueryEngine engine;
+
+	/**
+	 * Indexes three small files with token positions.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		a = TempFiles.write( "query-a", "the quick brown fox\nlazy dog sleeps\nquick dog" );
+		b = TempFiles.write( "query-b", "the lazy cat\nbrown dog runs fast" );
+		c = TempFiles.write( "query-c", "nothing and here" );
+		WordTracker tracker = new WordTracker( new BSTree<Word>() );
+		tracker.setPositional( true );
+		tracker.constructsFromFile( a.getPath() );
+		tracker.constructsFromFile( b.getPath() );
+		tracker.constructsFromFile( c.getPath() );
+		engine = new QueryEngine( tracker );
+	}
+
+	/**
+	 * Deletes the files.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		a.delete();
+		b.delete();
+		c.delete();
+	}
+
+	/**
+	 * Test that AND, implicit AND, OR and parentheses select files and report
+	 * the union of their terms' lines.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAndOr() throws Exception
+	{
+		assertMatches( engine.evaluate( "quick AND dog" ), a, 1, 2, 3 );
+		assertMatches( engine.evaluate( "Quick dog" ), a, 1, 2, 3 );
+		Map<String, int[]> either = engine.evaluate( "cat OR fox" );
+		assertEquals( 2, either.size() );
+		assertArrayEquals( "Wrong lines.", new int[] { 1 }, either.get( a.getPath() ) );
+		assertArrayEquals( "Wrong lines.", new int[] { 1 }, either.get( b.getPath() ) );
+		Map<String, int[]> grouped = engine.evaluate( "(cat OR fox) AND lazy" );
+		assertArrayEquals( "Wrong lines.", new int[] { 1, 2 }, grouped.get( a.getPath() ) );
+		assertArrayEquals( "Wrong lines.", new int[] { 1 }, grouped.get( b.getPath() ) );
+		assertMatches( engine.evaluate( "nothing and" ), c, 1 );
+		assertTrue( engine.evaluate( "quick AND cat" ).isEmpty() );
+	}
+
+	/**
+	 * Test that NOT removes files inside an AND chain and falls back to a
+	 * complement over every indexed file when the query is purely negative.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testNot() throws Exception
+	{
+		assertMatches( engine.evaluate( "dog NOT quick" ), b, 2 );
+		assertMatches( engine.evaluate( "NOT dog" ), c );
+		Map<String, int[]> notMissing = engine.evaluate( "NOT missing" );
+		assertEquals( 3, notMissing.size() );
+		assertTrue( engine.evaluate( "NOT NOT missing" ).isEmpty() );
+	}
+
+	/**
+	 * Test that a bracket group matches only lines holding every word.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testBracketGroup() throws Exception
+	{
+		assertMatches( engine.evaluate( "[quick dog]" ), a, 3 );
+		assertMatches( engine.evaluate( "[brown dog]" ), b, 2 );
+		assertTrue( engine.evaluate( "[fox dog]" ).isEmpty() );
+	}
+
+	/**
+	 * Test that phrases match consecutive tokens and NEAR/k bounds the
+	 * distance in either order.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testPhraseAndNear() throws Exception
+	{
+		assertMatches( engine.evaluate( "\"quick brown\"" ), a, 1 );
+		assertMatches( engine.evaluate( "\"the quick brown fox\"" ), a, 1 );
+		assertTrue( engine.evaluate( "\"brown quick\"" ).isEmpty() );
+		assertTrue( engine.evaluate( "\"quick fox\"" ).isEmpty() );
+		assertMatches( engine.evaluate( "quick NEAR/2 fox" ), a, 1 );
+		assertMatches( engine.evaluate( "fox NEAR/2 quick" ), a, 1 );
+		assertTrue( engine.evaluate( "quick NEAR/1 fox" ).isEmpty() );
+	}
+
+	/**
+	 * Test that malformed queries are rejected with IllegalArgumentException.
+	 */
+	@Test
+	public void testMalformed()
+	{
+		String[] queries = { "", "quick AND", "(quick", "quick )", "[quick", "[ ]", "[quick (dog)]",
+				"quick NEAR/x dog", "NEAR/2 dog", "\"quick", "\"\"", "OR dog" };
+		for( String q : queries )
+		{
+			try
+			{
+				engine.evaluate( q );
+				fail( "Failed to reject: " + q );
+			}
+			catch( IllegalArgumentException e )
+			{
+				assertTrue( true );
+			}
+		}
+	}
+
+	private static void assertMatches( Map<String, int[]> result, File file, int... lines )
+	{
+		assertEquals( "Wrong files: " + result.keySet(), 1, result.size() );
+		assertArrayEquals( "Wrong lines: " + Arrays.toString( result.get( file.getPath() ) ), lines,
+				result.get( file.getPath() ) );
+	}
+}
@@ -0,0 +1,152 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import implementations.RadixTrie;
+
+/**
+ * Class Description: Tests for the adaptive radix trie implementation of
+ * the BSTreeADT, using strings keyed by their lower-cased text.
+ */
+
+public class RadixTrieTest
+{
+	// Attributes
+	private RadixTrie<String> trie;
+
+	/**
+	 * Initializes a new trie keyed by the lower-cased string before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		trie = new RadixTrie<String>( s -> s.toLowerCase() );
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		trie = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.RadixTrie#add(Comparable)} to store
+	 * keys that are prefixes of each other and reject duplicate keys.
+	 */
+	@Test
+	public void testAdd_PrefixKeys()
+	{
+		assertTrue( trie.add( "tea" ) );
+		assertTrue( trie.add( "te" ) );
+		assertTrue( trie.add( "team" ) );
+		assertTrue( trie.add( "t" ) );
+		assertFalse( "Duplicate key should not be added.", trie.add( "TEA" ) );
+		assertEquals( "Failed to return correct size.", 4, trie.size() );
+
+		assertTrue( "Failed to return true.", trie.contains( "te" ) );
+		assertTrue( "Failed to return true.", trie.contains( "Team" ) );
+		assertFalse( "Failed to return false.", trie.contains( "tear" ) );
+		assertFalse( "Failed to return false.", trie.contains( "" ) );
+		assertEquals( "Failed to return the stored element.", "tea", trie.searchKey( "tea" ) );
+	}
+
+	/**
+	 * Test method for {@link implementations.RadixTrie#inorderIterator()} to
+	 * return the same order as the case-insensitive string comparison, across
+	 * nodes that grow past 4, 16 and 48 children.
+	 */
+	@Test
+	public void testInorderIterator_MatchesStringOrder()
+	{
+		java.util.TreeSet<String> expected = new java.util.TreeSet<String>(
+				( x, y ) -> x.toLowerCase().compareTo( y.toLowerCase() ) );
+		for( int i = 0; i < 300; i++ )
+		{
+			String s = "k" + (char) ( 0x20 + i ) + ( i % 3 == 0 ? "" : "x" + i );
+			expected.add( s );
+			trie.add( s );
+		}
+		trie.add( "été" );
+		expected.add( "été" );
+
+		Iterator<String> it = trie.inorderIterator();
+		for( String s : expected )
+		{
+			assertEquals( "Iterator is out of order.", s.toLowerCase(), it.next().toLowerCase() );
+		}
+		assertFalse( "Iterator returned extra elements.", it.hasNext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.RadixTrie#prefixIterator(String)} to
+	 * return only the words sharing the prefix.
+	 */
+	@Test
+	public void testPrefixIterator()
+	{
+		String[] words = { "car", "cart", "carbon", "cat", "dog", "ca" };
+		for( String w : words )
+		{
+			trie.add( w );
+		}
+		Iterator<String> it = trie.prefixIterator( "car" );
+		assertEquals( "car", it.next() );
+		assertEquals( "carbon", it.next() );
+		assertEquals( "cart", it.next() );
+		assertFalse( "Iterator returned extra elements.", it.hasNext() );
+		assertFalse( "Failed to return empty result.", trie.prefixIterator( "cb" ).hasNext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.RadixTrie#removeMin()} and
+	 * {@link implementations.RadixTrie#removeMax()}.
+	 */
+	@Test
+	public void testRemoveMinMax()
+	{
+		String[] words = { "b", "ba", "bad", "a", "c" };
+		for( String w : words )
+		{
+			trie.add( w );
+		}
+		assertEquals( "Failed to return minimum value.", "a", trie.removeMin().getElement() );
+		assertEquals( "Failed to remove the maximum value.", "c", trie.removeMax().getElement() );
+		assertEquals( "Failed to remove the maximum value.", "bad", trie.removeMax().getElement() );
+		assertEquals( "Failed to return minimum value.", "b", trie.removeMin().getElement() );
+		assertEquals( "Failed to update size.", 1, trie.size() );
+		assertEquals( "Failed to return the root element.", "ba", trie.getRoot().getElement() );
+		trie.removeMin();
+		assertNull( "Failed to return null.", trie.removeMin() );
+	}
+
+	/**
+	 * Test method for {@link implementations.RadixTrie#search(Comparable)} to
+	 * throw NullPointerException when searching for null.
+	 */
+	@Test
+	public void testSearch_NullPointerException()
+	{
+		try
+		{
+			trie.search( null );
+			fail( "Failed to throw NullPointerException." );
+		}
+		catch( NullPointerException e )
+		{
+			assertTrue( true );
+		}
+	}
+}
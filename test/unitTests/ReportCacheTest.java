@@ -0,0 +1,178 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.Word;
+import appDomain.WordTracker;
+import implementations.BSTree;
+import utilities.Metrics;
+
+/**
+ * Class Description: Tests for regenerating a report from the cached
+ * renderings of unchanged words.
+ */
+
+public class ReportCacheTest
+{
+	// Attributes
+	private File repository;
+	private BSTree<Word> tree;
+	private WordTracker tracker;
+	private Metrics metrics;
+
+	/**
+	 * Creates a tracker over a few words with the report cache on.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		repository = File.createTempFile( "repository", ".ser" );
+		tree = new BSTree<Word>();
+		for( String s : new String[] { "delta", "alpha", "echo", "bravo", "charlie" } )
+		{
+			Word w = new Word( s );
+			w.addOccurrences( "a.txt", s.length() );
+			tree.add( w );
+		}
+		tracker = new WordTracker( tree );
+		tracker.setRepositoryFile( repository.getPath() );
+		tracker.setReportCache( true );
+		metrics = new Metrics();
+		tracker.setMetrics( metrics );
+	}
+
+	/**
+	 * Deletes the repository and cache files.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		for( String mode : new String[] { "pf", "pl", "po", "pj", "pc" } )
+		{
+			new File( repository.getPath() + "." + mode + ".cache" ).delete();
+		}
+		repository.delete();
+	}
+
+	/**
+	 * Test that only changed words are rendered again and the report matches
+	 * an uncached one.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testOnlyChangedWordsRendered() throws Exception
+	{
+		String first = report( "po" );
+		assertEquals( first, uncached( "po" ) );
+		assertEquals( 5, metrics.counter( "report.cache.misses" ).get() );
+		assertTrue( "Failed to write the cache.", new File( repository.getPath() + ".po.cache" ).isFile() );
+
+		tree.search( new Word( "charlie" ) ).getElement().addOccurrences( "b.txt", 9 );
+		tree.add( new Word( "foxtrot" ) );
+		tree.search( new Word( "foxtrot" ) ).getElement().addOccurrences( "b.txt", 1 );
+		String second = report( "po" );
+		assertEquals( second, uncached( "po" ) );
+		assertFalse( "Failed to show the change.", first.equals( second ) );
+		assertEquals( 4, metrics.counter( "report.cache.hits" ).get() );
+		assertEquals( 7, metrics.counter( "report.cache.misses" ).get() );
+
+		tree.search( new Word( "alpha" ) ).getElement().removeOccurrences( "a.txt" );
+		tree.search( new Word( "echo" ) ).getElement().removeOccurrences( "missing.txt" );
+		assertEquals( uncached( "po" ), report( "po" ) );
+		assertEquals( 9, metrics.counter( "report.cache.hits" ).get() );
+		assertEquals( 8, metrics.counter( "report.cache.misses" ).get() );
+	}
+
+	/**
+	 * Test that regenerating one mode leaves the other modes' caches valid:
+	 * only the words changed in between are rendered again.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAlternatingModes() throws Exception
+	{
+		report( "po" );
+		report( "pl" );
+		assertEquals( 10, metrics.counter( "report.cache.misses" ).get() );
+
+		tree.search( new Word( "bravo" ) ).getElement().addOccurrences( "b.txt", 2 );
+		assertEquals( uncached( "pl" ), report( "pl" ) );
+		assertEquals( uncached( "po" ), report( "po" ) );
+		assertEquals( 8, metrics.counter( "report.cache.hits" ).get() );
+		assertEquals( 12, metrics.counter( "report.cache.misses" ).get() );
+
+		assertEquals( uncached( "pl" ), report( "pl" ) );
+		assertEquals( uncached( "po" ), report( "po" ) );
+		assertEquals( 18, metrics.counter( "report.cache.hits" ).get() );
+		assertEquals( 12, metrics.counter( "report.cache.misses" ).get() );
+	}
+
+	/**
+	 * Test that CSV and JSON Lines reports are cached, with the CSV header.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testMachineReadableModes() throws Exception
+	{
+		for( String mode : new String[] { "pc", "pj" } )
+		{
+			String expected = uncached( mode );
+			assertEquals( expected, report( mode ) );
+			assertEquals( expected, report( mode ) );
+		}
+		assertTrue( report( "pc" ).startsWith( "word,file,count,lines\n" ) );
+	}
+
+	/**
+	 * Test that a damaged cache file only costs re-rendering.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testDamagedCache() throws Exception
+	{
+		report( "pl" );
+		File cache = new File( repository.getPath() + ".pl.cache" );
+		try( java.io.RandomAccessFile f = new java.io.RandomAccessFile( cache, "rw" ) )
+		{
+			f.setLength( f.length() / 2 );
+		}
+		assertEquals( uncached( "pl" ), report( "pl" ) );
+		assertEquals( uncached( "pl" ), report( "pl" ) );
+	}
+
+	private String report( String mode ) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		tracker.generateReport( mode, new PrintStream( out ) );
+		return out.toString( "UTF-8" );
+	}
+
+	private String uncached( String mode ) throws Exception
+	{
+		tracker.setReportCache( false );
+		try
+		{
+			return report( mode );
+		}
+		finally
+		{
+			tracker.setReportCache( true );
+		}
+	}
+}
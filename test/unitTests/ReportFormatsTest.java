@@ -0,0 +1,185 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.ReportFormats;
+import appDomain.ReportFormatter;
+import appDomain.Word;
+
+/**
+ * Class Description: Tests for the JSON Lines, CSV and binary report
+ * formats.
+ */
+
+public class ReportFormatsTest
+{
+	// Attributes
+	private List<Word> words;
+
+	/**
+	 * Creates words with awkward characters in their words and file names.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		words = new ArrayList<Word>();
+		Word apple = new Word( "apple" );
+		apple.addOccurrences( "a.txt", 3 );
+		apple.addOccurrences( "a.txt", 8 );
+		words.add( apple );
+		Word banana = new Word( "banana" );
+		banana.addOccurrences( "b, \"c\".txt", 1 );
+		words.add( banana );
+		Word cafe = new Word( "café\"\\" );
+		cafe.addOccurrences( "tab\there.txt", 70000 );
+		words.add( cafe );
+	}
+
+	/**
+	 * Clears the words.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		words = null;
+	}
+
+	/**
+	 * Test that JSON Lines escapes quotes, backslashes and control characters.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testJsonLines() throws Exception
+	{
+		String expected = "{\"word\":\"apple\",\"count\":2,\"files\":["
+				+ "{\"file\":\"a.txt\",\"count\":2,\"lines\":[3,8]}]}\n"
+				+ "{\"word\":\"banana\",\"count\":1,\"files\":["
+				+ "{\"file\":\"b, \\\"c\\\".txt\",\"count\":1,\"lines\":[1]}]}\n"
+				+ "{\"word\":\"café\\\"\\\\\",\"count\":1,\"files\":["
+				+ "{\"file\":\"tab\\u0009here.txt\",\"count\":1,\"lines\":[70000]}]}\n";
+		assertEquals( "Wrong JSON.", expected, format( "pj" ) );
+	}
+
+	/**
+	 * Test that CSV has a header, one row per file and RFC 4180 quoting.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testCsv() throws Exception
+	{
+		String expected = "word,file,count,lines\n"
+				+ "apple,a.txt,2,3 8\n"
+				+ "banana,\"b, \"\"c\"\".txt\",1,1\n"
+				+ "\"café\"\"\\\",tab\there.txt,1,70000\n";
+		assertEquals( "Wrong CSV.", expected, format( "pc" ) );
+	}
+
+	/**
+	 * Test that the binary format reads back the same postings.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testBinaryRoundTrip() throws Exception
+	{
+		byte[] bytes = bytes( "pb" );
+		try( ReportFormats.BinaryReader in = new ReportFormats.BinaryReader( new ByteArrayInputStream( bytes ) ) )
+		{
+			for( Word expected : words )
+			{
+				assertTrue( "Missing a word.", in.next() );
+				assertEquals( expected.getWord(), in.word() );
+				Word actual = in.toWord();
+				assertEquals( expected.getOccurrences(), actual.getOccurrences() );
+			}
+			assertFalse( "Extra word.", in.next() );
+		}
+	}
+
+	/**
+	 * Test that a word read back lists its files in the order it was
+	 * written with, even for files whose names share a hash bucket.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testBinaryFileOrder() throws Exception
+	{
+		Word word = new Word( "order" );
+		for( String file : new String[] { "Aa", "BB", "C#", "x.txt" } )
+		{
+			word.addOccurrences( file, file.length() );
+		}
+		words.clear();
+		words.add( word );
+		try( ReportFormats.BinaryReader in = new ReportFormats.BinaryReader( new ByteArrayInputStream( bytes( "pb" ) ) ) )
+		{
+			assertTrue( in.next() );
+			assertEquals( word.toPrintFilesLinesFrequency(), in.toWord().toPrintFilesLinesFrequency() );
+		}
+	}
+
+	/**
+	 * Test that a stream without the header is rejected.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testBinaryBadHeader() throws Exception
+	{
+		try
+		{
+			new ReportFormats.BinaryReader( new ByteArrayInputStream( bytes( "pj" ) ) );
+			fail( "Failed to throw IOException." );
+		}
+		catch( IOException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test that an unknown mode is rejected.
+	 */
+	@Test( expected = IllegalArgumentException.class )
+	public void testUnknownMode()
+	{
+		assertFalse( ReportFormatter.isMode( "px" ) );
+		ReportFormatter.forMode( "px", new ByteArrayOutputStream() );
+	}
+
+	private String format( String mode ) throws IOException
+	{
+		return new String( bytes( mode ), StandardCharsets.UTF_8 );
+	}
+
+	private byte[] bytes( String mode ) throws IOException
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ReportFormatter formatter = ReportFormatter.forMode( mode, out );
+		formatter.begin();
+		for( Word w : words )
+		{
+			formatter.write( w );
+		}
+		formatter.end();
+		return out.toByteArray();
+	}
+}
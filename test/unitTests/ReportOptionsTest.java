@@ -0,0 +1,178 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.ReportFormatter;
+import appDomain.ReportOptions;
+import appDomain.Word;
+import appDomain.WordTracker;
+import implementations.BSTree;
+
+/**
+ * Class Description: Tests for filtering, range and limit options of a
+ * report.
+ */
+
+public class ReportOptionsTest
+{
+	// Attributes
+	private WordTracker tracker;
+
+	/**
+	 * Creates a tracker over a few words in two files.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		BSTree<Word> tree = new BSTree<Word>();
+		tree.add( word( "cherry", "a.txt", 5 ) );
+		tree.add( word( "apple", "a.txt", 3 ) );
+		Word apricot = word( "apricot", "a.txt", 1 );
+		apricot.addOccurrences( "b.txt", 7 );
+		tree.add( apricot );
+		tree.add( word( "date", "b.txt", 1 ) );
+		tree.add( word( "banana", "b.txt", 2 ) );
+		tracker = new WordTracker( tree );
+	}
+
+	/**
+	 * Clears the tracker.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		tracker = null;
+	}
+
+	/**
+	 * Test that no options keep every word.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testUnfiltered() throws Exception
+	{
+		assertEquals( Arrays.asList( "apple", "apricot", "banana", "cherry", "date" ),
+				words( new ReportOptions() ) );
+	}
+
+	/**
+	 * Test that a prefix and a range keep a span of words, compared by their
+	 * folded keys.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testPrefixAndRange() throws Exception
+	{
+		assertEquals( Arrays.asList( "apple", "apricot" ), words( new ReportOptions().prefix( "AP" ) ) );
+		assertEquals( Arrays.asList( "banana", "cherry" ), words( new ReportOptions().range( "b", "cz" ) ) );
+		assertEquals( Arrays.asList( "cherry", "date" ), words( new ReportOptions().range( "c", null ) ) );
+		assertEquals( Arrays.asList( "apricot" ),
+				words( new ReportOptions().prefix( "ap" ).range( "apr", null ) ) );
+		assertTrue( words( new ReportOptions().prefix( "zz" ) ).isEmpty() );
+	}
+
+	/**
+	 * Test that frequency bounds, offset and limit apply after the other
+	 * filters.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testFrequencyOffsetAndLimit() throws Exception
+	{
+		assertEquals( Arrays.asList( "apple", "apricot", "banana", "cherry" ),
+				words( new ReportOptions().minFrequency( 2 ) ) );
+		assertEquals( Arrays.asList( "apricot", "banana" ),
+				words( new ReportOptions().minFrequency( 2 ).maxFrequency( 2 ) ) );
+		assertEquals( Arrays.asList( "apricot", "banana" ), words( new ReportOptions().offset( 1 ).limit( 2 ) ) );
+		assertTrue( words( new ReportOptions().limit( 0 ) ).isEmpty() );
+	}
+
+	/**
+	 * Test that a file filter keeps only that file's postings and counts.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testFile() throws Exception
+	{
+		assertEquals( "word,file,count,lines\napricot,b.txt,1,7\nbanana,b.txt,2,1 2\ndate,b.txt,1,1\n",
+				report( new ReportOptions().file( "b.txt" ) ) );
+		assertEquals( Arrays.asList( "banana" ), words( new ReportOptions().file( "b.txt" ).minFrequency( 2 ) ) );
+	}
+
+	/**
+	 * Test that invalid values are rejected.
+	 */
+	@Test
+	public void testInvalid()
+	{
+		try
+		{
+			new ReportOptions().minFrequency( -1 );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+		try
+		{
+			new ReportOptions().limit( -2 );
+			fail( "Failed to throw IllegalArgumentException." );
+		}
+		catch( IllegalArgumentException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	private static Word word( String text, String file, int count )
+	{
+		Word w = new Word( text );
+		for( int i = 1; i <= count; i++ )
+		{
+			w.addOccurrences( file, i );
+		}
+		return w;
+	}
+
+	private String report( ReportOptions options ) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		tracker.generateReport( ReportFormatter.forMode( "pc", out ), options );
+		return new String( out.toByteArray(), StandardCharsets.UTF_8 );
+	}
+
+	/** @return the distinct words of a CSV report, in order */
+	private List<String> words( ReportOptions options ) throws Exception
+	{
+		List<String> words = new ArrayList<String>();
+		String[] rows = report( options ).split( "\n" );
+		for( int i = 1; i < rows.length; i++ )
+		{
+			String w = rows[i].substring( 0, rows[i].indexOf( ',' ) );
+			if( words.isEmpty() || !words.get( words.size() - 1 ).equals( w ) )
+			{
+				words.add( w );
+			}
+		}
+		return words;
+	}
+}
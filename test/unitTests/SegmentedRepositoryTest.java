@@ -0,0 +1,246 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.SegmentedRepository;
+import appDomain.Word;
+import appDomain.WordTracker;
+import implementations.BSTree;
+import utilities.Analyzer;
+import utilities.StopWords;
+
+/**
+ * Class Description: Tests for the log-structured repository, comparing its
+ * reports and lookups with those of a single in-memory repository while
+ * memtables are flushed and segments compacted.
+ */
+
+public class SegmentedRepositoryTest
+{
+	// Attributes
+	private File dir;
+	private File texts;
+	private File[] inputs;
+
+	/**
+	 * Writes five input files, each larger than the 64-byte memtable.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		dir = File.createTempFile( "segments", "" );
+		dir.delete();
+		texts = File.createTempFile( "texts", "" );
+		texts.delete();
+		texts.mkdir();
+		inputs = new File[] {
+			TempFiles.write( texts, "lsm-a", "The quick brown fox jumps over the lazy dog.\nThe dog sleeps." ),
+			TempFiles.write( texts, "lsm-b", "Zebras and yaks graze; 42 aardvarks watch the xylophone band." ),
+			TempFiles.write( texts, "lsm-c", "Every good boy deserves fudge, and mice eat cheese at noon." ),
+			TempFiles.write( texts, "lsm-d", "Quick thinking saves the day.\n\nNever odd or even, the Fox said." ),
+			TempFiles.write( texts, "lsm-e", "An umbrella cafe by the river serves the best quick lunch in town." )
+		};
+	}
+
+	/**
+	 * Deletes the input files and the repository directory.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		TempFiles.delete( texts );
+		TempFiles.delete( dir );
+	}
+
+	/**
+	 * Test that flushed and compacted segments report the same as one
+	 * in-memory repository, before and after reopening from the MANIFEST.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testFlushCompactReopen() throws Exception
+	{
+		WordTracker single = new WordTracker( new BSTree<Word>() );
+		try( SegmentedRepository repository = new SegmentedRepository( dir, 64, 2 ) )
+		{
+			for( File f : inputs )
+			{
+				assertTrue( repository.index( f.getPath() ) );
+				single.constructsFromFile( f.getPath() );
+			}
+			assertFalse( repository.index( new File( dir, "missing.txt" ).getPath() ) );
+			assertReportsMatch( single, repository );
+			repository.flush();
+			assertTrue( "Failed to compact.", repository.segmentCount() <= 2 );
+			assertTrue( "Failed to flush any segment.", repository.segmentCount() > 0 );
+			assertReportsMatch( single, repository );
+		}
+		assertTrue( new File( dir, "MANIFEST" ).exists() );
+		try( SegmentedRepository repository = new SegmentedRepository( dir, 64, 2 ) )
+		{
+			assertReportsMatch( single, repository );
+		}
+	}
+
+	/**
+	 * Test that re-indexing a changed file replaces its postings, whether the
+	 * old ones are in a segment or still in memory.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testReindex() throws Exception
+	{
+		WordTracker single = new WordTracker( new BSTree<Word>() );
+		try( SegmentedRepository repository = new SegmentedRepository( dir, 64, 2 ) )
+		{
+			for( File f : inputs )
+			{
+				repository.index( f.getPath() );
+				single.constructsFromFile( f.getPath() );
+			}
+			repository.flush();
+			try( PrintWriter out = new PrintWriter( inputs[0] ) )
+			{
+				out.print( "Replaced lines about a zebra\nand nothing else" );
+			}
+			repository.index( inputs[0].getPath() );
+			try( PrintWriter out = new PrintWriter( inputs[4] ) )
+			{
+				out.print( "tiny" );
+			}
+			repository.index( inputs[4].getPath() );
+			single.constructsFromFile( inputs[0].getPath() );
+			single.constructsFromFile( inputs[4].getPath() );
+			assertReportsMatch( single, repository );
+			assertNull( "Kept a stale word.", repository.lookup( "brown" ) );
+			repository.flush();
+			assertReportsMatch( single, repository );
+		}
+	}
+
+	/**
+	 * Test that segment files the MANIFEST does not list are deleted on
+	 * opening and never read.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testOrphansDeleted() throws Exception
+	{
+		WordTracker single = new WordTracker( new BSTree<Word>() );
+		try( SegmentedRepository repository = new SegmentedRepository( dir, 64, 2 ) )
+		{
+			repository.index( inputs[0].getPath() );
+			single.constructsFromFile( inputs[0].getPath() );
+		}
+		File orphan = new File( dir, "seg-999.dat" );
+		File tmp = new File( dir, "seg-1000.tmp" );
+		for( File f : new File[] { orphan, tmp } )
+		{
+			try( PrintWriter out = new PrintWriter( f ) )
+			{
+				out.print( "partial" );
+			}
+		}
+		try( SegmentedRepository repository = new SegmentedRepository( dir, 64, 2 ) )
+		{
+			assertFalse( "Kept an unlisted segment.", orphan.exists() );
+			assertFalse( "Kept a temporary segment.", tmp.exists() );
+			assertReportsMatch( single, repository );
+		}
+	}
+
+	/**
+	 * Test that memtables, including those swapped in after a flush, drop
+	 * stop words and index stems as one repository with the same analysis
+	 * chain, and that lookups are stemmed. Words are compared by report, as
+	 * a stem looked up again may be stemmed further.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAnalyzed() throws Exception
+	{
+		Analyzer analyzer = new Analyzer( StopWords.english(), true );
+		WordTracker single = new WordTracker( new BSTree<Word>() );
+		single.setAnalyzer( analyzer );
+		try( SegmentedRepository repository = new SegmentedRepository( dir, 64, 2 ) )
+		{
+			repository.setAnalyzer( analyzer );
+			for( File f : inputs )
+			{
+				repository.index( f.getPath() );
+				single.constructsFromFile( f.getPath() );
+			}
+			repository.flush();
+			ByteArrayOutputStream actual = new ByteArrayOutputStream();
+			repository.report( "pf", new PrintStream( actual, true, "UTF-8" ) );
+			assertEquals( words( report( single ) ), words( actual.toString( "UTF-8" ) ) );
+			assertNull( "Kept a stop word.", repository.lookup( "the" ) );
+			assertEquals( single.lookup( "zebra" ).getOccurrences(), repository.lookup( "Zebras" ).getOccurrences() );
+		}
+	}
+
+	/**
+	 * Checks that both list the same words in the same order with the same
+	 * spelling, and that each word has the same lines in every file. Files
+	 * are compared as a map, since their order within a word is not fixed.
+	 */
+	private static void assertReportsMatch( WordTracker single, SegmentedRepository repository ) throws Exception
+	{
+		List<String> expected = new ArrayList<String>();
+		for( String word : words( report( single ) ) )
+		{
+			Word w = single.lookup( word );
+			if( w.getTotalCount() > 0 )
+			{
+				expected.add( word );
+				Word found = repository.lookup( word.toUpperCase() );
+				assertNotNull( "Lost " + word, found );
+				assertEquals( word, found.getWord() );
+				assertEquals( word, w.getOccurrences(), found.getOccurrences() );
+			}
+		}
+		ByteArrayOutputStream actual = new ByteArrayOutputStream();
+		repository.report( "pf", new PrintStream( actual, true, "UTF-8" ) );
+		assertEquals( expected, words( actual.toString( "UTF-8" ) ) );
+	}
+
+	private static String report( WordTracker single ) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		single.generateReport( "pf", new PrintStream( out, true, "UTF-8" ) );
+		return out.toString( "UTF-8" );
+	}
+
+	/** @return the word at the start of each line of a "pf" report */
+	private static List<String> words( String report )
+	{
+		List<String> words = new ArrayList<String>();
+		for( String line : report.split( "\\R" ) )
+		{
+			if( !line.isEmpty() )
+			{
+				words.add( line.substring( 0, line.indexOf( " :" ) ) );
+			}
+		}
+		return words;
+	}
+}
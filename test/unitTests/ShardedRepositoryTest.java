@@ -0,0 +1,263 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import appDomain.ReportOptions;
+import appDomain.ShardedRepository;
+import appDomain.Word;
+import appDomain.WordTracker;
+import implementations.BSTree;
+import utilities.Analyzer;
+import utilities.StopWords;
+
+/**
+ * Class Description: Tests for the key-range sharded repository, comparing
+ * its reports and lookups with those of a single repository.
+ */
+
+public class ShardedRepositoryTest
+{
+	// Attributes
+	private File dir;
+	private File first;
+	private File second;
+	private WordTracker single;
+
+	/**
+	 * Writes two input files and indexes them into a single repository.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		dir = File.createTempFile( "shards", "" );
+		dir.delete();
+		first = TempFiles.write( "first", "The quick brown fox jumps over the lazy dog.\n"
+				+ "Zebras and yaks graze; 42 aardvarks watch the xylophone.\n"
+				+ "Every good boy deserves fudge, and mice eat cheese." );
+		second = TempFiles.write( "second", "Quick thinking saves the day.\n\n"
+				+ "Never odd or even: the Fox, the DOG and the umbrella cafe." );
+		single = new WordTracker( new BSTree<Word>() );
+		single.constructsFromFile( first.getPath() );
+		single.constructsFromFile( second.getPath() );
+	}
+
+	/**
+	 * Deletes the input files and the shard directory.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		first.delete();
+		second.delete();
+		TempFiles.delete( dir );
+	}
+
+	/**
+	 * Test that in-process shards give the same reports as one repository,
+	 * with and without filters and limits, and after reopening.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLocalShards() throws Exception
+	{
+		try( ShardedRepository shards = ShardedRepository.open( dir, 5 ) )
+		{
+			assertEquals( 5, shards.shardCount() );
+			assertTrue( shards.index( first.getPath() ) );
+			assertTrue( shards.index( second.getPath() ) );
+			assertFalse( shards.index( new File( dir, "missing.txt" ).getPath() ) );
+			assertReportsMatch( single, shards );
+		}
+		try( ShardedRepository shards = ShardedRepository.open( dir, 2 ) )
+		{
+			assertEquals( "Failed to keep the existing layout.", 5, shards.shardCount() );
+			assertReportsMatch( reloaded( single ), shards );
+		}
+	}
+
+	/**
+	 * Test that each shard only holds its own key range and the split keys
+	 * are in order.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testLayout() throws Exception
+	{
+		try( ShardedRepository shards = ShardedRepository.open( dir, 8 ) )
+		{
+			shards.index( first.getPath() );
+		}
+		List<String> splits = new ArrayList<String>();
+		try( BufferedReader in = new BufferedReader( new FileReader( new File( dir, "shards.txt" ) ) ) )
+		{
+			String line;
+			while( ( line = in.readLine() ) != null )
+			{
+				splits.add( line );
+			}
+		}
+		assertEquals( 7, splits.size() );
+		List<String> sorted = new ArrayList<String>( splits );
+		Collections.sort( sorted );
+		assertEquals( sorted, splits );
+
+		int held = 0;
+		for( int i = 0; i <= splits.size(); i++ )
+		{
+			WordTracker shard = new WordTracker( new BSTree<Word>() );
+			shard.setRepositoryFile( new File( dir, "shard-" + i + ".ser" ).getPath() );
+			shard.loadTree();
+			for( Word w : shard.topWords( Integer.MAX_VALUE ) )
+			{
+				assertTrue( "Kept a word below its range: " + w.getWord(),
+						i == 0 || w.getKey().compareTo( splits.get( i - 1 ) ) >= 0 );
+				assertTrue( "Kept a word above its range: " + w.getWord(),
+						i == splits.size() || w.getKey().compareTo( splits.get( i ) ) < 0 );
+				assertEquals( w.getWord(), single.lookup( w.getWord() ).getOccurrences().get( first.getPath() ),
+						w.getOccurrences().get( first.getPath() ) );
+				held++;
+			}
+		}
+		int expected = 0;
+		for( Word w : single.topWords( Integer.MAX_VALUE ) )
+		{
+			if( w.getCount( first.getPath() ) > 0 )
+			{
+				expected++;
+			}
+		}
+		assertEquals( "Lost or duplicated a word.", expected, held );
+	}
+
+	/**
+	 * Test that input is analyzed once for every shard: stop words are
+	 * dropped, stems are routed and indexed, and lookups are stemmed.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAnalyzedShards() throws Exception
+	{
+		Analyzer analyzer = new Analyzer( StopWords.english(), true );
+		WordTracker stemmed = new WordTracker( new BSTree<Word>() );
+		stemmed.setAnalyzer( analyzer );
+		stemmed.constructsFromFile( first.getPath() );
+		stemmed.constructsFromFile( second.getPath() );
+		try( ShardedRepository shards = ShardedRepository.open( dir, 4, BSTree::new,
+				tracker -> tracker.setAnalyzer( analyzer ) ) )
+		{
+			shards.index( first.getPath() );
+			shards.index( second.getPath() );
+			assertEquals( expected( stemmed, "po", null ), actual( shards, "po", null ) );
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			shards.query( new String[] { "Zebra", "the" }, new PrintStream( bytes, true, "UTF-8" ) );
+			String[] lines = bytes.toString( "UTF-8" ).split( "\\R" );
+			assertEquals( stemmed.lookup( "zebras" ).toPrintFilesLinesFrequency(), lines[0] );
+			assertEquals( "the: not found", lines[1] );
+		}
+	}
+
+	/**
+	 * Test that shards served by separate processes give the same reports.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testProcessShards() throws Exception
+	{
+		try( ShardedRepository shards = ShardedRepository.launch( dir, 3, new ArrayList<String>(), null ) )
+		{
+			assertTrue( shards.index( first.getPath() ) );
+			assertTrue( shards.index( second.getPath() ) );
+			assertReportsMatch( single, shards );
+		}
+		assertTrue( "Failed to save a shard.", new File( dir, "shard-0.ser" ).length() > 0 );
+		try( ShardedRepository shards = ShardedRepository.open( dir, 3 ) )
+		{
+			assertReportsMatch( reloaded( single ), shards );
+		}
+	}
+
+	/**
+	 * Checks reports in several modes and with several options, and lookups.
+	 * A reopened repository is compared with a reloaded one, since a word's
+	 * files may come back from a repository file in another order.
+	 */
+	private void assertReportsMatch( WordTracker single, ShardedRepository shards ) throws Exception
+	{
+		for( String mode : new String[] { "po", "pj", "pb" } )
+		{
+			assertEquals( mode, expected( single, mode, null ), actual( shards, mode, null ) );
+		}
+		ReportOptions[] options = {
+			new ReportOptions().prefix( "th" ),
+			new ReportOptions().offset( 3 ).limit( 4 ),
+			new ReportOptions().range( "d", "s" ).limit( 6 ),
+			new ReportOptions().file( second.getPath() ).minFrequency( 2 ),
+			new ReportOptions().prefix( "zz" )
+		};
+		for( ReportOptions o : options )
+		{
+			assertEquals( expected( single, "pc", o ), actual( shards, "pc", o ) );
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		shards.query( new String[] { "FOX", "missing", "Umbrella" }, new PrintStream( bytes, true, "UTF-8" ) );
+		String[] lines = bytes.toString( "UTF-8" ).split( "\\R" );
+		assertEquals( single.lookup( "fox" ).toPrintFilesLinesFrequency(), lines[0] );
+		assertEquals( "missing: not found", lines[1] );
+		assertEquals( single.lookup( "umbrella" ).toPrintFilesLinesFrequency(), lines[2] );
+	}
+
+	/** @return the repository as saved to a file and loaded again */
+	private static WordTracker reloaded( WordTracker tracker ) throws Exception
+	{
+		File file = File.createTempFile( "single", ".ser" );
+		try
+		{
+			tracker.setRepositoryFile( file.getPath() );
+			assertTrue( tracker.saveTree() );
+			WordTracker copy = new WordTracker( new BSTree<Word>() );
+			copy.setRepositoryFile( file.getPath() );
+			copy.loadTree();
+			return copy;
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	private static String expected( WordTracker single, String mode, ReportOptions options ) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		single.generateReport( mode, new PrintStream( out, true, "UTF-8" ), options );
+		return out.toString( "ISO-8859-1" );
+	}
+
+	private String actual( ShardedRepository shards, String mode, ReportOptions options ) throws Exception
+	{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		shards.report( mode, new PrintStream( out, true, "UTF-8" ), options );
+		return out.toString( "ISO-8859-1" );
+	}
+}
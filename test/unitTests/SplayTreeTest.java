@@ -0,0 +1,256 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Iterator;
+
+import implementations.SplayTree;
+
+/**
+ * Class Description: Tests for the self-adjusting splay tree implementation
+ * of the BSTreeADT.
+ */
+
+public class SplayTreeTest
+{
+	// Attributes
+	private SplayTree<Integer> tree;
+
+	/**
+	 * Initializes a new tree holding 11, 22, ..., 77 before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		tree = new SplayTree<Integer>();
+		int[] values = { 44, 22, 66, 11, 55, 33, 77 };
+		for( int v : values )
+		{
+			tree.add( v );
+		}
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		tree = null;
+	}
+
+	/**
+	 * Test method for {@link implementations.SplayTree#add(Comparable)} to make
+	 * the new element the root and reject duplicates.
+	 */
+	@Test
+	public void testAdd()
+	{
+		assertEquals( "Failed to count elements.", 7, tree.size() );
+		assertEquals( "New element should be the root.", Integer.valueOf( 77 ), tree.getRoot().getElement() );
+		assertFalse( "Failed to reject duplicate.", tree.add( 33 ) );
+		assertEquals( "Duplicate changed the size.", 7, tree.size() );
+	}
+
+	/**
+	 * Test method for {@link implementations.SplayTree#search(Comparable)} to
+	 * find an element and splay it to the root.
+	 */
+	@Test
+	public void testSearch_SplaysToRoot()
+	{
+		assertEquals( "Failed to find element.", Integer.valueOf( 22 ), tree.search( 22 ).getElement() );
+		assertEquals( "Found element should be the root.", Integer.valueOf( 22 ), tree.getRoot().getElement() );
+		assertTrue( "Failed to return true.", tree.contains( 55 ) );
+		assertEquals( "Found element should be the root.", Integer.valueOf( 55 ), tree.getRoot().getElement() );
+	}
+
+	/**
+	 * Test method for {@link implementations.SplayTree#search(Comparable)} to
+	 * return null for absent values without losing elements.
+	 */
+	@Test
+	public void testSearch_NotFound()
+	{
+		assertNull( "Failed to return null.", tree.search( 50 ) );
+		assertNull( "Failed to return null.", tree.search( 5 ) );
+		assertNull( "Failed to return null.", tree.search( 100 ) );
+		assertEquals( "Search changed the size.", 7, tree.size() );
+		assertInOrder( tree, 11, 22, 33, 44, 55, 66, 77 );
+	}
+
+	/**
+	 * Test method for {@link implementations.SplayTree#search(Comparable)} to
+	 * throw NullPointerException when searching for null.
+	 */
+	@Test
+	public void testSearch_NullPointerException()
+	{
+		try
+		{
+			tree.search( null );
+			fail( "Failed to throw NullPointerException." );
+		}
+		catch( NullPointerException e )
+		{
+			assertTrue( true );
+		}
+	}
+
+	/**
+	 * Test method for {@link implementations.SplayTree#removeMin()} and
+	 * {@link implementations.SplayTree#removeMax()}.
+	 */
+	@Test
+	public void testRemoveMinMax()
+	{
+		assertEquals( "Failed to return minimum value.", 11, (int) tree.removeMin().getElement() );
+		assertEquals( "Failed to return maximum value.", 77, (int) tree.removeMax().getElement() );
+		assertEquals( "Failed to update size.", 5, tree.size() );
+		assertInOrder( tree, 22, 33, 44, 55, 66 );
+		tree.clear();
+		assertNull( "Failed to return null.", tree.removeMin() );
+		assertNull( "Failed to return null.", tree.removeMax() );
+	}
+
+	/**
+	 * Test method for the three traversals on a tree whose shape is fixed by
+	 * the splaying in {@link #setUp()}.
+	 */
+	@Test
+	public void testIterators()
+	{
+		assertInOrder( tree, 11, 22, 33, 44, 55, 66, 77 );
+		SplayTree<Integer> path = new SplayTree<Integer>();
+		path.add( 1 );
+		path.add( 2 );
+		path.add( 3 );
+		// each insert becomes the root with the previous root as its left child
+		Iterator<Integer> pre = path.preorderIterator();
+		assertEquals( 3, (int) pre.next() );
+		assertEquals( 2, (int) pre.next() );
+		assertEquals( 1, (int) pre.next() );
+		Iterator<Integer> post = path.postorderIterator();
+		assertEquals( 1, (int) post.next() );
+		assertEquals( 2, (int) post.next() );
+		assertEquals( 3, (int) post.next() );
+		assertEquals( "Height of tree should be ", 3, path.getHeight() );
+	}
+
+	/**
+	 * Test that a long sorted insertion, which degenerates the tree into a
+	 * path, can still be traversed, searched and serialized, and comes back
+	 * balanced.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testSortedInsertAndSerialization() throws Exception
+	{
+		SplayTree<Integer> big = new SplayTree<Integer>();
+		int n = 100000;
+		for( int i = 0; i < n; i++ )
+		{
+			big.add( i );
+		}
+		assertEquals( "Height of tree should be ", n, big.getHeight() );
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( big );
+		}
+		@SuppressWarnings( "unchecked" )
+		SplayTree<Integer> copy = (SplayTree<Integer>) new ObjectInputStream(
+				new ByteArrayInputStream( bytes.toByteArray() ) ).readObject();
+		assertEquals( "Failed to keep size.", n, copy.size() );
+		assertEquals( "Height of tree should be ", 17, copy.getHeight() );
+
+		// searching the deep end of the path splays it and roughly halves the depth
+		assertNotNull( big.search( 0 ) );
+		assertTrue( "Splaying failed to shorten the path.", big.getHeight() < n / 2 + 2 );
+	}
+
+	/**
+	 * Test random operations against a TreeSet.
+	 */
+	@Test
+	public void testRandomAgainstTreeSet()
+	{
+		Random random = new Random( 7 );
+		SplayTree<Integer> splay = new SplayTree<Integer>();
+		TreeSet<Integer> expected = new TreeSet<Integer>();
+		for( int i = 0; i < 20000; i++ )
+		{
+			int v = random.nextInt( 2000 );
+			switch( random.nextInt( 4 ) )
+			{
+				case 0:
+					assertEquals( expected.add( v ), splay.add( v ) );
+					break;
+				case 1:
+					assertEquals( expected.contains( v ), splay.contains( v ) );
+					break;
+				case 2:
+					Integer min = expected.pollFirst();
+					assertEquals( min, min == null ? null : splay.removeMin().getElement() );
+					break;
+				default:
+					Integer max = expected.pollLast();
+					assertEquals( max, max == null ? null : splay.removeMax().getElement() );
+					break;
+			}
+			assertEquals( expected.size(), splay.size() );
+		}
+		Integer[] values = expected.toArray( new Integer[0] );
+		int[] ints = new int[values.length];
+		for( int i = 0; i < ints.length; i++ )
+		{
+			ints[i] = values[i];
+		}
+		assertInOrder( splay, ints );
+	}
+
+	private static void assertInOrder( SplayTree<Integer> tree, int... values )
+	{
+		Iterator<Integer> it = tree.inorderIterator();
+		for( int v : values )
+		{
+			assertTrue( "Iterator skipped elements.", it.hasNext() );
+			assertEquals( "Iterator is out of order.", v, (int) it.next() );
+		}
+		assertFalse( "Iterator has extra elements.", it.hasNext() );
+	}
+
+	/**
+	 * Test method for {@link implementations.SplayTree#forEachInRange(Comparable, Comparable, java.util.function.Predicate)}
+	 * to visit only the elements between the bounds without splaying.
+	 */
+	@Test
+	public void testForEachInRange()
+	{
+		int root = tree.getRoot().getElement();
+		List<Integer> visited = new ArrayList<Integer>();
+		tree.forEachInRange( 30, 60, visited::add );
+		assertEquals( "Failed to visit the range.", Arrays.asList( 33, 44, 55 ), visited );
+		assertEquals( "Range walk splayed the tree.", root, (int) tree.getRoot().getElement() );
+	}
+}
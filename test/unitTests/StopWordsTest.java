@@ -0,0 +1,158 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import utilities.Analyzer;
+import utilities.StopWords;
+
+/**
+ * Class Description: Tests for the perfect-hash stop-word set and the
+ * analysis chain built on it.
+ */
+
+public class StopWordsTest
+{
+	// Attributes
+	private StopWords stopWords;
+
+	/**
+	 * Builds the English stop-word set before each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Before
+	public void setUp() throws Exception
+	{
+		stopWords = StopWords.english();
+	}
+
+	/**
+	 * Cleans up instances used after each test.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@After
+	public void tearDown() throws Exception
+	{
+		stopWords = null;
+	}
+
+	/**
+	 * Test method for {@link utilities.StopWords#contains(String)} to find
+	 * every member and nothing else.
+	 */
+	@Test
+	public void testContains()
+	{
+		for( String w : StopWords.ENGLISH )
+		{
+			assertTrue( "Missed a stop word: " + w, stopWords.contains( w ) );
+		}
+		assertEquals( "Failed to count words.", StopWords.ENGLISH.size(), stopWords.size() );
+		String[] others = { "", "tree", "word", "thee", "these1", "yourselvesx", "an " };
+		for( String w : others )
+		{
+			assertFalse( "Accepted a non-member: " + w, stopWords.contains( w ) );
+		}
+		assertTrue( "Table should be at most half full.", stopWords.tableSize() >= 2 * stopWords.size() );
+	}
+
+	/**
+	 * Test that sets of many sizes, including the empty set, are built
+	 * without collisions.
+	 */
+	@Test
+	public void testManySizes()
+	{
+		List<String> words = new ArrayList<String>();
+		for( int n = 0; n <= 2000; n += 97 )
+		{
+			while( words.size() < n )
+			{
+				words.add( "w" + words.size() );
+			}
+			StopWords set = new StopWords( words );
+			assertEquals( "Failed to count words.", n, set.size() );
+			for( String w : words )
+			{
+				assertTrue( "Missed a word: " + w, set.contains( w ) );
+			}
+			assertFalse( "Accepted a non-member.", set.contains( "w" + n ) );
+		}
+	}
+
+	/**
+	 * Test that words are folded when the set is built and that a word list
+	 * file is read with comments.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testFoldAndLoad() throws Exception
+	{
+		StopWords set = new StopWords( Arrays.asList( "The", " AND ", "" ) );
+		assertEquals( "Failed to fold words.", Arrays.asList( "and", "the" ), set.words() );
+
+		File file = File.createTempFile( "stop", ".txt" );
+		try
+		{
+			try( PrintWriter out = new PrintWriter( file, "UTF-8" ) )
+			{
+				out.println( "# articles" );
+				out.println( "the, a an" );
+				out.println( "und # German" );
+			}
+			assertEquals( "Failed to read the list.", Arrays.asList( "a", "an", "the", "und" ),
+					StopWords.load( file ).words() );
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Test method for {@link utilities.Analyzer#analyze(String)} and for the
+	 * chain surviving serialization.
+	 *
+	 * @throws java.lang.Exception
+	 */
+	@Test
+	public void testAnalyzer() throws Exception
+	{
+		Analyzer analyzer = new Analyzer( stopWords, true );
+		assertNull( "Kept a stop word.", analyzer.analyze( "the" ) );
+		assertEquals( "Failed to stem.", "connect", analyzer.analyze( "connections" ) );
+		String plain = "tree";
+		assertSame( "Copied an unchanged word.", plain, analyzer.analyze( plain ) );
+		assertEquals( "Stemmed without stemming.", "running", new Analyzer( stopWords, false ).analyze( "running" ) );
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try( ObjectOutputStream out = new ObjectOutputStream( bytes ) )
+		{
+			out.writeObject( analyzer );
+		}
+		Analyzer copy;
+		try( ObjectInputStream in = new ObjectInputStream( new ByteArrayInputStream( bytes.toByteArray() ) ) )
+		{
+			copy = (Analyzer) in.readObject();
+		}
+		assertEquals( "Failed to keep the chain.", analyzer, copy );
+		assertNull( "Kept a stop word.", copy.analyze( "of" ) );
+		assertFalse( "Stemming was ignored.", analyzer.equals( new Analyzer( stopWords, false ) ) );
+	}
+}
@@ -0,0 +1,71 @@
+package unitTests;
+
+import java.io.File;
+import java.io.PrintWriter;
+
+/**
+ * Class Description: Temporary input files and directories shared by the
+ * tests. Files are written in the platform charset, as the trackers read
+ * them.
+ */
+
+public final class TempFiles
+{
+	private TempFiles()
+	{
+	}
+
+	/**
+	 * Writes text to a new temporary file.
+	 *
+	 * @param name start of the file name, at least three characters
+	 * @param text the contents
+	 * @return the file, for the caller to delete
+	 * @throws java.lang.Exception
+	 */
+	public static File write( String name, String text ) throws Exception
+	{
+		return write( File.createTempFile( name, ".txt" ), text );
+	}
+
+	/**
+	 * Writes text to {@code <name>.txt} in a directory.
+	 *
+	 * @param dir  the directory, which must exist
+	 * @param name the file name without {@code .txt}
+	 * @param text the contents
+	 * @return the file
+	 * @throws java.lang.Exception
+	 */
+	public static File write( File dir, String name, String text ) throws Exception
+	{
+		return write( new File( dir, name + ".txt" ), text );
+	}
+
+	/**
+	 * Deletes a directory and the files directly in it.
+	 *
+	 * @param dir the directory, which may be missing
+	 */
+	public static void delete( File dir )
+	{
+		File[] files = dir.listFiles();
+		if( files != null )
+		{
+			for( File f : files )
+			{
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	private static File write( File file, String text ) throws Exception
+	{
+		try( PrintWriter out = new PrintWriter( file ) )
+		{
+			out.print( text );
+		}
+		return file;
+	}
+}
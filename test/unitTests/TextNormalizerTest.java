@@ -0,0 +1,95 @@
+package unitTests;
+
+import static org.junit.Assert.*;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import utilities.TextNormalizer;
+
+/**
+ * Class Description: Tests for the token normalization and case folding
+ * applied at ingest and lookup.
+ */
+
+public class TextNormalizerTest
+{
+	/**
+	 * Test method for {@link utilities.TextNormalizer#clean(String)} to match
+	 * the old punctuation regex on random ASCII tokens.
+	 */
+	@Test
+	public void testClean_AsciiMatchesRegex()
+	{
+		Random random = new Random( 3 );
+		for( int i = 0; i < 20000; i++ )
+		{
+			char[] chars = new char[random.nextInt( 12 )];
+			for( int j = 0; j < chars.length; j++ )
+			{
+				chars[j] = (char) random.nextInt( 128 );
+			}
+			String raw = new String( chars );
+			assertEquals( "Cleaned differently: " + raw, raw.replaceAll( "[\\p{Punct}]", "" ).trim(),
+					TextNormalizer.clean( raw ) );
+		}
+		String plain = "word";
+		assertSame( "Copied a clean token.", plain, TextNormalizer.clean( plain ) );
+	}
+
+	/**
+	 * Test method for {@link utilities.TextNormalizer#clean(String)} to remove
+	 * Unicode punctuation and apply NFKC.
+	 */
+	@Test
+	public void testClean_Unicode()
+	{
+		assertEquals( "Failed to strip curly quotes.", "dont", TextNormalizer.clean( "“don’t”" ) );
+		assertEquals( "Failed to strip dashes.", "wellknown", TextNormalizer.clean( "well—known…" ) );
+		assertEquals( "Failed to expand ligature.", "fine", TextNormalizer.clean( "ﬁne" ) );
+		assertEquals( "Failed to map full-width letters.", "ABC", TextNormalizer.clean( "ＡＢＣ" ) );
+		assertEquals( "Failed to compose accents.", "café", TextNormalizer.clean( "café" ) );
+		assertEquals( "Removed letters.", "über", TextNormalizer.clean( "»über«" ) );
+	}
+
+	/**
+	 * Test method for {@link utilities.TextNormalizer#fold(String)} on ASCII
+	 * words.
+	 */
+	@Test
+	public void testFold_Ascii()
+	{
+		assertEquals( "Failed to fold.", "hello world", TextNormalizer.fold( "HeLLo WORLD" ) );
+		assertEquals( "Changed non-letters.", "@[`{09", TextNormalizer.fold( "@[`{09" ) );
+		String lower = "already";
+		assertSame( "Copied a folded word.", lower, TextNormalizer.fold( lower ) );
+		assertEquals( "Failed to fold the empty string.", "", TextNormalizer.fold( "" ) );
+	}
+
+	/**
+	 * Test method for {@link utilities.TextNormalizer#fold(String)} to ignore
+	 * the default locale and fold full case mappings.
+	 */
+	@Test
+	public void testFold_Unicode()
+	{
+		Locale saved = Locale.getDefault();
+		try
+		{
+			Locale.setDefault( new Locale( "tr", "TR" ) );
+			assertEquals( "Used the default locale.", "title", TextNormalizer.fold( "TITLE" ) );
+			assertEquals( "Used the default locale.", "çift", TextNormalizer.fold( "ÇIFT" ) );
+		}
+		finally
+		{
+			Locale.setDefault( saved );
+		}
+		assertEquals( "Failed to fold sharp s.", TextNormalizer.fold( "STRASSE" ), TextNormalizer.fold( "Straße" ) );
+		assertEquals( "Failed to fold final sigma.", TextNormalizer.fold( "ΣΟΣ" ),
+				TextNormalizer.fold( "σος" ) );
+		assertTrue( "Failed to detect ASCII.", TextNormalizer.isAscii( "plain text" ) );
+		assertFalse( "Failed to detect non-ASCII.", TextNormalizer.isAscii( "naïve" ) );
+	}
+}